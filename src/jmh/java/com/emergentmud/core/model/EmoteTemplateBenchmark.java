@@ -0,0 +1,113 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders all seven messages of a typical emote, once with the old chain of String.replace calls and once
+ * with compiled templates. Run with "gradle jmh" and compare the gc.alloc.rate.norm column, which is the
+ * number of bytes allocated per emote.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmoteTemplateBenchmark {
+    private Entity self;
+    private Entity target;
+    private EmoteMetadata metadata;
+
+    @Setup
+    public void setUp() {
+        Pronoun female = new Pronoun("female", "she", "her", "her", "hers", "herself");
+        Pronoun male = new Pronoun("male", "he", "him", "his", "his", "himself");
+
+        self = new Entity();
+        self.setName("Alice");
+        self.setGender(female);
+
+        target = new Entity();
+        target.setName("Bob");
+        target.setGender(male);
+
+        metadata = new EmoteMetadata("wink", 100);
+        metadata.setToSelfUntargeted("You wink.");
+        metadata.setToRoomUntargeted("%self% winks.");
+        metadata.setToSelfWithTarget("You wink at %target%.");
+        metadata.setToTarget("%self% winks at you.");
+        metadata.setToRoomWithTarget("%self% winks at %target%.");
+        metadata.setToSelfAsTarget("You scrunch up your face, trying to wink at yourself.");
+        metadata.setToRoomTargetingSelf("%self% scrunches up %his% face, like %he%'s trying to wink at %himself%.");
+    }
+
+    @Benchmark
+    public void replace(Blackhole blackhole) {
+        blackhole.consume(replaceVariables(metadata.getToSelfUntargeted(), self, null));
+        blackhole.consume(replaceVariables(metadata.getToRoomUntargeted(), self, null));
+        blackhole.consume(replaceVariables(metadata.getToSelfWithTarget(), self, target));
+        blackhole.consume(replaceVariables(metadata.getToTarget(), self, target));
+        blackhole.consume(replaceVariables(metadata.getToRoomWithTarget(), self, target));
+        blackhole.consume(replaceVariables(metadata.getToSelfAsTarget(), self, self));
+        blackhole.consume(replaceVariables(metadata.getToRoomTargetingSelf(), self, self));
+    }
+
+    @Benchmark
+    public void template(Blackhole blackhole) {
+        blackhole.consume(metadata.getToSelfUntargetedTemplate().render(self, null));
+        blackhole.consume(metadata.getToRoomUntargetedTemplate().render(self, null));
+        blackhole.consume(metadata.getToSelfWithTargetTemplate().render(self, target));
+        blackhole.consume(metadata.getToTargetTemplate().render(self, target));
+        blackhole.consume(metadata.getToRoomWithTargetTemplate().render(self, target));
+        blackhole.consume(metadata.getToSelfAsTargetTemplate().render(self, self));
+        blackhole.consume(metadata.getToRoomTargetingSelfTemplate().render(self, self));
+    }
+
+    // the implementation that EmoteTemplate replaced, kept here as the baseline
+    private String replaceVariables(String message, Entity self, Entity target) {
+        message = message.replace("%self%", self.getName());
+        message = message.replace("%target%", (target == null ? "NULL" : target.getName()));
+        message = message.replace("%him%", self.getGender().getObject());
+        message = message.replace("%selfpos%", self.getName() + "'s");
+        message = message.replace("%targetpos%", (target == null ? "NULL" : target.getName()) + "'s");
+        message = message.replace("%his%", self.getGender().getPossessive());
+        message = message.replace("%he%", self.getGender().getSubject());
+        message = message.replace("%himself%", self.getGender().getReflexive());
+        message = message.replace("%hispos%", self.getGender().getPossessivePronoun());
+
+        return StringUtils.capitalize(message);
+    }
+}
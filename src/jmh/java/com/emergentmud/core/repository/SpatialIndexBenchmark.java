@@ -0,0 +1,259 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the queries behind RoomRepository, EntityRepository, ZoneRepository and AccountRepository against
+ * a seeded world, once with the schema as of V0004 and once after V0005 has added its indexes. The query
+ * plans are printed during setup so you can see which indexes get used.
+ *
+ * This needs a real PostgreSQL database. It defaults to the one in docker-compose.yaml, and works in a
+ * schema of its own that it wipes every time. Use -Dbenchmark.jdbc.url, -Dbenchmark.jdbc.username and
+ * -Dbenchmark.jdbc.password to point it somewhere else.
+ * The world is worldSize x worldSize rooms, so the default is a million rooms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+    private static final String SCHEMA = "spatial_index_benchmark";
+    private static final int ZONE_SIZE = 10;
+    private static final int CHUNK_SIZE = 32;
+
+    private static final String ROOM_AT_POINT = "SELECT * FROM room WHERE x = ? AND y = ? AND z = ?";
+    private static final String ROOM_CHUNK = "SELECT * FROM room WHERE x BETWEEN ? AND ? AND y BETWEEN ? AND ? AND z = ?";
+    private static final String ENTITIES_AT_POINT = "SELECT * FROM entity WHERE x = ? AND y = ? AND z = ?";
+    private static final String ENTITIES_ONLINE = "SELECT * FROM entity WHERE x IS NOT NULL OR y IS NOT NULL OR z IS NOT NULL";
+    private static final String ENTITY_BY_NAME = "SELECT * FROM entity WHERE upper(name) LIKE upper(?) LIMIT 1";
+    private static final String ACCOUNT_BY_SOCIAL_NETWORK = "SELECT * FROM account WHERE social_network = ? AND social_network_id = ?";
+    private static final String ZONE_AT_POINT = "SELECT * FROM zone WHERE box(point(bottom_left_x, bottom_left_y), point(top_right_x, top_right_y)) && box(point(?, ?), point(?, ?))";
+
+    @Param({"before", "after"})
+    private String indexes;
+
+    @Param({"1000"})
+    private int worldSize;
+
+    private Connection connection;
+    private Random random = new Random();
+
+    private PreparedStatement roomAtPoint;
+    private PreparedStatement roomChunk;
+    private PreparedStatement entitiesAtPoint;
+    private PreparedStatement entitiesOnline;
+    private PreparedStatement entityByName;
+    private PreparedStatement accountBySocialNetwork;
+    private PreparedStatement zoneAtPoint;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/emergentmud");
+        String username = System.getProperty("benchmark.jdbc.username", "emergentmud");
+        String password = System.getProperty("benchmark.jdbc.password", "emergentmud");
+
+        Flyway flyway = new Flyway();
+
+        flyway.setDataSource(url, username, password);
+        flyway.setSchemas(SCHEMA);
+        flyway.setTarget(MigrationVersion.fromVersion("0004"));
+        flyway.clean();
+        flyway.migrate();
+
+        connection = DriverManager.getConnection(url, username, password);
+        connection.setSchema(SCHEMA);
+
+        seed();
+
+        if ("after".equals(indexes)) {
+            long start = System.currentTimeMillis();
+
+            flyway.setTarget(MigrationVersion.LATEST);
+            flyway.migrate();
+
+            System.out.printf("%nMigrated to %s in %d ms%n", flyway.info().current().getVersion(), System.currentTimeMillis() - start);
+        }
+
+        execute("ANALYZE");
+
+        roomAtPoint = connection.prepareStatement(ROOM_AT_POINT);
+        roomChunk = connection.prepareStatement(ROOM_CHUNK);
+        entitiesAtPoint = connection.prepareStatement(ENTITIES_AT_POINT);
+        entitiesOnline = connection.prepareStatement(ENTITIES_ONLINE);
+        entityByName = connection.prepareStatement(ENTITY_BY_NAME);
+        accountBySocialNetwork = connection.prepareStatement(ACCOUNT_BY_SOCIAL_NETWORK);
+        zoneAtPoint = connection.prepareStatement(ZONE_AT_POINT);
+
+        explain(ROOM_AT_POINT, 500L, 500L, 0L);
+        explain(ROOM_CHUNK, 480L, 511L, 480L, 511L, 0L);
+        explain(ENTITIES_AT_POINT, 500L, 5L, 0L);
+        explain(ENTITIES_ONLINE);
+        explain(ENTITY_BY_NAME, "entity123%");
+        explain(ACCOUNT_BY_SOCIAL_NETWORK, "google", "123");
+        explain(ZONE_AT_POINT, 500L, 500L, 500L, 500L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void roomAtPoint(Blackhole blackhole) throws SQLException {
+        bind(roomAtPoint, (long)random.nextInt(worldSize), (long)random.nextInt(worldSize), 0L);
+        consume(roomAtPoint, blackhole);
+    }
+
+    @Benchmark
+    public void roomChunk(Blackhole blackhole) throws SQLException {
+        long x = random.nextInt(worldSize / CHUNK_SIZE) * CHUNK_SIZE;
+        long y = random.nextInt(worldSize / CHUNK_SIZE) * CHUNK_SIZE;
+
+        bind(roomChunk, x, x + CHUNK_SIZE - 1, y, y + CHUNK_SIZE - 1, 0L);
+        consume(roomChunk, blackhole);
+    }
+
+    @Benchmark
+    public void entitiesAtPoint(Blackhole blackhole) throws SQLException {
+        bind(entitiesAtPoint, (long)random.nextInt(worldSize), (long)random.nextInt(10), 0L);
+        consume(entitiesAtPoint, blackhole);
+    }
+
+    @Benchmark
+    public void entitiesOnline(Blackhole blackhole) throws SQLException {
+        consume(entitiesOnline, blackhole);
+    }
+
+    @Benchmark
+    public void entityByName(Blackhole blackhole) throws SQLException {
+        bind(entityByName, "entity" + random.nextInt(worldSize * 10) + "%");
+        consume(entityByName, blackhole);
+    }
+
+    @Benchmark
+    public void accountBySocialNetwork(Blackhole blackhole) throws SQLException {
+        bind(accountBySocialNetwork, "google", String.valueOf(random.nextInt(worldSize * 10)));
+        consume(accountBySocialNetwork, blackhole);
+    }
+
+    @Benchmark
+    public void zoneAtPoint(Blackhole blackhole) throws SQLException {
+        long x = random.nextInt(worldSize);
+        long y = random.nextInt(worldSize);
+
+        bind(zoneAtPoint, x, y, x, y);
+        consume(zoneAtPoint, blackhole);
+    }
+
+    /*
+     * Rooms cover every tile of the world, zones tile it in 10x10 squares, and there are ten entities
+     * and accounts per row of rooms. One entity in a hundred is in the world.
+     */
+    private void seed() throws SQLException {
+        long start = System.currentTimeMillis();
+        int zones = worldSize / ZONE_SIZE;
+        int entities = worldSize * 10;
+
+        execute(String.format("INSERT INTO zone (id, bottom_left_x, bottom_left_y, bottom_left_z, top_right_x, top_right_y, top_right_z, elevation, moisture) " +
+                "SELECT md5(random()::text || zx || ',' || zy)::uuid, zx * %1$d, zy * %1$d, 0, zx * %1$d + %2$d, zy * %1$d + %2$d, 0, 1, 1 " +
+                "FROM generate_series(0, %3$d) zx, generate_series(0, %3$d) zy", ZONE_SIZE, ZONE_SIZE - 1, zones - 1));
+
+        execute(String.format("INSERT INTO room (id, x, y, z) " +
+                "SELECT md5(random()::text || x || ',' || y)::uuid, x, y, 0 " +
+                "FROM generate_series(0, %1$d) x, generate_series(0, %1$d) y", worldSize - 1));
+
+        execute(String.format("INSERT INTO account (id, social_network, social_network_id) " +
+                "SELECT md5(random()::text || i)::uuid, 'google', i::text " +
+                "FROM generate_series(0, %d) i", entities - 1));
+
+        execute(String.format("INSERT INTO entity (id, name, x, y, z) " +
+                "SELECT md5(random()::text || i)::uuid, 'Entity' || i, " +
+                "CASE WHEN i %% 100 = 0 THEN i %% %1$d END, " +
+                "CASE WHEN i %% 100 = 0 THEN i / %1$d END, " +
+                "CASE WHEN i %% 100 = 0 THEN 0 END " +
+                "FROM generate_series(0, %2$d) i", worldSize, entities - 1));
+
+        System.out.printf("%nSeeded %d rooms, %d zones and %d entities in %d ms%n",
+                (long)worldSize * worldSize, zones * zones, entities, System.currentTimeMillis() - start);
+    }
+
+    private void explain(String sql, Object ... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+            bind(statement, parameters);
+
+            System.out.printf("%n[%s] %s%n", indexes, sql);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    System.out.println("    " + resultSet.getString(1));
+                }
+            }
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private void bind(PreparedStatement statement, Object ... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+
+    private void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getObject(1));
+            }
+        }
+    }
+}
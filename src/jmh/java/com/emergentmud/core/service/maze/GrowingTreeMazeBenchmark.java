@@ -0,0 +1,112 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Biome;
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.RoomRepository;
+import com.emergentmud.core.service.RoomCache;
+import com.emergentmud.core.service.WorldSeed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills square zones of increasing size with the growing tree algorithm, and with Eller's algorithm for
+ * comparison. The database is replaced with a repository that saves nothing and finds nothing, so this
+ * only measures generating the maze.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrowingTreeMazeBenchmark {
+    @Param({"10", "50", "100", "250", "500", "1000"})
+    private int size;
+
+    @Param({"newestCellSelectionStrategy", "randomCellSelectionStrategy", EllerMazeStrategy.NAME})
+    private String cellSelectionStrategy;
+
+    private ZoneFillStrategy strategy;
+    private Zone zone;
+    private Coordinate start;
+
+    @Setup
+    public void setUp() {
+        RoomRepository roomRepository = (RoomRepository) Proxy.newProxyInstance(
+                RoomRepository.class.getClassLoader(),
+                new Class<?>[] { RoomRepository.class },
+                (proxy, method, args) -> {
+                    if ("save".equals(method.getName())) {
+                        return args[0];
+                    } else if (List.class.equals(method.getReturnType())) {
+                        return Collections.emptyList();
+                    }
+
+                    return null;
+                });
+
+        Map<String, CellSelectionStrategy> strategies = new HashMap<>();
+
+        strategies.put("newestCellSelectionStrategy", new NewestCellSelectionStrategy());
+        strategies.put("randomCellSelectionStrategy", new RandomCellSelectionStrategy());
+
+        RoomCache roomCache = new RoomCache(roomRepository, Long.MAX_VALUE);
+
+        // a fixed seed carves the same maze on every invocation, so runs can be compared with each other
+        WorldSeed worldSeed = new WorldSeed(1234L);
+
+        strategy = new BiomeZoneFillStrategy(
+                new GrowingTreeMazeStrategy(roomRepository, roomCache, worldSeed, strategies),
+                new EllerMazeStrategy(roomRepository, roomCache, worldSeed, 500));
+
+        zone = new Zone();
+        zone.setBottomLeft(new Coordinate(0L, 0L, 0L));
+        zone.setTopRight(new Coordinate(size - 1, size - 1, 0L));
+        zone.setBiome(new Biome("Benchmark", 0, cellSelectionStrategy));
+
+        start = new Coordinate(size / 2, size / 2, 0L);
+    }
+
+    @Benchmark
+    public Room fillZone() {
+        return strategy.fillZone(zone, start);
+    }
+}
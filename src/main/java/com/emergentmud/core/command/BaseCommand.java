@@ -29,18 +29,39 @@ import java.util.Collections;
 import java.util.List;
 
 public abstract class BaseCommand implements Command {
+    private static final String VERB = "\u0000";
+
     private List<SubCommand> subCommands = new ArrayList<>();
     private List<Parameter> parameters = new ArrayList<>();
     private String description = "No description.";
+    private volatile List<String> usageLines;
 
     @Override
     public abstract GameOutput execute(GameOutput output, Entity entity, String command, String[] tokens, String raw);
 
+    // the lines are rendered once per command, with a marker where the name it was invoked by goes
     @Override
     public GameOutput usage(GameOutput output, String command) {
+        List<String> lines = usageLines;
+
+        if (lines == null) {
+            lines = renderUsage();
+            usageLines = lines;
+        }
+
+        String verb = command.toUpperCase();
+
+        lines.forEach(line -> output.append(line.replace(VERB, verb)));
+
+        return output;
+    }
+
+    private List<String> renderUsage() {
+        GameOutput output = new GameOutput();
+
         if (!subCommands.isEmpty()) {
             output.append("[white]Description[dwhite]: [white]" + description);
-            output.append(String.format("[white]Usage[dwhite]: [white]%s [dwhite]&lt;[white]sub-command[dwhite]&gt;", command.toUpperCase()));
+            output.append("[white]Usage[dwhite]: [white]" + VERB + " [dwhite]&lt;[white]sub-command[dwhite]&gt;");
             output.append("[white]Sub-commands[dwhite]:");
 
             subCommands.forEach(sc -> {
@@ -81,7 +102,7 @@ public abstract class BaseCommand implements Command {
             output.append("[white]Description[dwhite]: [white]" + description);
 
             buf.append("[white]Usage[dwhite]: [white]");
-            buf.append(command.toUpperCase());
+            buf.append(VERB);
             buf.append(" ");
 
             parameters.forEach(p -> {
@@ -104,10 +125,10 @@ public abstract class BaseCommand implements Command {
             output.append(buf.toString().trim());
         } else {
             output.append("[white]Description[dwhite]: [white]" + description);
-            output.append("[white]Usage[dwhite]: [white]" + command.toUpperCase());
+            output.append("[white]Usage[dwhite]: [white]" + VERB);
         }
 
-        return output;
+        return Collections.unmodifiableList(output.getOutput());
     }
 
     @Override
@@ -127,13 +148,16 @@ public abstract class BaseCommand implements Command {
 
     protected void setDescription(String description) {
         this.description = description;
+        usageLines = null;
     }
 
     protected void addParameter(String parameter, boolean isRequired) {
         parameters.add(new Parameter(parameter, isRequired));
+        usageLines = null;
     }
 
     protected void addSubcommand(String command, String description, Parameter... parameters) {
         subCommands.add(new SubCommand(command, description, Arrays.asList(parameters)));
+        usageLines = null;
     }
 }
@@ -0,0 +1,347 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.command;
+
+import com.emergentmud.core.model.Capability;
+import com.emergentmud.core.model.CapabilityMask;
+import com.emergentmud.core.model.Capable;
+import com.emergentmud.core.model.CommandMetadata;
+import com.emergentmud.core.model.CommandRole;
+import com.emergentmud.core.model.EmoteMetadata;
+import com.emergentmud.core.repository.CommandMetadataRepository;
+import com.emergentmud.core.repository.EmoteMetadataRepository;
+import com.emergentmud.core.service.CapabilityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maps every abbreviation of every command and emote verb to the things it could mean, in the order
+ * they should be tried. The index is an immutable snapshot that is rebuilt from the database at startup
+ * and whenever an editor command changes the metadata, so dispatching input never touches the database.
+ */
+@Component
+public class CommandIndex implements ApplicationListener<ContextRefreshedEvent> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandIndex.class);
+    private static final Sort SORT_BY_NAME = new Sort(Sort.Direction.ASC, "name");
+    private static final Sort SORT_BY_PRIORITY = new Sort(Sort.Direction.ASC, "priority", "name");
+    private static final int NO_ORDINAL = -1;
+
+    private ApplicationContext applicationContext;
+    private CommandMetadataRepository commandMetadataRepository;
+    private EmoteMetadataRepository emoteMetadataRepository;
+    private CapabilityService capabilityService;
+
+    private volatile Snapshot snapshot;
+
+    @Inject
+    public CommandIndex(ApplicationContext applicationContext,
+                        CommandMetadataRepository commandMetadataRepository,
+                        EmoteMetadataRepository emoteMetadataRepository,
+                        CapabilityService capabilityService) {
+        this.applicationContext = applicationContext;
+        this.commandMetadataRepository = commandMetadataRepository;
+        this.emoteMetadataRepository = emoteMetadataRepository;
+        this.capabilityService = capabilityService;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        Snapshot next = new Snapshot(
+                capabilityService.getGeneration(),
+                capabilityService.getCapability(CommandRole.SUPER),
+                capabilityService.getCapability(CommandRole.EMOTE));
+
+        commandMetadataRepository.findAll(SORT_BY_PRIORITY).forEach(metadata -> {
+            try {
+                Command command = (Command) applicationContext.getBean(metadata.getBeanName());
+
+                Entry entry = new Entry(metadata, command);
+
+                next.commandList.add(entry);
+                next.commandsByName.putIfAbsent(metadata.getName().toLowerCase(), entry);
+                next.commands.insert(metadata.getName(), entry);
+            } catch (BeansException e) {
+                LOGGER.warn("Command '{}' refers to missing bean '{}' and will be ignored.", metadata.getName(), metadata.getBeanName());
+            }
+        });
+
+        emoteMetadataRepository.findAll(SORT_BY_NAME).forEach(metadata -> {
+            next.emoteList.add(metadata);
+            next.emotes.insert(metadata.getName(), metadata);
+        });
+
+        next.commandList.forEach(entry -> entry.ordinal = ordinalOf(entry.getMetadata().getCapability()));
+        next.superOrdinal = ordinalOf(next.superCapability);
+        next.emoteOrdinal = ordinalOf(next.emoteCapability);
+        next.maskable = next.commandList
+                .stream()
+                .allMatch(entry -> entry.ordinal != NO_ORDINAL)
+                && (next.superCapability == null || next.superOrdinal != NO_ORDINAL)
+                && (next.emoteCapability == null || next.emoteOrdinal != NO_ORDINAL);
+
+        snapshot = next;
+
+        LOGGER.debug("Rebuilt command index");
+    }
+
+    public Optional<Entry> findCommand(Capable capable, String verb) {
+        Snapshot current = getSnapshot();
+        CapabilityMask mask = getMask(current, capable);
+
+        return current.commands.find(verb.toLowerCase().trim())
+                .stream()
+                .filter(entry -> canUse(current, capable, mask, entry))
+                .findFirst();
+    }
+
+    public Optional<Entry> findCommandByName(String name) {
+        return Optional.ofNullable(getSnapshot().commandsByName.get(name.toLowerCase()));
+    }
+
+    /**
+     * Returns every command the caller is allowed to use, in priority order. Callers with the same
+     * capability mask can see the same commands, so the result is computed once per distinct mask.
+     */
+    public List<Entry> getVisibleCommands(Capable capable) {
+        Snapshot current = getSnapshot();
+        Visible visible = getVisible(current, capable);
+
+        return visible == null ? filterVisible(current, capable, null) : visible.entries;
+    }
+
+    /**
+     * Computes something from the caller's visible commands, such as a rendered listing, and keeps it
+     * alongside them. It is shared by everyone with the same capability mask and thrown away when the
+     * index is rebuilt.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeForVisibleCommands(Capable capable, String key, Function<List<Entry>, T> function) {
+        Snapshot current = getSnapshot();
+        Visible visible = getVisible(current, capable);
+
+        if (visible == null) {
+            return function.apply(filterVisible(current, capable, null));
+        }
+
+        return (T)visible.derived.computeIfAbsent(key, k -> function.apply(visible.entries));
+    }
+
+    public Optional<EmoteMetadata> findEmote(Capable capable, String verb) {
+        Snapshot current = getSnapshot();
+        CapabilityMask mask = getMask(current, capable);
+
+        if (mask == null ? !capable.isCapable(current.emoteCapability) : !mask.contains(current.emoteOrdinal)) {
+            return Optional.empty();
+        }
+
+        return current.emotes.find(verb.toLowerCase().trim())
+                .stream()
+                .findFirst();
+    }
+
+    public List<EmoteMetadata> getEmotes() {
+        return Collections.unmodifiableList(getSnapshot().emoteList);
+    }
+
+    private Visible getVisible(Snapshot current, Capable capable) {
+        CapabilityMask mask = getMask(current, capable);
+
+        if (mask == null) {
+            return null;
+        }
+
+        return current.visible.computeIfAbsent(new MaskKey(mask.getBits()), key -> new Visible(filterVisible(current, capable, mask)));
+    }
+
+    private List<Entry> filterVisible(Snapshot current, Capable capable, CapabilityMask mask) {
+        return Collections.unmodifiableList(current.commandList
+                .stream()
+                .filter(entry -> canUse(current, capable, mask, entry))
+                .collect(Collectors.toList()));
+    }
+
+    /*
+     * Every capability in a maskable snapshot has an ordinal, so the caller's mask can answer for all of
+     * them without hashing Capability entities. Otherwise there is no mask and the caller is asked directly.
+     */
+    private CapabilityMask getMask(Snapshot current, Capable capable) {
+        return current.maskable ? capabilityService.getCapabilityMask(capable) : null;
+    }
+
+    private boolean canUse(Snapshot current, Capable capable, CapabilityMask mask, Entry entry) {
+        if (mask == null) {
+            return capable.isCapable(entry.getMetadata().getCapability()) || capable.isCapable(current.superCapability);
+        }
+
+        return mask.contains(entry.ordinal) || mask.contains(current.superOrdinal);
+    }
+
+    private int ordinalOf(Capability capability) {
+        Integer ordinal = capabilityService.ordinalOf(capability);
+
+        return ordinal == null ? NO_ORDINAL : ordinal;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (current == null || current.generation != capabilityService.getGeneration()) {
+            rebuild();
+            current = snapshot;
+        }
+
+        return current;
+    }
+
+    public static class Entry {
+        private CommandMetadata metadata;
+        private Command command;
+        private int ordinal = NO_ORDINAL;
+
+        Entry(CommandMetadata metadata, Command command) {
+            this.metadata = metadata;
+            this.command = command;
+        }
+
+        public CommandMetadata getMetadata() {
+            return metadata;
+        }
+
+        public Command getCommand() {
+            return command;
+        }
+    }
+
+    private static class Snapshot {
+        private int generation;
+        private Capability superCapability;
+        private Capability emoteCapability;
+        private int superOrdinal = NO_ORDINAL;
+        private int emoteOrdinal = NO_ORDINAL;
+        private Trie<Entry> commands = new Trie<>();
+        private List<Entry> commandList = new ArrayList<>();
+        private Map<String, Entry> commandsByName = new HashMap<>();
+        private Map<MaskKey, Visible> visible = new ConcurrentHashMap<>();
+        private boolean maskable;
+        private Trie<EmoteMetadata> emotes = new Trie<>();
+        private List<EmoteMetadata> emoteList = new ArrayList<>();
+
+        Snapshot(int generation, Capability superCapability, Capability emoteCapability) {
+            this.generation = generation;
+            this.superCapability = superCapability;
+            this.emoteCapability = emoteCapability;
+        }
+    }
+
+    private static class Visible {
+        private List<Entry> entries;
+        private Map<String, Object> derived = new ConcurrentHashMap<>();
+
+        Visible(List<Entry> entries) {
+            this.entries = entries;
+        }
+    }
+
+    private static class MaskKey {
+        private long[] mask;
+
+        MaskKey(long[] mask) {
+            int length = mask.length;
+
+            while (length > 0 && mask[length - 1] == 0) {
+                length--;
+            }
+
+            this.mask = Arrays.copyOf(mask, length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MaskKey)) return false;
+
+            MaskKey that = (MaskKey) o;
+
+            return Arrays.equals(mask, that.mask);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(mask);
+        }
+    }
+
+    /*
+     * Every node keeps the complete list of values whose names pass through it, in the order they
+     * were inserted, so a lookup is one walk down the tree followed by a scan of a short list.
+     */
+    private static class Trie<T> {
+        private Map<Character, Trie<T>> children = new HashMap<>();
+        private List<T> values = new ArrayList<>();
+
+        void insert(String name, T value) {
+            Trie<T> node = this;
+
+            node.values.add(value);
+
+            for (char c : name.toCharArray()) {
+                node = node.children.computeIfAbsent(c, k -> new Trie<>());
+                node.values.add(value);
+            }
+        }
+
+        List<T> find(String prefix) {
+            Trie<T> node = this;
+
+            for (char c : prefix.toCharArray()) {
+                node = node.children.get(c);
+
+                if (node == null) {
+                    return Collections.emptyList();
+                }
+            }
+
+            return node.values;
+        }
+    }
+}
@@ -21,14 +21,14 @@
 package com.emergentmud.core.command;
 
 import com.emergentmud.core.model.EmoteMetadata;
+import com.emergentmud.core.model.EmoteTemplate;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.EntityRepository;
 import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.OccupancyIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import javax.inject.Inject;
 import java.util.List;
@@ -38,13 +38,13 @@ import java.util.Optional;
 public class Emote {
     private static final Logger LOGGER = LoggerFactory.getLogger(Emote.class);
 
-    private EntityRepository entityRepository;
+    private OccupancyIndex occupancyIndex;
     private EntityService entityService;
 
     @Inject
-    public Emote(EntityRepository entityRepository,
+    public Emote(OccupancyIndex occupancyIndex,
                  EntityService entityService) {
-        this.entityRepository = entityRepository;
+        this.occupancyIndex = occupancyIndex;
         this.entityService = entityService;
     }
 
@@ -61,7 +61,7 @@ public class Emote {
             output.append("Huh?");
         } else {
             if (args.length > 0) {
-                Optional<Entity> optionalTarget = entityRepository.findByLocation(entity.getLocation())
+                Optional<Entity> optionalTarget = occupancyIndex.getOccupants(entity.getLocation())
                         .stream()
                         .filter(e -> ("self".equals(args[0]) && e.getName().equals(entity.getName()))
                                 || ("me".equals(args[0]) && e.getName().equals(entity.getName()))
@@ -77,54 +77,49 @@ public class Emote {
             }
 
             if (target == null) {
-                entityService.sendMessageToRoom(entity, new GameOutput(replaceVariables(metadata.getToRoomUntargeted(), entity, null)));
-                output.append(replaceVariables(metadata.getToSelfUntargeted(), entity, null));
+                entityService.sendMessageToRoom(entity, new GameOutput(metadata.getToRoomUntargetedTemplate().render(entity, null)));
+                output.append(metadata.getToSelfUntargetedTemplate().render(entity, null));
             } else if (entity.equals(target)) {
                 if (metadata.getToSelfAsTarget() != null && metadata.getToRoomTargetingSelf() != null) {
-                    List<Entity> others = entityRepository.findByLocation(entity.getLocation());
+                    List<Entity> others = occupancyIndex.getOccupants(entity.getLocation());
 
                     others.remove(entity);
                     others.remove(target);
 
-                    entityService.sendMessageToListeners(others, new GameOutput(replaceVariables(metadata.getToRoomTargetingSelf(), entity, target)));
-                    output.append(replaceVariables(metadata.getToSelfAsTarget(), entity, target));
+                    entityService.sendMessageToListeners(others, new GameOutput(metadata.getToRoomTargetingSelfTemplate().render(entity, target)));
+                    output.append(metadata.getToSelfAsTargetTemplate().render(entity, target));
                 } else {
                     output.append("Sorry, this emote doesn't support targeting yourself.");
                 }
             } else {
-                List<Entity> others = entityRepository.findByLocation(entity.getLocation());
+                List<Entity> others = occupancyIndex.getOccupants(entity.getLocation());
 
                 others.remove(entity);
                 others.remove(target);
 
-                entityService.sendMessageToEntity(target, new GameOutput(replaceVariables(metadata.getToTarget(), entity, target)));
-                entityService.sendMessageToListeners(others, new GameOutput(replaceVariables(metadata.getToRoomWithTarget(), entity, target)));
-                output.append(replaceVariables(metadata.getToSelfWithTarget(), entity, target));
+                entityService.sendMessageToEntity(target, new GameOutput(metadata.getToTargetTemplate().render(entity, target)));
+                entityService.sendMessageToListeners(others, new GameOutput(metadata.getToRoomWithTargetTemplate().render(entity, target)));
+                output.append(metadata.getToSelfWithTargetTemplate().render(entity, target));
             }
         }
     }
 
-    public String replaceVariables(String message, Entity self, Entity target) {
-        if (message == null) {
-            return null;
-        }
+    public EmoteMetadata preview(EmoteMetadata metadata, Entity self, Entity target) {
+        EmoteMetadata preview = new EmoteMetadata(metadata.getName(), metadata.getPriority());
 
-        if (self.equals(target)) {
-            message = message.replace("%self%", self.getName());
-            message = message.replace("%target%", target.getName());
-        } else {
-            message = message.replace("%self%", self.getName());
-            message = message.replace("%target%", (target == null ? "NULL" : target.getName()));
-        }
+        preview.setId(metadata.getId());
+        preview.setToSelfUntargeted(render(metadata.getToSelfUntargetedTemplate(), self, null));
+        preview.setToRoomUntargeted(render(metadata.getToRoomUntargetedTemplate(), self, null));
+        preview.setToSelfWithTarget(render(metadata.getToSelfWithTargetTemplate(), self, target));
+        preview.setToTarget(render(metadata.getToTargetTemplate(), self, target));
+        preview.setToRoomWithTarget(render(metadata.getToRoomWithTargetTemplate(), self, target));
+        preview.setToSelfAsTarget(render(metadata.getToSelfAsTargetTemplate(), self, self));
+        preview.setToRoomTargetingSelf(render(metadata.getToRoomTargetingSelfTemplate(), self, self));
 
-        message = message.replace("%him%", self.getGender().getObject());
-        message = message.replace("%selfpos%", self.getName() + "'s");
-        message = message.replace("%targetpos%", (target == null ? "NULL" : target.getName()) + "'s");
-        message = message.replace("%his%", self.getGender().getPossessive());
-        message = message.replace("%he%", self.getGender().getSubject());
-        message = message.replace("%himself%", self.getGender().getReflexive());
-        message = message.replace("%hispos%", self.getGender().getPossessivePronoun());
+        return preview;
+    }
 
-        return StringUtils.capitalize(message);
+    private String render(EmoteTemplate template, Entity self, Entity target) {
+        return template == null ? null : template.render(self, target);
     }
 }
@@ -21,6 +21,7 @@
 package com.emergentmud.core.command.impl;
 
 import com.emergentmud.core.command.BaseCommand;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.Parameter;
 import com.emergentmud.core.command.TableFormatter;
 import com.emergentmud.core.model.Capability;
@@ -41,12 +42,15 @@ public class CommandEditCommand extends BaseCommand {
 
     private CommandMetadataRepository commandMetadataRepository;
     private CapabilityRepository capabilityRepository;
+    private CommandIndex commandIndex;
 
     @Inject
     public CommandEditCommand(CommandMetadataRepository commandMetadataRepository,
-                              CapabilityRepository capabilityRepository) {
+                              CapabilityRepository capabilityRepository,
+                              CommandIndex commandIndex) {
         this.commandMetadataRepository = commandMetadataRepository;
         this.capabilityRepository = capabilityRepository;
+        this.commandIndex = commandIndex;
 
         setDescription("Edit and prioritize commands.");
         addSubcommand("list", "List all commands.");
@@ -112,6 +116,7 @@ public class CommandEditCommand extends BaseCommand {
                 metadata.setCapability(capability);
 
                 commandMetadataRepository.save(metadata);
+                commandIndex.rebuild();
 
                 output.append("[yellow]Added new command.");
             } else if ("priority".equals(tokens[0])) {
@@ -132,6 +137,7 @@ public class CommandEditCommand extends BaseCommand {
                 }
 
                 commandMetadataRepository.save(metadata);
+                commandIndex.rebuild();
 
                 output.append("[yellow]Updated priority.");
             } else if ("capability".equals(tokens[0])) {
@@ -151,6 +157,7 @@ public class CommandEditCommand extends BaseCommand {
                 } else {
                     metadata.setCapability(capability);
                     commandMetadataRepository.save(metadata);
+                    commandIndex.rebuild();
 
                     output.append("[yellow]Updated capability.");
                 }
@@ -21,6 +21,7 @@
 package com.emergentmud.core.command.impl;
 
 import com.emergentmud.core.command.BaseCommand;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.Parameter;
 import com.emergentmud.core.command.TableFormatter;
 import com.emergentmud.core.model.EmoteMetadata;
@@ -40,11 +41,15 @@ public class EmoteEditCommand extends BaseCommand {
 
     private EmoteMetadataRepository emoteMetadataRepository;
     private InputService inputService;
+    private CommandIndex commandIndex;
 
     @Inject
-    public EmoteEditCommand(EmoteMetadataRepository emoteMetadataRepository, InputService inputService) {
+    public EmoteEditCommand(EmoteMetadataRepository emoteMetadataRepository,
+                            InputService inputService,
+                            CommandIndex commandIndex) {
         this.emoteMetadataRepository = emoteMetadataRepository;
         this.inputService = inputService;
+        this.commandIndex = commandIndex;
 
         setDescription("Edit and prioritize emotes.");
         addSubcommand("list", "List all emotes.");
@@ -116,6 +121,7 @@ public class EmoteEditCommand extends BaseCommand {
                 metadata.setPriority(100);
 
                 emoteMetadataRepository.save(metadata);
+                commandIndex.rebuild();
 
                 output.append("[yellow]Added new emote.");
             } else if ("set".equals(tokens[0])) {
@@ -160,6 +166,7 @@ public class EmoteEditCommand extends BaseCommand {
                 }
 
                 emoteMetadataRepository.save(metadata);
+                commandIndex.rebuild();
 
                 output.append("[yellow]Updated emote.");
             } else if ("priority".equals(tokens[0])) {
@@ -180,6 +187,7 @@ public class EmoteEditCommand extends BaseCommand {
                 }
 
                 emoteMetadataRepository.save(metadata);
+                commandIndex.rebuild();
 
                 output.append("[yellow]Updated priority.");
             } else if ("delete".equals(tokens[0])) {
@@ -198,6 +206,7 @@ public class EmoteEditCommand extends BaseCommand {
                 }
 
                 emoteMetadataRepository.delete(metadata);
+                commandIndex.rebuild();
 
                 output.append("[yellow]Deleted emote.");
             }
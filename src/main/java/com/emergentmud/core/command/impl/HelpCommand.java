@@ -21,38 +21,32 @@
 package com.emergentmud.core.command.impl;
 
 import com.emergentmud.core.command.BaseCommand;
-import com.emergentmud.core.command.Command;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.TableFormatter;
-import com.emergentmud.core.model.Capability;
-import com.emergentmud.core.model.CommandMetadata;
 import com.emergentmud.core.model.CommandRole;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.CapabilityRepository;
-import com.emergentmud.core.repository.CommandMetadataRepository;
-import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.Sort;
+import com.emergentmud.core.service.CapabilityService;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 
 @Component
 public class HelpCommand extends BaseCommand {
-    private static final Sort SORT_BY_NAME = new Sort(Sort.Direction.ASC, "name");
-
-    private ApplicationContext applicationContext;
-    private CommandMetadataRepository commandMetadataRepository;
-    private CapabilityRepository capabilityRepository;
+    private CommandIndex commandIndex;
+    private CapabilityService capabilityService;
 
     @Inject
-    public HelpCommand(ApplicationContext applicationContext,
-                       CommandMetadataRepository commandMetadataRepository,
-                       CapabilityRepository capabilityRepository) {
+    public HelpCommand(CommandIndex commandIndex,
+                       CapabilityService capabilityService) {
 
-        this.applicationContext = applicationContext;
-        this.commandMetadataRepository = commandMetadataRepository;
-        this.capabilityRepository = capabilityRepository;
+        this.commandIndex = commandIndex;
+        this.capabilityService = capabilityService;
 
         setDescription("Shows the documentation for a command.");
         addParameter("command", true);
@@ -61,35 +55,15 @@ public class HelpCommand extends BaseCommand {
     @Override
     public GameOutput execute(GameOutput output, Entity entity, String command, String[] tokens, String raw) {
         if (tokens.length == 0) {
-            TableFormatter tableFormatter = new TableFormatter(
-                    "Command Listing",
-                    Arrays.asList("Name", "Description"),
-                    "Command",
-                    "Commands"
-            );
-
-            Capability superCapability = capabilityRepository.findByName(CommandRole.SUPER.name());
-
-            commandMetadataRepository.findAll(SORT_BY_NAME).forEach(cm -> {
-                if (entity.isCapable(cm.getCapability()) || entity.isCapable(superCapability)) {
-                    Command bean = (Command) applicationContext.getBean(cm.getBeanName());
-
-                    tableFormatter.addRow(Arrays.asList(
-                            cm.getName().toUpperCase(),
-                            bean.getDescription()
-                    ));
-                }
-            });
-
-            tableFormatter.toTable(output, "white");
-            output.append("[white]Type HELP [dwhite]&lt;[white]command[dwhite]&gt; [white]to get more detailed help for any of these commands.");
+            commandIndex.computeForVisibleCommands(entity, "help", this::renderListing).forEach(output::append);
         } else {
-            CommandMetadata commandMetadata = commandMetadataRepository.findByName(tokens[0]);
+            Optional<CommandIndex.Entry> entryOptional = commandIndex.findCommandByName(tokens[0]);
 
-            if (commandMetadata != null && (entity.isCapable(commandMetadata.getCapability()) || entity.isCapable(capabilityRepository.findByName(CommandRole.SUPER.name())))) {
-                Command cmd = (Command)applicationContext.getBean(commandMetadata.getBeanName());
+            if (entryOptional.isPresent()
+                    && (entity.isCapable(entryOptional.get().getMetadata().getCapability())
+                    || entity.isCapable(capabilityService.getCapability(CommandRole.SUPER)))) {
 
-                cmd.usage(output, commandMetadata.getName());
+                entryOptional.get().getCommand().usage(output, entryOptional.get().getMetadata().getName());
             } else {
                 output.append("There is no command by that name.");
             }
@@ -97,4 +71,27 @@ public class HelpCommand extends BaseCommand {
 
         return output;
     }
-}
\ No newline at end of file
+
+    private List<String> renderListing(List<CommandIndex.Entry> entries) {
+        GameOutput listing = new GameOutput();
+        TableFormatter tableFormatter = new TableFormatter(
+                "Command Listing",
+                Arrays.asList("Name", "Description"),
+                "Command",
+                "Commands"
+        );
+
+        entries
+                .stream()
+                .sorted(Comparator.comparing(entry -> entry.getMetadata().getName()))
+                .forEach(entry -> tableFormatter.addRow(Arrays.asList(
+                        entry.getMetadata().getName().toUpperCase(),
+                        entry.getCommand().getDescription()
+                )));
+
+        tableFormatter.toTable(listing, "white");
+        listing.append("[white]Type HELP [dwhite]&lt;[white]command[dwhite]&gt; [white]to get more detailed help for any of these commands.");
+
+        return Collections.unmodifiableList(listing.getOutput());
+    }
+}
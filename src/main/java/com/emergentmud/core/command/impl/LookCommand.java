@@ -26,7 +26,7 @@ import com.emergentmud.core.model.Direction;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.EntityRepository;
+import com.emergentmud.core.service.OccupancyIndex;
 import com.emergentmud.core.service.RoomService;
 import org.springframework.stereotype.Component;
 
@@ -35,12 +35,12 @@ import java.util.List;
 
 @Component
 public class LookCommand extends BaseCommand {
-    private EntityRepository entityRepository;
+    private OccupancyIndex occupancyIndex;
     private RoomService roomService;
 
     @Inject
-    public LookCommand(EntityRepository entityRepository, RoomService roomService) {
-        this.entityRepository = entityRepository;
+    public LookCommand(OccupancyIndex occupancyIndex, RoomService roomService) {
+        this.occupancyIndex = occupancyIndex;
         this.roomService = roomService;
 
         setDescription("Describes the things in the world around you.");
@@ -102,7 +102,7 @@ public class LookCommand extends BaseCommand {
 
         output.append(exits.toString());
 
-        List<Entity> contents = entityRepository.findByLocation(room.getLocation());
+        List<Entity> contents = occupancyIndex.getOccupants(room.getLocation());
 
         contents.stream()
                 .filter(content -> !content.getId().equals(entity.getId()))
@@ -33,6 +33,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 public class MoveCommand extends BaseCommand {
     private static final Logger LOGGER = LoggerFactory.getLogger(MoveCommand.class);
 
@@ -55,50 +58,97 @@ public class MoveCommand extends BaseCommand {
         setDescription("Walk to an adjacent room.");
     }
 
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Walks the entity one room. If the room has to be generated first, the entity is told so right
+     * away and the rest of the output follows once they have arrived.
+     */
     @Override
     public GameOutput execute(GameOutput output, Entity entity, String command, String[] tokens, String raw) {
-        if (entity.getLocation() == null) {
-            output.append("[black]You are floating in a formless void. It is impossible to tell whether or not you are moving.");
+        Coordinate original = entity.getLocation();
+        CompletableFuture<Entity> arrival;
+
+        try {
+            arrival = movementService.putAsync(entity, findDestination(entity));
+        } catch (NoSuchRoomException ex) {
+            output.append(ex.getMessage());
 
             return output;
         }
 
-        long[] location = new long[] {
-                entity.getLocation().getX(),
-                entity.getLocation().getY(),
-                entity.getLocation().getZ()
-        };
+        if (arrival.isDone()) {
+            return arrive(output, original, arrival);
+        }
 
-        LOGGER.trace("Location before: {}", entity.getLocation());
+        output.append("[dwhite]The land takes shape before you...");
 
-        location[0] += direction.getX();
-        location[1] += direction.getY();
-        location[2] += direction.getZ();
+        arrival.whenComplete((moved, e) -> entityService.sendMessageToEntity(entity, arrive(new GameOutput(), original, arrival)));
 
+        return output;
+    }
+
+    /**
+     * Moves the entity one room and tells the rooms it left and entered, without describing the new room.
+     */
+    public Entity walk(Entity entity) throws NoSuchRoomException {
+        if (movementService.isMoving(entity)) {
+            throw new NoSuchRoomException("You are already on your way.");
+        }
+
+        Coordinate destination = findDestination(entity);
         Coordinate original = entity.getLocation();
-        Coordinate destination = new Coordinate(location[0], location[1], location[2]);
+
+        entity = movementService.put(entity, destination);
+
+        announce(original, entity);
+
+        return entity;
+    }
+
+    private GameOutput arrive(GameOutput output, Coordinate original, CompletableFuture<Entity> arrival) {
+        Entity entity;
 
         try {
-            entity = movementService.put(entity, destination);
-        } catch (NoSuchRoomException ex) {
-            output.append(ex.getMessage());
+            entity = arrival.join();
+        } catch (CompletionException ex) {
+            output.append(ex.getCause().getMessage());
 
             return output;
         }
 
+        announce(original, entity);
+
+        Command look = (Command)applicationContext.getBean("lookCommand");
+        look.execute(output, entity, "look", new String[0], "");
+
+        return output;
+    }
+
+    private Coordinate findDestination(Entity entity) throws NoSuchRoomException {
+        if (entity.getLocation() == null) {
+            throw new NoSuchRoomException("[black]You are floating in a formless void. It is impossible to tell whether or not you are moving.");
+        }
+
+        LOGGER.trace("Location before: {}", entity.getLocation());
+
+        return new Coordinate(
+                entity.getLocation().getX() + direction.getX(),
+                entity.getLocation().getY() + direction.getY(),
+                entity.getLocation().getZ() + direction.getZ());
+    }
+
+    private void announce(Coordinate original, Entity entity) {
         GameOutput exitMessage = new GameOutput(String.format("%s walks %s.", entity.getName(), direction.getName()));
 
         entityService.sendMessageToRoom(original, entity, exitMessage);
 
-        LOGGER.trace("Location after: {}", destination);
+        LOGGER.trace("Location after: {}", entity.getLocation());
 
         GameOutput enterMessage = new GameOutput(String.format("%s walks in from the %s.", entity.getName(), direction.getOpposite()));
 
         entityService.sendMessageToRoom(entity, enterMessage);
-
-        Command look = (Command)applicationContext.getBean("lookCommand");
-        look.execute(output, entity, "look", new String[0], "");
-
-        return output;
     }
 }
@@ -21,9 +21,14 @@
 package com.emergentmud.core.config;
 
 import com.emergentmud.core.EmergentMUD;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 public class ApplicationConfiguration {
     private long applicationBootDate = System.currentTimeMillis();
@@ -37,4 +42,32 @@ public class ApplicationConfiguration {
     public Long getApplicationBootDate() {
         return applicationBootDate;
     }
+
+    @Bean(name = "mailboxExecutor", destroyMethod = "shutdown")
+    public ExecutorService getMailboxExecutor(@Value("${emergentmud.mailbox.pool-size:4}") int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(poolSize, runnable -> new Thread(runnable, "mailbox-" + threadCount.incrementAndGet()));
+    }
+
+    @Bean(name = "roomGenerationExecutor", destroyMethod = "shutdown")
+    public ExecutorService getRoomGenerationExecutor(@Value("${emergentmud.room-generation.pool-size:2}") int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(poolSize, runnable -> new Thread(runnable, "roomgen-" + threadCount.incrementAndGet()));
+    }
+
+    @Bean(name = "worldGenerationExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService getWorldGenerationExecutor(@Value("${emergentmud.world-generation.pool-size:1}") int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "worldgen-" + threadCount.incrementAndGet());
+
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            return thread;
+        });
+    }
 }
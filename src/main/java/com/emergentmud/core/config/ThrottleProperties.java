@@ -0,0 +1,106 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.config;
+
+import com.emergentmud.core.model.CommandClass;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The token bucket settings under {@code emergentmud.throttle}, bound and type checked when the
+ * application starts. Rates are tokens per second and bursts are bucket sizes. The defaults here are the
+ * only ones, so anything left out of the configuration uses them.
+ */
+@Component
+@ConfigurationProperties("emergentmud.throttle")
+public class ThrottleProperties {
+    private Bucket input = new Bucket(10, 30);
+    private Map<CommandClass, Bucket> classes = new EnumMap<>(CommandClass.class);
+    private int overloadQueueDepth = 500;
+
+    public ThrottleProperties() {
+        classes.put(CommandClass.MOVEMENT, new Bucket(8, 40));
+        classes.put(CommandClass.COMMUNICATION, new Bucket(1, 5));
+        classes.put(CommandClass.ADMIN, new Bucket(20, 50));
+        classes.put(CommandClass.GENERAL, new Bucket(4, 15));
+    }
+
+    public Bucket getInput() {
+        return input;
+    }
+
+    public Bucket getMovement() {
+        return getBucket(CommandClass.MOVEMENT);
+    }
+
+    public Bucket getCommunication() {
+        return getBucket(CommandClass.COMMUNICATION);
+    }
+
+    public Bucket getAdmin() {
+        return getBucket(CommandClass.ADMIN);
+    }
+
+    public Bucket getGeneral() {
+        return getBucket(CommandClass.GENERAL);
+    }
+
+    public Bucket getBucket(CommandClass commandClass) {
+        return classes.get(commandClass);
+    }
+
+    public int getOverloadQueueDepth() {
+        return overloadQueueDepth;
+    }
+
+    public void setOverloadQueueDepth(int overloadQueueDepth) {
+        this.overloadQueueDepth = overloadQueueDepth;
+    }
+
+    public static class Bucket {
+        private double rate;
+        private double burst;
+
+        Bucket(double rate, double burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public double getBurst() {
+            return burst;
+        }
+
+        public void setBurst(double burst) {
+            this.burst = burst;
+        }
+    }
+}
@@ -22,9 +22,12 @@ package com.emergentmud.core.event;
 
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
+import com.emergentmud.core.model.stomp.SessionBinding;
 import com.emergentmud.core.repository.EntityRepository;
 import com.emergentmud.core.service.MovementService;
 import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.SessionBindingService;
+import com.emergentmud.core.service.ThrottleService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
@@ -40,19 +43,27 @@ public class StompDisconnectListener implements ApplicationListener<SessionDisco
     private EntityRepository entityRepository;
     private MovementService movementService;
     private EntityService entityService;
+    private SessionBindingService sessionBindingService;
+    private ThrottleService throttleService;
 
     @Inject
     public StompDisconnectListener(EntityRepository entityRepository,
                                    MovementService movementService,
-                                   EntityService entityService) {
+                                   EntityService entityService,
+                                   SessionBindingService sessionBindingService,
+                                   ThrottleService throttleService) {
         this.entityRepository = entityRepository;
         this.movementService = movementService;
         this.entityService = entityService;
+        this.sessionBindingService = sessionBindingService;
+        this.throttleService = throttleService;
     }
 
     @Override
     public void onApplicationEvent(SessionDisconnectEvent event) {
-        Entity entity = entityRepository.findByStompSessionIdAndStompUsername(event.getSessionId(), event.getUser().getName());
+        Entity entity = sessionBindingService.evict(event.getSessionId())
+                .map(SessionBinding::getEntity)
+                .orElseGet(() -> entityRepository.findByStompSessionIdAndStompUsername(event.getSessionId(), event.getUser().getName()));
 
         if (entity != null) {
             if (entity.getLocation() != null) {
@@ -64,6 +75,7 @@ public class StompDisconnectListener implements ApplicationListener<SessionDisco
             }
 
             movementService.remove(entity);
+            throttleService.evict(entity);
         }
     }
 }
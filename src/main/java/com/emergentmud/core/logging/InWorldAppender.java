@@ -21,11 +21,12 @@
 package com.emergentmud.core.logging;
 
 import ch.qos.logback.core.AppenderBase;
+import com.emergentmud.core.model.Capability;
 import com.emergentmud.core.model.CommandRole;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.CapabilityRepository;
 import com.emergentmud.core.repository.EntityRepository;
+import com.emergentmud.core.service.CapabilityService;
 import com.emergentmud.core.service.EntityService;
 import com.emergentmud.core.util.SpringContextSingleton;
 import org.springframework.context.ApplicationContext;
@@ -44,17 +45,19 @@ public class InWorldAppender<T> extends AppenderBase<T> {
 
         EntityService entityService = (EntityService)applicationContext.getBean("entityService");
         EntityRepository entityRepository = (EntityRepository)applicationContext.getBean("entityRepository");
-        CapabilityRepository capabilityRepository = (CapabilityRepository)applicationContext.getBean("capabilityRepository");
+        CapabilityService capabilityService = (CapabilityService)applicationContext.getBean("capabilityService");
 
-        if (entityService == null || entityRepository == null) {
+        if (entityService == null || entityRepository == null || capabilityService == null) {
             return;
         }
 
+        Capability logCapability = capabilityService.getCapability(CommandRole.LOG);
+
         GameOutput logMessage = new GameOutput(String.format("[dmagenta]%s[dmagenta]", eventObject));
 
         List<Entity> contents = entityRepository.findByLocationIsNotNull()
                 .stream()
-                .filter(e -> e.isCapable(capabilityRepository.findByName(CommandRole.LOG.name())))
+                .filter(e -> e.isCapable(logCapability))
                 .collect(Collectors.toList());
 
         if (!contents.isEmpty()) {
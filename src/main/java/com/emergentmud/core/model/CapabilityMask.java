@@ -0,0 +1,143 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A set of capabilities stored as a bitmask, using the ordinals the CapabilityService had handed out
+ * when the mask was built. The mask keeps those ordinals with it, so it still answers correctly after
+ * more capabilities are registered; capabilities it has no ordinal for have to be looked up the slow way.
+ */
+public final class CapabilityMask {
+    private static final long[] EMPTY = new long[0];
+
+    private final Map<UUID, Integer> ordinals;
+    private final long[] bits;
+
+    public CapabilityMask(Map<UUID, Integer> ordinals, Collection<Capability> capabilities) {
+        this.ordinals = ordinals;
+        this.bits = set(ordinals, EMPTY, capabilities);
+    }
+
+    private CapabilityMask(Map<UUID, Integer> ordinals, long[] bits) {
+        this.ordinals = ordinals;
+        this.bits = bits;
+    }
+
+    public boolean isBuiltFrom(Map<UUID, Integer> ordinals) {
+        return this.ordinals == ordinals;
+    }
+
+    public boolean covers(Capability capability) {
+        return ordinalOf(capability) != null;
+    }
+
+    public boolean contains(Capability capability) {
+        Integer ordinal = ordinalOf(capability);
+
+        return ordinal != null && test(bits, ordinal);
+    }
+
+    public boolean contains(int ordinal) {
+        return test(bits, ordinal);
+    }
+
+    public CapabilityMask add(Collection<Capability> capabilities) {
+        return new CapabilityMask(ordinals, set(ordinals, bits, capabilities));
+    }
+
+    public CapabilityMask remove(Collection<Capability> capabilities) {
+        long[] result = bits;
+
+        for (Capability capability : capabilities) {
+            Integer ordinal = ordinalOf(capability);
+
+            if (ordinal != null) {
+                result = clear(result, ordinal);
+            }
+        }
+
+        return new CapabilityMask(ordinals, result);
+    }
+
+    public long[] getBits() {
+        return Arrays.copyOf(bits, bits.length);
+    }
+
+    private Integer ordinalOf(Capability capability) {
+        return ordinalOf(ordinals, capability);
+    }
+
+    private static Integer ordinalOf(Map<UUID, Integer> ordinals, Capability capability) {
+        if (capability == null || capability.getId() == null) {
+            return null;
+        }
+
+        return ordinals.get(capability.getId());
+    }
+
+    private static long[] set(Map<UUID, Integer> ordinals, long[] mask, Collection<Capability> capabilities) {
+        long[] result = mask;
+
+        for (Capability capability : capabilities) {
+            Integer ordinal = ordinalOf(ordinals, capability);
+
+            if (ordinal != null) {
+                result = set(result, ordinal);
+            }
+        }
+
+        return result;
+    }
+
+    private static long[] set(long[] mask, int ordinal) {
+        int word = ordinal >>> 6;
+        long[] result = Arrays.copyOf(mask, Math.max(mask.length, word + 1));
+
+        result[word] |= 1L << ordinal;
+
+        return result;
+    }
+
+    private static long[] clear(long[] mask, int ordinal) {
+        int word = ordinal >>> 6;
+
+        if (word >= mask.length) {
+            return mask;
+        }
+
+        long[] result = Arrays.copyOf(mask, mask.length);
+
+        result[word] &= ~(1L << ordinal);
+
+        return result;
+    }
+
+    private static boolean test(long[] mask, int ordinal) {
+        int word = ordinal >>> 6;
+
+        return ordinal >= 0 && word < mask.length && (mask[word] & (1L << ordinal)) != 0;
+    }
+}
@@ -30,4 +30,6 @@ public interface Capable {
     void removeCapabilities(Collection<Capability> capabilities);
     List<Capability> getCapabilities();
     boolean isCapable(Capability capability);
+    CapabilityMask getCapabilityMask();
+    void setCapabilityMask(CapabilityMask capabilityMask);
 }
@@ -0,0 +1,62 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+/**
+ * Groups commands for rate limiting. Each class has its own token bucket per entity, configured under
+ * {@code emergentmud.throttle}. Non-essential classes are refused outright while the server is overloaded.
+ */
+public enum CommandClass {
+    MOVEMENT(true),
+    COMMUNICATION(false),
+    ADMIN(true),
+    GENERAL(true);
+
+    private boolean essential;
+
+    CommandClass(boolean essential) {
+        this.essential = essential;
+    }
+
+    public static CommandClass forCapability(Capability capability) {
+        if (capability == null) {
+            return GENERAL;
+        }
+
+        if (CapabilityScope.ADMINISTRATOR.equals(capability.getScope())) {
+            return ADMIN;
+        }
+
+        if (CommandRole.MOVE.name().equals(capability.getName())) {
+            return MOVEMENT;
+        }
+
+        if (CommandRole.TALK.name().equals(capability.getName()) || CommandRole.EMOTE.name().equals(capability.getName())) {
+            return COMMUNICATION;
+        }
+
+        return GENERAL;
+    }
+
+    public boolean isEssential() {
+        return essential;
+    }
+}
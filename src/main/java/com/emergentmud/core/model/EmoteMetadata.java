@@ -25,6 +25,7 @@ import org.hibernate.annotations.Type;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Transient;
 import java.util.UUID;
 
 @Entity
@@ -43,6 +44,27 @@ public class EmoteMetadata {
     private String toSelfAsTarget;
     private String toRoomTargetingSelf;
 
+    @Transient
+    private EmoteTemplate toSelfUntargetedTemplate;
+
+    @Transient
+    private EmoteTemplate toRoomUntargetedTemplate;
+
+    @Transient
+    private EmoteTemplate toSelfWithTargetTemplate;
+
+    @Transient
+    private EmoteTemplate toTargetTemplate;
+
+    @Transient
+    private EmoteTemplate toRoomWithTargetTemplate;
+
+    @Transient
+    private EmoteTemplate toSelfAsTargetTemplate;
+
+    @Transient
+    private EmoteTemplate toRoomTargetingSelfTemplate;
+
     public EmoteMetadata() {
         // this method intentionally left blank
     }
@@ -82,6 +104,15 @@ public class EmoteMetadata {
 
     public void setToSelfUntargeted(String toSelfUntargeted) {
         this.toSelfUntargeted = toSelfUntargeted;
+        this.toSelfUntargetedTemplate = null;
+    }
+
+    public EmoteTemplate getToSelfUntargetedTemplate() {
+        if (toSelfUntargetedTemplate == null) {
+            toSelfUntargetedTemplate = EmoteTemplate.compile(toSelfUntargeted);
+        }
+
+        return toSelfUntargetedTemplate;
     }
 
     public String getToRoomUntargeted() {
@@ -90,6 +121,15 @@ public class EmoteMetadata {
 
     public void setToRoomUntargeted(String toRoomUntargeted) {
         this.toRoomUntargeted = toRoomUntargeted;
+        this.toRoomUntargetedTemplate = null;
+    }
+
+    public EmoteTemplate getToRoomUntargetedTemplate() {
+        if (toRoomUntargetedTemplate == null) {
+            toRoomUntargetedTemplate = EmoteTemplate.compile(toRoomUntargeted);
+        }
+
+        return toRoomUntargetedTemplate;
     }
 
     public String getToSelfWithTarget() {
@@ -98,6 +138,15 @@ public class EmoteMetadata {
 
     public void setToSelfWithTarget(String toSelfWithTarget) {
         this.toSelfWithTarget = toSelfWithTarget;
+        this.toSelfWithTargetTemplate = null;
+    }
+
+    public EmoteTemplate getToSelfWithTargetTemplate() {
+        if (toSelfWithTargetTemplate == null) {
+            toSelfWithTargetTemplate = EmoteTemplate.compile(toSelfWithTarget);
+        }
+
+        return toSelfWithTargetTemplate;
     }
 
     public String getToTarget() {
@@ -106,6 +155,15 @@ public class EmoteMetadata {
 
     public void setToTarget(String toTarget) {
         this.toTarget = toTarget;
+        this.toTargetTemplate = null;
+    }
+
+    public EmoteTemplate getToTargetTemplate() {
+        if (toTargetTemplate == null) {
+            toTargetTemplate = EmoteTemplate.compile(toTarget);
+        }
+
+        return toTargetTemplate;
     }
 
     public String getToRoomWithTarget() {
@@ -114,6 +172,15 @@ public class EmoteMetadata {
 
     public void setToRoomWithTarget(String toRoomWithTarget) {
         this.toRoomWithTarget = toRoomWithTarget;
+        this.toRoomWithTargetTemplate = null;
+    }
+
+    public EmoteTemplate getToRoomWithTargetTemplate() {
+        if (toRoomWithTargetTemplate == null) {
+            toRoomWithTargetTemplate = EmoteTemplate.compile(toRoomWithTarget);
+        }
+
+        return toRoomWithTargetTemplate;
     }
 
     public String getToSelfAsTarget() {
@@ -122,6 +189,15 @@ public class EmoteMetadata {
 
     public void setToSelfAsTarget(String toSelfAsTarget) {
         this.toSelfAsTarget = toSelfAsTarget;
+        this.toSelfAsTargetTemplate = null;
+    }
+
+    public EmoteTemplate getToSelfAsTargetTemplate() {
+        if (toSelfAsTargetTemplate == null) {
+            toSelfAsTargetTemplate = EmoteTemplate.compile(toSelfAsTarget);
+        }
+
+        return toSelfAsTargetTemplate;
     }
 
     public String getToRoomTargetingSelf() {
@@ -130,5 +206,14 @@ public class EmoteMetadata {
 
     public void setToRoomTargetingSelf(String toRoomTargetingSelf) {
         this.toRoomTargetingSelf = toRoomTargetingSelf;
+        this.toRoomTargetingSelfTemplate = null;
+    }
+
+    public EmoteTemplate getToRoomTargetingSelfTemplate() {
+        if (toRoomTargetingSelfTemplate == null) {
+            toRoomTargetingSelfTemplate = EmoteTemplate.compile(toRoomTargetingSelf);
+        }
+
+        return toRoomTargetingSelfTemplate;
     }
 }
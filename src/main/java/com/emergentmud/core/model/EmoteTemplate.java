@@ -0,0 +1,179 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An emote message that has been split into literal text and variables like %self% or %targetpos% so
+ * it can be rendered in one pass instead of searching the whole message once per variable.
+ */
+public class EmoteTemplate {
+    private static final int VARIABLE_SIZE_ESTIMATE = 12;
+
+    private final String[] literals;
+    private final Variable[] variables;
+    private final int sizeEstimate;
+
+    private EmoteTemplate(String[] literals, Variable[] variables, int sizeEstimate) {
+        this.literals = literals;
+        this.variables = variables;
+        this.sizeEstimate = sizeEstimate;
+    }
+
+    public static EmoteTemplate compile(String message) {
+        if (message == null) {
+            return null;
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Variable> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int literalLength = 0;
+        int i = 0;
+
+        while (i < message.length()) {
+            int start = message.indexOf('%', i);
+            int end = start == -1 ? -1 : message.indexOf('%', start + 1);
+
+            if (end == -1) {
+                literal.append(message, i, message.length());
+                break;
+            }
+
+            Variable variable = Variable.forName(message.substring(start + 1, end));
+
+            if (variable == null) {
+                // not a variable, so keep the first % and try again from the second one
+                literal.append(message, i, end);
+                i = end;
+            } else {
+                literal.append(message, i, start);
+                literals.add(literal.toString());
+                variables.add(variable);
+                literalLength += literal.length();
+                literal.setLength(0);
+                i = end + 1;
+            }
+        }
+
+        literals.add(literal.toString());
+        literalLength += literal.length();
+
+        return new EmoteTemplate(
+                literals.toArray(new String[literals.size()]),
+                variables.toArray(new Variable[variables.size()]),
+                literalLength + variables.size() * VARIABLE_SIZE_ESTIMATE);
+    }
+
+    public String render(Entity self, Entity target) {
+        StringBuilder buf = new StringBuilder(sizeEstimate);
+
+        for (int i = 0; i < variables.length; i++) {
+            buf.append(literals[i]);
+            variables[i].append(buf, self, target);
+        }
+
+        buf.append(literals[variables.length]);
+
+        if (buf.length() > 0) {
+            buf.setCharAt(0, Character.toUpperCase(buf.charAt(0)));
+        }
+
+        return buf.toString();
+    }
+
+    private enum Variable {
+        SELF("self") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getName());
+            }
+        },
+        TARGET("target") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(target == null ? "NULL" : target.getName());
+            }
+        },
+        SELFPOS("selfpos") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getName()).append("'s");
+            }
+        },
+        TARGETPOS("targetpos") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(target == null ? "NULL" : target.getName()).append("'s");
+            }
+        },
+        HE("he") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getGender().getSubject());
+            }
+        },
+        HIM("him") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getGender().getObject());
+            }
+        },
+        HIS("his") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getGender().getPossessive());
+            }
+        },
+        HISPOS("hispos") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getGender().getPossessivePronoun());
+            }
+        },
+        HIMSELF("himself") {
+            @Override
+            void append(StringBuilder buf, Entity self, Entity target) {
+                buf.append(self.getGender().getReflexive());
+            }
+        };
+
+        private String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        abstract void append(StringBuilder buf, Entity self, Entity target);
+
+        static Variable forName(String name) {
+            for (Variable variable : values()) {
+                if (variable.name.equals(name)) {
+                    return variable;
+                }
+            }
+
+            return null;
+        }
+    }
+}
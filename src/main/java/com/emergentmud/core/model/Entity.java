@@ -28,6 +28,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.Transient;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -53,6 +54,9 @@ public class Entity implements Capable {
     @ManyToMany(fetch = FetchType.EAGER)
     private Set<Capability> capabilities = new HashSet<>();
 
+    @Transient
+    private CapabilityMask capabilityMask;
+
     @Embedded
     private Coordinate location;
 
@@ -153,22 +157,24 @@ public class Entity implements Capable {
 
     @Override
     public void addCapabilities(Capability ... capability) {
-        capabilities.addAll(Arrays.asList(capability));
+        addCapabilities(Arrays.asList(capability));
     }
 
     @Override
     public void addCapabilities(Collection<Capability> capabilities) {
         this.capabilities.addAll(capabilities);
+        capabilityMask = capabilityMask == null ? null : capabilityMask.add(capabilities);
     }
 
     @Override
     public void removeCapabilities(Capability ... capability) {
-        capabilities.removeAll(Arrays.asList(capability));
+        removeCapabilities(Arrays.asList(capability));
     }
 
     @Override
     public void removeCapabilities(Collection<Capability> capabilities) {
         this.capabilities.removeAll(capabilities);
+        capabilityMask = capabilityMask == null ? null : capabilityMask.remove(capabilities);
     }
 
     @Override
@@ -178,7 +184,23 @@ public class Entity implements Capable {
 
     @Override
     public boolean isCapable(Capability capability) {
-        return capabilities.contains(capability);
+        CapabilityMask mask = capabilityMask;
+
+        if (mask == null || !mask.covers(capability)) {
+            return capabilities.contains(capability);
+        }
+
+        return mask.contains(capability);
+    }
+
+    @Override
+    public CapabilityMask getCapabilityMask() {
+        return capabilityMask;
+    }
+
+    @Override
+    public void setCapabilityMask(CapabilityMask capabilityMask) {
+        this.capabilityMask = capabilityMask;
     }
 
     @Override
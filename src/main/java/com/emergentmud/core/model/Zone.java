@@ -53,6 +53,15 @@ public class Zone {
     })
     private Coordinate bottomLeft;
 
+    @AttributeOverrides({
+            @AttributeOverride(name = "x", column = @Column(name = "origin_x")),
+            @AttributeOverride(name = "y", column = @Column(name = "origin_y")),
+            @AttributeOverride(name = "z", column = @Column(name = "origin_z"))
+    })
+    private Coordinate origin;
+
+    private boolean procedural;
+
     private Integer elevation;
     private Integer moisture;
 
@@ -83,6 +92,22 @@ public class Zone {
         this.bottomLeft = bottomLeft;
     }
 
+    public Coordinate getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(Coordinate origin) {
+        this.origin = origin;
+    }
+
+    public boolean isProcedural() {
+        return procedural;
+    }
+
+    public void setProcedural(boolean procedural) {
+        this.procedural = procedural;
+    }
+
     public Integer getElevation() {
         return elevation;
     }
@@ -0,0 +1,65 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model.stomp;
+
+import com.emergentmud.core.model.Entity;
+
+import java.util.UUID;
+
+public class SessionBinding {
+    private String simpSessionId;
+    private String principalName;
+    private String breadcrumb;
+    private UUID entityId;
+    private Entity entity;
+
+    public SessionBinding(String simpSessionId, String principalName, String breadcrumb, Entity entity) {
+        this.simpSessionId = simpSessionId;
+        this.principalName = principalName;
+        this.breadcrumb = breadcrumb;
+        this.entityId = entity.getId();
+        this.entity = entity;
+    }
+
+    public String getSimpSessionId() {
+        return simpSessionId;
+    }
+
+    public String getPrincipalName() {
+        return principalName;
+    }
+
+    public String getBreadcrumb() {
+        return breadcrumb;
+    }
+
+    public UUID getEntityId() {
+        return entityId;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public boolean matches(String principalName, String breadcrumb) {
+        return this.principalName.equals(principalName) && this.breadcrumb.equals(breadcrumb);
+    }
+}
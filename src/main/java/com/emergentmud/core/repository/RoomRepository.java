@@ -32,4 +32,5 @@ import java.util.UUID;
 public interface RoomRepository extends CrudRepository<Room, UUID> {
     Room findByLocation(Coordinate location);
     List<Room> findByLocationBetween(Coordinate from, Coordinate to);
+    List<Room> findByLocationXBetweenAndLocationYBetweenAndLocationZ(long fromX, long toX, long fromY, long toY, long z);
 }
@@ -21,23 +21,42 @@
 package com.emergentmud.core.repository;
 
 import com.emergentmud.core.model.Zone;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ZoneRepository extends CrudRepository<Zone, UUID> {
-    @Query("select zone from Zone zone where zone.topRight.x >= :x and zone.topRight.y >= :y and zone.bottomLeft.x <= :x and zone.bottomLeft.y <= :y")
+    @Query(value = "SELECT * FROM zone WHERE box(point(bottom_left_x, bottom_left_y), point(top_right_x, top_right_y)) && box(point(:x, :y), point(:x, :y))", nativeQuery = true)
     Zone findZoneAtPoint(@Param("x") Long x, @Param("y") Long y);
 
-    @Query("select zone from Zone zone where zone.bottomLeft.x <= :topRightX and zone.topRight.x >= :bottomLeftX and zone.topRight.y >= :bottomLeftY and zone.bottomLeft.y <= :topRightY")
+    @Query(value = "SELECT * FROM zone WHERE box(point(bottom_left_x, bottom_left_y), point(top_right_x, top_right_y)) && box(point(:bottomLeftX, :bottomLeftY), point(:topRightX, :topRightY))", nativeQuery = true)
     List<Zone> findZonesWithin(
             @Param("topRightX") Long topRightX,
             @Param("topRightY") Long topRightY,
             @Param("bottomLeftX") Long bottomLeftX,
             @Param("bottomLeftY") Long bottomLeftY);
+
+    /**
+     * Inserts the zone unless it would overlap another one, which the zone_no_overlap constraint checks.
+     * The zone must already have an ID and an origin.
+     *
+     * @return 1 if the zone was inserted, 0 if it overlapped
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO zone (id, bottom_left_x, bottom_left_y, bottom_left_z, top_right_x, top_right_y, top_right_z, origin_x, origin_y, origin_z, procedural, elevation, moisture, biome_id) " +
+            "VALUES (CAST(:#{#zone.id.toString()} AS uuid), " +
+            ":#{#zone.bottomLeft.x}, :#{#zone.bottomLeft.y}, :#{#zone.bottomLeft.z}, " +
+            ":#{#zone.topRight.x}, :#{#zone.topRight.y}, :#{#zone.topRight.z}, " +
+            ":#{#zone.origin.x}, :#{#zone.origin.y}, :#{#zone.origin.z}, :#{#zone.procedural}, " +
+            ":#{#zone.elevation}, :#{#zone.moisture}, CAST(:#{#zone.biome.id.toString()} AS uuid)) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfVacant(@Param("zone") Zone zone);
 }
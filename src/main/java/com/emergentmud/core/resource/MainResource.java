@@ -20,6 +20,7 @@
 package com.emergentmud.core.resource;
 
 import com.emergentmud.core.command.Command;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.Emote;
 import com.emergentmud.core.exception.NoAccountException;
 import com.emergentmud.core.exception.NoSuchRoomException;
@@ -38,7 +39,6 @@ import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.repository.AccountRepository;
 import com.emergentmud.core.repository.CapabilityRepository;
 import com.emergentmud.core.repository.CommandMetadataRepository;
-import com.emergentmud.core.repository.EmoteMetadataRepository;
 import com.emergentmud.core.repository.EntityRepository;
 import com.emergentmud.core.repository.PronounRepository;
 import com.emergentmud.core.resource.model.EntityCreateRequest;
@@ -85,7 +85,7 @@ public class MainResource {
     private EntityRepository entityRepository;
     private PronounRepository pronounRepository;
     private CommandMetadataRepository commandMetadataRepository;
-    private EmoteMetadataRepository emoteMetadataRepository;
+    private CommandIndex commandIndex;
     private CapabilityRepository capabilityRepository;
     private MovementService movementService;
     private EntityService entityService;
@@ -99,7 +99,7 @@ public class MainResource {
                         EntityRepository entityRepository,
                         PronounRepository pronounRepository,
                         CommandMetadataRepository commandMetadataRepository,
-                        EmoteMetadataRepository emoteMetadataRepository,
+                        CommandIndex commandIndex,
                         CapabilityRepository capabilityRepository,
                         MovementService movementService,
                         EntityService entityService,
@@ -112,7 +112,7 @@ public class MainResource {
         this.entityRepository = entityRepository;
         this.pronounRepository = pronounRepository;
         this.commandMetadataRepository = commandMetadataRepository;
-        this.emoteMetadataRepository = emoteMetadataRepository;
+        this.commandIndex = commandIndex;
         this.capabilityRepository = capabilityRepository;
         this.movementService = movementService;
         this.entityService = entityService;
@@ -404,10 +404,7 @@ public class MainResource {
 
     @RequestMapping("/public/emotes")
     public String emotes(Model model, Principal principal, HttpSession httpSession) {
-        List<EmoteMetadata> metadata = new ArrayList<>();
-
-        emoteMetadataRepository.findAll().forEach(metadata::add);
-
+        List<EmoteMetadata> metadata = commandIndex.getEmotes();
         Map<String, EmoteMetadata> emoteMap = new HashMap<>();
         Entity self;
         Entity target;
@@ -447,17 +444,7 @@ public class MainResource {
             target.setGender(pronounRepository.findByName("male"));
         }
 
-        metadata.forEach(m -> {
-            m.setToSelfUntargeted(emote.replaceVariables(m.getToSelfUntargeted(), self, null));
-            m.setToRoomUntargeted(emote.replaceVariables(m.getToRoomUntargeted(), self, null));
-            m.setToSelfWithTarget(emote.replaceVariables(m.getToSelfWithTarget(), self, target));
-            m.setToTarget(emote.replaceVariables(m.getToTarget(), self, target));
-            m.setToRoomWithTarget(emote.replaceVariables(m.getToRoomWithTarget(), self, target));
-            m.setToSelfAsTarget(emote.replaceVariables(m.getToSelfAsTarget(), self, self));
-            m.setToRoomTargetingSelf(emote.replaceVariables(m.getToRoomTargetingSelf(), self, self));
-
-            emoteMap.put(m.getName(), m);
-        });
+        metadata.forEach(m -> emoteMap.put(m.getName(), emote.preview(m, self, target)));
 
         model.addAttribute("self", self);
         model.addAttribute("target", target);
@@ -21,23 +21,27 @@
 package com.emergentmud.core.resource;
 
 import com.emergentmud.core.command.Command;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.Emote;
 import com.emergentmud.core.command.PromptBuilder;
-import com.emergentmud.core.model.CommandMetadata;
-import com.emergentmud.core.model.CommandRole;
+import com.emergentmud.core.command.impl.MoveCommand;
+import com.emergentmud.core.exception.NoSuchRoomException;
+import com.emergentmud.core.model.CommandClass;
 import com.emergentmud.core.model.EmoteMetadata;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
+import com.emergentmud.core.model.stomp.SessionBinding;
 import com.emergentmud.core.model.stomp.UserInput;
-import com.emergentmud.core.repository.CapabilityRepository;
-import com.emergentmud.core.repository.CommandMetadataRepository;
-import com.emergentmud.core.repository.EmoteMetadataRepository;
 import com.emergentmud.core.repository.EntityRepository;
+import com.emergentmud.core.service.CommandMailboxService;
+import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.InputService;
+import com.emergentmud.core.service.SessionBindingService;
+import com.emergentmud.core.service.ThrottleService;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.Sort;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.annotation.SendToUser;
@@ -47,6 +51,8 @@ import org.springframework.security.oauth2.provider.authentication.OAuth2Authent
 import org.springframework.session.Session;
 import org.springframework.session.SessionRepository;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.inject.Inject;
 import java.security.Principal;
@@ -59,17 +65,20 @@ import java.util.UUID;
 @Controller
 public class WebSocketResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketResource.class);
-    private static final Sort SORT_BY_NAME = new Sort(Sort.Direction.ASC, "name");
-    private static final Sort SORT_BY_PRIORITY = new Sort(Sort.Direction.ASC, "priority", "name");
+    private static final int MAX_BATCH_SIZE = 100;
 
     private String applicationVersion;
     private Long applicationBootDate;
     private ApplicationContext applicationContext;
     private SessionRepository sessionRepository;
     private EntityRepository entityRepository;
-    private CommandMetadataRepository commandMetadataRepository;
-    private EmoteMetadataRepository emoteMetadataRepository;
-    private CapabilityRepository capabilityRepository;
+    private CommandIndex commandIndex;
+    private SessionBindingService sessionBindingService;
+    private CommandMailboxService commandMailboxService;
+    private ThrottleService throttleService;
+    private EntityService entityService;
+    private InputService inputService;
+    private TransactionTemplate transactionTemplate;
     private PromptBuilder promptBuilder;
     private Emote emote;
 
@@ -79,9 +88,13 @@ public class WebSocketResource {
                              ApplicationContext applicationContext,
                              SessionRepository sessionRepository,
                              EntityRepository entityRepository,
-                             CommandMetadataRepository commandMetadataRepository,
-                             EmoteMetadataRepository emoteMetadataRepository,
-                             CapabilityRepository capabilityRepository,
+                             CommandIndex commandIndex,
+                             SessionBindingService sessionBindingService,
+                             CommandMailboxService commandMailboxService,
+                             ThrottleService throttleService,
+                             EntityService entityService,
+                             InputService inputService,
+                             PlatformTransactionManager transactionManager,
                              PromptBuilder promptBuilder,
                              Emote emote) {
         this.applicationVersion = applicationVersion;
@@ -89,9 +102,13 @@ public class WebSocketResource {
         this.applicationContext = applicationContext;
         this.sessionRepository = sessionRepository;
         this.entityRepository = entityRepository;
-        this.commandMetadataRepository = commandMetadataRepository;
-        this.emoteMetadataRepository = emoteMetadataRepository;
-        this.capabilityRepository = capabilityRepository;
+        this.commandIndex = commandIndex;
+        this.sessionBindingService = sessionBindingService;
+        this.commandMailboxService = commandMailboxService;
+        this.throttleService = throttleService;
+        this.entityService = entityService;
+        this.inputService = inputService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.promptBuilder = promptBuilder;
         this.emote = emote;
     }
@@ -109,6 +126,8 @@ public class WebSocketResource {
         entity.setStompSessionId(simpSessionId);
         entity = entityRepository.save(entity);
 
+        sessionBindingService.bind(simpSessionId, principal.getName(), breadcrumb, entity);
+
         GameOutput output = new GameOutput();
 
         output.append("[black]  ___                            _   __  __ _   _ ___  ".replace(" ", "&nbsp;"));
@@ -146,76 +165,227 @@ public class WebSocketResource {
                               @Header("simpSessionId") String simpSessionId) {
 
         GameOutput output = new GameOutput();
-        Session session = getSessionFromPrincipal(principal);
+        Entity entity = resolveEntity(output, principal, breadcrumb, simpSessionId);
 
-        if (session == null) {
-            LOGGER.warn("Session could not be found for principal: {}", principal.getName());
-            output.append("[red]This session is no longer valid. Please refresh your browser.");
+        if (entity == null) {
             return output;
         }
 
-        Map<String, String> sessionMap = session.getAttribute(breadcrumb);
-        UUID entityId = UUID.fromString(sessionMap.get("entity"));
-        Entity entity = entityRepository.findOne(entityId);
+        if (!throttleService.tryAcceptInput(entity)) {
+            output.append("[yellow]You're sending commands too quickly. Slow down a little.");
+            promptBuilder.appendPrompt(output);
+            return output;
+        }
 
-        if (entity == null) {
-            LOGGER.error("Entity was null for user {}", principal.getName());
-            output.append("[red]There was an internal error. The administrators have been notified.");
+        String line = input.getInput();
+
+        if (!commandMailboxService.submit(entity, () -> entityService.sendMessageToEntity(entity, transactionTemplate.execute(status -> execute(entity, line))))) {
+            output.append("[red]You are sending commands faster than they can be carried out. Please slow down.");
+            promptBuilder.appendPrompt(output);
             return output;
         }
 
-        if (!principal.getName().equals(entity.getStompUsername()) || !simpSessionId.equals(entity.getStompSessionId())) {
-            LOGGER.warn("Principal had stale session information: {}", principal.getName());
-            output.append("[red]This session is no longer valid. Please refresh your browser.");
+        return null;
+    }
+
+    /*
+     * A line may hold several commands separated by semicolons, and speedwalks like "3n2e". They all run
+     * in the caller's transaction and produce one GameOutput. Rooms walked through along the way are
+     * summarized rather than described, and walking stops at the first step that can't be taken.
+     */
+    private GameOutput execute(Entity entity, String line) {
+        GameOutput output = new GameOutput();
+        List<String> steps = expand(entity, line);
+
+        if (steps.size() > MAX_BATCH_SIZE) {
+            output.append(String.format("[red]You can't queue up more than %d commands at once.", MAX_BATCH_SIZE));
+            return output;
+        }
+
+        if (steps.size() == 1) {
+            dispatch(output, entity, steps.get(0));
             return output;
         }
 
-        if (!"".equals(input.getInput().trim())) {
-            String[] tokens = input.getInput().split(" ");
+        List<String> walked = new ArrayList<>();
+        boolean moved = false;
+
+        for (String step : steps) {
+            Optional<CommandIndex.Entry> moveOptional = findMove(entity, step);
+
+            if (moveOptional.isPresent()) {
+                CommandIndex.Entry entry = moveOptional.get();
+                MoveCommand move = (MoveCommand)entry.getCommand();
+                String refusal = throttle(entity, CommandClass.forCapability(entry.getMetadata().getCapability()));
+
+                if (refusal != null) {
+                    summarizeWalk(output, walked);
+                    output.append(refusal);
+                    break;
+                }
+
+                try {
+                    move.walk(entity);
+                } catch (NoSuchRoomException ex) {
+                    summarizeWalk(output, walked);
+                    output.append(ex.getMessage());
+                    break;
+                }
+
+                walked.add(move.getDirection().getName());
+                moved = true;
+            } else {
+                summarizeWalk(output, walked);
+
+                if (!dispatch(output, entity, step)) {
+                    break;
+                }
+            }
+        }
+
+        summarizeWalk(output, walked);
+
+        if (moved) {
+            Command look = (Command)applicationContext.getBean("lookCommand");
+            look.execute(output, entity, "look", new String[0], "");
+        }
+
+        return output;
+    }
+
+    private List<String> expand(Entity entity, String line) {
+        List<String> steps = new ArrayList<>();
+
+        inputService.splitCommands(line).forEach(command -> {
+            if (inputService.isSpeedwalk(command)
+                    && !commandIndex.findCommand(entity, command).isPresent()
+                    && !commandIndex.findEmote(entity, command).isPresent()) {
+                steps.addAll(inputService.expandSpeedwalk(command));
+            } else {
+                steps.add(command);
+            }
+        });
+
+        return steps;
+    }
+
+    private Optional<CommandIndex.Entry> findMove(Entity entity, String step) {
+        if (step.indexOf(' ') != -1) {
+            return Optional.empty();
+        }
+
+        return commandIndex.findCommand(entity, step)
+                .filter(entry -> entry.getCommand() instanceof MoveCommand);
+    }
+
+    // returns the message explaining why the command was refused, or null if it may go ahead
+    private String throttle(Entity entity, CommandClass commandClass) {
+        switch (throttleService.tryAcquire(entity, commandClass)) {
+            case THROTTLED:
+                return "[yellow]You're doing that too quickly. Slow down a little.";
+            case SHED:
+                return "[yellow]The world is very busy right now. Please try that again in a moment.";
+            default:
+                return null;
+        }
+    }
+
+    private void summarizeWalk(GameOutput output, List<String> walked) {
+        if (!walked.isEmpty()) {
+            output.append("[dwhite]You walk " + String.join(", ", walked) + ".");
+            walked.clear();
+        }
+    }
+
+    private boolean dispatch(GameOutput output, Entity entity, String line) {
+        if (!"".equals(line.trim())) {
+            String[] tokens = line.split(" ");
             String cmd = tokens[0];
             String[] args = new String[tokens.length - 1];
             System.arraycopy(tokens, 1, args, 0, tokens.length - 1);
-            String raw = input.getInput().indexOf(' ') == -1 ? "" : input.getInput().substring(input.getInput().indexOf(' ') + 1);
-            List<CommandMetadata> commandMetadataList = new ArrayList<>();
+            String raw = line.indexOf(' ') == -1 ? "" : line.substring(line.indexOf(' ') + 1);
+            Optional<CommandIndex.Entry> optionalEntry = commandIndex.findCommand(entity, cmd);
 
-            commandMetadataRepository.findAll(SORT_BY_PRIORITY).forEach(commandMetadataList::add);
+            if (optionalEntry.isPresent()) {
+                Command command = optionalEntry.get().getCommand();
 
-            Optional<CommandMetadata> optionalCommandMetadata = commandMetadataList
-                    .stream()
-                    .filter(cm -> cm.getName().startsWith(cmd.toLowerCase().trim()))
-                    .filter(cm -> entity.isCapable(cm.getCapability()) || entity.isCapable(capabilityRepository.findByName(CommandRole.SUPER.name())))
-                    .findFirst();
+                String refusal = throttle(entity, CommandClass.forCapability(optionalEntry.get().getMetadata().getCapability()));
 
-            if (optionalCommandMetadata.isPresent()) {
-                CommandMetadata metadata = optionalCommandMetadata.get();
-                Command command = (Command) applicationContext.getBean(metadata.getBeanName());
+                if (refusal != null) {
+                    output.append(refusal);
+                    return false;
+                }
 
                 command.execute(output, entity, cmd, args, raw);
-            } else if (entity.isCapable(capabilityRepository.findByName(CommandRole.EMOTE.name()))) {
-                List<EmoteMetadata> emoteMetadataList = new ArrayList<>();
-
-                emoteMetadataRepository.findAll(SORT_BY_NAME).forEach(emoteMetadataList::add);
-
-                Optional<EmoteMetadata> optionalEmoteMetadata = emoteMetadataList
-                        .stream()
-                        .filter(emote -> emote.getName().startsWith(cmd.toLowerCase().trim()))
-                        .findFirst();
+            } else {
+                Optional<EmoteMetadata> optionalEmoteMetadata = commandIndex.findEmote(entity, cmd);
 
                 if (optionalEmoteMetadata.isPresent()) {
                     EmoteMetadata metadata = optionalEmoteMetadata.get();
 
+                    String refusal = throttle(entity, CommandClass.COMMUNICATION);
+
+                    if (refusal != null) {
+                        output.append(refusal);
+                        return false;
+                    }
+
                     emote.execute(output, metadata, entity, args);
                 } else {
                     output.append("Huh?");
                 }
-            } else {
-                output.append("Huh?");
             }
         }
 
-        promptBuilder.appendPrompt(output);
+        return true;
+    }
 
-        return output;
+    private Entity resolveEntity(GameOutput output, Principal principal, String breadcrumb, String simpSessionId) {
+        Optional<SessionBinding> bindingOptional = sessionBindingService.getBinding(simpSessionId);
+
+        if (!bindingOptional.isPresent()) {
+            return loadEntity(output, principal, breadcrumb, simpSessionId);
+        }
+
+        SessionBinding binding = bindingOptional.get();
+
+        if (!binding.matches(principal.getName(), breadcrumb)) {
+            LOGGER.warn("Principal had stale session information: {}", principal.getName());
+            output.append("[red]This session is no longer valid. Please refresh your browser.");
+            return null;
+        }
+
+        return binding.getEntity();
+    }
+
+    private Entity loadEntity(GameOutput output, Principal principal, String breadcrumb, String simpSessionId) {
+        Session session = getSessionFromPrincipal(principal);
+
+        if (session == null) {
+            LOGGER.warn("Session could not be found for principal: {}", principal.getName());
+            output.append("[red]This session is no longer valid. Please refresh your browser.");
+            return null;
+        }
+
+        Map<String, String> sessionMap = session.getAttribute(breadcrumb);
+        UUID entityId = UUID.fromString(sessionMap.get("entity"));
+        Entity entity = entityRepository.findOne(entityId);
+
+        if (entity == null) {
+            LOGGER.error("Entity was null for user {}", principal.getName());
+            output.append("[red]There was an internal error. The administrators have been notified.");
+            return null;
+        }
+
+        if (!principal.getName().equals(entity.getStompUsername()) || !simpSessionId.equals(entity.getStompSessionId())) {
+            LOGGER.warn("Principal had stale session information: {}", principal.getName());
+            output.append("[red]This session is no longer valid. Please refresh your browser.");
+            return null;
+        }
+
+        sessionBindingService.bind(simpSessionId, principal.getName(), breadcrumb, entity);
+
+        return entity;
     }
 
     private Session getSessionFromPrincipal(Principal principal) {
@@ -0,0 +1,132 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Capability;
+import com.emergentmud.core.model.CapabilityMask;
+import com.emergentmud.core.model.Capable;
+import com.emergentmud.core.model.CommandRole;
+import com.emergentmud.core.repository.CapabilityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Component
+public class CapabilityService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CapabilityService.class);
+    private static final Sort SORT_BY_NAME = new Sort(Sort.Direction.ASC, "name");
+
+    private CapabilityRepository capabilityRepository;
+    private volatile Map<CommandRole, Capability> roles = new EnumMap<>(CommandRole.class);
+    private volatile Map<UUID, Integer> ordinals = Collections.emptyMap();
+    private volatile int generation;
+
+    @Inject
+    public CapabilityService(CapabilityRepository capabilityRepository) {
+        this.capabilityRepository = capabilityRepository;
+    }
+
+    @PostConstruct
+    public void loadCapabilities() {
+        List<Capability> capabilities = new ArrayList<>();
+        Map<CommandRole, Capability> next = new EnumMap<>(CommandRole.class);
+
+        capabilityRepository.findAll(SORT_BY_NAME).forEach(capabilities::add);
+
+        for (CommandRole role : CommandRole.values()) {
+            capabilities
+                    .stream()
+                    .filter(capability -> role.name().equals(capability.getName()))
+                    .findFirst()
+                    .ifPresent(capability -> next.put(role, capability));
+        }
+
+        register(capabilities);
+        roles = next;
+
+        LOGGER.info("Assigned ordinals to {} capabilities", capabilities.size());
+    }
+
+    public Capability getCapability(CommandRole role) {
+        Capability capability = roles.get(role);
+
+        if (capability == null) {
+            capability = capabilityRepository.findByName(role.name());
+        }
+
+        return capability;
+    }
+
+    /**
+     * Assigns the next free ordinal to each capability that doesn't have one yet. Ordinals that were
+     * already handed out never change, so masks built earlier stay valid for the capabilities they cover.
+     */
+    public synchronized void register(Collection<Capability> capabilities) {
+        Map<UUID, Integer> next = new HashMap<>(ordinals);
+
+        capabilities
+                .stream()
+                .filter(capability -> capability.getId() != null)
+                .forEach(capability -> next.putIfAbsent(capability.getId(), next.size()));
+
+        ordinals = Collections.unmodifiableMap(next);
+        generation++;
+    }
+
+    public Integer ordinalOf(Capability capability) {
+        if (capability == null || capability.getId() == null) {
+            return null;
+        }
+
+        return ordinals.get(capability.getId());
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the capable's mask, building it again if it was made before the latest registration.
+     */
+    public CapabilityMask getCapabilityMask(Capable capable) {
+        Map<UUID, Integer> current = ordinals;
+        CapabilityMask mask = capable.getCapabilityMask();
+
+        if (mask == null || !mask.isBuiltFrom(current)) {
+            mask = new CapabilityMask(current, capable.getCapabilities());
+            capable.setCapabilityMask(mask);
+        }
+
+        return mask;
+    }
+}
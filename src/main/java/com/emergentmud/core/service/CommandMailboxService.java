@@ -0,0 +1,201 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs each entity's commands one at a time, in the order they arrived, on a shared worker pool.
+ * An entity's mailbox only ever has one task in the pool at a time, so a slow command holds up the
+ * player who sent it and nobody else. Mailboxes are discarded as soon as they are empty.
+ */
+@Component
+public class CommandMailboxService implements PublicMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandMailboxService.class);
+
+    private Executor executor;
+    private int queueDepth;
+
+    private final Map<UUID, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Inject
+    public CommandMailboxService(@Named("mailboxExecutor") Executor executor,
+                                 @Value("${emergentmud.mailbox.queue-depth:16}") int queueDepth) {
+        this.executor = executor;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Queues a task behind any others the entity has waiting.
+     *
+     * @return false if the entity's mailbox is already full and the task was dropped
+     */
+    public boolean submit(Entity entity, Runnable task) {
+        while (true) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(entity.getId(), Mailbox::new);
+            Offer offer = mailbox.offer(task);
+
+            switch (offer) {
+                case QUEUED:
+                    return true;
+                case SCHEDULE:
+                    schedule(mailbox);
+                    return true;
+                case FULL:
+                    rejected.incrementAndGet();
+                    LOGGER.warn("Mailbox for {} is full, dropping command", entity.getName());
+                    return false;
+                default:
+                    // the mailbox emptied and was discarded while we were looking at it; get a fresh one
+            }
+        }
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("mailbox.queued", queued.get()),
+                new Metric<>("mailbox.active", mailboxes.size()),
+                new Metric<>("mailbox.rejected", rejected.get()));
+    }
+
+    private void schedule(Mailbox mailbox) {
+        try {
+            executor.execute(mailbox);
+        } catch (RejectedExecutionException e) {
+            LOGGER.error("Unable to schedule commands, the worker pool is shutting down");
+            mailbox.discard();
+        }
+    }
+
+    private enum Offer {
+        QUEUED,
+        SCHEDULE,
+        FULL,
+        CLOSED
+    }
+
+    private class Mailbox implements Runnable {
+        private final UUID entityId;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled = false;
+        private boolean closed = false;
+
+        Mailbox(UUID entityId) {
+            this.entityId = entityId;
+        }
+
+        synchronized Offer offer(Runnable task) {
+            if (closed) {
+                return Offer.CLOSED;
+            }
+
+            if (tasks.size() >= queueDepth) {
+                return Offer.FULL;
+            }
+
+            tasks.add(task);
+            queued.incrementAndGet();
+
+            if (scheduled) {
+                return Offer.QUEUED;
+            }
+
+            scheduled = true;
+
+            return Offer.SCHEDULE;
+        }
+
+        synchronized void discard() {
+            queued.addAndGet(-tasks.size());
+            tasks.clear();
+            close();
+        }
+
+        // run one task and then go to the back of the line, so busy players can't starve quiet ones
+        @Override
+        public void run() {
+            Runnable task;
+
+            synchronized (this) {
+                task = tasks.poll();
+            }
+
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Command failed for entity {}", entityId, e);
+            } finally {
+                boolean more;
+
+                synchronized (this) {
+                    if (task != null) {
+                        queued.decrementAndGet();
+                    }
+
+                    more = !tasks.isEmpty();
+
+                    if (!more) {
+                        close();
+                    }
+                }
+
+                if (more) {
+                    schedule(this);
+                }
+            }
+        }
+
+        private void close() {
+            scheduled = false;
+            closed = true;
+            mailboxes.remove(entityId, this);
+        }
+    }
+}
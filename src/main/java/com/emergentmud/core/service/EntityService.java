@@ -26,7 +26,6 @@ import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.repository.EntityRepository;
-import com.emergentmud.core.repository.RoomRepository;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
@@ -39,19 +38,22 @@ import java.util.Optional;
 @Component
 public class EntityService {
     private EntityRepository entityRepository;
-    private RoomRepository roomRepository;
+    private OccupancyIndex occupancyIndex;
     private SimpMessagingTemplate simpMessagingTemplate;
     private PromptBuilder promptBuilder;
+    private SessionBindingService sessionBindingService;
 
     @Inject
     public EntityService(EntityRepository entityRepository,
-                         RoomRepository roomRepository,
+                         OccupancyIndex occupancyIndex,
                          SimpMessagingTemplate simpMessagingTemplate,
-                         PromptBuilder promptBuilder) {
+                         PromptBuilder promptBuilder,
+                         SessionBindingService sessionBindingService) {
         this.entityRepository = entityRepository;
-        this.roomRepository = roomRepository;
+        this.occupancyIndex = occupancyIndex;
         this.simpMessagingTemplate = simpMessagingTemplate;
         this.promptBuilder = promptBuilder;
+        this.sessionBindingService = sessionBindingService;
     }
 
     public void sendMessageToEntity(Entity entity, GameOutput message) {
@@ -68,16 +70,14 @@ public class EntityService {
         sendMessageToRoom(entity.getLocation(), entity, message);
     }
 
-    public void sendMessageToRoom(Coordinate location, Entity entity, GameOutput message) {
-        Room room = roomRepository.findByLocation(location);
-
-        sendMessageToRoom(room, entity, message);
+    public void sendMessageToRoom(Room room, Entity entity, GameOutput message) {
+        sendMessageToRoom(room.getLocation(), entity, message);
     }
 
-    public void sendMessageToRoom(Room room, Entity entity, GameOutput message) {
+    public void sendMessageToRoom(Coordinate location, Entity entity, GameOutput message) {
         promptBuilder.appendPrompt(message);
 
-        entityRepository.findByLocation(room.getLocation())
+        occupancyIndex.getOccupants(location)
                 .stream()
                 .filter(e -> !e.equals(entity))
                 .forEach(e -> {
@@ -89,16 +89,14 @@ public class EntityService {
                 });
     }
 
-    public void sendMessageToRoom(Coordinate location, Collection<Entity> exclude, GameOutput message) {
-        Room room = roomRepository.findByLocation(location);
-
-        sendMessageToRoom(room, exclude, message);
+    public void sendMessageToRoom(Room room, Collection<Entity> exclude, GameOutput message) {
+        sendMessageToRoom(room.getLocation(), exclude, message);
     }
 
-    public void sendMessageToRoom(Room room, Collection<Entity> exclude, GameOutput message) {
+    public void sendMessageToRoom(Coordinate location, Collection<Entity> exclude, GameOutput message) {
         promptBuilder.appendPrompt(message);
 
-        entityRepository.findByLocation(room.getLocation())
+        occupancyIndex.getOccupants(location)
                 .stream()
                 .filter(e -> !exclude.contains(e))
                 .forEach(e -> {
@@ -138,7 +136,7 @@ public class EntityService {
     }
 
     public Optional<Entity> entitySearchRoom(Entity entity, String name) {
-        return entityRepository.findByLocation(entity.getLocation())
+        return occupancyIndex.getOccupants(entity.getLocation())
                 .stream()
                 .filter(t -> t.getName().toLowerCase().startsWith(name.toLowerCase()))
                 .findFirst();
@@ -151,7 +149,8 @@ public class EntityService {
             return entityOptional;
         }
 
-        return Optional.ofNullable(entityRepository.findByNameStartingWithIgnoreCaseAndLocationIsNotNull(name));
+        return Optional.ofNullable(entityRepository.findByNameStartingWithIgnoreCaseAndLocationIsNotNull(name))
+                .map(sessionBindingService::resolve);
     }
 
     public Optional<Entity> entitySearchGlobal(Entity entity, String name) {
@@ -161,6 +160,7 @@ public class EntityService {
             return entityOptional;
         }
 
-        return Optional.ofNullable(entityRepository.findByNameStartingWithIgnoreCase(name));
+        return Optional.ofNullable(entityRepository.findByNameStartingWithIgnoreCase(name))
+                .map(sessionBindingService::resolve);
     }
 }
@@ -20,10 +20,81 @@
 
 package com.emergentmud.core.service;
 
+import com.emergentmud.core.model.Direction;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 @Component
 public class InputService {
+    private static final Map<Character, Direction> SPEEDWALK_DIRECTIONS = Direction.DIRECTIONS
+            .stream()
+            .collect(Collectors.toMap(d -> d.getName().charAt(0), Function.identity()));
+    // a count of zero isn't a step, so "0n" is left alone to be handled like any other input
+    private static final String SPEEDWALK_STEP = "([1-9]\\d?|)([" + SPEEDWALK_DIRECTIONS
+            .keySet()
+            .stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining()) + "])";
+    private static final Pattern SPEEDWALK = Pattern.compile("^(" + SPEEDWALK_STEP + ")+$");
+    private static final Pattern SPEEDWALK_STEPS = Pattern.compile(SPEEDWALK_STEP);
+
+    /**
+     * Splits a line like "n;n;say hi" into its separate commands. A doubled ";;" stands for a semicolon
+     * inside a command, so "say wait;; what?" says "wait; what?". Blank input stays a single blank command.
+     */
+    public List<String> splitCommands(String input) {
+        List<String> commands = new ArrayList<>();
+        StringBuilder command = new StringBuilder();
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+
+            if (c != ';') {
+                command.append(c);
+            } else if (i + 1 < input.length() && input.charAt(i + 1) == ';') {
+                command.append(c);
+                i++;
+            } else {
+                addCommand(commands, command);
+            }
+        }
+
+        addCommand(commands, command);
+
+        return commands.isEmpty() ? Collections.singletonList("") : commands;
+    }
+
+    public boolean isSpeedwalk(String input) {
+        return SPEEDWALK.matcher(input).matches();
+    }
+
+    /**
+     * Expands speedwalk notation such as "3n2e" into the names of the direction commands it stands for.
+     */
+    public List<String> expandSpeedwalk(String input) {
+        List<String> directions = new ArrayList<>();
+        Matcher matcher = SPEEDWALK_STEPS.matcher(input);
+
+        while (matcher.find()) {
+            int count = matcher.group(1).isEmpty() ? 1 : Integer.parseInt(matcher.group(1));
+            String name = SPEEDWALK_DIRECTIONS.get(matcher.group(2).charAt(0)).getName();
+
+            for (int i = 0; i < count; i++) {
+                directions.add(name);
+            }
+        }
+
+        return directions;
+    }
+
     public String chopWords(String input) {
         return chopWords(input, 1);
     }
@@ -35,4 +106,14 @@ public class InputService {
 
         return input;
     }
+
+    private void addCommand(List<String> commands, StringBuilder command) {
+        String trimmed = command.toString().trim();
+
+        if (!trimmed.isEmpty()) {
+            commands.add(trimmed);
+        }
+
+        command.setLength(0);
+    }
 }
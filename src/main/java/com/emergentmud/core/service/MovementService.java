@@ -28,8 +28,15 @@ import com.emergentmud.core.repository.EntityRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.inject.Inject;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class MovementService {
@@ -37,11 +44,28 @@ public class MovementService {
 
     private EntityRepository entityRepository;
     private RoomService roomService;
+    private OccupancyIndex occupancyIndex;
+    private WorldGenerationService worldGenerationService;
+    private CommandMailboxService commandMailboxService;
+    private SessionBindingService sessionBindingService;
+    private TransactionTemplate transactionTemplate;
+    private Set<UUID> pendingMoves = ConcurrentHashMap.newKeySet();
 
     @Inject
-    public MovementService(EntityRepository entityRepository, RoomService roomService) {
+    public MovementService(EntityRepository entityRepository,
+                           RoomService roomService,
+                           OccupancyIndex occupancyIndex,
+                           WorldGenerationService worldGenerationService,
+                           CommandMailboxService commandMailboxService,
+                           SessionBindingService sessionBindingService,
+                           PlatformTransactionManager transactionManager) {
         this.entityRepository = entityRepository;
         this.roomService = roomService;
+        this.occupancyIndex = occupancyIndex;
+        this.worldGenerationService = worldGenerationService;
+        this.commandMailboxService = commandMailboxService;
+        this.sessionBindingService = sessionBindingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public Entity put(Entity entity, Coordinate location) throws NoSuchRoomException {
@@ -57,12 +81,65 @@ public class MovementService {
 
         entity.setLocation(room.getLocation());
         entityRepository.save(entity);
+        occupancyIndex.update(entity);
+        worldGenerationService.observe(entity.getLocation());
 
         LOGGER.trace("Put {} into room {}", entity.getName(), entity.getLocation());
 
         return entity;
     }
 
+    /**
+     * Like {@link #put(Entity, Coordinate)}, but if the room has to be generated first the caller gets
+     * an incomplete future back straight away. Once the room exists the entity is placed from its own
+     * mailbox, inside a transaction, so that it can't race the entity's other commands, and anything
+     * chained onto the future runs there too. The entity placed is the live instance bound to the
+     * player's session, if there is one, so the player's next commands start from the new room. Until then the entity can't start another move, and if
+     * something else has moved it in the meantime it stays where it is. The future fails with a
+     * {@link NoSuchRoomException} if there is no room to be placed in.
+     */
+    public CompletableFuture<Entity> putAsync(Entity entity, Coordinate location) {
+        CompletableFuture<Entity> arrival = new CompletableFuture<>();
+
+        if (isMoving(entity)) {
+            arrival.completeExceptionally(new NoSuchRoomException("You are already on your way."));
+            return arrival;
+        }
+
+        if (roomService.fetchRoom(location) != null) {
+            arrive(arrival, entity, location);
+            return arrival;
+        }
+
+        UUID entityId = entity.getId();
+        Coordinate origin = entity.getLocation();
+
+        pendingMoves.add(entityId);
+
+        roomService.createRoomAsync(location).whenComplete((room, e) -> {
+            if (e != null) {
+                LOGGER.error("Failed to generate room {} for {}", location, entity.getName(), e);
+                pendingMoves.remove(entityId);
+                arrival.completeExceptionally(new NoSuchRoomException("The land before you refuses to take shape."));
+                return;
+            }
+
+            if (!commandMailboxService.submit(entity, () -> transactionTemplate.execute(status -> arrive(arrival, entity, origin, location)))) {
+                pendingMoves.remove(entityId);
+                arrival.completeExceptionally(new NoSuchRoomException("You hesitate, and the moment passes."));
+            }
+        });
+
+        return arrival;
+    }
+
+    /**
+     * Whether the entity is still waiting to arrive somewhere from {@link #putAsync(Entity, Coordinate)}.
+     */
+    public boolean isMoving(Entity entity) {
+        return entity.getId() != null && pendingMoves.contains(entity.getId());
+    }
+
     public void remove(Entity entity) {
         LOGGER.trace("Remove {} from room {}",
                 entity.getName(),
@@ -70,5 +147,32 @@ public class MovementService {
 
         entity.setLocation(null);
         entityRepository.save(entity);
+        occupancyIndex.remove(entity);
+    }
+
+    private CompletableFuture<Entity> arrive(CompletableFuture<Entity> arrival, Entity entity, Coordinate location) {
+        try {
+            arrival.complete(put(entity, location));
+        } catch (NoSuchRoomException e) {
+            arrival.completeExceptionally(e);
+        }
+
+        return arrival;
+    }
+
+    private CompletableFuture<Entity> arrive(CompletableFuture<Entity> arrival, Entity mover, Coordinate origin, Coordinate location) {
+        try {
+            Entity entity = sessionBindingService.resolve(mover);
+
+            if (!Objects.equals(origin, entity.getLocation())) {
+                LOGGER.trace("Entity {} left {} before arriving at {}", entity.getName(), origin, location);
+                arrival.completeExceptionally(new NoSuchRoomException("You have already gone elsewhere."));
+                return arrival;
+            }
+
+            return arrive(arrival, entity, location);
+        } finally {
+            pendingMoves.remove(mover.getId());
+        }
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.repository.EntityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of who is in which room so that broadcasts, looking around and finding targets don't
+ * need to ask the database. It is loaded from the database at startup and kept up to date by
+ * {@link MovementService}, which every change of location goes through.
+ */
+@Component
+public class OccupancyIndex implements ApplicationListener<ContextRefreshedEvent> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OccupancyIndex.class);
+
+    private EntityRepository entityRepository;
+    private SessionBindingService sessionBindingService;
+
+    private final Map<Coordinate, Map<UUID, Entity>> rooms = new ConcurrentHashMap<>();
+    private final Map<UUID, Coordinate> locations = new ConcurrentHashMap<>();
+
+    @Inject
+    public OccupancyIndex(EntityRepository entityRepository, SessionBindingService sessionBindingService) {
+        this.entityRepository = entityRepository;
+        this.sessionBindingService = sessionBindingService;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        reconcile();
+    }
+
+    public synchronized void reconcile() {
+        rooms.clear();
+        locations.clear();
+
+        entityRepository.findByLocationIsNotNull().forEach(this::update);
+
+        LOGGER.info("Indexed {} entities in {} rooms", locations.size(), rooms.size());
+    }
+
+    /**
+     * Records the entity at its current location, or removes it from the index if it has no location.
+     */
+    public synchronized void update(Entity entity) {
+        remove(entity);
+
+        if (entity.getLocation() != null) {
+            locations.put(entity.getId(), entity.getLocation());
+            rooms.computeIfAbsent(entity.getLocation(), location -> new ConcurrentHashMap<>()).put(entity.getId(), entity);
+        }
+    }
+
+    public synchronized void remove(Entity entity) {
+        Coordinate previous = locations.remove(entity.getId());
+
+        if (previous != null) {
+            rooms.computeIfPresent(previous, (location, occupants) -> {
+                occupants.remove(entity.getId());
+
+                return occupants.isEmpty() ? null : occupants;
+            });
+        }
+    }
+
+    /**
+     * Returns a new, modifiable list of the entities at the location, using the live instance of anyone
+     * who is connected.
+     */
+    public List<Entity> getOccupants(Coordinate location) {
+        Map<UUID, Entity> occupants = location == null ? null : rooms.get(location);
+
+        if (occupants == null) {
+            return new ArrayList<>();
+        }
+
+        return occupants.values()
+                .stream()
+                .map(sessionBindingService::resolve)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leases regions of the world to this server with Postgres advisory locks, so that several servers
+ * sharing a database don't generate the same place at once. A lease holds a connection of its own with
+ * a session lock for each region. If any of them is taken we let go of the rest and poll until we get
+ * them all, which means two servers can never deadlock however their regions overlap.
+ *
+ * Closing the lease releases the locks. If the server dies instead, Postgres releases them when the
+ * connection drops.
+ */
+@Component
+public class RegionLeaseService implements PublicMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionLeaseService.class);
+    private static final Lease NO_LEASE = new Lease(null);
+
+    private DataSource dataSource;
+    private boolean enabled;
+    private long timeoutMillis;
+    private long pollMillis;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @Inject
+    public RegionLeaseService(DataSource dataSource,
+                              @Value("${emergentmud.region-lease.enabled:true}") boolean enabled,
+                              @Value("${emergentmud.region-lease.timeout-millis:30000}") long timeoutMillis,
+                              @Value("${emergentmud.region-lease.poll-millis:50}") long pollMillis) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Waits until this server holds every one of the regions.
+     *
+     * @throws IllegalStateException if another server holds on to one of them for longer than the timeout
+     */
+    public Lease acquire(Collection<Coordinate> regions) {
+        if (!enabled) {
+            return NO_LEASE;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long[] keys = regions.stream().mapToLong(RegionLeaseService::keyOf).sorted().distinct().toArray();
+        Connection connection = null;
+
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+
+            boolean waited = false;
+
+            while (!tryLockAll(connection, keys)) {
+                if (System.nanoTime() > deadline) {
+                    timeouts.incrementAndGet();
+                    throw new IllegalStateException(String.format("Timed out after %d ms waiting to lease regions %s", timeoutMillis, regions));
+                }
+
+                waited = true;
+                Thread.sleep(pollMillis);
+            }
+
+            long latency = System.nanoTime() - start;
+
+            acquired.incrementAndGet();
+            latencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+
+            if (waited) {
+                contended.incrementAndGet();
+                LOGGER.debug("Leased regions {} after waiting {} ms", regions, TimeUnit.NANOSECONDS.toMillis(latency));
+            }
+
+            return new Lease(connection);
+        } catch (SQLException e) {
+            close(connection);
+            throw new IllegalStateException("Unable to lease regions " + regions, e);
+        } catch (InterruptedException e) {
+            close(connection);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to lease regions " + regions, e);
+        } catch (RuntimeException e) {
+            close(connection);
+            throw e;
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        long count = acquired.get();
+
+        return Arrays.asList(
+                new Metric<>("regionlease.acquired", count),
+                new Metric<>("regionlease.contended", contended.get()),
+                new Metric<>("regionlease.timeouts", timeouts.get()),
+                new Metric<>("regionlease.latency-average-millis", count == 0 ? 0.0 : latencyNanos.get() / (double)count / 1_000_000.0),
+                new Metric<>("regionlease.latency-max-millis", maxLatencyNanos.get() / 1_000_000.0));
+    }
+
+    /*
+     * Advisory locks are keyed by a single bigint, so the region is hashed into one. Two regions that
+     * hash the same just wait for each other now and then.
+     */
+    static long keyOf(Coordinate region) {
+        long key = region.getX() * 0x9E3779B97F4A7C15L;
+
+        key = (key ^ (key >>> 29) ^ region.getY()) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 32) ^ region.getZ()) * 0x94D049BB133111EBL;
+
+        return key ^ (key >>> 31);
+    }
+
+    private static boolean tryLockAll(Connection connection, long[] keys) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            for (long key : keys) {
+                statement.setLong(1, key);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next() || !resultSet.getBoolean(1)) {
+                        unlockAll(connection);
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static void unlockAll(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock_all()")) {
+            statement.execute();
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            unlockAll(connection);
+        } catch (SQLException e) {
+            LOGGER.error("Unable to release region locks", e);
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.error("Unable to close region lease connection", e);
+        }
+    }
+
+    public static class Lease implements AutoCloseable {
+        private Connection connection;
+
+        Lease(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() {
+            RegionLeaseService.close(connection);
+            connection = null;
+        }
+    }
+}
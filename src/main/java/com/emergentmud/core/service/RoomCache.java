@@ -0,0 +1,331 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.repository.RoomRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps recently used parts of the world in memory as square chunks of rooms. A chunk is loaded with a
+ * single range query the first time anything inside it is asked for, and the least recently used chunks
+ * are dropped once the cache holds more rooms than its budget allows. Anything that saves rooms must
+ * tell the cache about them with {@link #put(Iterable)}.
+ */
+@Component
+public class RoomCache implements PublicMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomCache.class);
+
+    static final int CHUNK_BITS = 5;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private RoomRepository roomRepository;
+    private long budget;
+
+    private final LinkedHashMap<Coordinate, Chunk> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Coordinate, Integer> pending = new HashMap<>();
+    private final Map<Coordinate, Loading> loading = new HashMap<>();
+    private long weight = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public RoomCache(RoomRepository roomRepository,
+                     @Value("${emergentmud.room-cache.budget:262144}") long budget) {
+        this.roomRepository = roomRepository;
+        this.budget = budget;
+    }
+
+    public Room fetchRoom(Coordinate location) {
+        return getChunk(chunkOf(location)).get(location);
+    }
+
+    public List<Room> fetchRooms(Coordinate from, Coordinate to) {
+        List<Room> rooms = new ArrayList<>();
+
+        for (long z = Math.min(from.getZ(), to.getZ()); z <= Math.max(from.getZ(), to.getZ()); z++) {
+            Coordinate low = chunkOf(new Coordinate(Math.min(from.getX(), to.getX()), Math.min(from.getY(), to.getY()), z));
+            Coordinate high = chunkOf(new Coordinate(Math.max(from.getX(), to.getX()), Math.max(from.getY(), to.getY()), z));
+
+            for (long chunkX = low.getX(); chunkX <= high.getX(); chunkX++) {
+                for (long chunkY = low.getY(); chunkY <= high.getY(); chunkY++) {
+                    getChunk(new Coordinate(chunkX, chunkY, z)).rooms.values()
+                            .stream()
+                            .filter(room -> isBetween(room.getLocation(), from, to))
+                            .forEach(rooms::add);
+                }
+            }
+        }
+
+        return rooms;
+    }
+
+    /**
+     * Adds newly saved rooms to any chunks that are already loaded. If the rooms were saved inside a
+     * transaction they are only added once it commits, and the chunks they fall in are not cached until
+     * it finishes in case they missed them or saw rooms that end up rolled back. Outside a real
+     * transaction the rooms are already committed, so they are added straight away even if
+     * synchronization is active.
+     */
+    public void put(Iterable<Room> rooms) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive()) {
+            Set<Coordinate> keys = new HashSet<>();
+
+            rooms.forEach(room -> keys.add(chunkOf(room.getLocation())));
+
+            synchronized (this) {
+                keys.forEach(key -> {
+                    pending.merge(key, 1, Integer::sum);
+                    markStale(key);
+                });
+            }
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    apply(rooms);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (RoomCache.this) {
+                        keys.forEach(key -> {
+                            pending.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+                            markStale(key);
+                        });
+                    }
+                }
+            });
+        } else {
+            apply(rooms);
+        }
+    }
+
+    public synchronized void invalidate() {
+        loading.values().forEach(load -> load.stale = true);
+        chunks.clear();
+        weight = 0;
+    }
+
+    /**
+     * Drops any loaded chunks that overlap the area, so that rooms saved there by another server are
+     * loaded the next time they are asked for.
+     */
+    public synchronized void invalidate(Coordinate from, Coordinate to) {
+        Coordinate low = chunkOf(new Coordinate(Math.min(from.getX(), to.getX()), Math.min(from.getY(), to.getY()), Math.min(from.getZ(), to.getZ())));
+        Coordinate high = chunkOf(new Coordinate(Math.max(from.getX(), to.getX()), Math.max(from.getY(), to.getY()), Math.max(from.getZ(), to.getZ())));
+        Iterator<Map.Entry<Coordinate, Chunk>> iterator = chunks.entrySet().iterator();
+
+        loading.forEach((key, load) -> {
+            if (isBetween(key, low, high)) {
+                load.stale = true;
+            }
+        });
+
+        while (iterator.hasNext()) {
+            Map.Entry<Coordinate, Chunk> entry = iterator.next();
+
+            if (isBetween(entry.getKey(), low, high)) {
+                iterator.remove();
+                weight -= entry.getValue().getWeight();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public synchronized Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("roomcache.hits", hits.get()),
+                new Metric<>("roomcache.misses", misses.get()),
+                new Metric<>("roomcache.evictions", evictions.get()),
+                new Metric<>("roomcache.chunks", chunks.size()),
+                new Metric<>("roomcache.weight", weight));
+    }
+
+    private synchronized void apply(Iterable<Room> rooms) {
+        rooms.forEach(room -> {
+            Coordinate key = chunkOf(room.getLocation());
+            Chunk chunk = chunks.get(key);
+
+            if (chunk != null && chunk.put(room)) {
+                weight++;
+            }
+
+            markStale(key);
+        });
+
+        evict();
+    }
+
+    private Chunk getChunk(Coordinate key) {
+        Loading load;
+
+        synchronized (this) {
+            Chunk chunk = chunks.get(key);
+
+            if (chunk != null) {
+                hits.incrementAndGet();
+                return chunk;
+            }
+
+            load = loading.computeIfAbsent(key, k -> new Loading());
+            load.loaders++;
+        }
+
+        misses.incrementAndGet();
+
+        long x = key.getX() << CHUNK_BITS;
+        long y = key.getY() << CHUNK_BITS;
+        Chunk chunk = new Chunk();
+
+        try {
+            roomRepository.findByLocationXBetweenAndLocationYBetweenAndLocationZ(
+                    x, x + CHUNK_SIZE - 1,
+                    y, y + CHUNK_SIZE - 1,
+                    key.getZ()).forEach(chunk::put);
+        } finally {
+            synchronized (this) {
+                if (--load.loaders == 0) {
+                    loading.remove(key);
+                }
+            }
+        }
+
+        synchronized (this) {
+            Chunk existing = chunks.get(key);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            // rooms were saved in this chunk while we were loading it, so what we have might already be out of date
+            if (load.stale || pending.containsKey(key)) {
+                LOGGER.debug("Not caching chunk {} because rooms were saved in it while loading", key);
+                return chunk;
+            }
+
+            chunks.put(key, chunk);
+            weight += chunk.getWeight();
+
+            evict();
+        }
+
+        return chunk;
+    }
+
+    private void evict() {
+        Iterator<Chunk> iterator = chunks.values().iterator();
+
+        while (weight > budget && iterator.hasNext()) {
+            Chunk eldest = iterator.next();
+
+            iterator.remove();
+            weight -= eldest.getWeight();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void markStale(Coordinate key) {
+        Loading load = loading.get(key);
+
+        if (load != null) {
+            load.stale = true;
+        }
+    }
+
+    private static Coordinate chunkOf(Coordinate location) {
+        return new Coordinate(location.getX() >> CHUNK_BITS, location.getY() >> CHUNK_BITS, location.getZ());
+    }
+
+    private static boolean isBetween(Coordinate location, Coordinate from, Coordinate to) {
+        return location.getX() >= Math.min(from.getX(), to.getX()) && location.getX() <= Math.max(from.getX(), to.getX())
+                && location.getY() >= Math.min(from.getY(), to.getY()) && location.getY() <= Math.max(from.getY(), to.getY())
+                && location.getZ() >= Math.min(from.getZ(), to.getZ()) && location.getZ() <= Math.max(from.getZ(), to.getZ());
+    }
+
+    /*
+     * Everyone loading the same chunk at once shares one of these, and any write to the chunk before they
+     * have all finished marks it stale so none of them caches what they read.
+     */
+    private static class Loading {
+        private int loaders;
+        private boolean stale;
+    }
+
+    /*
+     * Rooms are keyed by their offset within the chunk, packed into a single int. A chunk weighs one
+     * more than the number of rooms in it so that empty chunks still count against the budget.
+     */
+    private static class Chunk {
+        private static final int MASK = CHUNK_SIZE - 1;
+
+        private Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+
+        Room get(Coordinate location) {
+            return rooms.get(pack(location));
+        }
+
+        boolean put(Room room) {
+            return rooms.put(pack(room.getLocation()), room) == null;
+        }
+
+        long getWeight() {
+            return rooms.size() + 1;
+        }
+
+        private static int pack(Coordinate location) {
+            return (int)(((location.getX() & MASK) << CHUNK_BITS) | (location.getY() & MASK));
+        }
+    }
+}
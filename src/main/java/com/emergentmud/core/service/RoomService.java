@@ -26,39 +26,142 @@ import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.Zone;
 import com.emergentmud.core.repository.RoomRepository;
 import com.emergentmud.core.service.maze.ZoneFillStrategy;
+import com.emergentmud.core.util.StripedLocks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 
+/**
+ * Finds rooms and creates new ones as the world is explored. Most zones save every room they carve, but
+ * the rooms of a procedural zone are carved again from the world seed whenever they are needed. Only the
+ * ones that are changed and saved with {@link #saveRoom(Room)} are kept in the database, and those take
+ * the place of the carved rooms at the same locations.
+ */
 @Component
 public class RoomService {
     private static final Logger LOGGER = LoggerFactory.getLogger(RoomService.class);
+    private static final int REGION_BITS = 5;
+    private static final int LOCK_STRIPES = 1024;
 
     private ZoneService zoneService;
     private RoomRepository roomRepository;
+    private RoomCache roomCache;
+    private ZoneLayoutCache zoneLayoutCache;
     private ZoneFillStrategy zoneFillStrategy;
+    private Executor executor;
+    private RegionLeaseService regionLeaseService;
+    private TransactionTemplate transactionTemplate;
+    private boolean procedural;
+
+    private final StripedLocks regionLocks = new StripedLocks(LOCK_STRIPES);
+    private final Map<Coordinate, CompletableFuture<Room>> inFlight = new ConcurrentHashMap<>();
 
     @Inject
     public RoomService(ZoneService zoneService,
                        RoomRepository roomRepository,
-                       ZoneFillStrategy zoneFillStrategy) {
+                       RoomCache roomCache,
+                       ZoneLayoutCache zoneLayoutCache,
+                       ZoneFillStrategy zoneFillStrategy,
+                       @Named("roomGenerationExecutor") Executor executor,
+                       RegionLeaseService regionLeaseService,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${emergentmud.room-generation.procedural:false}") boolean procedural) {
 
-        this.roomRepository = roomRepository;
+        this.roomCache = roomCache;
         this.zoneService = zoneService;
+        this.roomRepository = roomRepository;
+        this.zoneLayoutCache = zoneLayoutCache;
+        this.procedural = procedural;
         this.zoneFillStrategy = zoneFillStrategy;
+        this.executor = executor;
+        this.regionLeaseService = regionLeaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
     }
 
     public Room fetchRoom(Coordinate location) {
-        return roomRepository.findByLocation(location);
+        Room room = roomCache.fetchRoom(location);
+
+        if (room != null) {
+            return room;
+        }
+
+        Zone zone = zoneService.fetchZone(location);
+
+        if (zone == null || !zone.isProcedural()) {
+            return null;
+        }
+
+        return zoneLayoutCache.fetchLayout(zone).fetchRoom(location);
     }
 
     public List<Room> fetchRooms(Coordinate from, Coordinate to) {
-        return roomRepository.findByLocationBetween(from, to);
+        List<Room> rooms = roomCache.fetchRooms(from, to);
+        List<Zone> proceduralZones = zoneService.fetchZones(from, to)
+                .stream()
+                .filter(Zone::isProcedural)
+                .collect(Collectors.toList());
+
+        if (proceduralZones.isEmpty()) {
+            return rooms;
+        }
+
+        List<Room> merged = new ArrayList<>(rooms);
+        Set<Coordinate> saved = rooms
+                .stream()
+                .map(Room::getLocation)
+                .collect(Collectors.toSet());
+
+        proceduralZones.forEach(zone -> zoneLayoutCache.fetchLayout(zone).fetchRooms(from, to)
+                .stream()
+                .filter(room -> !saved.contains(room.getLocation()))
+                .forEach(merged::add));
+
+        return merged;
+    }
+
+    public Room saveRoom(Room room) {
+        if (room.getId() == null) {
+            Room existing = roomRepository.findByLocation(room.getLocation());
+
+            // a carved room that was already saved once takes over the row, rather than adding another
+            if (existing != null) {
+                room.setId(existing.getId());
+            }
+        }
+
+        Room saved = roomRepository.save(room);
+
+        roomCache.put(Collections.singletonList(saved));
+
+        return saved;
     }
 
+    /**
+     * Returns the room at the location, generating its zone first if there isn't one yet. Generation
+     * holds the locks for the regions around the location, so anyone else trying to generate the same
+     * area waits for it and then finds the rooms it made instead of carving a zone of their own. Zones
+     * far enough apart are generated in parallel. The same regions are leased from the database so that
+     * other servers wait too.
+     */
     public Room createRoom(Coordinate location) {
         Room room = fetchRoom(location);
 
@@ -67,15 +170,83 @@ public class RoomService {
             return room;
         }
 
-        Zone zone = zoneService.fetchZone(location);
+        List<Coordinate> regions = findRegionsAround(location);
+        List<Lock> locks = regionLocks.lockAll(regions);
+        RegionLeaseService.Lease lease = null;
+
+        try {
+            lease = regionLeaseService.acquire(regions);
+            room = fetchRoom(location);
+
+            if (room != null) {
+                LOGGER.debug("Room was generated while we waited for it: {}", location);
+                return room;
+            }
+
+            if (zoneService.fetchZone(location) != null) {
+                return null;
+            }
+
+            Zone existing = zoneService.refreshZone(location);
+
+            if (existing != null) {
+                LOGGER.debug("Zone at {} was generated by another server", location);
+
+                roomCache.invalidate(existing.getBottomLeft(), existing.getTopRight());
+
+                return fetchRoom(location);
+            }
+
+            // commit before letting go of the locks, so whoever is waiting can see what we made
+            return transactionTemplate.execute(status -> {
+                Zone zone = zoneService.createZone(location, procedural);
+
+                if (zone.isProcedural()) {
+                    return zoneLayoutCache.fetchLayout(zone).fetchRoom(location);
+                }
+
+                return zoneFillStrategy.fillZone(zone, location);
+            });
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+
+            regionLocks.unlockAll(locks);
+        }
+    }
 
-        if (zone == null) {
-            zone = zoneService.createZone(location);
+    /**
+     * Like {@link #createRoom(Coordinate)}, but a room that doesn't exist yet is created on the room
+     * generation pool so the caller's thread is free while the zone is carved. Rooms that already exist
+     * are returned in a future that has already completed, and everyone asking for the same room while
+     * it is being created shares one future.
+     */
+    public CompletableFuture<Room> createRoomAsync(Coordinate location) {
+        Room room = fetchRoom(location);
 
-            return zoneFillStrategy.fillZone(zone, location);
+        if (room != null) {
+            return CompletableFuture.completedFuture(room);
         }
 
-        return null;
+        CompletableFuture<Room> created = new CompletableFuture<>();
+        CompletableFuture<Room> existing = inFlight.putIfAbsent(location, created);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture.supplyAsync(() -> createRoom(location), executor).whenComplete((result, e) -> {
+            inFlight.remove(location, created);
+
+            if (e != null) {
+                created.completeExceptionally(e);
+            } else {
+                created.complete(result);
+            }
+        });
+
+        return created;
     }
 
     public boolean isWithinDistance(Entity origin, Coordinate distant, double distance) {
@@ -83,4 +254,23 @@ public class RoomService {
                 + Math.pow(origin.getLocation().getY() - distant.getY(), 2)
                 + Math.pow(origin.getLocation().getZ() - distant.getZ(), 2)) <= distance;
     }
+
+    /*
+     * Zones are much smaller than a region, so a zone grown from a location almost always stays within
+     * half a region of it. Two locations close enough for their zones to overlap always share at least
+     * one of the regions that covers that distance, and the rare zone that grows further is still kept
+     * from overlapping anything by the zone_no_overlap constraint.
+     */
+    private List<Coordinate> findRegionsAround(Coordinate location) {
+        List<Coordinate> regions = new ArrayList<>();
+        long reach = 1 << (REGION_BITS - 1);
+
+        for (long x = (location.getX() - reach) >> REGION_BITS; x <= (location.getX() + reach) >> REGION_BITS; x++) {
+            for (long y = (location.getY() - reach) >> REGION_BITS; y <= (location.getY() + reach) >> REGION_BITS; y++) {
+                regions.add(new Coordinate(x, y, location.getZ()));
+            }
+        }
+
+        return regions;
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.model.stomp.SessionBinding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which entity each STOMP session is playing, so that handling input doesn't need to read the
+ * HTTP session or the entity from the database. Each bound entity has exactly one live instance, which
+ * is handed out to anything that looks the entity up so that changes made by other players' commands
+ * (being moved, gaining capabilities) are seen by the player's own session.
+ */
+@Component
+public class SessionBindingService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionBindingService.class);
+
+    private final Map<String, SessionBinding> bySession = new ConcurrentHashMap<>();
+    private final Map<UUID, SessionBinding> byEntity = new ConcurrentHashMap<>();
+
+    public synchronized SessionBinding bind(String simpSessionId, String principalName, String breadcrumb, Entity entity) {
+        SessionBinding binding = new SessionBinding(simpSessionId, principalName, breadcrumb, entity);
+        SessionBinding previous = byEntity.put(entity.getId(), binding);
+
+        if (previous != null && !previous.getSimpSessionId().equals(simpSessionId)) {
+            bySession.remove(previous.getSimpSessionId());
+
+            LOGGER.debug("Replaced session {} with {} for {}", previous.getSimpSessionId(), simpSessionId, entity.getName());
+        }
+
+        bySession.put(simpSessionId, binding);
+
+        return binding;
+    }
+
+    public Optional<SessionBinding> getBinding(String simpSessionId) {
+        return Optional.ofNullable(bySession.get(simpSessionId));
+    }
+
+    public synchronized Optional<SessionBinding> evict(String simpSessionId) {
+        SessionBinding binding = bySession.remove(simpSessionId);
+
+        if (binding != null) {
+            byEntity.remove(binding.getEntityId(), binding);
+        }
+
+        return Optional.ofNullable(binding);
+    }
+
+    public Entity resolve(Entity entity) {
+        if (entity == null || entity.getId() == null) {
+            return entity;
+        }
+
+        SessionBinding binding = byEntity.get(entity.getId());
+
+        return binding == null ? entity : binding.getEntity();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.config.ThrottleProperties;
+import com.emergentmud.core.model.CommandClass;
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits input with token buckets: one per entity for every line it sends, and one per entity for
+ * each {@link CommandClass}. Rates come from {@link ThrottleProperties}.
+ */
+@Component
+public class ThrottleService implements PublicMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThrottleService.class);
+
+    public enum Verdict {
+        ALLOWED,
+        THROTTLED,
+        SHED
+    }
+
+    private CommandMailboxService commandMailboxService;
+    private ThrottleProperties throttleProperties;
+    private LongSupplier clock;
+
+    private final Map<UUID, Buckets> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+
+    @Inject
+    public ThrottleService(ThrottleProperties throttleProperties, CommandMailboxService commandMailboxService) {
+        this(throttleProperties, commandMailboxService, System::nanoTime);
+    }
+
+    public ThrottleService(ThrottleProperties throttleProperties, CommandMailboxService commandMailboxService, LongSupplier clock) {
+        this.throttleProperties = throttleProperties;
+        this.commandMailboxService = commandMailboxService;
+        this.clock = clock;
+    }
+
+    public boolean tryAcceptInput(Entity entity) {
+        if (getBuckets(entity).input.tryConsume()) {
+            return true;
+        }
+
+        throttled.incrementAndGet();
+        LOGGER.debug("Throttled input from {}", entity.getName());
+
+        return false;
+    }
+
+    public Verdict tryAcquire(Entity entity, CommandClass commandClass) {
+        if (!commandClass.isEssential() && isOverloaded()) {
+            shed.incrementAndGet();
+            return Verdict.SHED;
+        }
+
+        if (!getBuckets(entity).classes.get(commandClass).tryConsume()) {
+            throttled.incrementAndGet();
+            LOGGER.debug("Throttled {} command from {}", commandClass, entity.getName());
+            return Verdict.THROTTLED;
+        }
+
+        return Verdict.ALLOWED;
+    }
+
+    public boolean isOverloaded() {
+        return commandMailboxService.getQueued() >= throttleProperties.getOverloadQueueDepth();
+    }
+
+    public void evict(Entity entity) {
+        buckets.remove(entity.getId());
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("throttle.throttled", throttled.get()),
+                new Metric<>("throttle.shed", shed.get()),
+                new Metric<>("throttle.overloaded", isOverloaded() ? 1 : 0));
+    }
+
+    private Buckets getBuckets(Entity entity) {
+        return buckets.computeIfAbsent(entity.getId(), id -> new Buckets());
+    }
+
+    private class Buckets {
+        private TokenBucket input = buildBucket(throttleProperties.getInput());
+        private Map<CommandClass, TokenBucket> classes = new EnumMap<>(CommandClass.class);
+
+        Buckets() {
+            for (CommandClass commandClass : CommandClass.values()) {
+                classes.put(commandClass, buildBucket(throttleProperties.getBucket(commandClass)));
+            }
+        }
+
+        private TokenBucket buildBucket(ThrottleProperties.Bucket bucket) {
+            return new TokenBucket(bucket.getRate(), bucket.getBurst(), clock);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.WhittakerGridLocation;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.WhittakerGridLocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the Whittaker diagram in memory as a dense elevation by moisture array. For every cell we keep a
+ * bitmask of the cells next to it, so the places a new zone may go are the intersection of its
+ * neighbors' masks. The grid is seed data, so it is loaded at startup and only reloaded on request.
+ */
+@Component
+public class WhittakerGrid implements ApplicationListener<ContextRefreshedEvent> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhittakerGrid.class);
+
+    private WhittakerGridLocationRepository whittakerGridLocationRepository;
+
+    private volatile Snapshot snapshot;
+
+    @Inject
+    public WhittakerGrid(WhittakerGridLocationRepository whittakerGridLocationRepository) {
+        this.whittakerGridLocationRepository = whittakerGridLocationRepository;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        reload();
+    }
+
+    public synchronized void reload() {
+        List<WhittakerGridLocation> locations = new ArrayList<>();
+
+        whittakerGridLocationRepository.findAll().forEach(locations::add);
+
+        snapshot = new Snapshot(locations);
+
+        LOGGER.info("Loaded {} Whittaker grid locations", snapshot.size);
+    }
+
+    /**
+     * Picks a grid location that is next to every neighbor's location without being the same as any
+     * of them. If there is no such location, any location will do.
+     */
+    public WhittakerGridLocation select(List<Zone> neighbors, SplittableRandom random) {
+        Snapshot current = getSnapshot();
+
+        if (current.size == 0) {
+            throw new IllegalStateException("The Whittaker grid is empty");
+        }
+
+        long[] candidates = current.all.clone();
+
+        for (Zone neighbor : neighbors) {
+            long[] adjacent = current.adjacencyOf(neighbor.getElevation(), neighbor.getMoisture());
+
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] &= adjacent[i];
+            }
+        }
+
+        int count = 0;
+
+        for (long word : candidates) {
+            count += Long.bitCount(word);
+        }
+
+        if (count == 0) {
+            LOGGER.warn("No matching grid locations!");
+            LOGGER.warn(neighbors.stream()
+                    .map(n -> String.format("Neighbor: %s e=%d m=%d", n.getBiome().getName(), n.getElevation(), n.getMoisture()))
+                    .collect(Collectors.joining("\n")));
+
+            candidates = current.all;
+            count = current.size;
+        }
+
+        int skip = random.nextInt(count);
+
+        for (int i = 0; i < candidates.length; i++) {
+            long word = candidates[i];
+            int bits = Long.bitCount(word);
+
+            if (skip >= bits) {
+                skip -= bits;
+                continue;
+            }
+
+            for (; skip > 0; skip--) {
+                word &= word - 1;
+            }
+
+            return current.cells[i * Long.SIZE + Long.numberOfTrailingZeros(word)];
+        }
+
+        throw new IllegalStateException("Candidate count did not match candidate mask");
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            reload();
+            current = snapshot;
+        }
+
+        return current;
+    }
+
+    private static class Snapshot {
+        private int minElevation = Integer.MAX_VALUE;
+        private int minMoisture = Integer.MAX_VALUE;
+        private int elevations;
+        private int moistures;
+        private int size;
+        private WhittakerGridLocation[] cells;
+        private long[][] adjacency;
+        private long[] all;
+        private long[] none;
+
+        Snapshot(List<WhittakerGridLocation> locations) {
+            int maxElevation = Integer.MIN_VALUE;
+            int maxMoisture = Integer.MIN_VALUE;
+
+            for (WhittakerGridLocation location : locations) {
+                minElevation = Math.min(minElevation, location.getElevation());
+                minMoisture = Math.min(minMoisture, location.getMoisture());
+                maxElevation = Math.max(maxElevation, location.getElevation());
+                maxMoisture = Math.max(maxMoisture, location.getMoisture());
+            }
+
+            elevations = locations.isEmpty() ? 0 : maxElevation - minElevation + 1;
+            moistures = locations.isEmpty() ? 0 : maxMoisture - minMoisture + 1;
+            cells = new WhittakerGridLocation[elevations * moistures];
+            adjacency = new long[cells.length][];
+            all = new long[(cells.length + Long.SIZE - 1) / Long.SIZE];
+            none = new long[all.length];
+
+            for (WhittakerGridLocation location : locations) {
+                int index = indexOf(location.getElevation(), location.getMoisture());
+
+                if (cells[index] != null) {
+                    LOGGER.warn("Ignoring duplicate Whittaker grid location e={} m={}", location.getElevation(), location.getMoisture());
+                    continue;
+                }
+
+                cells[index] = location;
+                all[index / Long.SIZE] |= 1L << (index % Long.SIZE);
+                size++;
+            }
+
+            for (int e = 0; e < elevations; e++) {
+                for (int m = 0; m < moistures; m++) {
+                    long[] mask = new long[all.length];
+
+                    for (int de = -1; de <= 1; de++) {
+                        for (int dm = -1; dm <= 1; dm++) {
+                            int ne = e + de;
+                            int nm = m + dm;
+
+                            if ((de != 0 || dm != 0) && ne >= 0 && ne < elevations && nm >= 0 && nm < moistures) {
+                                int index = ne * moistures + nm;
+
+                                mask[index / Long.SIZE] |= 1L << (index % Long.SIZE);
+                            }
+                        }
+                    }
+
+                    for (int i = 0; i < mask.length; i++) {
+                        mask[i] &= all[i];
+                    }
+
+                    adjacency[e * moistures + m] = mask;
+                }
+            }
+        }
+
+        long[] adjacencyOf(Integer elevation, Integer moisture) {
+            if (elevation == null || moisture == null) {
+                return none;
+            }
+
+            int e = elevation - minElevation;
+            int m = moisture - minMoisture;
+
+            if (e < 0 || e >= elevations || m < 0 || m >= moistures) {
+                return none;
+            }
+
+            return adjacency[e * moistures + m];
+        }
+
+        private int indexOf(int elevation, int moisture) {
+            return (elevation - minElevation) * moistures + (moisture - minMoisture);
+        }
+    }
+}
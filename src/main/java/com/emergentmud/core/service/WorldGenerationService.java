@@ -0,0 +1,211 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Direction;
+import com.emergentmud.core.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates zones ahead of players so that walking rarely has to wait for one. Every time a player moves
+ * we queue a scan of the area around them, and a low priority worker looks for empty cells next to rooms
+ * that already exist and creates rooms there the same way a player walking into them would. Starting
+ * next to an existing room means each new zone is connected to the rest of the world.
+ *
+ * The number of zones generated per minute is capped by a token bucket, and anything over the budget is
+ * left for a later scan or for the player to generate by walking there.
+ */
+@Component
+public class WorldGenerationService implements PublicMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorldGenerationService.class);
+    private static final int SCAN_SPACING = 8;
+
+    private RoomService roomService;
+    private ZoneService zoneService;
+    private Executor executor;
+    private int radius;
+    private int queueLimit;
+    private TokenBucket budget;
+
+    private final Set<Coordinate> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong generationNanos = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Inject
+    public WorldGenerationService(RoomService roomService,
+                                  ZoneService zoneService,
+                                  @Named("worldGenerationExecutor") Executor executor,
+                                  @Value("${emergentmud.world-generation.radius:24}") int radius,
+                                  @Value("${emergentmud.world-generation.budget:30}") int budget,
+                                  @Value("${emergentmud.world-generation.queue-limit:64}") int queueLimit) {
+        this(roomService, zoneService, executor, radius, budget, queueLimit, System::nanoTime);
+    }
+
+    public WorldGenerationService(RoomService roomService,
+                                  ZoneService zoneService,
+                                  Executor executor,
+                                  int radius,
+                                  int budget,
+                                  int queueLimit,
+                                  LongSupplier clock) {
+        this.roomService = roomService;
+        this.zoneService = zoneService;
+        this.executor = executor;
+        this.radius = radius;
+        this.queueLimit = queueLimit;
+        this.budget = new TokenBucket(budget / 60.0, budget, clock);
+    }
+
+    /**
+     * Queues a scan around a location a player has just moved to. Moves within the same few rooms share
+     * a scan, so this is cheap enough to call on every step.
+     */
+    public void observe(Coordinate location) {
+        if (radius <= 0 || location == null) {
+            return;
+        }
+
+        Coordinate key = new Coordinate(
+                Math.floorDiv(location.getX(), SCAN_SPACING),
+                Math.floorDiv(location.getY(), SCAN_SPACING),
+                location.getZ());
+
+        if (pending.size() >= queueLimit) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        if (!pending.add(key)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    scan(location);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    LOGGER.error("World generation failed near {}", location, e);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            LOGGER.error("Unable to schedule world generation, the worker pool is shutting down");
+        }
+    }
+
+    public int getQueued() {
+        return pending.size();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        long count = generated.get();
+
+        return Arrays.asList(
+                new Metric<>("worldgen.queued", pending.size()),
+                new Metric<>("worldgen.generated", count),
+                new Metric<>("worldgen.average-millis", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(generationNanos.get() / count)),
+                new Metric<>("worldgen.deferred", deferred.get()),
+                new Metric<>("worldgen.dropped", dropped.get()),
+                new Metric<>("worldgen.failed", failed.get()));
+    }
+
+    private void scan(Coordinate center) {
+        for (Coordinate frontier : findFrontier(center)) {
+            // an earlier zone from this scan may have covered it already
+            if (zoneService.fetchZone(frontier) != null) {
+                continue;
+            }
+
+            if (!budget.tryConsume()) {
+                deferred.incrementAndGet();
+                LOGGER.debug("World generation budget exhausted, deferring the frontier near {}", center);
+                return;
+            }
+
+            long start = System.nanoTime();
+
+            roomService.createRoom(frontier);
+
+            generationNanos.addAndGet(System.nanoTime() - start);
+            generated.incrementAndGet();
+
+            LOGGER.debug("Generated zone at {} ahead of a player at {}", frontier, center);
+        }
+    }
+
+    /*
+     * Empty cells next to existing rooms within the radius, closest first.
+     */
+    private List<Coordinate> findFrontier(Coordinate center) {
+        Set<Coordinate> frontier = new LinkedHashSet<>();
+
+        roomService.fetchRooms(
+                new Coordinate(center.getX() - radius, center.getY() - radius, center.getZ()),
+                new Coordinate(center.getX() + radius, center.getY() + radius, center.getZ()))
+                .forEach(room -> {
+                    for (Direction direction : Direction.DIRECTIONS) {
+                        Coordinate neighbor = new Coordinate(
+                                room.getLocation().getX() + direction.getX(),
+                                room.getLocation().getY() + direction.getY(),
+                                room.getLocation().getZ() + direction.getZ());
+
+                        if (zoneService.fetchZone(neighbor) == null) {
+                            frontier.add(neighbor);
+                        }
+                    }
+                });
+
+        List<Coordinate> sorted = new ArrayList<>(frontier);
+
+        sorted.sort(Comparator.comparingLong(cell -> Math.abs(cell.getX() - center.getX()) + Math.abs(cell.getY() - center.getY())));
+
+        return sorted;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.SplittableRandom;
+
+/**
+ * Hands out random number generators that depend only on the world seed and where they are used. Each
+ * zone gets a stream of its own, so threads generating different zones never share any state, and
+ * generating the same zone from the same seed always turns out the same way.
+ */
+@Component
+public class WorldSeed {
+    private static final long PLAN = 0x5A4F4E45504C414EL;
+    private static final long FILL = 0x5A4F4E4546494C4CL;
+
+    private long seed;
+
+    @Inject
+    public WorldSeed(@Value("${emergentmud.world-seed:0}") long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Randomness for planning a new zone that will grow out from the location.
+     */
+    public SplittableRandom forZonePlan(Coordinate location) {
+        return new SplittableRandom(mix(PLAN, location));
+    }
+
+    /**
+     * Randomness for filling a zone with rooms, keyed by the zone's bottom left corner.
+     */
+    public SplittableRandom forZoneFill(Zone zone) {
+        return new SplittableRandom(mix(FILL, zone.getBottomLeft()));
+    }
+
+    private long mix(long purpose, Coordinate location) {
+        long key = seed ^ purpose;
+
+        key = scramble(key ^ location.getX());
+        key = scramble(key ^ location.getY());
+        key = scramble(key ^ location.getZ());
+
+        return key;
+    }
+
+    private static long scramble(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+
+        return key ^ (key >>> 31);
+    }
+}
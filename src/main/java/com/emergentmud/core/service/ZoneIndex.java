@@ -0,0 +1,182 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.ZoneRepository;
+import com.emergentmud.core.util.RTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers "which zone is here?" and "which zones overlap this rectangle?" from memory using an R-tree
+ * of zone borders. It is loaded from the database at startup and every newly saved zone must be
+ * passed to {@link #put(Zone)}.
+ */
+@Component
+public class ZoneIndex implements ApplicationListener<ContextRefreshedEvent> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZoneIndex.class);
+
+    private ZoneRepository zoneRepository;
+
+    private final RTree<Zone> tree = new RTree<>();
+    private final Map<UUID, Zone> zones = new HashMap<>();
+    private final Map<UUID, long[]> bounds = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Inject
+    public ZoneIndex(ZoneRepository zoneRepository) {
+        this.zoneRepository = zoneRepository;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        reconcile();
+    }
+
+    public void reconcile() {
+        lock.writeLock().lock();
+
+        try {
+            tree.clear();
+            zones.clear();
+            bounds.clear();
+
+            zoneRepository.findAll().forEach(this::insert);
+
+            LOGGER.info("Indexed {} zones", tree.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a saved zone to the index right away so that nobody else can claim the same space, and takes
+     * it back out again if the transaction that saved it is rolled back.
+     */
+    public void put(Zone zone) {
+        lock.writeLock().lock();
+
+        try {
+            insert(zone);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        remove(zone);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds a zone that someone else has already committed to the database.
+     */
+    public void putCommitted(Zone zone) {
+        lock.writeLock().lock();
+
+        try {
+            insert(zone);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Zone zone) {
+        lock.writeLock().lock();
+
+        try {
+            delete(zone.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Zone findZoneAtPoint(long x, long y) {
+        lock.readLock().lock();
+
+        try {
+            List<Zone> found = tree.search(x, y, x, y);
+
+            return found.isEmpty() ? null : found.get(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Zone> findZonesWithin(long topRightX, long topRightY, long bottomLeftX, long bottomLeftY) {
+        lock.readLock().lock();
+
+        try {
+            return tree.search(bottomLeftX, bottomLeftY, topRightX, topRightY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * The corners are remembered separately from the zone itself so that it can still be found and
+     * removed if someone changes its borders afterward.
+     */
+    private void insert(Zone zone) {
+        long[] corners = new long[] {
+                zone.getBottomLeft().getX(),
+                zone.getBottomLeft().getY(),
+                zone.getTopRight().getX(),
+                zone.getTopRight().getY()
+        };
+
+        delete(zone.getId());
+
+        zones.put(zone.getId(), zone);
+        bounds.put(zone.getId(), corners);
+        tree.insert(corners[0], corners[1], corners[2], corners[3], zone);
+    }
+
+    private void delete(UUID id) {
+        Zone zone = zones.remove(id);
+        long[] corners = bounds.remove(id);
+
+        if (zone != null) {
+            tree.remove(corners[0], corners[1], corners[2], corners[3], zone);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.service.maze.ZoneLayout;
+import com.emergentmud.core.service.maze.ZoneLayoutStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the layouts of recently used procedural zones in memory. A layout is carved the first time
+ * anything in its zone is asked for, and the least recently used layouts are dropped once the cache
+ * holds more cells than its budget allows. Dropping one costs nothing but the time to carve it again.
+ */
+@Component
+public class ZoneLayoutCache implements PublicMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZoneLayoutCache.class);
+
+    private ZoneLayoutStrategy zoneLayoutStrategy;
+    private long budget;
+
+    private final LinkedHashMap<UUID, ZoneLayout> layouts = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong layoutMillis = new AtomicLong();
+
+    @Inject
+    public ZoneLayoutCache(ZoneLayoutStrategy zoneLayoutStrategy,
+                           @Value("${emergentmud.room-generation.layout-budget:16777216}") long budget) {
+        this.zoneLayoutStrategy = zoneLayoutStrategy;
+        this.budget = budget;
+    }
+
+    public ZoneLayout fetchLayout(Zone zone) {
+        synchronized (this) {
+            ZoneLayout layout = layouts.get(zone.getId());
+
+            if (layout != null) {
+                hits.incrementAndGet();
+                return layout;
+            }
+        }
+
+        misses.incrementAndGet();
+
+        // carving is deterministic, so if two threads race to carve the same zone they get the same thing
+        long start = System.currentTimeMillis();
+        ZoneLayout layout = zoneLayoutStrategy.layoutZone(zone, zone.getOrigin());
+
+        layoutMillis.addAndGet(System.currentTimeMillis() - start);
+
+        synchronized (this) {
+            ZoneLayout existing = layouts.get(zone.getId());
+
+            if (existing != null) {
+                return existing;
+            }
+
+            layouts.put(zone.getId(), layout);
+            weight += layout.getWeight();
+
+            evict();
+        }
+
+        LOGGER.debug("Laid out zone {} with {} rooms", zone.getId(), layout.size());
+
+        return layout;
+    }
+
+    @Override
+    public synchronized Collection<Metric<?>> metrics() {
+        long missCount = misses.get();
+
+        return Arrays.asList(
+                new Metric<>("layoutcache.hits", hits.get()),
+                new Metric<>("layoutcache.misses", missCount),
+                new Metric<>("layoutcache.evictions", evictions.get()),
+                new Metric<>("layoutcache.layouts", layouts.size()),
+                new Metric<>("layoutcache.weight", weight),
+                new Metric<>("layoutcache.average-millis", missCount == 0 ? 0.0 : (double)layoutMillis.get() / missCount));
+    }
+
+    // the newest layout is never evicted, even if it is bigger than the whole budget
+    private void evict() {
+        Iterator<ZoneLayout> iterator = layouts.values().iterator();
+
+        while (weight > budget && layouts.size() > 1 && iterator.hasNext()) {
+            ZoneLayout eldest = iterator.next();
+
+            iterator.remove();
+            weight -= eldest.getWeight();
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -23,156 +23,250 @@ package com.emergentmud.core.service;
 import com.emergentmud.core.model.Coordinate;
 import com.emergentmud.core.model.WhittakerGridLocation;
 import com.emergentmud.core.model.Zone;
-import com.emergentmud.core.repository.WhittakerGridLocationRepository;
 import com.emergentmud.core.repository.ZoneRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Component
-public class ZoneService {
+public class ZoneService implements PublicMetrics {
     private static final Logger LOGGER = LoggerFactory.getLogger(ZoneService.class);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int MAX_EXPANSION_TRIES = 25;
+    private static final int MAX_EXPANSION_STEP = 3;
+    private static final int NEIGHBORHOOD = MAX_EXPANSION_TRIES * MAX_EXPANSION_STEP + 1;
 
     private ZoneRepository zoneRepository;
-    private Random random;
+    private ZoneIndex zoneIndex;
+    private WhittakerGrid whittakerGrid;
+    private WorldSeed worldSeed;
 
-    private WhittakerGridLocationRepository whittakerGridLocationRepository;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
 
     @Inject
-    public ZoneService(ZoneRepository zoneRepository, WhittakerGridLocationRepository whittakerGridLocationRepository, Random random) {
+    public ZoneService(ZoneRepository zoneRepository,
+                       ZoneIndex zoneIndex,
+                       WhittakerGrid whittakerGrid,
+                       WorldSeed worldSeed) {
         this.zoneRepository = zoneRepository;
-        this.whittakerGridLocationRepository = whittakerGridLocationRepository;
-        this.random = random;
+        this.zoneIndex = zoneIndex;
+        this.whittakerGrid = whittakerGrid;
+        this.worldSeed = worldSeed;
     }
 
     public Zone fetchZone(Coordinate point) {
-        return zoneRepository.findZoneAtPoint(point.getX(), point.getY());
+        return zoneIndex.findZoneAtPoint(point.getX(), point.getY());
     }
 
+    public List<Zone> fetchZones(Coordinate from, Coordinate to) {
+        return zoneIndex.findZonesWithin(
+                Math.max(from.getX(), to.getX()),
+                Math.max(from.getY(), to.getY()),
+                Math.min(from.getX(), to.getX()),
+                Math.min(from.getY(), to.getY()));
+    }
+
+    /**
+     * Looks for a zone at the point in the database instead of the index, in case another server has
+     * created one there that we haven't heard about. Anything found is added to the index.
+     */
+    public Zone refreshZone(Coordinate point) {
+        List<Zone> zones = zoneRepository.findZonesWithin(point.getX(), point.getY(), point.getX(), point.getY());
+
+        zones.forEach(zoneIndex::putCommitted);
+
+        return zones
+                .stream()
+                .filter(zone -> zone.encompasses(point))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Plans a zone around the location using the zones we know about and then tries to claim it with a
+     * single insert. If another server got there first the insert loses to the zone_no_overlap constraint,
+     * so we learn about whatever we collided with and plan again.
+     */
     public Zone createZone(Coordinate startLocation) {
-        Zone zone = fetchZone(startLocation);
+        return createZone(startLocation, false);
+    }
 
-        if (zone != null) {
-            LOGGER.debug("Request to create zone that already exists at: {}", startLocation);
-            return zone;
-        }
+    /**
+     * Creates a zone whose rooms are carved from the world seed whenever they are needed instead of being
+     * saved, if procedural is true.
+     */
+    public Zone createZone(Coordinate startLocation, boolean procedural) {
+        SplittableRandom random = worldSeed.forZonePlan(startLocation);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Zone zone = fetchZone(startLocation);
+
+            if (zone != null) {
+                LOGGER.debug("Request to create zone that already exists at: {}", startLocation);
+                return zone;
+            }
 
-        zone = new Zone();
+            zone = new Zone();
+
+            zone.setId(UUID.randomUUID());
+            zone.setTopRight(startLocation);
+            zone.setBottomLeft(startLocation);
+            zone.setOrigin(startLocation);
+            zone.setProcedural(procedural);
+
+            List<Zone> nearby = zoneIndex.findZonesWithin(
+                    startLocation.getX() + NEIGHBORHOOD,
+                    startLocation.getY() + NEIGHBORHOOD,
+                    startLocation.getX() - NEIGHBORHOOD,
+                    startLocation.getY() - NEIGHBORHOOD
+            );
+
+            expandZoneBorders(zone, nearby, random);
+            selectZoneBiome(zone, nearby, random);
+
+            if (zoneRepository.insertIfVacant(zone) > 0) {
+                zone = zoneRepository.findOne(zone.getId());
+                zoneIndex.put(zone);
+                created.incrementAndGet();
+
+                LOGGER.info("Saving new zone: {} {} {}",
+                        zone.getBiome().getName(),
+                        zone.getBottomLeft(),
+                        zone.getTopRight());
+
+                return zone;
+            }
+
+            conflicts.incrementAndGet();
+
+            List<Zone> winners = zoneRepository.findZonesWithin(
+                    zone.getTopRight().getX(),
+                    zone.getTopRight().getY(),
+                    zone.getBottomLeft().getX(),
+                    zone.getBottomLeft().getY()
+            );
 
-        zone.setTopRight(startLocation);
-        zone.setBottomLeft(startLocation);
+            LOGGER.debug("Zone {} {} for {} lost to {} zone(s) created elsewhere (attempt {} of {})",
+                    zone.getBottomLeft(),
+                    zone.getTopRight(),
+                    startLocation,
+                    winners.size(),
+                    attempt,
+                    MAX_ATTEMPTS);
 
-        expandZoneBorders(zone);
-        selectZoneBiome(zone);
+            winners.forEach(zoneIndex::putCommitted);
+        }
 
-        zone = zoneRepository.save(zone);
+        exhausted.incrementAndGet();
 
-        LOGGER.info("Saving new zone: {} {} {}",
-                zone.getBiome().getName(),
-                zone.getBottomLeft(),
-                zone.getTopRight());
+        throw new IllegalStateException(String.format("Unable to allocate a zone at %s after %d attempts", startLocation, MAX_ATTEMPTS));
+    }
 
-        return zone;
+    /**
+     * Counts zones this server created, inserts that lost to an overlapping zone created by another
+     * server, and calls that gave up after losing every attempt.
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("zone.created", created.get()),
+                new Metric<>("zone.conflicts", conflicts.get()),
+                new Metric<>("zone.exhausted", exhausted.get()));
     }
 
-    private void expandZoneBorders(Zone zone) {
-        List<Zone> collisions;
+    /*
+     * The same random walk as always: push a random edge out by one to three rooms, and take the step
+     * back if it runs into another zone. The walk can never reach further than NEIGHBORHOOD from the
+     * start, so every zone it could run into is already in the nearby list.
+     */
+    private void expandZoneBorders(Zone zone, List<Zone> nearby, SplittableRandom random) {
+        long left = zone.getBottomLeft().getX();
+        long bottom = zone.getBottomLeft().getY();
+        long right = zone.getTopRight().getX();
+        long top = zone.getTopRight().getY();
         int tries = 0;
 
         do {
             int direction = random.nextInt(4);
-            int value = random.nextInt(3) + 1;
+            int value = random.nextInt(MAX_EXPANSION_STEP) + 1;
 
             switch (direction) {
                 case 0:
-                    zone.setTopRight(new Coordinate(zone.getTopRight().getX() + value, zone.getTopRight().getY(), zone.getTopRight().getZ()));
-                    LOGGER.debug("Expanding right edge to {}", zone.getTopRight().getX());
+                    if (!overlapsAny(nearby, right + 1, bottom, right + value, top)) {
+                        right += value;
+                    }
                     break;
                 case 1:
-                    zone.setTopRight(new Coordinate(zone.getTopRight().getX(), zone.getTopRight().getY() + value, zone.getTopRight().getZ()));
-                    LOGGER.debug("Expanding top edge to {}", zone.getTopRight().getY());
+                    if (!overlapsAny(nearby, left, top + 1, right, top + value)) {
+                        top += value;
+                    }
                     break;
                 case 2:
-                    zone.setBottomLeft(new Coordinate(zone.getBottomLeft().getX() - value, zone.getBottomLeft().getY(), zone.getBottomLeft().getZ()));
-                    LOGGER.debug("Expanding left edge to {}", zone.getBottomLeft().getX());
+                    if (!overlapsAny(nearby, left - value, bottom, left - 1, top)) {
+                        left -= value;
+                    }
                     break;
                 case 3:
-                    zone.setBottomLeft(new Coordinate(zone.getBottomLeft().getX(), zone.getBottomLeft().getY() - value, zone.getBottomLeft().getZ()));
-                    LOGGER.debug("Expanding bottom edge to {}", zone.getBottomLeft().getY());
+                    if (!overlapsAny(nearby, left, bottom - value, right, bottom - 1)) {
+                        bottom -= value;
+                    }
                     break;
             }
 
-            LOGGER.debug("Checking for collisions: {} {}", zone.getTopRight(), zone.getBottomLeft());
-
-            collisions = zoneRepository.findZonesWithin(
-                    zone.getTopRight().getX(),
-                    zone.getTopRight().getY(),
-                    zone.getBottomLeft().getX(),
-                    zone.getBottomLeft().getY()
-            );
-
-            if (!collisions.isEmpty()) {
-                LOGGER.debug("Collision detected");
-
-                switch (direction) {
-                    case 0:
-                        zone.setTopRight(new Coordinate(zone.getTopRight().getX() - value, zone.getTopRight().getY(), zone.getTopRight().getZ()));
-                        break;
-                    case 1:
-                        zone.setTopRight(new Coordinate(zone.getTopRight().getX(), zone.getTopRight().getY() - value, zone.getTopRight().getZ()));
-                        break;
-                    case 2:
-                        zone.setBottomLeft(new Coordinate(zone.getBottomLeft().getX() + value, zone.getBottomLeft().getY(), zone.getBottomLeft().getZ()));
-                        break;
-                    case 3:
-                        zone.setBottomLeft(new Coordinate(zone.getBottomLeft().getX(), zone.getBottomLeft().getY() + value, zone.getBottomLeft().getZ()));
-                        break;
-                }
-            }
-
             tries++;
         }
-        while ((zone.getTopRight().getX() - zone.getBottomLeft().getX() < 10 || zone.getTopRight().getY() - zone.getBottomLeft().getY() < 10) && tries < 25);
-    }
-
-    private void selectZoneBiome(Zone zone) {
-        List<Zone> neighbors = zoneRepository.findZonesWithin(
-                zone.getTopRight().getX() + 1,
-                zone.getTopRight().getY() + 1,
-                zone.getBottomLeft().getX() - 1,
-                zone.getBottomLeft().getY() - 1
-        );
+        while ((right - left < 10 || top - bottom < 10) && tries < MAX_EXPANSION_TRIES);
 
-        List<WhittakerGridLocation> allWhittakerGridLocations = new ArrayList<>();
+        LOGGER.debug("Expanded zone to {},{} {},{} in {} tries", left, bottom, right, top, tries);
 
-        whittakerGridLocationRepository.findAll().forEach(allWhittakerGridLocations::add);
+        zone.setBottomLeft(new Coordinate(left, bottom, zone.getBottomLeft().getZ()));
+        zone.setTopRight(new Coordinate(right, top, zone.getTopRight().getZ()));
+    }
 
-        List<WhittakerGridLocation> validWhittakerGridLocations = allWhittakerGridLocations.stream()
-                .filter(w -> neighbors.stream().allMatch(n -> Math.abs(n.getElevation() - w.getElevation()) == 1 || Math.abs(n.getMoisture() - w.getMoisture()) == 1))
-                .filter(w -> neighbors.stream().noneMatch(n -> Math.abs(n.getElevation() - w.getElevation()) > 1 || Math.abs(n.getMoisture() - w.getMoisture()) > 1))
-                .filter(w -> neighbors.stream().noneMatch(n -> Math.abs(n.getElevation() - w.getElevation()) == 0 && Math.abs(n.getMoisture() - w.getMoisture()) == 0))
+    private void selectZoneBiome(Zone zone, List<Zone> nearby, SplittableRandom random) {
+        List<Zone> neighbors = nearby
+                .stream()
+                .filter(n -> overlaps(n,
+                        zone.getBottomLeft().getX() - 1,
+                        zone.getBottomLeft().getY() - 1,
+                        zone.getTopRight().getX() + 1,
+                        zone.getTopRight().getY() + 1))
                 .collect(Collectors.toList());
 
-        if (validWhittakerGridLocations.isEmpty()) {
-            LOGGER.warn("No matching grid locations!");
-            LOGGER.warn(neighbors.stream()
-                    .map(n -> String.format("Neighbor: %s e=%d m=%d", n.getBiome().getName(), n.getElevation(), n.getMoisture()))
-                    .collect(Collectors.joining("\n")));
+        WhittakerGridLocation location = whittakerGrid.select(neighbors, random);
+
+        zone.setBiome(location.getBiome());
+        zone.setElevation(location.getElevation());
+        zone.setMoisture(location.getMoisture());
+    }
 
-            validWhittakerGridLocations.addAll(allWhittakerGridLocations);
+    private static boolean overlapsAny(List<Zone> zones, long left, long bottom, long right, long top) {
+        for (Zone zone : zones) {
+            if (overlaps(zone, left, bottom, right, top)) {
+                return true;
+            }
         }
 
-        Collections.shuffle(validWhittakerGridLocations);
+        return false;
+    }
 
-        zone.setBiome(validWhittakerGridLocations.get(0).getBiome());
-        zone.setElevation(validWhittakerGridLocations.get(0).getElevation());
-        zone.setMoisture(validWhittakerGridLocations.get(0).getMoisture());
+    private static boolean overlaps(Zone zone, long left, long bottom, long right, long top) {
+        return zone.getBottomLeft().getX() <= right
+                && zone.getTopRight().getX() >= left
+                && zone.getBottomLeft().getY() <= top
+                && zone.getTopRight().getY() >= bottom;
     }
 }
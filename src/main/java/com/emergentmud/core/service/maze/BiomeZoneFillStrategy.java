@@ -0,0 +1,66 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+/**
+ * Chooses how to fill or lay out each zone from its biome. Biomes that name the Eller strategy are
+ * streamed a row at a time, and everything else uses the growing tree with the biome's cell selection
+ * strategy.
+ */
+@Primary
+@Component
+public class BiomeZoneFillStrategy implements ZoneFillStrategy, ZoneLayoutStrategy {
+    private GrowingTreeMazeStrategy growingTreeMazeStrategy;
+    private EllerMazeStrategy ellerMazeStrategy;
+
+    @Inject
+    public BiomeZoneFillStrategy(GrowingTreeMazeStrategy growingTreeMazeStrategy,
+                                 EllerMazeStrategy ellerMazeStrategy) {
+        this.growingTreeMazeStrategy = growingTreeMazeStrategy;
+        this.ellerMazeStrategy = ellerMazeStrategy;
+    }
+
+    @Override
+    public Room fillZone(Zone zone, Coordinate start) {
+        if (EllerMazeStrategy.NAME.equals(zone.getBiome().getCellSelectionStrategy())) {
+            return ellerMazeStrategy.fillZone(zone, start);
+        }
+
+        return growingTreeMazeStrategy.fillZone(zone, start);
+    }
+
+    @Override
+    public ZoneLayout layoutZone(Zone zone, Coordinate start) {
+        if (EllerMazeStrategy.NAME.equals(zone.getBiome().getCellSelectionStrategy())) {
+            return ellerMazeStrategy.layoutZone(zone, start);
+        }
+
+        return growingTreeMazeStrategy.layoutZone(zone, start);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
+
+import java.util.BitSet;
+
+/**
+ * A set of cells on one level of a zone, stored as one bit per cell. Cells outside the zone are never
+ * members, so checking a neighbor doesn't need a separate bounds check.
+ */
+class CellBitmap {
+    private final long left;
+    private final long bottom;
+    private final long width;
+    private final long height;
+    private final BitSet bits;
+
+    CellBitmap(Zone zone) {
+        this.left = zone.getBottomLeft().getX();
+        this.bottom = zone.getBottomLeft().getY();
+        this.width = zone.getTopRight().getX() - left + 1;
+        this.height = zone.getTopRight().getY() - bottom + 1;
+        this.bits = new BitSet(Math.toIntExact(width * height));
+    }
+
+    boolean contains(Coordinate cell) {
+        int index = indexOf(cell);
+
+        return index >= 0 && bits.get(index);
+    }
+
+    void add(Coordinate cell) {
+        bits.set(checkedIndexOf(cell));
+    }
+
+    void remove(Coordinate cell) {
+        int index = indexOf(cell);
+
+        if (index >= 0) {
+            bits.clear(index);
+        }
+    }
+
+    int size() {
+        return bits.cardinality();
+    }
+
+    long area() {
+        return width * height;
+    }
+
+    private int checkedIndexOf(Coordinate cell) {
+        int index = indexOf(cell);
+
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Cell %s is outside the zone", cell));
+        }
+
+        return index;
+    }
+
+    private int indexOf(Coordinate cell) {
+        long x = cell.getX() - left;
+        long y = cell.getY() - bottom;
+
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+
+        return (int)(y * width + x);
+    }
+}
@@ -20,10 +20,15 @@
 
 package com.emergentmud.core.service.maze;
 
-import com.emergentmud.core.model.Coordinate;
-
-import java.util.LinkedList;
+import java.util.SplittableRandom;
 
+/**
+ * Chooses which cell of the frontier the maze grows from next. Any randomness has to come from the
+ * zone's own random stream so that the maze can be generated again exactly the same way.
+ */
 public interface CellSelectionStrategy {
-    Coordinate selectCell(LinkedList<Coordinate> queue);
+    /**
+     * @return the index of the selected cell
+     */
+    int selectCell(Frontier frontier, SplittableRandom random);
 }
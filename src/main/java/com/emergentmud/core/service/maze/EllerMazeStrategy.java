@@ -0,0 +1,279 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.RoomRepository;
+import com.emergentmud.core.service.RoomCache;
+import com.emergentmud.core.service.WorldSeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Eller's algorithm, which builds the maze one row at a time and only needs to remember which set each
+ * cell in the current row belongs to. Sets are joined with a union-find over the row. Rooms are saved in
+ * batches as rows are finished, so filling a zone keeps one row and one batch in memory however big the
+ * zone is, and it doesn't need one big transaction. Zones can't overlap, so nothing else can already be
+ * inside it. Select it by setting a biome's cell selection strategy to "ellerMazeStrategy".
+ *
+ * Cells sit on every other row and column, lined up with the start location, and the passages between
+ * them are rooms too. That keeps the same blockwise geometry as {@link GrowingTreeMazeStrategy}.
+ * http://weblog.jamisbuck.org/2010/12/29/maze-generation-eller-s-algorithm
+ */
+@Component
+public class EllerMazeStrategy implements ZoneFillStrategy, ZoneLayoutStrategy {
+    public static final String NAME = "ellerMazeStrategy";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EllerMazeStrategy.class);
+
+    private RoomRepository roomRepository;
+    private RoomCache roomCache;
+    private WorldSeed worldSeed;
+    private int batchSize;
+
+    @Inject
+    public EllerMazeStrategy(RoomRepository roomRepository,
+                             RoomCache roomCache,
+                             WorldSeed worldSeed,
+                             @Value("${emergentmud.maze.batch-size:500}") int batchSize) {
+        this.roomRepository = roomRepository;
+        this.roomCache = roomCache;
+        this.worldSeed = worldSeed;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Room fillZone(Zone zone, Coordinate startLocation) {
+        long start = System.currentTimeMillis();
+        Batch batch = new Batch(zone, startLocation);
+
+        carve(zone, startLocation, batch::add);
+        batch.flush();
+
+        LOGGER.debug("Generated {} rooms in {} ms", batch.total, System.currentTimeMillis() - start);
+        return batch.startRoom;
+    }
+
+    @Override
+    public ZoneLayout layoutZone(Zone zone, Coordinate startLocation) {
+        long start = System.currentTimeMillis();
+        CellBitmap cells = new CellBitmap(zone);
+
+        carve(zone, startLocation, cells::add);
+
+        LOGGER.debug("Laid out {} rooms in {} ms", cells.size(), System.currentTimeMillis() - start);
+        return new ZoneLayout(zone, startLocation.getZ(), cells);
+    }
+
+    private void carve(Zone zone, Coordinate startLocation, Consumer<Coordinate> rooms) {
+        long originX = zone.getBottomLeft().getX() + Math.floorMod(startLocation.getX() - zone.getBottomLeft().getX(), 2);
+        long originY = zone.getBottomLeft().getY() + Math.floorMod(startLocation.getY() - zone.getBottomLeft().getY(), 2);
+        int width = (int)((zone.getTopRight().getX() - originX) / 2) + 1;
+        int height = (int)((zone.getTopRight().getY() - originY) / 2) + 1;
+        SplittableRandom random = worldSeed.forZoneFill(zone);
+
+        // every set has at least one cell in the row, so there are never more sets than cells
+        int[] sets = new int[width];
+        int[] parent = new int[width];
+        boolean[] right = new boolean[width];
+        boolean[] down = new boolean[width];
+        int used = 0;
+
+        Arrays.fill(sets, -1);
+
+        for (int row = 0; row < height; row++) {
+            boolean lastRow = row == height - 1;
+            long y = originY + row * 2L;
+
+            for (int i = 0; i < width; i++) {
+                if (sets[i] == -1) {
+                    sets[i] = used++;
+                }
+            }
+
+            for (int set = 0; set < used; set++) {
+                parent[set] = set;
+            }
+
+            // join neighbors in different sets at random, or all of them on the last row
+            for (int i = 0; i < width - 1; i++) {
+                int set = find(parent, sets[i]);
+                int neighbor = find(parent, sets[i + 1]);
+
+                right[i] = set != neighbor && (lastRow || random.nextBoolean());
+
+                if (right[i]) {
+                    parent[neighbor] = set;
+                }
+            }
+
+            right[width - 1] = false;
+
+            for (int i = 0; i < width; i++) {
+                sets[i] = find(parent, sets[i]);
+            }
+
+            if (!lastRow) {
+                chooseDown(sets, down, random);
+            }
+
+            for (int i = 0; i < width; i++) {
+                long x = originX + i * 2L;
+
+                rooms.accept(new Coordinate(x, y, startLocation.getZ()));
+
+                if (right[i]) {
+                    rooms.accept(new Coordinate(x + 1, y, startLocation.getZ()));
+                }
+            }
+
+            if (!lastRow) {
+                for (int i = 0; i < width; i++) {
+                    if (down[i]) {
+                        rooms.accept(new Coordinate(originX + i * 2L, y + 1, startLocation.getZ()));
+                    } else {
+                        sets[i] = -1;
+                    }
+                }
+
+                used = renumber(sets, parent);
+            }
+
+            LOGGER.trace("Finished row {} of {}", row + 1, height);
+        }
+    }
+
+    private static int find(int[] parent, int set) {
+        while (parent[set] != set) {
+            parent[set] = parent[parent[set]];
+            set = parent[set];
+        }
+
+        return set;
+    }
+
+    /*
+     * Gives the sets that carry on into the next row the numbers from zero up, so that the new cells can
+     * take the numbers after them. Uses the parent array as scratch space.
+     */
+    private static int renumber(int[] sets, int[] numbers) {
+        int used = 0;
+
+        Arrays.fill(numbers, -1);
+
+        for (int i = 0; i < sets.length; i++) {
+            if (sets[i] != -1) {
+                if (numbers[sets[i]] == -1) {
+                    numbers[sets[i]] = used++;
+                }
+
+                sets[i] = numbers[sets[i]];
+            }
+        }
+
+        return used;
+    }
+
+    /*
+     * Every set has to continue into the next row at least once, or it would be cut off from the rest
+     * of the maze. When we reach the last cell of a set that hasn't gone down yet, it goes down.
+     */
+    private static void chooseDown(int[] sets, boolean[] down, SplittableRandom random) {
+        int[] lastCell = new int[sets.length];
+        boolean[] continued = new boolean[sets.length];
+
+        for (int i = 0; i < sets.length; i++) {
+            lastCell[sets[i]] = i;
+        }
+
+        for (int i = 0; i < sets.length; i++) {
+            down[i] = random.nextBoolean() || (lastCell[sets[i]] == i && !continued[sets[i]]);
+
+            if (down[i]) {
+                continued[sets[i]] = true;
+            }
+        }
+    }
+
+    /*
+     * Each batch is saved on its own, so unless the caller is in a transaction the persistence context
+     * lets go of the rooms as soon as they are written.
+     */
+    private class Batch {
+        private Zone zone;
+        private Coordinate startLocation;
+        private List<Room> rooms = new ArrayList<>();
+        private Room startRoom;
+        private long total = 0;
+
+        Batch(Zone zone, Coordinate startLocation) {
+            this.zone = zone;
+            this.startLocation = startLocation;
+        }
+
+        void add(Coordinate location) {
+            Room room = new Room();
+
+            room.setLocation(location);
+            room.setZone(zone);
+
+            rooms.add(room);
+
+            if (rooms.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (rooms.isEmpty()) {
+                return;
+            }
+
+            List<Room> saved = new ArrayList<>();
+
+            roomRepository.save(rooms).forEach(room -> {
+                saved.add(room);
+
+                if (startLocation.equals(room.getLocation())) {
+                    startRoom = room;
+                }
+            });
+
+            roomCache.put(saved);
+
+            total += saved.size();
+            rooms = new ArrayList<>();
+
+            LOGGER.trace("Saved a batch of {} rooms", saved.size());
+        }
+    }
+}
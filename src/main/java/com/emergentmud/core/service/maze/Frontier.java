@@ -0,0 +1,163 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+
+/**
+ * The cells a maze is still growing from, in the order they were added. Cells are packed into a gap
+ * buffer as offsets from an origin on the same level, and the gap is left wherever the last cell was
+ * removed. Removing cells from either end or near the last removal takes constant time, and a cell
+ * anywhere can be made cheap to remove with {@link #moveToGap(int)} if its order doesn't matter.
+ */
+public class Frontier {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long originX;
+    private final long originY;
+    private final long originZ;
+
+    private long[] cells = new long[INITIAL_CAPACITY];
+    private int gapStart = 0;
+    private int gapEnd = 0;
+    private int end = 0;
+
+    public Frontier(Coordinate origin) {
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+    }
+
+    public int size() {
+        return end - (gapEnd - gapStart);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public Coordinate get(int index) {
+        return unpack(cells[physical(checkIndex(index))]);
+    }
+
+    public void add(Coordinate cell) {
+        if (end == cells.length) {
+            makeRoom();
+        }
+
+        cells[end++] = pack(cell);
+    }
+
+    public Coordinate remove(int index) {
+        checkIndex(index);
+        moveGap(index);
+
+        return unpack(cells[gapEnd++]);
+    }
+
+    /**
+     * Swaps a cell with the one next to the gap, so that removing it won't need to move anything else.
+     *
+     * @return the cell's new index
+     */
+    public int moveToGap(int index) {
+        checkIndex(index);
+
+        // with no gap, the gap can be opened anywhere for free
+        if (gapStart == gapEnd) {
+            return index;
+        }
+
+        int target = gapEnd < end ? gapStart : gapStart - 1;
+
+        if (target == index) {
+            return index;
+        }
+
+        int from = physical(index);
+        int to = physical(target);
+        long swap = cells[from];
+
+        cells[from] = cells[to];
+        cells[to] = swap;
+
+        return target;
+    }
+
+    private void moveGap(int index) {
+        if (gapStart == gapEnd) {
+            gapStart = index;
+            gapEnd = index;
+        } else if (index < gapStart) {
+            int count = gapStart - index;
+
+            System.arraycopy(cells, index, cells, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (index > gapStart) {
+            int count = index - gapStart;
+
+            System.arraycopy(cells, gapEnd, cells, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    /*
+     * Closes the gap, and only grows the array if that didn't free up enough space.
+     */
+    private void makeRoom() {
+        int size = size();
+        long[] target = size * 2 > cells.length ? new long[cells.length * 2] : cells;
+
+        System.arraycopy(cells, 0, target, 0, gapStart);
+        System.arraycopy(cells, gapEnd, target, gapStart, end - gapEnd);
+
+        cells = target;
+        gapStart = size;
+        gapEnd = size;
+        end = size;
+    }
+
+    private int physical(int index) {
+        return index < gapStart ? index : index + (gapEnd - gapStart);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is outside a frontier of size %d", index, size()));
+        }
+
+        return index;
+    }
+
+    private long pack(Coordinate cell) {
+        if (cell.getZ() != originZ) {
+            throw new IllegalArgumentException(String.format("Cell %s is not on the same level as %d", cell, originZ));
+        }
+
+        return (Math.toIntExact(cell.getX() - originX) & 0xFFFFFFFFL) << 32 | (Math.toIntExact(cell.getY() - originY) & 0xFFFFFFFFL);
+    }
+
+    private Coordinate unpack(long packed) {
+        return new Coordinate(originX + (int)(packed >> 32), originY + (int)packed, originZ);
+    }
+}
@@ -25,16 +25,17 @@ import com.emergentmud.core.model.Direction;
 import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.Zone;
 import com.emergentmud.core.repository.RoomRepository;
+import com.emergentmud.core.service.RoomCache;
+import com.emergentmud.core.service.WorldSeed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Algorithm inspired by two of Jamis Buck's blog articles.
@@ -42,54 +43,36 @@ import java.util.Map;
  * http://weblog.jamisbuck.org/2015/10/31/mazes-blockwise-geometry.html
  */
 @Component
-public class GrowingTreeMazeStrategy implements ZoneFillStrategy {
+public class GrowingTreeMazeStrategy implements ZoneFillStrategy, ZoneLayoutStrategy {
     private static final Logger LOGGER = LoggerFactory.getLogger(GrowingTreeMazeStrategy.class);
-    private static final List<Direction> DIRECTIONS;
 
-    static {
-        DIRECTIONS = new ArrayList<>(Direction.DIRECTIONS);
-    }
+    // every order the directions can be tried in, so picking one is a single draw from the zone's stream
+    private static final Direction[][] PERMUTATIONS = permute(Direction.DIRECTIONS.toArray(new Direction[0]), 0, new ArrayList<>())
+            .toArray(new Direction[0][]);
 
     private RoomRepository roomRepository;
+    private RoomCache roomCache;
+    private WorldSeed worldSeed;
     private Map<String, CellSelectionStrategy> cellSelectionStrategies;
 
     @Inject
-    public GrowingTreeMazeStrategy(RoomRepository roomRepository, Map<String, CellSelectionStrategy> cellSelectionStrategies) {
+    public GrowingTreeMazeStrategy(RoomRepository roomRepository,
+                                   RoomCache roomCache,
+                                   WorldSeed worldSeed,
+                                   Map<String, CellSelectionStrategy> cellSelectionStrategies) {
         this.roomRepository = roomRepository;
+        this.roomCache = roomCache;
+        this.worldSeed = worldSeed;
         this.cellSelectionStrategies = cellSelectionStrategies;
     }
 
     @Override
     public Room fillZone(Zone zone, Coordinate startLocation) {
         long start = System.currentTimeMillis();
-        LinkedList<Coordinate> queue = new LinkedList<>();
-        List<Coordinate> carvedRooms = new ArrayList<>();
-        CellSelectionStrategy selectionStrategy = cellSelectionStrategies.get(zone.getBiome().getCellSelectionStrategy());
-        Coordinate current = startLocation;
-
-        // queue the first room
-        queue.addFirst(current);
-        LOGGER.debug("Carved initial cell: {}", current);
-
-        while (!queue.isEmpty()) {
-            current = selectionStrategy.selectCell(queue);
-            LOGGER.debug("Selected cell from queue: {}", current);
-
-            Coordinate neighbor = selectValidNeighbor(current, zone, queue, carvedRooms);
-
-            if (neighbor == null) {
-                carvedRooms.add(current);
-                queue.remove(current);
-
-                LOGGER.debug("Removed cell from queue: {}", current);
-            } else {
-                queue.add(neighbor);
-
-                LOGGER.debug("Queued new cell: {}", neighbor);
-            }
-        }
+        CellBitmap occupied = findOccupiedCells(zone, startLocation.getZ());
+        List<Coordinate> carvedRooms = carve(zone, startLocation, occupied, new CellBitmap(zone));
 
-        LOGGER.debug("Building rooms from cells...");
+        LOGGER.debug("Building rooms from {} cells...", carvedRooms.size());
 
         List<Room> roomBatch = new ArrayList<>();
 
@@ -102,56 +85,129 @@ public class GrowingTreeMazeStrategy implements ZoneFillStrategy {
             roomBatch.add(room);
         });
 
-        roomRepository.save(roomBatch);
+        List<Room> saved = new ArrayList<>();
+
+        roomRepository.save(roomBatch).forEach(saved::add);
+        roomCache.put(saved);
 
         LOGGER.debug("Generated maze in {} ms", System.currentTimeMillis() - start);
-        return roomRepository.findByLocation(startLocation);
+        return saved
+                .stream()
+                .filter(room -> startLocation.equals(room.getLocation()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public ZoneLayout layoutZone(Zone zone, Coordinate startLocation) {
+        long start = System.currentTimeMillis();
+        CellBitmap carved = new CellBitmap(zone);
+
+        // nothing else can be inside the zone, and what we carve mustn't depend on what has been saved
+        carve(zone, startLocation, new CellBitmap(zone), carved);
+
+        LOGGER.debug("Laid out maze of {} cells in {} ms", carved.size(), System.currentTimeMillis() - start);
+        return new ZoneLayout(zone, startLocation.getZ(), carved);
     }
 
-    private Coordinate selectValidNeighbor(Coordinate current, Zone zone, LinkedList<Coordinate> queue, List<Coordinate> carvedRooms) {
-        Collections.shuffle(DIRECTIONS);
+    private List<Coordinate> carve(Zone zone, Coordinate startLocation, CellBitmap occupied, CellBitmap carved) {
+        Frontier frontier = new Frontier(startLocation);
+        List<Coordinate> carvedRooms = new ArrayList<>();
+        CellBitmap queued = new CellBitmap(zone);
+        CellSelectionStrategy selectionStrategy = cellSelectionStrategies.get(zone.getBiome().getCellSelectionStrategy());
+        SplittableRandom random = worldSeed.forZoneFill(zone);
+        Coordinate current = startLocation;
+
+        // queue the first room
+        frontier.add(current);
+        queued.add(current);
+        LOGGER.trace("Carved initial cell: {}", current);
 
-        for (Direction direction : DIRECTIONS) {
+        while (!frontier.isEmpty()) {
+            int selected = selectionStrategy.selectCell(frontier, random);
+
+            current = frontier.get(selected);
+            LOGGER.trace("Selected cell from queue: {}", current);
+
+            Coordinate neighbor = selectValidNeighbor(current, zone, queued, carved, occupied, random);
+
+            if (neighbor == null) {
+                carvedRooms.add(current);
+                carved.add(current);
+                frontier.remove(selected);
+                queued.remove(current);
+
+                LOGGER.trace("Removed cell from queue: {}", current);
+            } else {
+                frontier.add(neighbor);
+                queued.add(neighbor);
+
+                LOGGER.trace("Queued new cell: {}", neighbor);
+            }
+        }
+
+        return carvedRooms;
+    }
+
+    private Coordinate selectValidNeighbor(Coordinate current, Zone zone, CellBitmap queued, CellBitmap carved, CellBitmap occupied, SplittableRandom random) {
+        for (Direction direction : PERMUTATIONS[random.nextInt(PERMUTATIONS.length)]) {
             Coordinate target = new Coordinate(
                     current.getX() + direction.getX(),
                     current.getY() + direction.getY(),
                     current.getZ() + direction.getZ()
             );
 
-            if (carvedRooms.contains(target)) {
-                LOGGER.debug("Cannot select neighbor: cell is already carved");
+            if (carved.contains(target)) {
+                LOGGER.trace("Cannot select neighbor: cell is already carved");
                 continue;
             }
 
-            if (queue.contains(target)) {
-                LOGGER.debug("Cannot select neighbor: cell is already in the queue");
+            if (queued.contains(target)) {
+                LOGGER.trace("Cannot select neighbor: cell is already in the queue");
                 continue;
             }
 
             if (!isWithinZone(target, zone)) {
-                LOGGER.debug("Cannot select neighbor: it is outside our zone");
+                LOGGER.trace("Cannot select neighbor: it is outside our zone");
                 continue;
             }
 
-            if (countNeighbors(target, zone, queue, carvedRooms) > 1) {
-                LOGGER.debug("Cannot select neighbor: it has another neighbor");
+            if (countNeighbors(target, queued, carved) > 1) {
+                LOGGER.trace("Cannot select neighbor: it has another neighbor");
                 continue;
             }
 
-            if (roomRepository.findByLocation(target) != null) {
-                LOGGER.debug("Cannot select neighbor: it already exists in another zone");
+            if (occupied.contains(target)) {
+                LOGGER.trace("Cannot select neighbor: it already exists in another zone");
                 continue;
             }
 
-            LOGGER.debug("Selected neighbor: {}", target);
+            LOGGER.trace("Selected neighbor: {}", target);
             return target;
         }
 
-        LOGGER.debug("No valid neighbors to select");
+        LOGGER.trace("No valid neighbors to select");
         return null;
     }
 
-    private int countNeighbors(Coordinate query, Zone zone, LinkedList<Coordinate> queue, List<Coordinate> carvedRooms) {
+    /*
+     * Loads any rooms that already exist inside the zone's borders with one query, so that carving
+     * doesn't have to ask the database about each cell.
+     */
+    private CellBitmap findOccupiedCells(Zone zone, long z) {
+        CellBitmap occupied = new CellBitmap(zone);
+
+        roomRepository.findByLocationXBetweenAndLocationYBetweenAndLocationZ(
+                zone.getBottomLeft().getX(), zone.getTopRight().getX(),
+                zone.getBottomLeft().getY(), zone.getTopRight().getY(),
+                z).forEach(room -> occupied.add(room.getLocation()));
+
+        LOGGER.debug("Found {} existing rooms within zone", occupied.size());
+
+        return occupied;
+    }
+
+    private int countNeighbors(Coordinate query, CellBitmap queued, CellBitmap carved) {
         int neighbors = 0;
 
         for (Direction direction : Direction.DIRECTIONS) {
@@ -161,16 +217,39 @@ public class GrowingTreeMazeStrategy implements ZoneFillStrategy {
                     query.getZ() + direction.getZ()
             );
 
-            if (isWithinZone(search, zone) && (carvedRooms.contains(search) || queue.contains(search))) {
+            // the bitmaps only hold cells within the zone
+            if (carved.contains(search) || queued.contains(search)) {
                 neighbors++;
             }
         }
 
-        LOGGER.debug("Cell {} has {} neighbors", query, neighbors);
+        LOGGER.trace("Cell {} has {} neighbors", query, neighbors);
 
         return neighbors;
     }
 
+    private static List<Direction[]> permute(Direction[] directions, int fixed, List<Direction[]> permutations) {
+        if (fixed == directions.length) {
+            permutations.add(directions.clone());
+            return permutations;
+        }
+
+        for (int i = fixed; i < directions.length; i++) {
+            swap(directions, fixed, i);
+            permute(directions, fixed + 1, permutations);
+            swap(directions, fixed, i);
+        }
+
+        return permutations;
+    }
+
+    private static void swap(Direction[] directions, int i, int j) {
+        Direction swap = directions[i];
+
+        directions[i] = directions[j];
+        directions[j] = swap;
+    }
+
     private boolean isWithinZone(Coordinate query, Zone zone) {
         return query.getX() >= zone.getBottomLeft().getX()
                 && query.getX() <= zone.getTopRight().getX()
@@ -20,30 +20,20 @@
 
 package com.emergentmud.core.service.maze;
 
-import com.emergentmud.core.model.Coordinate;
 import org.springframework.stereotype.Component;
 
-import javax.inject.Inject;
-import java.util.LinkedList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 @Component
 public class HalfNewestHalfRandomCellSelectionStrategy implements CellSelectionStrategy {
-    private Random random;
-
-    @Inject
-    public HalfNewestHalfRandomCellSelectionStrategy(Random random) {
-        this.random = random;
-    }
-
     @Override
-    public Coordinate selectCell(LinkedList<Coordinate> queue) {
-        Coordinate selected;
+    public int selectCell(Frontier frontier, SplittableRandom random) {
+        int selected;
 
         if (random.nextBoolean()) {
-            selected = queue.getFirst();
+            selected = 0;
         } else {
-            selected = queue.get(random.nextInt(queue.size()));
+            selected = frontier.moveToGap(random.nextInt(frontier.size()));
         }
 
         return selected;
@@ -20,15 +20,14 @@
 
 package com.emergentmud.core.service.maze;
 
-import com.emergentmud.core.model.Coordinate;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedList;
+import java.util.SplittableRandom;
 
 @Component
 public class MiddleCellSelectionStrategy implements CellSelectionStrategy {
     @Override
-    public Coordinate selectCell(LinkedList<Coordinate> queue) {
-        return queue.get(Math.round(queue.size() / 2));
+    public int selectCell(Frontier frontier, SplittableRandom random) {
+        return frontier.size() / 2;
     }
 }
@@ -20,10 +20,9 @@
 
 package com.emergentmud.core.service.maze;
 
-import com.emergentmud.core.model.Coordinate;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedList;
+import java.util.SplittableRandom;
 
 /*
  * Recursive backtracker maze algorithm.
@@ -31,7 +30,7 @@ import java.util.LinkedList;
 @Component
 public class NewestCellSelectionStrategy implements CellSelectionStrategy {
     @Override
-    public Coordinate selectCell(LinkedList<Coordinate> queue) {
-        return queue.getFirst();
+    public int selectCell(Frontier frontier, SplittableRandom random) {
+        return 0;
     }
 }
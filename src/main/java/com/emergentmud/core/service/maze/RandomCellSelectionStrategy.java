@@ -20,27 +20,17 @@
 
 package com.emergentmud.core.service.maze;
 
-import com.emergentmud.core.model.Coordinate;
 import org.springframework.stereotype.Component;
 
-import javax.inject.Inject;
-import java.util.LinkedList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /*
  * Prim's Algorithm
  */
 @Component
 public class RandomCellSelectionStrategy implements CellSelectionStrategy {
-    private Random random;
-
-    @Inject
-    public RandomCellSelectionStrategy(Random random) {
-        this.random = random;
-    }
-
     @Override
-    public Coordinate selectCell(LinkedList<Coordinate> queue) {
-        return queue.get(random.nextInt(queue.size()));
+    public int selectCell(Frontier frontier, SplittableRandom random) {
+        return frontier.moveToGap(random.nextInt(frontier.size()));
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rooms of a procedural zone, kept as one bit per cell. Rooms are made up on the spot when they are
+ * asked for and have no ID until they are saved, so a room is known by its location.
+ */
+public class ZoneLayout {
+    private final Zone zone;
+    private final long z;
+    private final CellBitmap cells;
+
+    ZoneLayout(Zone zone, long z, CellBitmap cells) {
+        this.zone = zone;
+        this.z = z;
+        this.cells = cells;
+    }
+
+    public Zone getZone() {
+        return zone;
+    }
+
+    public boolean contains(Coordinate location) {
+        return location.getZ() == z && cells.contains(location);
+    }
+
+    public Room fetchRoom(Coordinate location) {
+        return contains(location) ? buildRoom(location) : null;
+    }
+
+    public List<Room> fetchRooms(Coordinate from, Coordinate to) {
+        List<Room> rooms = new ArrayList<>();
+
+        if (z < Math.min(from.getZ(), to.getZ()) || z > Math.max(from.getZ(), to.getZ())) {
+            return rooms;
+        }
+
+        long left = Math.max(Math.min(from.getX(), to.getX()), zone.getBottomLeft().getX());
+        long right = Math.min(Math.max(from.getX(), to.getX()), zone.getTopRight().getX());
+        long bottom = Math.max(Math.min(from.getY(), to.getY()), zone.getBottomLeft().getY());
+        long top = Math.min(Math.max(from.getY(), to.getY()), zone.getTopRight().getY());
+
+        for (long y = bottom; y <= top; y++) {
+            for (long x = left; x <= right; x++) {
+                Coordinate location = new Coordinate(x, y, z);
+
+                if (cells.contains(location)) {
+                    rooms.add(buildRoom(location));
+                }
+            }
+        }
+
+        return rooms;
+    }
+
+    public int size() {
+        return cells.size();
+    }
+
+    /**
+     * How many cells the layout has room for, which is what it costs to keep in memory.
+     */
+    public long getWeight() {
+        return cells.area();
+    }
+
+    private Room buildRoom(Coordinate location) {
+        Room room = new Room();
+
+        room.setZone(zone);
+        room.setLocation(location);
+
+        return room;
+    }
+}
@@ -18,17 +18,15 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package com.emergentmud.core.config;
+package com.emergentmud.core.service.maze;
 
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
 
-import java.util.Random;
-
-@Configuration
-public class WorldConfiguration {
-    @Bean
-    public Random random() {
-        return new Random();
-    }
+/**
+ * Carves a zone's maze without saving anything, for zones whose rooms are carved again whenever they
+ * are needed. Given the same world seed it must carve exactly the same cells every time.
+ */
+public interface ZoneLayoutStrategy {
+    ZoneLayout layoutZone(Zone zone, Coordinate start);
 }
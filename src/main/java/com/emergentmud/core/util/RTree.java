@@ -0,0 +1,314 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A two dimensional R-tree of values with rectangular bounds, inclusive on every edge. Nodes are split
+ * with Guttman's quadratic algorithm. Lookups and insertions take logarithmic time as long as the
+ * rectangles don't overlap much, which is always true of zones.
+ *
+ * Not thread safe.
+ */
+public class RTree<T> {
+    static final int MAX_ENTRIES = 16;
+    static final int MIN_ENTRIES = 4;
+
+    private Node<T> root = new Node<>(true);
+    private int size = 0;
+
+    public void insert(long minX, long minY, long maxX, long maxY, T value) {
+        Node<T> entry = new Node<>(minX, minY, maxX, maxY, value);
+        Node<T> split = insert(root, entry);
+
+        if (split != null) {
+            Node<T> grown = new Node<>(false);
+
+            grown.children.add(root);
+            grown.children.add(split);
+            grown.recalculate();
+
+            root = grown;
+        }
+
+        size++;
+    }
+
+    /**
+     * Removes a value that was inserted with exactly these bounds. Underfull nodes are left in place
+     * rather than reinserted, since values are rarely removed.
+     */
+    public boolean remove(long minX, long minY, long maxX, long maxY, T value) {
+        Node<T> query = new Node<>(minX, minY, maxX, maxY, value);
+
+        if (!remove(root, query)) {
+            return false;
+        }
+
+        while (!root.leaf && root.children.size() == 1) {
+            root = root.children.get(0);
+        }
+
+        if (root.children.isEmpty()) {
+            root = new Node<>(true);
+        }
+
+        size--;
+
+        return true;
+    }
+
+    public List<T> search(long minX, long minY, long maxX, long maxY) {
+        List<T> results = new ArrayList<>();
+
+        search(root, new Node<>(minX, minY, maxX, maxY, null), results);
+
+        return results;
+    }
+
+    public void clear() {
+        root = new Node<>(true);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    int height() {
+        int height = 1;
+
+        for (Node<T> node = root; !node.leaf; node = node.children.get(0)) {
+            height++;
+        }
+
+        return height;
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> entry) {
+        if (node.leaf) {
+            node.children.add(entry);
+        } else {
+            Node<T> split = insert(chooseSubtree(node, entry), entry);
+
+            if (split != null) {
+                node.children.add(split);
+            }
+        }
+
+        node.recalculate();
+
+        return node.children.size() > MAX_ENTRIES ? split(node) : null;
+    }
+
+    private boolean remove(Node<T> node, Node<T> query) {
+        if (node.leaf) {
+            for (int i = 0; i < node.children.size(); i++) {
+                Node<T> entry = node.children.get(i);
+
+                if (entry.sameBounds(query) && Objects.equals(entry.value, query.value)) {
+                    node.children.remove(i);
+                    node.recalculate();
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        for (Node<T> child : node.children) {
+            if (child.contains(query) && remove(child, query)) {
+                if (child.children.isEmpty()) {
+                    node.children.remove(child);
+                }
+
+                node.recalculate();
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void search(Node<T> node, Node<T> query, List<T> results) {
+        for (Node<T> child : node.children) {
+            if (child.overlaps(query)) {
+                if (node.leaf) {
+                    results.add(child.value);
+                } else {
+                    search(child, query, results);
+                }
+            }
+        }
+    }
+
+    private Node<T> chooseSubtree(Node<T> node, Node<T> entry) {
+        Node<T> best = null;
+        double bestEnlargement = Double.MAX_VALUE;
+        double bestArea = Double.MAX_VALUE;
+
+        for (Node<T> child : node.children) {
+            double area = child.area();
+            double enlargement = child.unionArea(entry) - area;
+
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = child;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+
+        return best;
+    }
+
+    /*
+     * Leaves the first group in the original node and returns the second one as a new sibling.
+     */
+    private Node<T> split(Node<T> node) {
+        List<Node<T>> remaining = new ArrayList<>(node.children);
+        int seedA = 0;
+        int seedB = 1;
+        double worst = -Double.MAX_VALUE;
+
+        for (int i = 0; i < remaining.size(); i++) {
+            for (int j = i + 1; j < remaining.size(); j++) {
+                Node<T> a = remaining.get(i);
+                Node<T> b = remaining.get(j);
+                double waste = a.unionArea(b) - a.area() - b.area();
+
+                if (waste > worst) {
+                    worst = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+
+        Node<T> sibling = new Node<>(node.leaf);
+
+        node.children.clear();
+        node.children.add(remaining.get(seedA));
+        sibling.children.add(remaining.get(seedB));
+        node.recalculate();
+        sibling.recalculate();
+
+        remaining.remove(seedB);
+        remaining.remove(seedA);
+
+        while (!remaining.isEmpty()) {
+            if (node.children.size() + remaining.size() <= MIN_ENTRIES) {
+                node.children.addAll(remaining);
+                break;
+            }
+
+            if (sibling.children.size() + remaining.size() <= MIN_ENTRIES) {
+                sibling.children.addAll(remaining);
+                break;
+            }
+
+            Node<T> next = remaining.remove(remaining.size() - 1);
+            double growA = node.unionArea(next) - node.area();
+            double growB = sibling.unionArea(next) - sibling.area();
+
+            if (growA < growB || (growA == growB && node.area() <= sibling.area())) {
+                node.children.add(next);
+                node.recalculate();
+            } else {
+                sibling.children.add(next);
+                sibling.recalculate();
+            }
+        }
+
+        node.recalculate();
+        sibling.recalculate();
+
+        return sibling;
+    }
+
+    /*
+     * Values are stored in leaf nodes as childless nodes of their own, so that every level of the tree
+     * can be handled the same way.
+     */
+    private static class Node<T> {
+        private long minX;
+        private long minY;
+        private long maxX;
+        private long maxY;
+        private boolean leaf;
+        private T value;
+        private List<Node<T>> children;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            this.children = new ArrayList<>(MAX_ENTRIES + 1);
+
+            recalculate();
+        }
+
+        Node(long minX, long minY, long maxX, long maxY, T value) {
+            this.minX = Math.min(minX, maxX);
+            this.minY = Math.min(minY, maxY);
+            this.maxX = Math.max(minX, maxX);
+            this.maxY = Math.max(minY, maxY);
+            this.value = value;
+        }
+
+        void recalculate() {
+            minX = Long.MAX_VALUE;
+            minY = Long.MAX_VALUE;
+            maxX = Long.MIN_VALUE;
+            maxY = Long.MIN_VALUE;
+
+            for (Node<T> child : children) {
+                minX = Math.min(minX, child.minX);
+                minY = Math.min(minY, child.minY);
+                maxX = Math.max(maxX, child.maxX);
+                maxY = Math.max(maxY, child.maxY);
+            }
+        }
+
+        boolean overlaps(Node<T> other) {
+            return minX <= other.maxX && maxX >= other.minX && minY <= other.maxY && maxY >= other.minY;
+        }
+
+        boolean contains(Node<T> other) {
+            return minX <= other.minX && maxX >= other.maxX && minY <= other.minY && maxY >= other.maxY;
+        }
+
+        boolean sameBounds(Node<T> other) {
+            return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+        }
+
+        double area() {
+            return ((double)maxX - minX + 1) * ((double)maxY - minY + 1);
+        }
+
+        double unionArea(Node<T> other) {
+            return ((double)Math.max(maxX, other.maxX) - Math.min(minX, other.minX) + 1)
+                    * ((double)Math.max(maxY, other.maxY) - Math.min(minY, other.minY) + 1);
+        }
+    }
+}
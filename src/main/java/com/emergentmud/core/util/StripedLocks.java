@@ -0,0 +1,80 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of locks shared between any number of keys by hash. Keys that share a stripe block
+ * each other even if they are unrelated, so there should be plenty of stripes. Several keys can be
+ * locked at once, and their stripes are always taken in the same order so that two callers can't
+ * deadlock.
+ */
+public class StripedLocks {
+    private final Lock[] stripes;
+
+    public StripedLocks(int count) {
+        if (count <= 0 || Integer.bitCount(count) != 1) {
+            throw new IllegalArgumentException("Number of stripes must be a power of two: " + count);
+        }
+
+        stripes = new Lock[count];
+
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripes for all of the keys and returns the locks that were taken, which should be
+     * handed to {@link #unlockAll(List)} when done.
+     */
+    public List<Lock> lockAll(Collection<?> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        List<Lock> locked = new ArrayList<>();
+
+        keys.forEach(key -> indexes.add(indexOf(key)));
+
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+
+        return locked;
+    }
+
+    public void unlockAll(List<Lock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+
+    int indexOf(Object key) {
+        int hash = key.hashCode();
+
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,16 @@
+-- zones generated at the same time could occasionally carve the same room twice, so keep only one of them
+DELETE FROM room a USING room b WHERE a.x = b.x AND a.y = b.y AND a.z = b.z AND a.id > b.id;
+
+-- z comes first so that a range of x and y on one level is a single index range scan
+CREATE UNIQUE INDEX room_location_idx ON room (z, x, y);
+
+-- only entities that are in the world have a location, and they are the only ones we search by location
+CREATE INDEX entity_location_idx ON entity (z, x, y) WHERE x IS NOT NULL OR y IS NOT NULL OR z IS NOT NULL;
+
+-- Spring Data implements IgnoreCase with upper(), and the pattern ops let LIKE 'abc%' use the index
+CREATE INDEX entity_name_idx ON entity (upper(name) varchar_pattern_ops);
+
+CREATE INDEX account_social_network_idx ON account (social_network, social_network_id);
+
+-- matches the box expression used by the native queries in ZoneRepository
+CREATE INDEX zone_bounds_idx ON "zone" USING gist (box(point(bottom_left_x, bottom_left_y), point(top_right_x, top_right_y)));
@@ -0,0 +1,30 @@
+-- zones generated at the same time could occasionally overlap, so keep the one with the lowest id and give its
+-- rooms back to whichever zone still covers them, discarding any that no zone covers to be generated again
+DO $$
+DECLARE
+  loser UUID;
+BEGIN
+  LOOP
+    SELECT b.id INTO loser FROM "zone" a JOIN "zone" b ON a.id < b.id
+      AND box(point(a.bottom_left_x, a.bottom_left_y), point(a.top_right_x, a.top_right_y))
+       && box(point(b.bottom_left_x, b.bottom_left_y), point(b.top_right_x, b.top_right_y))
+      ORDER BY b.id LIMIT 1;
+
+    EXIT WHEN loser IS NULL;
+
+    UPDATE room r SET zone_id = w.id FROM "zone" w
+      WHERE r.zone_id = loser AND w.id <> loser
+      AND r.x BETWEEN w.bottom_left_x AND w.top_right_x
+      AND r.y BETWEEN w.bottom_left_y AND w.top_right_y;
+
+    DELETE FROM room WHERE zone_id = loser;
+    DELETE FROM "zone" WHERE id = loser;
+  END LOOP;
+END $$;
+
+-- two zones may never overlap, so the database can settle races between servers creating zones at once
+-- the constraint is backed by a GiST index on the same expression, which replaces the one from V0005
+DROP INDEX zone_bounds_idx;
+
+ALTER TABLE "zone" ADD CONSTRAINT zone_no_overlap
+  EXCLUDE USING gist ((box(point(bottom_left_x, bottom_left_y), point(top_right_x, top_right_y))) WITH &&);
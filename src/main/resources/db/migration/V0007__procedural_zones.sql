@@ -0,0 +1,8 @@
+-- where the zone's maze was started from, which it needs to come out the same way when it is carved again
+ALTER TABLE "zone" ADD COLUMN origin_x BIGINT;
+ALTER TABLE "zone" ADD COLUMN origin_y BIGINT;
+ALTER TABLE "zone" ADD COLUMN origin_z BIGINT;
+
+-- the rooms of a procedural zone are carved from the world seed whenever they are needed, and only the
+-- ones that have been changed are kept in the room table
+ALTER TABLE "zone" ADD COLUMN procedural BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,83 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+
+/**
+ * Starts a real Postgres in a container for each test class that extends it, and stops it again once
+ * the class is done. The database starts out empty, so tests migrate it with Flyway as far as they need.
+ * Every test in the class is skipped when Docker isn't available.
+ */
+public abstract class BasePostgresTest {
+    private static PostgreSQLContainer<?> postgres;
+
+    protected static DataSource dataSource;
+
+    @BeforeClass
+    public static void startPostgres() throws Exception {
+        Assume.assumeTrue("Docker is not available", isDockerAvailable());
+
+        postgres = new PostgreSQLContainer<>("postgres:9.6");
+        postgres.start();
+
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    @AfterClass
+    public static void stopPostgres() throws Exception {
+        if (postgres != null) {
+            postgres.stop();
+        }
+
+        postgres = null;
+        dataSource = null;
+    }
+
+    protected static void migrate() {
+        migrate(MigrationVersion.LATEST);
+    }
+
+    protected static void migrate(MigrationVersion target) {
+        Flyway flyway = new Flyway();
+
+        flyway.setDataSource(dataSource);
+        flyway.setTarget(target);
+        flyway.migrate();
+    }
+
+    private static boolean isDockerAvailable() {
+        try {
+            return DockerClientFactory.instance().isDockerAvailable();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
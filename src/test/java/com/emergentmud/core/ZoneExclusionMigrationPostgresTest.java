@@ -0,0 +1,85 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Migrates a real Postgres in a container that already has overlapping zones, as a database from before
+ * V0006 could.
+ */
+public class ZoneExclusionMigrationPostgresTest extends BasePostgresTest {
+    private static final UUID FIRST = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID SECOND = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID THIRD = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @Test
+    public void testOverlappingZonesAreResolved() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        migrate(MigrationVersion.fromVersion("5"));
+
+        // the second zone overlaps both of the others, which don't overlap each other
+        insertZone(jdbcTemplate, FIRST, 0L, 0L, 10L, 10L);
+        insertZone(jdbcTemplate, SECOND, 5L, 5L, 15L, 15L);
+        insertZone(jdbcTemplate, THIRD, 12L, 12L, 20L, 20L);
+
+        insertRoom(jdbcTemplate, FIRST, 1L, 1L);
+        insertRoom(jdbcTemplate, SECOND, 7L, 7L);
+        insertRoom(jdbcTemplate, SECOND, 11L, 11L);
+        insertRoom(jdbcTemplate, SECOND, 13L, 13L);
+        insertRoom(jdbcTemplate, THIRD, 18L, 18L);
+
+        migrate();
+
+        assertEquals(0, countZones(jdbcTemplate, SECOND));
+        assertEquals(1, countZones(jdbcTemplate, FIRST));
+        assertEquals(1, countZones(jdbcTemplate, THIRD));
+
+        assertEquals(FIRST, findRoomZone(jdbcTemplate, 7L, 7L));
+        assertEquals(THIRD, findRoomZone(jdbcTemplate, 13L, 13L));
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("SELECT count(*) FROM room WHERE x = 11 AND y = 11", Integer.class));
+        assertEquals(Integer.valueOf(4), jdbcTemplate.queryForObject("SELECT count(*) FROM room", Integer.class));
+    }
+
+    private static void insertZone(JdbcTemplate jdbcTemplate, UUID id, long left, long bottom, long right, long top) {
+        jdbcTemplate.update("INSERT INTO \"zone\" (id, bottom_left_x, bottom_left_y, bottom_left_z, top_right_x, top_right_y, top_right_z) VALUES (?, ?, ?, 0, ?, ?, 0)",
+                id, left, bottom, right, top);
+    }
+
+    private static void insertRoom(JdbcTemplate jdbcTemplate, UUID zoneId, long x, long y) {
+        jdbcTemplate.update("INSERT INTO room (id, x, y, z, zone_id) VALUES (?, ?, ?, 0, ?)", UUID.randomUUID(), x, y, zoneId);
+    }
+
+    private static int countZones(JdbcTemplate jdbcTemplate, UUID id) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM \"zone\" WHERE id = ?", Integer.class, id);
+    }
+
+    private static UUID findRoomZone(JdbcTemplate jdbcTemplate, long x, long y) {
+        return jdbcTemplate.queryForObject("SELECT zone_id FROM room WHERE x = ? AND y = ? AND z = 0", UUID.class, x, y);
+    }
+}
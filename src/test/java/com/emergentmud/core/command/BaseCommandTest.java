@@ -131,4 +131,28 @@ public class BaseCommandTest {
         assertTrue(result.getOutput().stream().anyMatch(line -> line.contains("bam")));
         assertTrue(result.getOutput().stream().anyMatch(line -> line.contains("Bams a baz.")));
     }
+
+    @Test
+    public void testUsageIsMemoized() throws Exception {
+        baseCommand.setDescription("This is the description.");
+        baseCommand.addParameter("foo", true);
+
+        GameOutput first = baseCommand.usage(new GameOutput(), "test");
+        GameOutput second = baseCommand.usage(new GameOutput(), "test");
+        GameOutput other = baseCommand.usage(new GameOutput(), "other");
+
+        assertEquals(first.getOutput(), second.getOutput());
+        assertTrue(other.getOutput().stream().anyMatch(line -> line.contains("OTHER")));
+    }
+
+    @Test
+    public void testUsageCacheInvalidated() throws Exception {
+        baseCommand.setDescription("This is the description.");
+        baseCommand.usage(new GameOutput(), "test");
+        baseCommand.addParameter("foo", true);
+
+        GameOutput result = baseCommand.usage(new GameOutput(), "test");
+
+        assertTrue(result.getOutput().stream().anyMatch(line -> line.contains("foo")));
+    }
 }
@@ -0,0 +1,385 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.command;
+
+import com.emergentmud.core.model.Capability;
+import com.emergentmud.core.model.CapabilityObject;
+import com.emergentmud.core.model.CapabilityScope;
+import com.emergentmud.core.model.CommandMetadata;
+import com.emergentmud.core.model.CommandRole;
+import com.emergentmud.core.model.EmoteMetadata;
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.repository.CapabilityRepository;
+import com.emergentmud.core.repository.CommandMetadataRepository;
+import com.emergentmud.core.repository.EmoteMetadataRepository;
+import com.emergentmud.core.service.CapabilityService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CommandIndexTest {
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private CommandMetadataRepository commandMetadataRepository;
+
+    @Mock
+    private EmoteMetadataRepository emoteMetadataRepository;
+
+    @Mock
+    private CapabilityService capabilityService;
+
+    @Mock
+    private Capability superCapability;
+
+    @Mock
+    private Capability emoteCapability;
+
+    @Mock
+    private Capability moveCapability;
+
+    @Mock
+    private Capability dataCapability;
+
+    @Mock
+    private Entity entity;
+
+    @Mock
+    private Command northCommand;
+
+    @Mock
+    private Command nodCommand;
+
+    @Mock
+    private Command infoCommand;
+
+    private List<CommandMetadata> commands = new ArrayList<>();
+    private List<EmoteMetadata> emotes = new ArrayList<>();
+
+    private CommandIndex commandIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        commands.add(new CommandMetadata("north", "northCommand", 10, moveCapability));
+        commands.add(new CommandMetadata("nodding", "noddingCommand", 20, moveCapability));
+        commands.add(new CommandMetadata("info", "infoCommand", 30, dataCapability));
+
+        emotes.add(new EmoteMetadata("nod", 100));
+        emotes.add(new EmoteMetadata("smile", 100));
+        emotes.add(new EmoteMetadata("sneeze", 100));
+
+        when(commandMetadataRepository.findAll(any(Sort.class))).thenReturn(commands);
+        when(emoteMetadataRepository.findAll(any(Sort.class))).thenReturn(emotes);
+        when(capabilityService.getCapability(eq(CommandRole.SUPER))).thenReturn(superCapability);
+        when(capabilityService.getCapability(eq(CommandRole.EMOTE))).thenReturn(emoteCapability);
+        when(applicationContext.getBean(eq("northCommand"))).thenReturn(northCommand);
+        when(applicationContext.getBean(eq("noddingCommand"))).thenReturn(nodCommand);
+        when(applicationContext.getBean(eq("infoCommand"))).thenReturn(infoCommand);
+        when(entity.isCapable(eq(moveCapability))).thenReturn(true);
+        when(entity.isCapable(eq(emoteCapability))).thenReturn(true);
+
+        commandIndex = new CommandIndex(applicationContext, commandMetadataRepository, emoteMetadataRepository, capabilityService);
+    }
+
+    @Test
+    public void testFindCommandExact() throws Exception {
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "north");
+
+        assertTrue(entry.isPresent());
+        assertEquals(northCommand, entry.get().getCommand());
+    }
+
+    @Test
+    public void testFindCommandPrefixUsesPriority() throws Exception {
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "n");
+
+        assertTrue(entry.isPresent());
+        assertEquals(northCommand, entry.get().getCommand());
+    }
+
+    @Test
+    public void testFindCommandLongerPrefix() throws Exception {
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "NO");
+
+        assertTrue(entry.isPresent());
+        assertEquals("north", entry.get().getMetadata().getName());
+
+        entry = commandIndex.findCommand(entity, "nod");
+
+        assertTrue(entry.isPresent());
+        assertEquals(nodCommand, entry.get().getCommand());
+    }
+
+    @Test
+    public void testFindCommandNotCapable() throws Exception {
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "info");
+
+        assertFalse(entry.isPresent());
+    }
+
+    @Test
+    public void testFindCommandSuper() throws Exception {
+        when(entity.isCapable(eq(superCapability))).thenReturn(true);
+
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "info");
+
+        assertTrue(entry.isPresent());
+        assertEquals(infoCommand, entry.get().getCommand());
+    }
+
+    @Test
+    public void testFindCommandUnknown() throws Exception {
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "flarg");
+
+        assertFalse(entry.isPresent());
+    }
+
+    @Test
+    public void testMissingBeanIsSkipped() throws Exception {
+        when(applicationContext.getBean(eq("northCommand"))).thenThrow(new NoSuchBeanDefinitionException("northCommand"));
+
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "n");
+
+        assertTrue(entry.isPresent());
+        assertEquals(nodCommand, entry.get().getCommand());
+    }
+
+    @Test
+    public void testFindEmote() throws Exception {
+        Optional<EmoteMetadata> emote = commandIndex.findEmote(entity, "sn");
+
+        assertTrue(emote.isPresent());
+        assertEquals("sneeze", emote.get().getName());
+    }
+
+    @Test
+    public void testFindEmoteNotCapable() throws Exception {
+        when(entity.isCapable(eq(emoteCapability))).thenReturn(false);
+
+        Optional<EmoteMetadata> emote = commandIndex.findEmote(entity, "nod");
+
+        assertFalse(emote.isPresent());
+    }
+
+    @Test
+    public void testGetEmotes() throws Exception {
+        List<EmoteMetadata> result = commandIndex.getEmotes();
+
+        assertEquals(emotes, result);
+    }
+
+    @Test
+    public void testGetVisibleCommands() throws Exception {
+        List<CommandIndex.Entry> visible = commandIndex.getVisibleCommands(entity);
+
+        assertEquals(2, visible.size());
+        assertEquals("north", visible.get(0).getMetadata().getName());
+        assertEquals("nodding", visible.get(1).getMetadata().getName());
+    }
+
+    @Test
+    public void testGetVisibleCommandsCachedByMask() throws Exception {
+        Capability move = new Capability("VISIBLE_MOVE", "Move", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability data = new Capability("VISIBLE_DATA", "Data", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+        Capability all = new Capability("VISIBLE_SUPER", "Super", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+
+        move.setId(UUID.randomUUID());
+        data.setId(UUID.randomUUID());
+        all.setId(UUID.randomUUID());
+        commandIndex = buildMaskedIndex(all, null, move, data, all);
+
+        commands.clear();
+        commands.add(new CommandMetadata("north", "northCommand", 10, move));
+        commands.add(new CommandMetadata("info", "infoCommand", 30, data));
+
+        Entity first = new Entity();
+        Entity second = new Entity();
+        Entity admin = new Entity();
+        Entity implementor = new Entity();
+
+        first.addCapabilities(move);
+        second.addCapabilities(move);
+        admin.addCapabilities(move, data);
+        implementor.addCapabilities(all);
+
+        List<CommandIndex.Entry> firstVisible = commandIndex.getVisibleCommands(first);
+        List<CommandIndex.Entry> secondVisible = commandIndex.getVisibleCommands(second);
+        List<CommandIndex.Entry> adminVisible = commandIndex.getVisibleCommands(admin);
+
+        assertEquals(1, firstVisible.size());
+        assertSame(firstVisible, secondVisible);
+        assertEquals(2, adminVisible.size());
+        assertEquals(2, commandIndex.getVisibleCommands(implementor).size());
+    }
+
+    @Test
+    public void testFindCommandUsesMask() throws Exception {
+        Capability move = new Capability("DISPATCH_MOVE", "Move", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability data = new Capability("DISPATCH_DATA", "Data", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+        Capability emote = new Capability("DISPATCH_EMOTE", "Emote", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability all = new Capability("DISPATCH_SUPER", "Super", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+
+        move.setId(UUID.randomUUID());
+        data.setId(UUID.randomUUID());
+        emote.setId(UUID.randomUUID());
+        all.setId(UUID.randomUUID());
+        commandIndex = buildMaskedIndex(all, emote, move, data, emote, all);
+
+        commands.clear();
+        commands.add(new CommandMetadata("north", "northCommand", 10, move));
+        commands.add(new CommandMetadata("info", "infoCommand", 30, data));
+
+        Entity player = spy(new Entity());
+        Entity implementor = spy(new Entity());
+
+        player.addCapabilities(move, emote);
+        implementor.addCapabilities(all);
+
+        assertNull(player.getCapabilityMask());
+        assertEquals("north", commandIndex.findCommand(player, "n").get().getMetadata().getName());
+        assertFalse(commandIndex.findCommand(player, "info").isPresent());
+        assertTrue(commandIndex.findEmote(player, "smile").isPresent());
+        assertEquals("info", commandIndex.findCommand(implementor, "info").get().getMetadata().getName());
+        assertFalse(commandIndex.findEmote(implementor, "smile").isPresent());
+        assertNotNull(player.getCapabilityMask());
+        verify(player, never()).isCapable(any(Capability.class));
+        verify(implementor, never()).isCapable(any(Capability.class));
+    }
+
+    @Test
+    public void testComputeForVisibleCommands() throws Exception {
+        Capability move = new Capability("DERIVED_MOVE", "Move", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability all = new Capability("DERIVED_SUPER", "Super", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+        AtomicInteger computed = new AtomicInteger();
+
+        move.setId(UUID.randomUUID());
+        all.setId(UUID.randomUUID());
+        commandIndex = buildMaskedIndex(all, null, move, all);
+
+        commands.clear();
+        commands.add(new CommandMetadata("north", "northCommand", 10, move));
+
+        Entity first = new Entity();
+        Entity second = new Entity();
+
+        first.addCapabilities(move);
+        second.addCapabilities(move);
+
+        assertEquals("north", commandIndex.computeForVisibleCommands(first, "names", entries -> {
+            computed.incrementAndGet();
+            return entries.get(0).getMetadata().getName();
+        }));
+        assertEquals("north", commandIndex.computeForVisibleCommands(second, "names", entries -> {
+            computed.incrementAndGet();
+            return entries.get(0).getMetadata().getName();
+        }));
+        assertEquals(1, computed.get());
+
+        commandIndex.rebuild();
+        commandIndex.computeForVisibleCommands(first, "names", entries -> computed.incrementAndGet());
+
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void testComputeForVisibleCommandsUncached() throws Exception {
+        AtomicInteger computed = new AtomicInteger();
+
+        commandIndex.computeForVisibleCommands(entity, "count", entries -> computed.incrementAndGet());
+        commandIndex.computeForVisibleCommands(entity, "count", entries -> computed.incrementAndGet());
+
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void testFindCommandByName() throws Exception {
+        assertEquals("info", commandIndex.findCommandByName("INFO").get().getMetadata().getName());
+        assertFalse(commandIndex.findCommandByName("inf").isPresent());
+    }
+
+    @Test
+    public void testRebuildWhenCapabilitiesChange() throws Exception {
+        commandIndex.findCommand(entity, "north");
+
+        when(capabilityService.getGeneration()).thenReturn(1);
+
+        commandIndex.findCommand(entity, "north");
+
+        verify(commandMetadataRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    @Test
+    public void testLookupDoesNotHitDatabase() throws Exception {
+        commandIndex.findCommand(entity, "north");
+        commandIndex.findCommand(entity, "info");
+        commandIndex.findEmote(entity, "smile");
+        commandIndex.getEmotes();
+
+        verify(commandMetadataRepository, times(1)).findAll(any(Sort.class));
+        verify(emoteMetadataRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    public void testRebuild() throws Exception {
+        commandIndex.findCommand(entity, "north");
+
+        commands.add(new CommandMetadata("nap", "northCommand", 40, moveCapability));
+        commandIndex.rebuild();
+
+        Optional<CommandIndex.Entry> entry = commandIndex.findCommand(entity, "n");
+
+        assertTrue(entry.isPresent());
+        assertEquals("north", entry.get().getMetadata().getName());
+
+        entry = commandIndex.findCommand(entity, "na");
+
+        assertTrue(entry.isPresent());
+        assertEquals("nap", entry.get().getMetadata().getName());
+    }
+
+    private CommandIndex buildMaskedIndex(Capability all, Capability emote, Capability ... registered) {
+        CapabilityService registry = spy(new CapabilityService(mock(CapabilityRepository.class)));
+
+        registry.register(Arrays.asList(registered));
+
+        doReturn(all).when(registry).getCapability(eq(CommandRole.SUPER));
+        doReturn(emote).when(registry).getCapability(eq(CommandRole.EMOTE));
+
+        return new CommandIndex(applicationContext, commandMetadataRepository, emoteMetadataRepository, registry);
+    }
+}
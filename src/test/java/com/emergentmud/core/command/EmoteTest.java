@@ -25,8 +25,8 @@ import com.emergentmud.core.model.EmoteMetadata;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.Pronoun;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.EntityRepository;
 import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.OccupancyIndex;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -42,7 +42,7 @@ import static org.mockito.Mockito.*;
 
 public class EmoteTest {
     @Mock
-    private EntityRepository entityRepository;
+    private OccupancyIndex occupancyIndex;
 
     @Mock
     private EntityService entityService;
@@ -50,9 +50,6 @@ public class EmoteTest {
     @Mock
     private GameOutput output;
 
-    @Mock
-    private EmoteMetadata metadata;
-
     @Mock
     private Entity entity;
 
@@ -68,6 +65,7 @@ public class EmoteTest {
     @Captor
     private ArgumentCaptor<GameOutput> outputCaptor;
 
+    private EmoteMetadata metadata;
     private Emote emote;
 
     @Before
@@ -80,13 +78,14 @@ public class EmoteTest {
         when(malePronoun.getPossessivePronoun()).thenReturn("his");
         when(malePronoun.getReflexive()).thenReturn("himself");
 
-        when(metadata.getToSelfUntargeted()).thenReturn("You grin.");
-        when(metadata.getToRoomUntargeted()).thenReturn("%self% grins.");
-        when(metadata.getToSelfWithTarget()).thenReturn("You grin at %target%.");
-        when(metadata.getToTarget()).thenReturn("%self% grins at you.");
-        when(metadata.getToRoomWithTarget()).thenReturn("%self% grins at %target%.");
-        when(metadata.getToSelfAsTarget()).thenReturn("You grin to yourself.");
-        when(metadata.getToRoomTargetingSelf()).thenReturn("%self% grins to %himself%.");
+        metadata = new EmoteMetadata("grin", 100);
+        metadata.setToSelfUntargeted("You grin.");
+        metadata.setToRoomUntargeted("%self% grins.");
+        metadata.setToSelfWithTarget("You grin at %target%.");
+        metadata.setToTarget("%self% grins at you.");
+        metadata.setToRoomWithTarget("%self% grins at %target%.");
+        metadata.setToSelfAsTarget("You grin to yourself.");
+        metadata.setToRoomTargetingSelf("%self% grins to %himself%.");
 
         Coordinate origin = new Coordinate(0, 0, 0);
 
@@ -108,22 +107,22 @@ public class EmoteTest {
         entities.add(target);
         entities.add(observer);
 
-        when(entityRepository.findByLocation(eq(origin))).thenReturn(entities);
+        when(occupancyIndex.getOccupants(eq(origin))).thenReturn(entities);
 
-        emote = new Emote(entityRepository, entityService);
+        emote = new Emote(occupancyIndex, entityService);
     }
 
     @Test
     public void testMissingRequiredFields() {
-        when(metadata.getToRoomUntargeted()).thenReturn(null);
-        when(metadata.getToSelfWithTarget()).thenReturn(null);
-        when(metadata.getToTarget()).thenReturn(null);
-        when(metadata.getToRoomWithTarget()).thenReturn(null);
+        metadata.setToRoomUntargeted(null);
+        metadata.setToSelfWithTarget(null);
+        metadata.setToTarget(null);
+        metadata.setToRoomWithTarget(null);
 
         emote.execute(output, metadata, entity, new String[0]);
 
         verify(output).append(eq("Huh?"));
-        verifyZeroInteractions(entityRepository);
+        verifyZeroInteractions(occupancyIndex);
         verifyZeroInteractions(entityService);
     }
 
@@ -188,12 +187,28 @@ public class EmoteTest {
 
     @Test
     public void testSelfUnsupported() {
-        when(metadata.getToSelfAsTarget()).thenReturn(null);
-        when(metadata.getToRoomTargetingSelf()).thenReturn(null);
+        metadata.setToSelfAsTarget(null);
+        metadata.setToRoomTargetingSelf(null);
 
         emote.execute(output, metadata, entity, new String[] {"self"});
 
         verify(output).append("Sorry, this emote doesn't support targeting yourself.");
         verifyZeroInteractions(entityService);
     }
+
+    @Test
+    public void testPreview() {
+        EmoteMetadata preview = emote.preview(metadata, entity, target);
+
+        assertNotSame(metadata, preview);
+        assertEquals("grin", preview.getName());
+        assertEquals("You grin.", preview.getToSelfUntargeted());
+        assertEquals("Scion grins.", preview.getToRoomUntargeted());
+        assertEquals("You grin at Bnarg.", preview.getToSelfWithTarget());
+        assertEquals("Scion grins at you.", preview.getToTarget());
+        assertEquals("Scion grins at Bnarg.", preview.getToRoomWithTarget());
+        assertEquals("You grin to yourself.", preview.getToSelfAsTarget());
+        assertEquals("Scion grins to himself.", preview.getToRoomTargetingSelf());
+        assertEquals("%self% grins.", metadata.getToRoomUntargeted());
+    }
 }
@@ -20,6 +20,7 @@
 
 package com.emergentmud.core.command.impl;
 
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.model.Capability;
 import com.emergentmud.core.model.CommandMetadata;
 import com.emergentmud.core.model.Entity;
@@ -52,6 +53,9 @@ public class CommandEditCommandTest {
     @Mock
     private CapabilityRepository capabilityRepository;
 
+    @Mock
+    private CommandIndex commandIndex;
+
     @Mock
     private GameOutput output;
 
@@ -89,7 +93,7 @@ public class CommandEditCommandTest {
         when(commandMetadataRepository.findByName(eq("test"))).thenReturn(metadata);
         when(capabilityRepository.findByName(eq("CAP"))).thenReturn(capability);
 
-        command = new CommandEditCommand(commandMetadataRepository, capabilityRepository);
+        command = new CommandEditCommand(commandMetadataRepository, capabilityRepository, commandIndex);
     }
 
     @Test
@@ -159,6 +163,7 @@ public class CommandEditCommandTest {
 
         assertNotNull(result);
         verify(commandMetadataRepository).save(commandMetadataArgumentCaptor.capture());
+        verify(commandIndex).rebuild();
         verify(output).append(anyString());
 
         CommandMetadata commandMetadata = commandMetadataArgumentCaptor.getValue();
@@ -192,6 +197,7 @@ public class CommandEditCommandTest {
         verify(commandMetadataRepository).findByName(eq("test"));
         verify(metadata, never()).setPriority(anyInt());
         verify(commandMetadataRepository, never()).save(any(CommandMetadata.class));
+        verify(commandIndex, never()).rebuild();
     }
 
     @Test
@@ -205,6 +211,7 @@ public class CommandEditCommandTest {
         verify(commandMetadataRepository).findByName(eq("test"));
         verify(metadata).setPriority(eq(42));
         verify(commandMetadataRepository).save(any(CommandMetadata.class));
+        verify(commandIndex).rebuild();
     }
 
     @Test
@@ -229,6 +236,7 @@ public class CommandEditCommandTest {
         verify(commandMetadataRepository).findByName(eq("test"));
         verify(capabilityRepository).findByName(eq("BAZ"));
         verify(commandMetadataRepository, never()).save(any(CommandMetadata.class));
+        verify(commandIndex, never()).rebuild();
     }
 
     @Test
@@ -242,6 +250,7 @@ public class CommandEditCommandTest {
         verify(commandMetadataRepository).findByName(eq("test"));
         verify(capabilityRepository).findByName("CAP");
         verify(commandMetadataRepository).save(any(CommandMetadata.class));
+        verify(commandIndex).rebuild();
     }
 
     @Test
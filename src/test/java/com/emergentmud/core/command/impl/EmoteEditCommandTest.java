@@ -20,6 +20,7 @@
 
 package com.emergentmud.core.command.impl;
 
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.model.EmoteMetadata;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
@@ -49,6 +50,9 @@ public class EmoteEditCommandTest {
     @Mock
     private EmoteMetadataRepository emoteMetadataRepository;
 
+    @Mock
+    private CommandIndex commandIndex;
+
     @Mock
     private GameOutput output;
 
@@ -82,7 +86,7 @@ public class EmoteEditCommandTest {
             emotes.add(mock);
         }
 
-        command = new EmoteEditCommand(emoteMetadataRepository, inputService);
+        command = new EmoteEditCommand(emoteMetadataRepository, inputService, commandIndex);
     }
 
     @Test
@@ -177,6 +181,7 @@ public class EmoteEditCommandTest {
 
         assertNotNull(result);
         verify(emoteMetadataRepository).save(emoteMetadataArgumentCaptor.capture());
+        verify(commandIndex).rebuild();
         verify(output).append(anyString());
 
         EmoteMetadata commandMetadata = emoteMetadataArgumentCaptor.getValue();
@@ -196,6 +201,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository, never()).findByName(anyString());
         verify(emoteMetadataRepository, never()).save(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
         verify(output, times(USAGE_LENGTH)).append(anyString());
     }
 
@@ -209,6 +215,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("waffle"));
         verify(emoteMetadataRepository, never()).save(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
         verify(output).append(anyString());
     }
 
@@ -222,6 +229,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository, never()).findByName(anyString());
         verify(emoteMetadataRepository, never()).save(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
         verify(output, times(USAGE_LENGTH)).append(anyString());
     }
 
@@ -235,6 +243,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emoteMetadataRepository, never()).save(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
         verify(output, times(USAGE_LENGTH)).append(anyString());
     }
 
@@ -248,6 +257,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emoteMetadataRepository).save(any(EmoteMetadata.class));
+        verify(commandIndex).rebuild();
         verify(emote).setToSelfUntargeted(eq("You nod."));
         verifyNoMoreInteractions(emote);
         verify(output).append(anyString());
@@ -263,6 +273,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emoteMetadataRepository).save(any(EmoteMetadata.class));
+        verify(commandIndex).rebuild();
         verify(emote).setToTarget(eq("%self% nods to you."));
         verifyNoMoreInteractions(emote);
         verify(output).append(anyString());
@@ -278,6 +289,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emoteMetadataRepository).save(any(EmoteMetadata.class));
+        verify(commandIndex).rebuild();
         verify(emote).setToRoomUntargeted(eq("%self% nods."));
         verifyNoMoreInteractions(emote);
         verify(output).append(anyString());
@@ -293,6 +305,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emoteMetadataRepository).delete(eq(emote));
+        verify(commandIndex).rebuild();
         verify(output).append(anyString());
     }
 
@@ -306,6 +319,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository, never()).findByName(anyString());
         verify(emoteMetadataRepository, never()).delete(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
         verify(output, times(USAGE_LENGTH)).append(anyString());
     }
 
@@ -319,6 +333,7 @@ public class EmoteEditCommandTest {
         assertNotNull(result);
         verify(emoteMetadataRepository).findByName(eq("waffle"));
         verify(emoteMetadataRepository, never()).delete(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
         verify(output).append(anyString());
     }
 
@@ -344,6 +359,7 @@ public class EmoteEditCommandTest {
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emote, never()).setPriority(anyInt());
         verify(emoteMetadataRepository, never()).save(any(EmoteMetadata.class));
+        verify(commandIndex, never()).rebuild();
     }
 
     @Test
@@ -357,5 +373,6 @@ public class EmoteEditCommandTest {
         verify(emoteMetadataRepository).findByName(eq("nod"));
         verify(emote).setPriority(eq(42));
         verify(emoteMetadataRepository).save(any(EmoteMetadata.class));
+        verify(commandIndex).rebuild();
     }
 }
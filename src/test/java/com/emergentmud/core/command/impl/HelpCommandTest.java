@@ -21,13 +21,18 @@
 package com.emergentmud.core.command.impl;
 
 import com.emergentmud.core.command.Command;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.model.Capability;
+import com.emergentmud.core.model.CapabilityObject;
+import com.emergentmud.core.model.CapabilityScope;
 import com.emergentmud.core.model.CommandMetadata;
 import com.emergentmud.core.model.CommandRole;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.repository.CapabilityRepository;
 import com.emergentmud.core.repository.CommandMetadataRepository;
+import com.emergentmud.core.repository.EmoteMetadataRepository;
+import com.emergentmud.core.service.CapabilityService;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -36,7 +41,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -49,7 +56,10 @@ public class HelpCommandTest {
     private CommandMetadataRepository commandMetadataRepository;
 
     @Mock
-    private CapabilityRepository capabilityRepository;
+    private EmoteMetadataRepository emoteMetadataRepository;
+
+    @Mock
+    private CapabilityService capabilityService;
 
     @Mock
     private Capability normalCapability;
@@ -98,10 +108,13 @@ public class HelpCommandTest {
         when(applicationContext.getBean(eq("normalCommand"))).thenReturn(normalCommand);
         when(applicationContext.getBean(eq("adminCommand"))).thenReturn(adminCommand);
         when(commandMetadataRepository.findAll(any(Sort.class))).thenReturn(metadata);
+        when(emoteMetadataRepository.findAll(any(Sort.class))).thenReturn(new ArrayList<>());
         when(entity.isCapable(eq(normalCapability))).thenReturn(true);
-        when(capabilityRepository.findByName(CommandRole.SUPER.name())).thenReturn(superCapability);
+        when(capabilityService.getCapability(CommandRole.SUPER)).thenReturn(superCapability);
 
-        command = new HelpCommand(applicationContext, commandMetadataRepository, capabilityRepository);
+        CommandIndex commandIndex = new CommandIndex(applicationContext, commandMetadataRepository, emoteMetadataRepository, capabilityService);
+
+        command = new HelpCommand(commandIndex, capabilityService);
     }
 
     @Test
@@ -149,88 +162,99 @@ public class HelpCommandTest {
         verify(adminCommand).getDescription();
     }
 
+    @Test
+    public void testExecuteNoArgsCached() throws Exception {
+        Capability normal = new Capability("HELP_NORMAL", "Normal", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability all = new Capability("HELP_SUPER", "Super", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+        List<CommandMetadata> metadata = new ArrayList<>();
+
+        normal.setId(UUID.randomUUID());
+        all.setId(UUID.randomUUID());
+
+        CapabilityService registry = spy(new CapabilityService(mock(CapabilityRepository.class)));
+
+        registry.register(Arrays.asList(normal, all));
+        doReturn(all).when(registry).getCapability(CommandRole.SUPER);
+
+        metadata.add(new CommandMetadata("normal", "normalCommand", 100, normal));
+
+        when(commandMetadataRepository.findAll(any(Sort.class))).thenReturn(metadata);
+
+        command = new HelpCommand(
+                new CommandIndex(applicationContext, commandMetadataRepository, emoteMetadataRepository, registry),
+                registry);
+
+        Entity first = new Entity();
+        Entity second = new Entity();
+        GameOutput firstOutput = new GameOutput();
+        GameOutput secondOutput = new GameOutput();
+
+        first.addCapabilities(normal);
+        second.addCapabilities(normal);
+
+        command.execute(firstOutput, first, "help", new String[0], "");
+        command.execute(secondOutput, second, "help", new String[0], "");
+
+        verify(normalCommand, times(1)).getDescription();
+        assertEquals(firstOutput.getOutput(), secondOutput.getOutput());
+        assertTrue(firstOutput.getOutput().get(1).contains("NORMAL"));
+    }
+
     @Test
     public void testExecuteMissingCommand() throws Exception {
         GameOutput result = command.execute(output, entity, "help", new String[] {"foo"}, "help foo");
 
         assertEquals(output, result);
-        verify(commandMetadataRepository).findByName(eq("foo"));
-        verifyZeroInteractions(applicationContext);
-        verify(output, atLeastOnce()).append(anyString());
+        verify(commandMetadataRepository, never()).findByName(anyString());
+        verify(normalCommand, never()).usage(any(GameOutput.class), anyString());
+        verify(adminCommand, never()).usage(any(GameOutput.class), anyString());
+        verify(output).append(eq("There is no command by that name."));
     }
 
     @Test
     public void testExecuteHiddenCommand() throws Exception {
-        CommandMetadata metadata = mock(CommandMetadata.class);
-
-        when(metadata.getCapability()).thenReturn(adminCapability);
-
         GameOutput result = command.execute(output, entity, "help", new String[] {"admin"}, "help admin");
 
         assertEquals(output, result);
-        verify(commandMetadataRepository).findByName(eq("admin"));
-        verifyZeroInteractions(applicationContext);
-        verify(output, atLeastOnce()).append(anyString());
+        verify(adminCommand, never()).usage(any(GameOutput.class), anyString());
+        verify(output).append(eq("There is no command by that name."));
     }
 
     @Test
     public void testExecuteCommand() throws Exception {
-        CommandMetadata metadata = mock(CommandMetadata.class);
-        Command adminCommand = mock(Command.class);
+        GameOutput result = command.execute(output, entity, "help", new String[] {"normal"}, "help normal");
 
-        when(commandMetadataRepository.findByName(eq("cmd"))).thenReturn(metadata);
-        when(applicationContext.getBean(eq("cmdCommand"))).thenReturn(adminCommand);
-        when(metadata.getCapability()).thenReturn(normalCapability);
-        when(metadata.getName()).thenReturn("cmd");
-        when(metadata.getBeanName()).thenReturn("cmdCommand");
+        assertEquals(output, result);
+        verify(commandMetadataRepository, never()).findByName(anyString());
+        verify(normalCommand).usage(eq(output), eq("normal"));
+        verify(normalCommand, never()).execute(any(GameOutput.class), any(Entity.class), anyString(), any(String[].class), anyString());
+    }
 
-        GameOutput result = command.execute(output, entity, "help", new String[] {"cmd"}, "help cmd");
+    @Test
+    public void testExecuteCommandIgnoresCase() throws Exception {
+        command.execute(output, entity, "help", new String[] {"NORMAL"}, "help NORMAL");
 
-        assertEquals(output, result);
-        verify(commandMetadataRepository).findByName(eq("cmd"));
-        verify(applicationContext).getBean("cmdCommand");
-        verify(adminCommand).usage(eq(output), eq("cmd"));
-        verify(adminCommand, never()).execute(any(GameOutput.class), any(Entity.class), anyString(), any(String[].class), anyString());
+        verify(normalCommand).usage(eq(output), eq("normal"));
     }
 
     @Test
     public void testExecuteAdminCommand() throws Exception {
-        CommandMetadata metadata = mock(CommandMetadata.class);
-        Command adminCommand = mock(Command.class);
-
-        when(commandMetadataRepository.findByName(eq("admin"))).thenReturn(metadata);
-        when(applicationContext.getBean(eq("adminCommand"))).thenReturn(adminCommand);
         when(entity.isCapable(eq(adminCapability))).thenReturn(true);
-        when(metadata.getCapability()).thenReturn(adminCapability);
-        when(metadata.getName()).thenReturn("admin");
-        when(metadata.getBeanName()).thenReturn("adminCommand");
 
         GameOutput result = command.execute(output, entity, "help", new String[] {"admin"}, "help admin");
 
         assertEquals(output, result);
-        verify(commandMetadataRepository).findByName(eq("admin"));
-        verify(applicationContext).getBean("adminCommand");
         verify(adminCommand).usage(eq(output), eq("admin"));
         verify(adminCommand, never()).execute(any(GameOutput.class), any(Entity.class), anyString(), any(String[].class), anyString());
     }
 
     @Test
     public void testExecuteAdminCommandAsSuper() throws Exception {
-        CommandMetadata metadata = mock(CommandMetadata.class);
-        Command adminCommand = mock(Command.class);
-
-        when(commandMetadataRepository.findByName(eq("admin"))).thenReturn(metadata);
-        when(applicationContext.getBean(eq("adminCommand"))).thenReturn(adminCommand);
         when(entity.isCapable(eq(superCapability))).thenReturn(true);
-        when(metadata.getCapability()).thenReturn(adminCapability);
-        when(metadata.getName()).thenReturn("admin");
-        when(metadata.getBeanName()).thenReturn("adminCommand");
 
         GameOutput result = command.execute(output, entity, "help", new String[] {"admin"}, "help admin");
 
         assertEquals(output, result);
-        verify(commandMetadataRepository).findByName(eq("admin"));
-        verify(applicationContext).getBean("adminCommand");
         verify(adminCommand).usage(eq(output), eq("admin"));
         verify(adminCommand, never()).execute(any(GameOutput.class), any(Entity.class), anyString(), any(String[].class), anyString());
     }
@@ -26,7 +26,7 @@ import com.emergentmud.core.model.Biome;
 import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.Zone;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.EntityRepository;
+import com.emergentmud.core.service.OccupancyIndex;
 import com.emergentmud.core.service.RoomService;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,7 +38,7 @@ import static org.mockito.Mockito.*;
 
 public class LookCommandTest {
     @Mock
-    private EntityRepository entityRepository;
+    private OccupancyIndex occupancyIndex;
 
     @Mock
     private RoomService roomService;
@@ -68,7 +68,7 @@ public class LookCommandTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
 
-        command = new LookCommand(entityRepository, roomService);
+        command = new LookCommand(occupancyIndex, roomService);
     }
 
     @Test
@@ -84,7 +84,7 @@ public class LookCommandTest {
 
         assertNotNull(result);
         verify(output).append(anyString());
-        verifyZeroInteractions(entityRepository);
+        verifyZeroInteractions(occupancyIndex);
     }
 
     @Test
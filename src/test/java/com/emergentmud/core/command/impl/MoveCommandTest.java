@@ -34,6 +34,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.context.ApplicationContext;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -69,6 +71,14 @@ public class MoveCommandTest {
         when(applicationContext.getBean(eq("lookCommand"))).thenReturn(look);
         when(entity.getLocation()).thenReturn(new Coordinate(0L, 0L, 0L));
 
+        doAnswer(i -> {
+            CompletableFuture<Entity> arrival = new CompletableFuture<>();
+
+            arrival.complete(movementService.put(i.getArgumentAt(0, Entity.class), i.getArgumentAt(1, Coordinate.class)));
+
+            return arrival;
+        }).when(movementService).putAsync(any(Entity.class), any(Coordinate.class));
+
         doAnswer(i -> {
             Entity entity = i.getArgumentAt(0, Entity.class);
             long x = i.getArgumentAt(1, Coordinate.class).getX();
@@ -105,15 +115,16 @@ public class MoveCommandTest {
 
     @Test
     public void testExitMessageOnBlockedMovement() {
-        try {
-            doThrow(new NoSuchRoomException("Alas!")).when(movementService).put(any(Entity.class), any(Coordinate.class));
+        CompletableFuture<Entity> arrival = new CompletableFuture<>();
 
-            command.execute(output, entity, cmd, tokens, raw);
-        } catch (NoSuchRoomException e) {
-            fail("Exception should not have bubbled up this far.");
-        }
+        arrival.completeExceptionally(new NoSuchRoomException("Alas!"));
+        doReturn(arrival).when(movementService).putAsync(any(Entity.class), any(Coordinate.class));
+
+        command.execute(output, entity, cmd, tokens, raw);
 
+        verify(output).append(eq("Alas!"));
         verify(entityService, never()).sendMessageToRoom(any(Coordinate.class), any(Entity.class), any(GameOutput.class));
+        verifyZeroInteractions(look);
     }
 
     @Test
@@ -121,5 +132,77 @@ public class MoveCommandTest {
         command.execute(output, entity, cmd, tokens, raw);
 
         verify(entityService).sendMessageToRoom(eq(entity), any(GameOutput.class));
+        verify(look).execute(eq(output), eq(entity), eq("look"), any(String[].class), eq(""));
+    }
+
+    @Test
+    public void testMovementIntoNewZone() throws Exception {
+        CompletableFuture<Entity> arrival = new CompletableFuture<>();
+
+        doReturn(arrival).when(movementService).putAsync(any(Entity.class), any(Coordinate.class));
+
+        GameOutput result = command.execute(output, entity, cmd, tokens, raw);
+
+        assertEquals(output, result);
+        verify(output).append(startsWith("[dwhite]The land takes shape"));
+        verify(entityService, never()).sendMessageToEntity(any(Entity.class), any(GameOutput.class));
+        verifyZeroInteractions(look);
+
+        arrival.complete(entity);
+
+        verify(entityService).sendMessageToRoom(eq(entity), any(GameOutput.class));
+        verify(look).execute(any(GameOutput.class), eq(entity), eq("look"), any(String[].class), eq(""));
+        verify(entityService).sendMessageToEntity(eq(entity), any(GameOutput.class));
+    }
+
+    @Test
+    public void testMovementIntoNewZoneBlocked() throws Exception {
+        CompletableFuture<Entity> arrival = new CompletableFuture<>();
+
+        doReturn(arrival).when(movementService).putAsync(any(Entity.class), any(Coordinate.class));
+
+        command.execute(output, entity, cmd, tokens, raw);
+        arrival.completeExceptionally(new NoSuchRoomException("Alas!"));
+
+        verify(entityService, never()).sendMessageToRoom(any(Coordinate.class), any(Entity.class), any(GameOutput.class));
+        verify(entityService).sendMessageToEntity(eq(entity), any(GameOutput.class));
+        verifyZeroInteractions(look);
+    }
+
+    @Test
+    public void testWalkDoesNotLook() throws Exception {
+        Entity result = command.walk(entity);
+
+        assertEquals(1L, result.getLocation().getY());
+        verify(entityService).sendMessageToRoom(eq(entity), any(GameOutput.class));
+        verifyZeroInteractions(applicationContext);
+    }
+
+    @Test
+    public void testWalkWhileMoving() throws Exception {
+        when(movementService.isMoving(eq(entity))).thenReturn(true);
+
+        try {
+            command.walk(entity);
+
+            fail("Walked while already moving");
+        } catch (NoSuchRoomException e) {
+            assertEquals("You are already on your way.", e.getMessage());
+        }
+
+        verify(movementService, never()).put(any(Entity.class), any(Coordinate.class));
+        verifyZeroInteractions(entityService);
+    }
+
+    @Test(expected = NoSuchRoomException.class)
+    public void testWalkInVoid() throws Exception {
+        when(entity.getLocation()).thenReturn(null);
+
+        command.walk(entity);
+    }
+
+    @Test
+    public void testGetDirection() throws Exception {
+        assertEquals(Direction.NORTH, command.getDirection());
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.config;
+
+import com.emergentmud.core.model.CommandClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.boot.bind.RelaxedDataBinder;
+
+import static org.junit.Assert.*;
+
+public class ThrottlePropertiesTest {
+    private ThrottleProperties throttleProperties;
+
+    @Before
+    public void setUp() throws Exception {
+        throttleProperties = new ThrottleProperties();
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        assertEquals(10.0, throttleProperties.getInput().getRate(), 0.0);
+        assertEquals(30.0, throttleProperties.getInput().getBurst(), 0.0);
+        assertEquals(500, throttleProperties.getOverloadQueueDepth());
+
+        assertEquals(40.0, throttleProperties.getMovement().getBurst(), 0.0);
+        assertEquals(1.0, throttleProperties.getCommunication().getRate(), 0.0);
+
+        for (CommandClass commandClass : CommandClass.values()) {
+            assertNotNull(throttleProperties.getBucket(commandClass));
+        }
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        MutablePropertyValues values = new MutablePropertyValues();
+
+        values.add("emergentmud.throttle.input.burst", "2");
+        values.add("emergentmud.throttle.movement.rate", "3.5");
+        values.add("emergentmud.throttle.overload-queue-depth", "10");
+
+        RelaxedDataBinder binder = new RelaxedDataBinder(throttleProperties, "emergentmud.throttle");
+
+        binder.bind(values);
+
+        assertFalse(binder.getBindingResult().hasErrors());
+        assertEquals(2.0, throttleProperties.getInput().getBurst(), 0.0);
+        assertEquals(10.0, throttleProperties.getInput().getRate(), 0.0);
+        assertEquals(3.5, throttleProperties.getBucket(CommandClass.MOVEMENT).getRate(), 0.0);
+        assertEquals(40.0, throttleProperties.getMovement().getBurst(), 0.0);
+        assertEquals(10, throttleProperties.getOverloadQueueDepth());
+    }
+
+    @Test
+    public void testBindWrongType() throws Exception {
+        MutablePropertyValues values = new MutablePropertyValues();
+
+        values.add("emergentmud.throttle.communication.burst", "lots");
+
+        RelaxedDataBinder binder = new RelaxedDataBinder(throttleProperties, "emergentmud.throttle");
+
+        binder.bind(values);
+
+        assertTrue(binder.getBindingResult().hasFieldErrors("communication.burst"));
+    }
+}
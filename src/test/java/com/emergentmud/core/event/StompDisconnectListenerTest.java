@@ -27,17 +27,24 @@ import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.repository.EntityRepository;
 import com.emergentmud.core.service.MovementService;
 import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.SessionBindingService;
+import com.emergentmud.core.service.ThrottleService;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.*;
 
 public class StompDisconnectListenerTest {
     private EntityRepository entityRepository;
     private MovementService movementService;
     private EntityService entityService;
+    private SessionBindingService sessionBindingService;
+    private ThrottleService throttleService;
     private OAuth2Authentication principal;
     private SessionDisconnectEvent event;
     private Entity entity;
@@ -53,6 +60,8 @@ public class StompDisconnectListenerTest {
         entityRepository = mock(EntityRepository.class);
         movementService = mock(MovementService.class);
         entityService = mock(EntityService.class);
+        sessionBindingService = new SessionBindingService();
+        throttleService = mock(ThrottleService.class);
         principal = mock(OAuth2Authentication.class);
         event = mock(SessionDisconnectEvent.class);
         entity = mock(Entity.class);
@@ -70,7 +79,9 @@ public class StompDisconnectListenerTest {
         stompDisconnectListener = new StompDisconnectListener(
                 entityRepository,
                 movementService,
-                entityService
+                entityService,
+                sessionBindingService,
+                throttleService
         );
     }
 
@@ -84,6 +95,7 @@ public class StompDisconnectListenerTest {
         );
         verify(entityService).sendMessageToRoom(eq(entity), any(GameOutput.class));
         verify(movementService).remove(eq(entity));
+        verify(throttleService).evict(eq(entity));
     }
 
     @Test
@@ -108,4 +120,21 @@ public class StompDisconnectListenerTest {
 
         verifyZeroInteractions(movementService);
     }
+
+    @Test
+    public void applicationEventBound() {
+        Entity live = mock(Entity.class);
+
+        when(live.getId()).thenReturn(UUID.randomUUID());
+        when(live.getLocation()).thenReturn(new Coordinate(0, 0, 0));
+
+        sessionBindingService.bind(simpSessionId, socialUserName, "breadcrumb", live);
+
+        stompDisconnectListener.onApplicationEvent(event);
+
+        verify(entityRepository, never()).findByStompSessionIdAndStompUsername(anyString(), anyString());
+        verify(entityService).sendMessageToRoom(eq(live), any(GameOutput.class));
+        verify(movementService).remove(eq(live));
+        assertFalse(sessionBindingService.getBinding(simpSessionId).isPresent());
+    }
 }
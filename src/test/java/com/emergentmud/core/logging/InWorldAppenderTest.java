@@ -26,8 +26,8 @@ import com.emergentmud.core.model.Coordinate;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.stomp.GameOutput;
-import com.emergentmud.core.repository.CapabilityRepository;
 import com.emergentmud.core.repository.EntityRepository;
+import com.emergentmud.core.service.CapabilityService;
 import com.emergentmud.core.service.EntityService;
 import com.emergentmud.core.util.SpringContextSingleton;
 import org.junit.Before;
@@ -51,7 +51,7 @@ public class InWorldAppenderTest {
     private EntityRepository entityRepository;
 
     @Mock
-    private CapabilityRepository capabilityRepository;
+    private CapabilityService capabilityService;
 
     @Mock
     private Entity admin;
@@ -82,7 +82,7 @@ public class InWorldAppenderTest {
 
         singleton.setup();
 
-        when(capabilityRepository.findByName(eq(CommandRole.LOG.name()))).thenReturn(capability);
+        when(capabilityService.getCapability(eq(CommandRole.LOG))).thenReturn(capability);
         when(admin.isCapable(eq(capability))).thenReturn(true);
         when(adminOffline.isCapable(eq(capability))).thenReturn(true);
         when(admin.getLocation()).thenReturn(new Coordinate(0L, 0L, 0L));
@@ -126,7 +126,7 @@ public class InWorldAppenderTest {
 
         when(applicationContext.getBean("entityService")).thenReturn(entityService);
         when(applicationContext.getBean("entityRepository")).thenReturn(entityRepository);
-        when(applicationContext.getBean("capabilityRepository")).thenReturn(capabilityRepository);
+        when(applicationContext.getBean("capabilityService")).thenReturn(capabilityService);
 
         inWorldAppender.append(eventObject);
 
@@ -27,7 +27,9 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -108,6 +110,35 @@ public class AccountTest {
         assertFalse(account.isCapable(capabilityC));
     }
 
+    @Test
+    public void testCapabilityMask() throws Exception {
+        Capability registeredA = new Capability("MASK_A", "Mask A", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability registeredB = new Capability("MASK_B", "Mask B", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+
+        registeredA.setId(UUID.randomUUID());
+        registeredB.setId(UUID.randomUUID());
+
+        Map<UUID, Integer> ordinals = new HashMap<>();
+
+        ordinals.put(registeredA.getId(), 0);
+        ordinals.put(registeredB.getId(), 1);
+
+        account.addCapabilities(registeredA);
+        account.setCapabilityMask(new CapabilityMask(ordinals, account.getCapabilities()));
+
+        assertTrue(account.getCapabilityMask().contains(registeredA));
+        assertTrue(account.isCapable(registeredA));
+        assertFalse(account.isCapable(registeredB));
+
+        account.addCapabilities(registeredB);
+        account.removeCapabilities(registeredA);
+
+        assertFalse(account.getCapabilityMask().contains(registeredA));
+        assertTrue(account.getCapabilityMask().contains(registeredB));
+        assertFalse(account.isCapable(registeredA));
+        assertTrue(account.isCapable(registeredB));
+    }
+
     @Test
     public void testGetCapabilities() throws Exception {
         account.addCapabilities(Arrays.asList(capabilityA, capabilityB));
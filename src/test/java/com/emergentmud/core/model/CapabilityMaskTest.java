@@ -0,0 +1,110 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class CapabilityMaskTest {
+    private List<Capability> capabilities = new ArrayList<>();
+    private Map<UUID, Integer> ordinals = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < 70; i++) {
+            Capability capability = new Capability("CAP" + i, "Capability " + i, CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+
+            capability.setId(UUID.randomUUID());
+            capabilities.add(capability);
+            ordinals.put(capability.getId(), i);
+        }
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        Capability low = capabilities.get(0);
+        Capability high = capabilities.get(69);
+        CapabilityMask mask = new CapabilityMask(ordinals, Arrays.asList(low, high));
+
+        assertTrue(mask.contains(low));
+        assertTrue(mask.contains(high));
+        assertFalse(mask.contains(capabilities.get(1)));
+        assertEquals(2, mask.getBits().length);
+    }
+
+    @Test
+    public void testUnregistered() throws Exception {
+        Capability capability = new Capability();
+        CapabilityMask mask = new CapabilityMask(ordinals, Collections.singletonList(capability));
+
+        assertFalse(mask.covers(capability));
+        assertFalse(mask.contains(capability));
+
+        capability.setId(UUID.randomUUID());
+
+        assertFalse(mask.covers(capability));
+        assertFalse(mask.covers(null));
+        assertTrue(mask.covers(capabilities.get(0)));
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        Capability capability = capabilities.get(65);
+        CapabilityMask empty = new CapabilityMask(ordinals, Collections.emptyList());
+        CapabilityMask mask = empty.add(Collections.singletonList(capability));
+
+        assertFalse(empty.contains(capability));
+        assertTrue(mask.contains(capability));
+
+        CapabilityMask removed = mask.remove(Collections.singletonList(capability));
+
+        assertTrue(mask.contains(capability));
+        assertFalse(removed.contains(capability));
+    }
+
+    @Test
+    public void testGetBitsIsCopy() throws Exception {
+        CapabilityMask mask = new CapabilityMask(ordinals, Collections.singletonList(capabilities.get(0)));
+
+        mask.getBits()[0] = 0L;
+
+        assertTrue(mask.contains(capabilities.get(0)));
+    }
+
+    @Test
+    public void testIsBuiltFrom() throws Exception {
+        CapabilityMask mask = new CapabilityMask(ordinals, capabilities);
+
+        assertTrue(mask.isBuiltFrom(ordinals));
+        assertTrue(mask.add(capabilities).isBuiltFrom(ordinals));
+        assertFalse(mask.isBuiltFrom(new HashMap<>(ordinals)));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandClassTest {
+    @Test
+    public void testForCapability() throws Exception {
+        assertEquals(CommandClass.MOVEMENT, CommandClass.forCapability(new Capability("MOVE", "move", CapabilityObject.ENTITY, CapabilityScope.PLAYER)));
+        assertEquals(CommandClass.COMMUNICATION, CommandClass.forCapability(new Capability("TALK", "talk", CapabilityObject.ENTITY, CapabilityScope.PLAYER)));
+        assertEquals(CommandClass.COMMUNICATION, CommandClass.forCapability(new Capability("EMOTE", "emote", CapabilityObject.ENTITY, CapabilityScope.PLAYER)));
+        assertEquals(CommandClass.ADMIN, CommandClass.forCapability(new Capability("DATA", "data", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR)));
+        assertEquals(CommandClass.GENERAL, CommandClass.forCapability(new Capability("SEE", "see", CapabilityObject.ENTITY, CapabilityScope.PLAYER)));
+        assertEquals(CommandClass.GENERAL, CommandClass.forCapability(null));
+    }
+
+    @Test
+    public void testEssential() throws Exception {
+        assertFalse(CommandClass.COMMUNICATION.isEssential());
+        assertTrue(CommandClass.MOVEMENT.isEssential());
+        assertTrue(CommandClass.ADMIN.isEssential());
+    }
+}
@@ -112,4 +112,28 @@ public class EmoteMetadataTest {
 
         assertEquals("test", emoteMetadata.getToRoomTargetingSelf());
     }
+
+    @Test
+    public void testTemplateRecompiledOnSet() throws Exception {
+        Entity self = new Entity();
+
+        self.setName("Alice");
+
+        emoteMetadata.setToRoomUntargeted("%self% waves.");
+
+        EmoteTemplate template = emoteMetadata.getToRoomUntargetedTemplate();
+
+        assertSame(template, emoteMetadata.getToRoomUntargetedTemplate());
+        assertEquals("Alice waves.", template.render(self, null));
+
+        emoteMetadata.setToRoomUntargeted("%self% bows.");
+
+        assertNotSame(template, emoteMetadata.getToRoomUntargetedTemplate());
+        assertEquals("Alice bows.", emoteMetadata.getToRoomUntargetedTemplate().render(self, null));
+    }
+
+    @Test
+    public void testNullTemplate() throws Exception {
+        assertNull(emoteMetadata.getToSelfAsTargetTemplate());
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EmoteTemplateTest {
+    private Entity self;
+    private Entity target;
+
+    @Before
+    public void setUp() throws Exception {
+        Pronoun female = new Pronoun("female", "she", "her", "her", "hers", "herself");
+        Pronoun male = new Pronoun("male", "he", "him", "his", "his", "himself");
+
+        self = new Entity();
+        self.setName("Alice");
+        self.setGender(female);
+
+        target = new Entity();
+        target.setName("Bob");
+        target.setGender(male);
+    }
+
+    @Test
+    public void testNull() throws Exception {
+        assertNull(EmoteTemplate.compile(null));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertEquals("", EmoteTemplate.compile("").render(self, target));
+    }
+
+    @Test
+    public void testLiteral() throws Exception {
+        assertEquals("You grin.", EmoteTemplate.compile("You grin.").render(self, target));
+    }
+
+    @Test
+    public void testCapitalize() throws Exception {
+        assertEquals("Alice's eyes twinkle.", EmoteTemplate.compile("%selfpos% eyes twinkle.").render(self, target));
+        assertEquals("Her eyes twinkle.", EmoteTemplate.compile("%his% eyes twinkle.").render(self, target));
+    }
+
+    @Test
+    public void testAllVariables() throws Exception {
+        EmoteTemplate template = EmoteTemplate.compile(
+                "%self% %target% %selfpos% %targetpos% %he% %him% %his% %hispos% %himself%");
+
+        assertEquals("Alice Bob Alice's Bob's she her her hers herself", template.render(self, target));
+    }
+
+    @Test
+    public void testNullTarget() throws Exception {
+        assertEquals("Alice pokes NULL.", EmoteTemplate.compile("%self% pokes %target%.").render(self, null));
+        assertEquals("Alice takes NULL's hat.", EmoteTemplate.compile("%self% takes %targetpos% hat.").render(self, null));
+    }
+
+    @Test
+    public void testUnknownVariable() throws Exception {
+        assertEquals("Alice is 100%happy%.", EmoteTemplate.compile("%self% is 100%happy%.").render(self, target));
+    }
+
+    @Test
+    public void testPercentBeforeVariable() throws Exception {
+        assertEquals("100% Alice.", EmoteTemplate.compile("100% %self%.").render(self, target));
+        assertEquals("%Alice", EmoteTemplate.compile("%%self%").render(self, target));
+    }
+
+    @Test
+    public void testUnterminated() throws Exception {
+        assertEquals("Alice grins %self", EmoteTemplate.compile("%self% grins %self").render(self, target));
+    }
+
+    @Test
+    public void testRenderTwice() throws Exception {
+        EmoteTemplate template = EmoteTemplate.compile("%self% nods at %target%.");
+
+        assertEquals("Alice nods at Bob.", template.render(self, target));
+        assertEquals("Bob nods at Alice.", template.render(target, self));
+    }
+}
@@ -26,7 +26,9 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -158,6 +160,35 @@ public class EntityTest {
         assertFalse(entity.isCapable(capabilityC));
     }
 
+    @Test
+    public void testCapabilityMask() throws Exception {
+        Capability registeredA = new Capability("MASK_A", "Mask A", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Capability registeredB = new Capability("MASK_B", "Mask B", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+
+        registeredA.setId(UUID.randomUUID());
+        registeredB.setId(UUID.randomUUID());
+
+        Map<UUID, Integer> ordinals = new HashMap<>();
+
+        ordinals.put(registeredA.getId(), 0);
+        ordinals.put(registeredB.getId(), 1);
+
+        entity.addCapabilities(registeredA);
+        entity.setCapabilityMask(new CapabilityMask(ordinals, entity.getCapabilities()));
+
+        assertTrue(entity.getCapabilityMask().contains(registeredA));
+        assertTrue(entity.isCapable(registeredA));
+        assertFalse(entity.isCapable(registeredB));
+
+        entity.addCapabilities(registeredB);
+        entity.removeCapabilities(registeredA);
+
+        assertFalse(entity.getCapabilityMask().contains(registeredA));
+        assertTrue(entity.getCapabilityMask().contains(registeredB));
+        assertFalse(entity.isCapable(registeredA));
+        assertTrue(entity.isCapable(registeredB));
+    }
+
     @Test
     public void testGetCapabilities() throws Exception {
         entity.addCapabilities(Arrays.asList(capabilityA, capabilityB));
@@ -0,0 +1,143 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.repository;
+
+import com.emergentmud.core.BasePostgresTest;
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.service.RegionLeaseService;
+import com.emergentmud.core.service.RoomCache;
+import com.emergentmud.core.service.RoomService;
+import com.emergentmud.core.service.WorldSeed;
+import com.emergentmud.core.service.ZoneLayoutCache;
+import com.emergentmud.core.service.ZoneService;
+import com.emergentmud.core.service.maze.GrowingTreeMazeStrategy;
+import com.emergentmud.core.service.maze.RandomCellSelectionStrategy;
+import com.emergentmud.core.service.maze.ZoneFillStrategy;
+import com.emergentmud.core.service.maze.ZoneLayout;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Saves rooms carved from a procedural zone to a real Postgres in a container, through the same JPA
+ * mapping the game uses.
+ */
+public class RoomRepositoryPostgresTest extends BasePostgresTest {
+    private static LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private static JpaTransactionManager transactionManager;
+    private static RoomRepository roomRepository;
+    private static ZoneRepository zoneRepository;
+    private static BiomeRepository biomeRepository;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        migrate();
+
+        HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+
+        vendorAdapter.setDatabase(Database.POSTGRESQL);
+
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setJpaVendorAdapter(vendorAdapter);
+        entityManagerFactory.setPackagesToScan("com.emergentmud.core.model");
+        entityManagerFactory.getJpaPropertyMap().put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+        entityManagerFactory.getJpaPropertyMap().put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+        entityManagerFactory.afterPropertiesSet();
+
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject()));
+
+        transactionManager = new JpaTransactionManager(entityManagerFactory.getObject());
+        roomRepository = repositoryFactory.getRepository(RoomRepository.class);
+        zoneRepository = repositoryFactory.getRepository(ZoneRepository.class);
+        biomeRepository = repositoryFactory.getRepository(BiomeRepository.class);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.destroy();
+        }
+    }
+
+    @Test
+    public void testSaveCarvedRoom() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Coordinate origin = new Coordinate(0L, 0L, 0L);
+        Zone zone = transactionTemplate.execute(status -> {
+            Zone created = new Zone();
+
+            created.setBottomLeft(new Coordinate(0L, 0L, 0L));
+            created.setTopRight(new Coordinate(4L, 4L, 0L));
+            created.setOrigin(origin);
+            created.setProcedural(true);
+            created.setBiome(biomeRepository.findByName("Snow"));
+
+            return zoneRepository.save(created);
+        });
+
+        ZoneLayout layout = new GrowingTreeMazeStrategy(
+                roomRepository,
+                null,
+                new WorldSeed(1234L),
+                Collections.singletonMap("randomCellSelectionStrategy", new RandomCellSelectionStrategy()))
+                .layoutZone(zone, origin);
+
+        RoomService roomService = new RoomService(
+                mock(ZoneService.class),
+                roomRepository,
+                new RoomCache(roomRepository, 1024L),
+                mock(ZoneLayoutCache.class),
+                mock(ZoneFillStrategy.class),
+                Runnable::run,
+                mock(RegionLeaseService.class),
+                transactionManager,
+                true);
+
+        Room saved = transactionTemplate.execute(status -> roomService.saveRoom(layout.fetchRoom(origin)));
+        Room found = transactionTemplate.execute(status -> roomRepository.findByLocation(origin));
+
+        assertNotNull(saved.getId());
+        assertEquals(saved.getId(), found.getId());
+        assertEquals(zone.getId(), found.getZone().getId());
+
+        Room again = transactionTemplate.execute(status -> roomService.saveRoom(layout.fetchRoom(origin)));
+
+        assertEquals(saved.getId(), again.getId());
+        assertEquals(1L, roomRepository.count());
+    }
+}
@@ -21,6 +21,7 @@
 package com.emergentmud.core.resource;
 
 import com.emergentmud.core.command.Command;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.Emote;
 import com.emergentmud.core.exception.NoAccountException;
 import com.emergentmud.core.model.Account;
@@ -38,7 +39,6 @@ import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.repository.AccountRepository;
 import com.emergentmud.core.repository.CapabilityRepository;
 import com.emergentmud.core.repository.CommandMetadataRepository;
-import com.emergentmud.core.repository.EmoteMetadataRepository;
 import com.emergentmud.core.repository.EntityRepository;
 import com.emergentmud.core.repository.PronounRepository;
 import com.emergentmud.core.repository.RoomRepository;
@@ -94,7 +94,7 @@ public class MainResourceTest {
     private CommandMetadataRepository commandMetadataRepository;
 
     @Mock
-    private EmoteMetadataRepository emoteMetadataRepository;
+    private CommandIndex commandIndex;
 
     @Mock
     private CapabilityRepository capabilityRepository;
@@ -218,7 +218,7 @@ public class MainResourceTest {
                 entityRepository,
                 pronounRepository,
                 commandMetadataRepository,
-                emoteMetadataRepository,
+                commandIndex,
                 capabilityRepository,
                 movementService,
                 entityService,
@@ -691,11 +691,11 @@ public class MainResourceTest {
 
     @Test
     public void testEmotesNotAuthenticated() {
-        when(emoteMetadataRepository.findAll()).thenReturn(emoteMetadata);
+        when(commandIndex.getEmotes()).thenReturn(emoteMetadata);
 
         String view = mainResource.emotes(model, null, httpSession);
 
-        verify(emoteMetadataRepository).findAll();
+        verify(commandIndex).getEmotes();
         verifyZeroInteractions(httpSession);
         verify(model).addAttribute(eq("self"), entityCaptor.capture());
         verify(model).addAttribute(eq("target"), entityCaptor.capture());
@@ -712,7 +712,7 @@ public class MainResourceTest {
 
     @Test
     public void testEmotesAuthenticatedNoEssences() {
-        when(emoteMetadataRepository.findAll()).thenReturn(emoteMetadata);
+        when(commandIndex.getEmotes()).thenReturn(emoteMetadata);
         when(httpSession.getAttribute(eq("social"))).thenReturn("social");
         when(principal.getName()).thenReturn("principal");
         when(accountRepository.findBySocialNetworkAndSocialNetworkId(eq("social"), eq("principal"))).thenReturn(account);
@@ -721,7 +721,7 @@ public class MainResourceTest {
 
         String view = mainResource.emotes(model, principal, httpSession);
 
-        verify(emoteMetadataRepository).findAll();
+        verify(commandIndex).getEmotes();
         verify(httpSession).getAttribute(eq("social"));
         verify(model).addAttribute(eq("self"), entityCaptor.capture());
         verify(model).addAttribute(eq("target"), entityCaptor.capture());
@@ -742,7 +742,7 @@ public class MainResourceTest {
 
         oneEntity.add(entities.get(0));
 
-        when(emoteMetadataRepository.findAll()).thenReturn(emoteMetadata);
+        when(commandIndex.getEmotes()).thenReturn(emoteMetadata);
         when(httpSession.getAttribute(eq("social"))).thenReturn("social");
         when(principal.getName()).thenReturn("principal");
         when(accountRepository.findBySocialNetworkAndSocialNetworkId(eq("social"), eq("principal"))).thenReturn(account);
@@ -751,7 +751,7 @@ public class MainResourceTest {
 
         String view = mainResource.emotes(model, principal, httpSession);
 
-        verify(emoteMetadataRepository).findAll();
+        verify(commandIndex).getEmotes();
         verify(httpSession).getAttribute(eq("social"));
         verify(model).addAttribute(eq("self"), entityCaptor.capture());
         verify(model).addAttribute(eq("target"), entityCaptor.capture());
@@ -773,7 +773,7 @@ public class MainResourceTest {
         twoEntities.add(entities.get(0));
         twoEntities.add(entities.get(1));
 
-        when(emoteMetadataRepository.findAll()).thenReturn(emoteMetadata);
+        when(commandIndex.getEmotes()).thenReturn(emoteMetadata);
         when(httpSession.getAttribute(eq("social"))).thenReturn("social");
         when(principal.getName()).thenReturn("principal");
         when(accountRepository.findBySocialNetworkAndSocialNetworkId(eq("social"), eq("principal"))).thenReturn(account);
@@ -782,7 +782,7 @@ public class MainResourceTest {
 
         String view = mainResource.emotes(model, principal, httpSession);
 
-        verify(emoteMetadataRepository).findAll();
+        verify(commandIndex).getEmotes();
         verify(httpSession).getAttribute(eq("social"));
         verify(model).addAttribute(eq("self"), entityCaptor.capture());
         verify(model).addAttribute(eq("target"), entityCaptor.capture());
@@ -872,13 +872,14 @@ public class MainResourceTest {
 
     private void verifyAllEmoteMetadata(List<EmoteMetadata> metadata) {
         metadata.forEach(m -> {
-            verify(m).setToSelfUntargeted(anyString());
-            verify(m).setToRoomUntargeted(anyString());
-            verify(m).setToSelfWithTarget(anyString());
-            verify(m).setToTarget(anyString());
-            verify(m).setToRoomWithTarget(anyString());
-            verify(m).setToSelfAsTarget(anyString());
-            verify(m).setToRoomTargetingSelf(anyString());
+            verify(emote).preview(eq(m), any(Entity.class), any(Entity.class));
+            verify(m, never()).setToSelfUntargeted(anyString());
+            verify(m, never()).setToRoomUntargeted(anyString());
+            verify(m, never()).setToSelfWithTarget(anyString());
+            verify(m, never()).setToTarget(anyString());
+            verify(m, never()).setToRoomWithTarget(anyString());
+            verify(m, never()).setToSelfAsTarget(anyString());
+            verify(m, never()).setToRoomTargetingSelf(anyString());
         });
     }
 }
@@ -21,8 +21,13 @@
 package com.emergentmud.core.resource;
 
 import com.emergentmud.core.command.Command;
+import com.emergentmud.core.command.CommandIndex;
 import com.emergentmud.core.command.Emote;
 import com.emergentmud.core.command.PromptBuilder;
+import com.emergentmud.core.command.impl.MoveCommand;
+import com.emergentmud.core.config.ThrottleProperties;
+import com.emergentmud.core.exception.NoSuchRoomException;
+import com.emergentmud.core.model.Direction;
 import com.emergentmud.core.model.Capability;
 import com.emergentmud.core.model.CommandMetadata;
 import com.emergentmud.core.model.CommandRole;
@@ -31,10 +36,15 @@ import com.emergentmud.core.model.EmoteMetadata;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.model.stomp.UserInput;
-import com.emergentmud.core.repository.CapabilityRepository;
 import com.emergentmud.core.repository.CommandMetadataRepository;
 import com.emergentmud.core.repository.EmoteMetadataRepository;
 import com.emergentmud.core.repository.EntityRepository;
+import com.emergentmud.core.service.CapabilityService;
+import com.emergentmud.core.service.CommandMailboxService;
+import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.InputService;
+import com.emergentmud.core.service.SessionBindingService;
+import com.emergentmud.core.service.ThrottleService;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -45,6 +55,8 @@ import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
 import org.springframework.session.Session;
 import org.springframework.session.SessionRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -79,7 +91,13 @@ public class WebSocketResourceTest {
     private EmoteMetadataRepository emoteMetadataRepository;
 
     @Mock
-    private CapabilityRepository capabilityRepository;
+    private CapabilityService capabilityService;
+
+    @Mock
+    private EntityService entityService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @Mock
     private PromptBuilder promptBuilder;
@@ -108,6 +126,9 @@ public class WebSocketResourceTest {
     @Mock
     private Capability talkCapability;
 
+    @Mock
+    private Capability moveCapability;
+
     @Mock
     private Capability dataCapability;
 
@@ -126,10 +147,18 @@ public class WebSocketResourceTest {
     @Mock
     private Command mockCommand;
 
+    @Mock
+    private MoveCommand northCommand;
+
+    @Mock
+    private MoveCommand eastCommand;
+
     private String breadcrumb = UUID.randomUUID().toString();
     private String simpSessionId = "simpSessionId";
     private String httpSessionId = "httpSessionId";
     private Map<String, String> sessionMap;
+    private SessionBindingService sessionBindingService;
+    private GameOutput sentOutput;
     private List<CommandMetadata> commandList;
     private List<EmoteMetadata> emoteList;
 
@@ -140,6 +169,7 @@ public class WebSocketResourceTest {
         MockitoAnnotations.initMocks(this);
 
         sessionMap = generateSessionMap();
+        sessionBindingService = new SessionBindingService();
         commandList = generateCommandList();
         emoteList = generateEmoteList();
 
@@ -151,11 +181,16 @@ public class WebSocketResourceTest {
 
         when(principal.getDetails()).thenReturn(oauth2Details);
         when(principal.getName()).thenReturn(PRINCIPAL_USER);
+        when(entity.getId()).thenReturn(ENTITY_ID);
         when(entity.getStompUsername()).thenReturn(PRINCIPAL_USER);
         when(entity.getStompSessionId()).thenReturn("simpSessionId");
         when(entity.getName()).thenReturn("Player");
         when(entity.isCapable(eq(seeCapability))).thenReturn(true);
         when(entity.isCapable(eq(talkCapability))).thenReturn(true);
+        when(entity.isCapable(eq(moveCapability))).thenReturn(true);
+        when(seeCapability.getName()).thenReturn("SEE");
+        when(talkCapability.getName()).thenReturn("TALK");
+        when(moveCapability.getName()).thenReturn("MOVE");
         when(entity.isCapable(eq(emoteCapability))).thenReturn(true);
         when(target.getName()).thenReturn("Target");
         when(observer.getName()).thenReturn("Observer");
@@ -173,9 +208,13 @@ public class WebSocketResourceTest {
         });
         when(commandMetadataRepository.findAll(any(Sort.class))).thenReturn(commandList);
         when(emoteMetadataRepository.findAll(any(Sort.class))).thenReturn(emoteList);
-        when(capabilityRepository.findByName(eq(CommandRole.SUPER.name()))).thenReturn(superCapability);
-        when(capabilityRepository.findByName(eq(CommandRole.EMOTE.name()))).thenReturn(emoteCapability);
+        when(capabilityService.getCapability(eq(CommandRole.SUPER))).thenReturn(superCapability);
+        when(capabilityService.getCapability(eq(CommandRole.EMOTE))).thenReturn(emoteCapability);
         when(applicationContext.getBean(anyString())).thenReturn(mockCommand);
+        when(applicationContext.getBean(eq("northCommand"))).thenReturn(northCommand);
+        when(applicationContext.getBean(eq("eastCommand"))).thenReturn(eastCommand);
+        when(northCommand.getDirection()).thenReturn(Direction.NORTH);
+        when(eastCommand.getDirection()).thenReturn(Direction.EAST);
         when(mockCommand.execute(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
             GameOutput output = (GameOutput)invocation.getArguments()[0];
 
@@ -188,19 +227,13 @@ public class WebSocketResourceTest {
             message.append("").append("[red]UnitTest> ");
             return null;
         }).when(promptBuilder).appendPrompt(any(GameOutput.class));
+        doAnswer(invocation -> {
+            sentOutput = invocation.getArgumentAt(1, GameOutput.class);
+            promptBuilder.appendPrompt(sentOutput);
+            return null;
+        }).when(entityService).sendMessageToEntity(any(Entity.class), any(GameOutput.class));
 
-        webSocketResource = new WebSocketResource(
-                APPLICATION_VERSION,
-                APPLICATION_BOOT_DATE,
-                applicationContext,
-                sessionRepository,
-                entityRepository,
-                commandMetadataRepository,
-                emoteMetadataRepository,
-                capabilityRepository,
-                promptBuilder,
-                emote
-        );
+        webSocketResource = buildResource(new CommandMailboxService(Runnable::run, 16), new ThrottleProperties());
     }
 
     @Test
@@ -212,15 +245,234 @@ public class WebSocketResourceTest {
         assertEquals(18, output.getOutput().size());
     }
 
+    @Test
+    public void testOnSubscribeBindsSession() throws Exception {
+        webSocketResource.onSubscribe(principal, breadcrumb, simpSessionId);
+
+        assertTrue(sessionBindingService.getBinding(simpSessionId).isPresent());
+        assertEquals(entity, sessionBindingService.getBinding(simpSessionId).get().getEntity());
+    }
+
+    @Test
+    public void testOnInputBound() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("look");
+
+        sessionBindingService.bind(simpSessionId, PRINCIPAL_USER, breadcrumb, entity);
+
+        GameOutput output = sendInput(input);
+
+        verifyZeroInteractions(sessionRepository);
+        verifyZeroInteractions(entityRepository);
+        verify(mockCommand).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[] {}), eq(""));
+        assertEquals("[green]Test output.", output.getOutput().get(0));
+    }
+
+    @Test
+    public void testOnInputBindsSession() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("look");
+
+        webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+
+        verify(sessionRepository, times(1)).findById(anyString());
+        verify(entityRepository, times(1)).findOne(any(UUID.class));
+        verify(mockCommand, times(2)).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[] {}), eq(""));
+    }
+
+    @Test
+    public void testOnInputBoundStale() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("look");
+
+        sessionBindingService.bind(simpSessionId, PRINCIPAL_USER, UUID.randomUUID().toString(), entity);
+
+        GameOutput output = sendInput(input);
+
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
+        assertEquals(1, output.getOutput().size());
+        assertTrue(output.getOutput().get(0).startsWith("[red]"));
+    }
+
+    @Test
+    public void testOnInputQueued() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("look");
+
+        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+
+        assertNull(output);
+        verify(entityService).sendMessageToEntity(eq(entity), eq(sentOutput));
+        assertEquals("[green]Test output.", sentOutput.getOutput().get(0));
+    }
+
+    @Test
+    public void testOnInputMailboxFull() throws Exception {
+        UserInput input = mock(UserInput.class);
+        List<Runnable> scheduled = new ArrayList<>();
+
+        webSocketResource = buildResource(new CommandMailboxService(scheduled::add, 1), new ThrottleProperties());
+
+        when(input.getInput()).thenReturn("look");
+
+        assertNull(webSocketResource.onInput(input, principal, breadcrumb, simpSessionId));
+
+        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
+        assertEquals(1, scheduled.size());
+        assertTrue(output.getOutput().get(0).startsWith("[red]"));
+    }
+
+    @Test
+    public void testOnInputRunsInTransaction() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("look");
+
+        sendInput(input);
+
+        verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void testOnInputStacked() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("look;say hi there");
+
+        GameOutput output = sendInput(input);
+
+        verify(mockCommand).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[] {}), eq(""));
+        verify(mockCommand).execute(any(GameOutput.class), eq(entity), eq("say"), eq(new String[] { "hi", "there" }), eq("hi there"));
+        verify(transactionManager, times(1)).getTransaction(any(TransactionDefinition.class));
+        assertEquals("[green]Test output.", output.getOutput().get(0));
+    }
+
+    @Test
+    public void testOnInputSingleMove() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("north");
+
+        sendInput(input);
+
+        verify(northCommand).execute(any(GameOutput.class), eq(entity), eq("north"), eq(new String[] {}), eq(""));
+        verify(northCommand, never()).walk(any(Entity.class));
+    }
+
+    @Test
+    public void testOnInputSpeedwalk() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("2ne");
+
+        GameOutput output = sendInput(input);
+
+        verify(northCommand, times(2)).walk(eq(entity));
+        verify(eastCommand).walk(eq(entity));
+        verify(northCommand, never()).execute(any(), any(), any(), any(), any());
+        verify(mockCommand, times(1)).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[0]), eq(""));
+        assertEquals("[dwhite]You walk north, north, east.", output.getOutput().get(0));
+    }
+
+    @Test
+    public void testOnInputSpeedwalkStopsAtMissingRoom() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("n;e;n");
+        when(eastCommand.walk(any(Entity.class))).thenThrow(new NoSuchRoomException("Alas, you cannot go that way."));
+
+        GameOutput output = sendInput(input);
+
+        verify(northCommand, times(1)).walk(eq(entity));
+        verify(eastCommand).walk(eq(entity));
+        verify(mockCommand).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[0]), eq(""));
+        assertEquals("[dwhite]You walk north.", output.getOutput().get(0));
+        assertEquals("Alas, you cannot go that way.", output.getOutput().get(1));
+    }
+
+    @Test
+    public void testOnInputTooManySteps() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        when(input.getInput()).thenReturn("99n99e");
+
+        GameOutput output = sendInput(input);
+
+        verify(northCommand, never()).walk(any(Entity.class));
+        assertTrue(output.getOutput().get(0).startsWith("[red]"));
+    }
+
+    @Test
+    public void testOnInputThrottled() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        ThrottleProperties throttleProperties = new ThrottleProperties();
+
+        throttleProperties.getInput().setBurst(1);
+        webSocketResource = buildResource(new CommandMailboxService(Runnable::run, 16), throttleProperties);
+
+        when(input.getInput()).thenReturn("look");
+
+        assertNull(webSocketResource.onInput(input, principal, breadcrumb, simpSessionId));
+
+        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+
+        verify(mockCommand, times(1)).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[] {}), eq(""));
+        assertTrue(output.getOutput().get(0).startsWith("[yellow]"));
+    }
+
+    @Test
+    public void testOnInputCommandClassThrottled() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        ThrottleProperties throttleProperties = new ThrottleProperties();
+
+        throttleProperties.getMovement().setBurst(2);
+        webSocketResource = buildResource(new CommandMailboxService(Runnable::run, 16), throttleProperties);
+
+        when(input.getInput()).thenReturn("4n");
+
+        GameOutput output = sendInput(input);
+
+        verify(northCommand, times(2)).walk(eq(entity));
+        assertEquals("[dwhite]You walk north, north.", output.getOutput().get(0));
+        assertTrue(output.getOutput().get(1).startsWith("[yellow]"));
+    }
+
+    @Test
+    public void testOnInputShedWhenOverloaded() throws Exception {
+        UserInput input = mock(UserInput.class);
+
+        ThrottleProperties throttleProperties = new ThrottleProperties();
+
+        throttleProperties.setOverloadQueueDepth(0);
+        webSocketResource = buildResource(new CommandMailboxService(Runnable::run, 16), throttleProperties);
+
+        when(input.getInput()).thenReturn("say hello");
+
+        GameOutput output = sendInput(input);
+
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
+        assertTrue(output.getOutput().get(0).startsWith("[yellow]"));
+    }
+
     @Test
     public void testOnInputBlank() throws Exception {
         UserInput input = mock(UserInput.class);
 
         when(input.getInput()).thenReturn("");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext, never()).getBean(anyString());
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
         assertEquals("", output.getOutput().get(0));
     }
 
@@ -230,9 +482,9 @@ public class WebSocketResourceTest {
 
         when(input.getInput()).thenReturn("look");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext).getBean(eq("lookCommand"));
+        verify(mockCommand).execute(any(GameOutput.class), eq(entity), eq("look"), eq(new String[] {}), eq(""));
         assertEquals("[green]Test output.", output.getOutput().get(0));
     }
 
@@ -242,9 +494,9 @@ public class WebSocketResourceTest {
 
         when(input.getInput()).thenReturn("wink");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext, never()).getBean(anyString());
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
         verify(emoteMetadataRepository).findAll(any(Sort.class));
         verify(emote).execute(eq(output), any(EmoteMetadata.class), eq(entity), eq(new String[0]));
     }
@@ -255,9 +507,9 @@ public class WebSocketResourceTest {
 
         when(input.getInput()).thenReturn("info");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext, never()).getBean(anyString());
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
         assertEquals("Huh?", output.getOutput().get(0));
     }
 
@@ -268,9 +520,8 @@ public class WebSocketResourceTest {
         when(entity.isCapable(eq(dataCapability))).thenReturn(true);
         when(input.getInput()).thenReturn("info");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext).getBean(eq("infoCommand"));
         verify(mockCommand).execute(any(GameOutput.class), eq(entity), eq("info"), eq(new String[] {}), eq(""));
         assertEquals("[green]Test output.", output.getOutput().get(0));
     }
@@ -281,9 +532,8 @@ public class WebSocketResourceTest {
 
         when(input.getInput()).thenReturn("say I love EmergentMUD!");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext).getBean(eq("sayCommand"));
         verify(mockCommand).execute(
                 any(GameOutput.class),
                 any(Entity.class),
@@ -301,9 +551,9 @@ public class WebSocketResourceTest {
         when(applicationContext.getBean(anyString())).thenReturn(null);
         when(input.getInput()).thenReturn("flarg");
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext, never()).getBean(anyString());
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
         assertEquals(3, output.getOutput().size());
         assertEquals("Huh?", output.getOutput().get(0));
     }
@@ -315,9 +565,9 @@ public class WebSocketResourceTest {
         when(input.getInput()).thenReturn("look");
         when(entityRepository.findOne(any(UUID.class))).thenReturn(null);
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext, never()).getBean(anyString());
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
         assertEquals(1, output.getOutput().size());
         assertTrue(output.getOutput().get(0).startsWith("[red]"));
     }
@@ -329,13 +579,39 @@ public class WebSocketResourceTest {
         when(input.getInput()).thenReturn("look");
         when(entity.getStompSessionId()).thenReturn(UUID.randomUUID().toString());
 
-        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+        GameOutput output = sendInput(input);
 
-        verify(applicationContext, never()).getBean(anyString());
+        verify(mockCommand, never()).execute(any(), any(), any(), any(), any());
         assertEquals(1, output.getOutput().size());
         assertTrue(output.getOutput().get(0).startsWith("[red]"));
     }
 
+    private WebSocketResource buildResource(CommandMailboxService commandMailboxService, ThrottleProperties throttleProperties) {
+        return new WebSocketResource(
+                APPLICATION_VERSION,
+                APPLICATION_BOOT_DATE,
+                applicationContext,
+                sessionRepository,
+                entityRepository,
+                new CommandIndex(applicationContext, commandMetadataRepository, emoteMetadataRepository, capabilityService),
+                sessionBindingService,
+                commandMailboxService,
+                new ThrottleService(throttleProperties, commandMailboxService, () -> 0L),
+                entityService,
+                new InputService(),
+                transactionManager,
+                promptBuilder,
+                emote
+        );
+    }
+
+
+    private GameOutput sendInput(UserInput input) {
+        GameOutput output = webSocketResource.onInput(input, principal, breadcrumb, simpSessionId);
+
+        return output != null ? output : sentOutput;
+    }
+
     private Map<String, String> generateSessionMap() {
         Map<String, String> sessionMap = new HashMap<>();
 
@@ -349,6 +625,8 @@ public class WebSocketResourceTest {
     private List<CommandMetadata> generateCommandList() {
         List<CommandMetadata> metadataList = new ArrayList<>();
 
+        metadataList.add(new CommandMetadata("north", "northCommand", 10, moveCapability));
+        metadataList.add(new CommandMetadata("east", "eastCommand", 20, moveCapability));
         metadataList.add(new CommandMetadata("look", "lookCommand", 100, seeCapability));
         metadataList.add(new CommandMetadata("say", "sayCommand", 200, talkCapability));
         metadataList.add(new CommandMetadata("info", "infoCommand", 300, dataCapability));
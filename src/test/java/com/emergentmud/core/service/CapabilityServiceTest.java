@@ -0,0 +1,178 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Capability;
+import com.emergentmud.core.model.CapabilityObject;
+import com.emergentmud.core.model.CapabilityMask;
+import com.emergentmud.core.model.CapabilityScope;
+import com.emergentmud.core.model.CommandRole;
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.repository.CapabilityRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CapabilityServiceTest {
+    @Mock
+    private CapabilityRepository capabilityRepository;
+
+    private List<Capability> capabilities = new ArrayList<>();
+
+    private CapabilityService capabilityService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        Capability superCapability = new Capability(CommandRole.SUPER.name(), "Super", CapabilityObject.ENTITY, CapabilityScope.ADMINISTRATOR);
+        Capability moveCapability = new Capability(CommandRole.MOVE.name(), "Move", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+
+        superCapability.setId(UUID.randomUUID());
+        moveCapability.setId(UUID.randomUUID());
+
+        capabilities.add(moveCapability);
+        capabilities.add(superCapability);
+
+        when(capabilityRepository.findAll(any(Sort.class))).thenReturn(capabilities);
+
+        capabilityService = new CapabilityService(capabilityRepository);
+    }
+
+    @Test
+    public void testLoadCapabilities() throws Exception {
+        capabilityService.loadCapabilities();
+
+        capabilities.forEach(capability -> assertNotNull(capabilityService.ordinalOf(capability)));
+        assertNotEquals(capabilityService.ordinalOf(capabilities.get(0)), capabilityService.ordinalOf(capabilities.get(1)));
+    }
+
+    @Test
+    public void testRegisterKeepsOrdinals() throws Exception {
+        Capability extra = new Capability("EXTRA", "Extra", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+
+        extra.setId(UUID.randomUUID());
+
+        capabilityService.register(capabilities);
+
+        int generation = capabilityService.getGeneration();
+        Integer first = capabilityService.ordinalOf(capabilities.get(0));
+        Integer second = capabilityService.ordinalOf(capabilities.get(1));
+
+        capabilityService.register(Collections.singletonList(extra));
+
+        assertEquals(first, capabilityService.ordinalOf(capabilities.get(0)));
+        assertEquals(second, capabilityService.ordinalOf(capabilities.get(1)));
+        assertEquals(2, (int)capabilityService.ordinalOf(extra));
+        assertEquals(generation + 1, capabilityService.getGeneration());
+    }
+
+    @Test
+    public void testOrdinalOfUnregistered() throws Exception {
+        Capability capability = new Capability();
+
+        assertNull(capabilityService.ordinalOf(null));
+        assertNull(capabilityService.ordinalOf(capability));
+
+        capability.setId(UUID.randomUUID());
+
+        assertNull(capabilityService.ordinalOf(capability));
+    }
+
+    @Test
+    public void testGetCapabilityMask() throws Exception {
+        Entity entity = new Entity();
+
+        entity.addCapabilities(capabilities.get(0));
+        capabilityService.loadCapabilities();
+
+        CapabilityMask mask = capabilityService.getCapabilityMask(entity);
+
+        assertTrue(mask.contains(capabilities.get(0)));
+        assertFalse(mask.contains(capabilities.get(1)));
+        assertSame(mask, entity.getCapabilityMask());
+        assertSame(mask, capabilityService.getCapabilityMask(entity));
+    }
+
+    @Test
+    public void testGetCapabilityMaskRebuiltAfterRegister() throws Exception {
+        Capability extra = new Capability("EXTRA", "Extra", CapabilityObject.ENTITY, CapabilityScope.PLAYER);
+        Entity entity = new Entity();
+
+        extra.setId(UUID.randomUUID());
+        entity.addCapabilities(capabilities.get(0), extra);
+        capabilityService.loadCapabilities();
+
+        CapabilityMask mask = capabilityService.getCapabilityMask(entity);
+
+        assertFalse(mask.covers(extra));
+        assertTrue(entity.isCapable(extra));
+
+        capabilityService.register(Collections.singletonList(extra));
+
+        CapabilityMask rebuilt = capabilityService.getCapabilityMask(entity);
+
+        assertNotSame(mask, rebuilt);
+        assertTrue(rebuilt.contains(extra));
+        assertTrue(rebuilt.contains(capabilities.get(0)));
+    }
+
+    @Test
+    public void testServicesDoNotShareOrdinals() throws Exception {
+        CapabilityService other = new CapabilityService(capabilityRepository);
+
+        capabilityService.loadCapabilities();
+
+        assertNotNull(capabilityService.ordinalOf(capabilities.get(0)));
+        assertNull(other.ordinalOf(capabilities.get(0)));
+        assertEquals(0, other.getGeneration());
+    }
+
+    @Test
+    public void testGetCapability() throws Exception {
+        capabilityService.loadCapabilities();
+
+        assertEquals(capabilities.get(1), capabilityService.getCapability(CommandRole.SUPER));
+        assertEquals(capabilities.get(0), capabilityService.getCapability(CommandRole.MOVE));
+        verify(capabilityRepository, never()).findByName(anyString());
+    }
+
+    @Test
+    public void testGetCapabilityNotLoaded() throws Exception {
+        Capability talkCapability = mock(Capability.class);
+
+        when(capabilityRepository.findByName(eq(CommandRole.TALK.name()))).thenReturn(talkCapability);
+
+        capabilityService.loadCapabilities();
+
+        assertEquals(talkCapability, capabilityService.getCapability(CommandRole.TALK));
+    }
+}
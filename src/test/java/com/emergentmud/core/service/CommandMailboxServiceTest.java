@@ -0,0 +1,203 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Entity;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CommandMailboxServiceTest {
+    @Mock
+    private Entity alice;
+
+    @Mock
+    private Entity bob;
+
+    private Queue<Runnable> scheduled = new LinkedList<>();
+    private List<String> log = new ArrayList<>();
+
+    private CommandMailboxService commandMailboxService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(alice.getId()).thenReturn(UUID.randomUUID());
+        when(alice.getName()).thenReturn("Alice");
+        when(bob.getId()).thenReturn(UUID.randomUUID());
+        when(bob.getName()).thenReturn("Bob");
+
+        commandMailboxService = new CommandMailboxService(scheduled::add, 3);
+    }
+
+    @Test
+    public void testOneScheduledTaskPerEntity() throws Exception {
+        assertTrue(commandMailboxService.submit(alice, () -> log.add("a1")));
+        assertTrue(commandMailboxService.submit(alice, () -> log.add("a2")));
+        assertTrue(commandMailboxService.submit(bob, () -> log.add("b1")));
+
+        assertEquals(2, scheduled.size());
+        assertEquals(3, commandMailboxService.getQueued());
+    }
+
+    @Test
+    public void testTasksRunInOrder() throws Exception {
+        commandMailboxService.submit(alice, () -> log.add("a1"));
+        commandMailboxService.submit(alice, () -> log.add("a2"));
+        commandMailboxService.submit(bob, () -> log.add("b1"));
+        commandMailboxService.submit(alice, () -> log.add("a3"));
+
+        runScheduled();
+
+        assertEquals("a1 b1 a2 a3", String.join(" ", log));
+        assertEquals(0, commandMailboxService.getQueued());
+    }
+
+    @Test
+    public void testFullMailbox() throws Exception {
+        assertTrue(commandMailboxService.submit(alice, () -> log.add("a1")));
+        assertTrue(commandMailboxService.submit(alice, () -> log.add("a2")));
+        assertTrue(commandMailboxService.submit(alice, () -> log.add("a3")));
+        assertFalse(commandMailboxService.submit(alice, () -> log.add("a4")));
+        assertTrue(commandMailboxService.submit(bob, () -> log.add("b1")));
+
+        runScheduled();
+
+        assertEquals("a1 b1 a2 a3", String.join(" ", log));
+        assertEquals(1L, metrics().get("mailbox.rejected"));
+    }
+
+    @Test
+    public void testFailedTaskDoesNotStopMailbox() throws Exception {
+        commandMailboxService.submit(alice, () -> {
+            throw new IllegalStateException("Boom");
+        });
+        commandMailboxService.submit(alice, () -> log.add("a2"));
+
+        runScheduled();
+
+        assertEquals(Collections.singletonList("a2"), log);
+        assertEquals(0, commandMailboxService.getQueued());
+    }
+
+    @Test
+    public void testEmptyMailboxIsDiscarded() throws Exception {
+        commandMailboxService.submit(alice, () -> log.add("a1"));
+
+        assertEquals(1, metrics().get("mailbox.active"));
+
+        runScheduled();
+
+        assertEquals(0, metrics().get("mailbox.active"));
+
+        commandMailboxService.submit(alice, () -> log.add("a2"));
+
+        assertEquals(1, scheduled.size());
+
+        runScheduled();
+
+        assertEquals("a1 a2", String.join(" ", log));
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        commandMailboxService.submit(alice, () -> log.add("a1"));
+        commandMailboxService.submit(alice, () -> log.add("a2"));
+        commandMailboxService.submit(bob, () -> log.add("b1"));
+
+        Map<String, Number> metrics = metrics();
+
+        assertEquals(3, metrics.get("mailbox.queued"));
+        assertEquals(2, metrics.get("mailbox.active"));
+        assertEquals(0L, metrics.get("mailbox.rejected"));
+    }
+
+    @Test
+    public void testConcurrentSubmitKeepsOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean overlap = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(500);
+
+        commandMailboxService = new CommandMailboxService(executor, 500);
+
+        try {
+            for (int i = 0; i < 500; i++) {
+                int n = i;
+
+                commandMailboxService.submit(alice, () -> {
+                    if (!running.compareAndSet(false, true)) {
+                        overlap.set(true);
+                    }
+
+                    seen.add(n);
+                    running.set(false);
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertFalse(overlap.get());
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, (int)seen.get(i));
+        }
+    }
+
+    private void runScheduled() {
+        Runnable next;
+
+        while ((next = scheduled.poll()) != null) {
+            next.run();
+        }
+    }
+
+    private Map<String, Number> metrics() {
+        return commandMailboxService.metrics()
+                .stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+    }
+}
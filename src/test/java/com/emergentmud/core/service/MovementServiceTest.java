@@ -20,6 +20,7 @@
 
 package com.emergentmud.core.service;
 
+import com.emergentmud.core.exception.NoSuchRoomException;
 import com.emergentmud.core.model.Coordinate;
 import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.Room;
@@ -28,9 +29,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -42,6 +47,20 @@ public class MovementServiceTest {
     @Mock
     private RoomService roomService;
 
+    @Mock
+    private OccupancyIndex occupancyIndex;
+
+    @Mock
+    private WorldGenerationService worldGenerationService;
+
+    @Mock
+    private CommandMailboxService commandMailboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SessionBindingService sessionBindingService = new SessionBindingService();
+
     @Mock
     private Room room;
 
@@ -53,18 +72,24 @@ public class MovementServiceTest {
 
         when(entityRepository.save(any(Entity.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
 
-        movementService = new MovementService(entityRepository, roomService);
+        movementService = new MovementService(
+                entityRepository,
+                roomService,
+                occupancyIndex,
+                worldGenerationService,
+                commandMailboxService,
+                sessionBindingService,
+                transactionManager);
     }
 
     @Test
     public void testPutExistingRoom() throws Exception {
         Entity entity = mock(Entity.class);
-        List<Entity> contents = new ArrayList<>();
 
         when(entity.getLocation()).thenCallRealMethod();
         doCallRealMethod().when(entity).setLocation(any(Coordinate.class));
-        when(entityRepository.findByLocation(eq(new Coordinate(2L, 1L, 3L)))).thenReturn(contents);
         when(roomService.createRoom(new Coordinate(2L, 1L, 3L))).thenReturn(room);
+        when(room.getLocation()).thenReturn(new Coordinate(2L, 1L, 3L));
 
         entity.setLocation(new Coordinate(0L, 0L, 0L));
 
@@ -73,6 +98,8 @@ public class MovementServiceTest {
         assertNotNull(result);
         verify(entityRepository).save(eq(entity));
         verify(entity, times(2)).setLocation(any(Coordinate.class));
+        verify(occupancyIndex).update(eq(entity));
+        verify(worldGenerationService).observe(eq(new Coordinate(2L, 1L, 3L)));
     }
 
     @Test
@@ -87,6 +114,188 @@ public class MovementServiceTest {
         verify(entity).setLocation(any(Coordinate.class));
     }
 
+    @Test
+    public void testPutAsyncExistingRoom() throws Exception {
+        Entity entity = mock(Entity.class);
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+
+        when(roomService.fetchRoom(eq(location))).thenReturn(room);
+        when(room.getLocation()).thenReturn(location);
+
+        CompletableFuture<Entity> result = movementService.putAsync(entity, location);
+
+        assertTrue(result.isDone());
+        assertEquals(entity, result.get());
+        verify(entity).setLocation(eq(location));
+        verify(roomService, never()).createRoomAsync(any(Coordinate.class));
+        verifyZeroInteractions(commandMailboxService);
+    }
+
+    @Test
+    public void testPutAsyncNewRoom() throws Exception {
+        Entity entity = buildEntity();
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+        CompletableFuture<Room> generated = new CompletableFuture<>();
+        List<Runnable> mailbox = new ArrayList<>();
+
+        when(roomService.createRoomAsync(eq(location))).thenReturn(generated);
+        when(room.getLocation()).thenReturn(location);
+        when(commandMailboxService.submit(eq(entity), any(Runnable.class))).thenAnswer(i -> mailbox.add(i.getArgumentAt(1, Runnable.class)));
+
+        CompletableFuture<Entity> result = movementService.putAsync(entity, location);
+
+        assertFalse(result.isDone());
+
+        when(roomService.fetchRoom(eq(location))).thenReturn(room);
+        generated.complete(room);
+
+        assertFalse(result.isDone());
+        verify(entity, never()).setLocation(any(Coordinate.class));
+
+        assertTrue(movementService.isMoving(entity));
+
+        mailbox.forEach(Runnable::run);
+
+        assertEquals(entity, result.get());
+        assertFalse(movementService.isMoving(entity));
+        verify(entity).setLocation(eq(location));
+        verify(occupancyIndex).update(eq(entity));
+    }
+
+    @Test
+    public void testPutAsyncWhileMoving() throws Exception {
+        Entity entity = buildEntity();
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+        List<Runnable> mailbox = new ArrayList<>();
+
+        when(roomService.createRoomAsync(eq(location))).thenReturn(CompletableFuture.completedFuture(room));
+        when(room.getLocation()).thenReturn(location);
+        when(commandMailboxService.submit(eq(entity), any(Runnable.class))).thenAnswer(i -> mailbox.add(i.getArgumentAt(1, Runnable.class)));
+
+        CompletableFuture<Entity> first = movementService.putAsync(entity, location);
+        CompletableFuture<Entity> second = movementService.putAsync(entity, location);
+
+        assertNoSuchRoom(second);
+        verify(roomService).createRoomAsync(eq(location));
+
+        when(roomService.fetchRoom(eq(location))).thenReturn(room);
+        mailbox.forEach(Runnable::run);
+
+        assertEquals(entity, first.get());
+        assertEquals(1, mailbox.size());
+        verify(entityRepository).save(eq(entity));
+        verify(occupancyIndex).update(eq(entity));
+    }
+
+    @Test
+    public void testPutAsyncAfterMovingElsewhere() throws Exception {
+        Entity entity = buildEntity();
+        Entity moved = mock(Entity.class);
+        UUID entityId = entity.getId();
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+        List<Runnable> mailbox = new ArrayList<>();
+
+        when(moved.getId()).thenReturn(entityId);
+        when(moved.getLocation()).thenReturn(new Coordinate(0L, -1L, 0L));
+        when(roomService.createRoomAsync(eq(location))).thenReturn(CompletableFuture.completedFuture(room));
+        when(commandMailboxService.submit(eq(entity), any(Runnable.class))).thenAnswer(i -> mailbox.add(i.getArgumentAt(1, Runnable.class)));
+
+        CompletableFuture<Entity> result = movementService.putAsync(entity, location);
+
+        sessionBindingService.bind("simpSessionId", "principal", "breadcrumb", moved);
+        mailbox.forEach(Runnable::run);
+
+        assertNoSuchRoom(result);
+        assertFalse(movementService.isMoving(entity));
+        verify(moved, never()).setLocation(any(Coordinate.class));
+        verify(entityRepository, never()).save(any(Entity.class));
+    }
+
+    @Test
+    public void testPutAsyncMovesBoundEntity() throws Exception {
+        Entity entity = new Entity();
+        Coordinate origin = new Coordinate(2L, 0L, 3L);
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+        Coordinate next = new Coordinate(2L, 2L, 3L);
+        Room nextRoom = mock(Room.class);
+        List<Runnable> mailbox = new ArrayList<>();
+
+        entity.setId(UUID.randomUUID());
+        entity.setLocation(origin);
+        sessionBindingService.bind("simpSessionId", "principal", "breadcrumb", entity);
+
+        when(roomService.createRoomAsync(any(Coordinate.class))).thenReturn(CompletableFuture.completedFuture(room));
+        when(room.getLocation()).thenReturn(location);
+        when(nextRoom.getLocation()).thenReturn(next);
+        when(commandMailboxService.submit(eq(entity), any(Runnable.class))).thenAnswer(i -> mailbox.add(i.getArgumentAt(1, Runnable.class)));
+
+        CompletableFuture<Entity> first = movementService.putAsync(entity, location);
+
+        when(roomService.fetchRoom(eq(location))).thenReturn(room);
+        mailbox.forEach(Runnable::run);
+        mailbox.clear();
+
+        assertSame(entity, first.get());
+        assertEquals(location, entity.getLocation());
+        verify(entityRepository, never()).findOne(any(UUID.class));
+
+        Entity bound = sessionBindingService.getBinding("simpSessionId").get().getEntity();
+        CompletableFuture<Entity> second = movementService.putAsync(bound, next);
+
+        when(roomService.fetchRoom(eq(next))).thenReturn(nextRoom);
+        mailbox.forEach(Runnable::run);
+
+        assertSame(entity, second.get());
+        assertEquals(next, entity.getLocation());
+    }
+
+    @Test
+    public void testPutAsyncNoRoom() throws Exception {
+        Entity entity = buildEntity();
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+        List<Runnable> mailbox = new ArrayList<>();
+
+        when(roomService.createRoomAsync(eq(location))).thenReturn(CompletableFuture.completedFuture(null));
+        when(commandMailboxService.submit(eq(entity), any(Runnable.class))).thenAnswer(i -> mailbox.add(i.getArgumentAt(1, Runnable.class)));
+
+        CompletableFuture<Entity> result = movementService.putAsync(entity, location);
+
+        mailbox.forEach(Runnable::run);
+
+        assertNoSuchRoom(result);
+        verify(entity, never()).setLocation(any(Coordinate.class));
+    }
+
+    @Test
+    public void testPutAsyncGenerationFailed() throws Exception {
+        Entity entity = buildEntity();
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+        CompletableFuture<Room> generated = new CompletableFuture<>();
+
+        when(roomService.createRoomAsync(eq(location))).thenReturn(generated);
+
+        CompletableFuture<Entity> result = movementService.putAsync(entity, location);
+
+        generated.completeExceptionally(new IllegalStateException("Test"));
+
+        assertNoSuchRoom(result);
+        assertFalse(movementService.isMoving(entity));
+        verifyZeroInteractions(commandMailboxService);
+    }
+
+    @Test
+    public void testPutAsyncMailboxFull() throws Exception {
+        Entity entity = buildEntity();
+        Coordinate location = new Coordinate(2L, 1L, 3L);
+
+        when(roomService.createRoomAsync(eq(location))).thenReturn(CompletableFuture.completedFuture(room));
+        when(commandMailboxService.submit(eq(entity), any(Runnable.class))).thenReturn(false);
+
+        assertNoSuchRoom(movementService.putAsync(entity, location));
+        assertFalse(movementService.isMoving(entity));
+        verify(entity, never()).setLocation(any(Coordinate.class));
+    }
+
     @Test
     public void testRemove() {
         Entity entity = mock(Entity.class);
@@ -95,6 +304,7 @@ public class MovementServiceTest {
 
         verify(entityRepository).save(eq(entity));
         verify(entity).setLocation(eq(null));
+        verify(occupancyIndex).remove(eq(entity));
     }
 
     @Test
@@ -103,7 +313,6 @@ public class MovementServiceTest {
         List<Entity> contents = new ArrayList<>();
 
         when(room.getLocation()).thenReturn(new Coordinate(2L, 1L, 3L));
-        when(entityRepository.findByLocation(new Coordinate(2L, 1L, 3L))).thenReturn(contents);
 
         assertFalse(contents.contains(entity));
 
@@ -113,4 +322,24 @@ public class MovementServiceTest {
         verify(entity).setLocation(eq(null));
         assertFalse(contents.contains(entity));
     }
+
+    private Entity buildEntity() {
+        Entity entity = mock(Entity.class);
+        UUID id = UUID.randomUUID();
+
+        when(entity.getId()).thenReturn(id);
+        when(entity.getLocation()).thenReturn(new Coordinate(2L, 0L, 3L));
+
+        return entity;
+    }
+
+    private void assertNoSuchRoom(CompletableFuture<Entity> result) throws InterruptedException {
+        assertTrue(result.isCompletedExceptionally());
+
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NoSuchRoomException);
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.repository.EntityRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class OccupancyIndexTest {
+    @Mock
+    private EntityRepository entityRepository;
+
+    @Mock
+    private Entity entity;
+
+    @Mock
+    private Entity other;
+
+    private Coordinate origin = new Coordinate(0L, 0L, 0L);
+    private Coordinate north = new Coordinate(0L, 1L, 0L);
+
+    private SessionBindingService sessionBindingService;
+    private OccupancyIndex occupancyIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(entity.getId()).thenReturn(UUID.randomUUID());
+        when(entity.getLocation()).thenReturn(origin);
+        when(other.getId()).thenReturn(UUID.randomUUID());
+        when(other.getLocation()).thenReturn(origin);
+
+        sessionBindingService = new SessionBindingService();
+        occupancyIndex = new OccupancyIndex(entityRepository, sessionBindingService);
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        occupancyIndex.update(entity);
+        occupancyIndex.update(other);
+
+        List<Entity> occupants = occupancyIndex.getOccupants(origin);
+
+        assertEquals(2, occupants.size());
+        assertTrue(occupants.contains(entity));
+        assertTrue(occupants.contains(other));
+        verifyZeroInteractions(entityRepository);
+    }
+
+    @Test
+    public void testUpdateMovesBetweenRooms() throws Exception {
+        occupancyIndex.update(entity);
+
+        when(entity.getLocation()).thenReturn(north);
+
+        occupancyIndex.update(entity);
+
+        assertTrue(occupancyIndex.getOccupants(origin).isEmpty());
+        assertEquals(1, occupancyIndex.getOccupants(north).size());
+    }
+
+    @Test
+    public void testUpdateWithoutLocation() throws Exception {
+        occupancyIndex.update(entity);
+
+        when(entity.getLocation()).thenReturn(null);
+
+        occupancyIndex.update(entity);
+
+        assertTrue(occupancyIndex.getOccupants(origin).isEmpty());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        occupancyIndex.update(entity);
+        occupancyIndex.update(other);
+        occupancyIndex.remove(entity);
+
+        List<Entity> occupants = occupancyIndex.getOccupants(origin);
+
+        assertEquals(1, occupants.size());
+        assertTrue(occupants.contains(other));
+    }
+
+    @Test
+    public void testRemoveNotIndexed() throws Exception {
+        occupancyIndex.remove(entity);
+
+        assertTrue(occupancyIndex.getOccupants(origin).isEmpty());
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        List<Entity> located = new ArrayList<>();
+
+        located.add(other);
+
+        when(entityRepository.findByLocationIsNotNull()).thenReturn(located);
+
+        occupancyIndex.update(entity);
+        occupancyIndex.onApplicationEvent(null);
+
+        List<Entity> occupants = occupancyIndex.getOccupants(origin);
+
+        assertEquals(1, occupants.size());
+        assertTrue(occupants.contains(other));
+    }
+
+    @Test
+    public void testGetOccupantsResolvesLiveEntity() throws Exception {
+        Entity live = mock(Entity.class);
+        UUID id = entity.getId();
+
+        when(live.getId()).thenReturn(id);
+
+        sessionBindingService.bind("session", "principal", "breadcrumb", live);
+        occupancyIndex.update(entity);
+
+        List<Entity> occupants = occupancyIndex.getOccupants(origin);
+
+        assertEquals(1, occupants.size());
+        assertSame(live, occupants.get(0));
+    }
+
+    @Test
+    public void testGetOccupantsEmpty() throws Exception {
+        List<Entity> occupants = occupancyIndex.getOccupants(north);
+
+        assertTrue(occupants.isEmpty());
+
+        occupants.add(entity);
+
+        assertTrue(occupancyIndex.getOccupants(north).isEmpty());
+    }
+
+    @Test
+    public void testGetOccupantsNullLocation() throws Exception {
+        assertTrue(occupancyIndex.getOccupants(null).isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.BasePostgresTest;
+import com.emergentmud.core.model.Coordinate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Leases regions from a real Postgres in a container, as two servers would.
+ */
+public class RegionLeaseServicePostgresTest extends BasePostgresTest {
+    private List<Coordinate> regions = Collections.singletonList(new Coordinate(3L, 4L, 0L));
+
+    private RegionLeaseService first;
+    private RegionLeaseService second;
+
+    @Before
+    public void setUp() throws Exception {
+        first = new RegionLeaseService(dataSource, true, 200L, 10L);
+        second = new RegionLeaseService(dataSource, true, 5000L, 10L);
+    }
+
+    @Test
+    public void testLeaseIsExclusive() throws Exception {
+        RegionLeaseService.Lease lease = second.acquire(regions);
+
+        try {
+            first.acquire(regions);
+
+            fail("Region was leased twice");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Timed out"));
+        } finally {
+            lease.close();
+        }
+
+        first.acquire(regions).close();
+    }
+
+    @Test
+    public void testWaitForLease() throws Exception {
+        RegionLeaseService.Lease lease = first.acquire(regions);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> second.acquire(regions).close());
+
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+
+        lease.close();
+        waiting.get(5, TimeUnit.SECONDS);
+
+        assertTrue(second.metrics()
+                .stream()
+                .anyMatch(metric -> "regionlease.contended".equals(metric.getName()) && metric.getValue().longValue() == 1L));
+    }
+
+    @Test
+    public void testDisjointRegions() throws Exception {
+        RegionLeaseService.Lease lease = first.acquire(regions);
+
+        try {
+            second.acquire(Collections.singletonList(new Coordinate(4L, 4L, 0L))).close();
+        } finally {
+            lease.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RegionLeaseServiceTest {
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement lockStatement;
+
+    @Mock
+    private PreparedStatement unlockStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private List<Coordinate> regions = Arrays.asList(new Coordinate(0L, 0L, 0L), new Coordinate(1L, 0L, 0L));
+
+    private RegionLeaseService regionLeaseService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(eq("SELECT pg_try_advisory_lock(?)"))).thenReturn(lockStatement);
+        when(connection.prepareStatement(eq("SELECT pg_advisory_unlock_all()"))).thenReturn(unlockStatement);
+        when(lockStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+
+        regionLeaseService = new RegionLeaseService(dataSource, true, 1000L, 1L);
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        RegionLeaseService.Lease lease = regionLeaseService.acquire(regions);
+
+        verify(lockStatement).setLong(1, RegionLeaseService.keyOf(regions.get(0)));
+        verify(lockStatement).setLong(1, RegionLeaseService.keyOf(regions.get(1)));
+        verify(connection, never()).close();
+
+        lease.close();
+
+        verify(unlockStatement).execute();
+        verify(connection).close();
+
+        Map<String, Number> metrics = metrics();
+
+        assertEquals(1L, metrics.get("regionlease.acquired"));
+        assertEquals(0L, metrics.get("regionlease.contended"));
+    }
+
+    @Test
+    public void testAcquireContended() throws Exception {
+        when(resultSet.getBoolean(1)).thenReturn(true, false, true, true);
+
+        regionLeaseService.acquire(regions).close();
+
+        // the first region is let go of when the second is taken, then both are locked again
+        verify(lockStatement, times(4)).executeQuery();
+        verify(unlockStatement, times(2)).execute();
+        assertEquals(1L, metrics().get("regionlease.contended"));
+    }
+
+    @Test
+    public void testAcquireTimeout() throws Exception {
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        regionLeaseService = new RegionLeaseService(dataSource, true, 10L, 1L);
+
+        try {
+            regionLeaseService.acquire(regions);
+            fail("Expected the lease to time out");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Timed out"));
+        }
+
+        verify(connection).close();
+        assertEquals(1L, metrics().get("regionlease.timeouts"));
+        assertEquals(0L, metrics().get("regionlease.acquired"));
+    }
+
+    @Test
+    public void testAcquireDatabaseError() throws Exception {
+        when(lockStatement.executeQuery()).thenThrow(new SQLException("Test"));
+
+        try {
+            regionLeaseService.acquire(regions);
+            fail("Expected an exception");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+
+        verify(connection).close();
+    }
+
+    @Test
+    public void testAcquireDisabled() throws Exception {
+        regionLeaseService = new RegionLeaseService(dataSource, false, 1000L, 1L);
+
+        regionLeaseService.acquire(regions).close();
+
+        verifyZeroInteractions(dataSource);
+    }
+
+    @Test
+    public void testKeysAreDistinct() throws Exception {
+        assertNotEquals(RegionLeaseService.keyOf(new Coordinate(0L, 1L, 0L)), RegionLeaseService.keyOf(new Coordinate(1L, 0L, 0L)));
+        assertNotEquals(RegionLeaseService.keyOf(new Coordinate(0L, 0L, 1L)), RegionLeaseService.keyOf(new Coordinate(0L, 0L, 0L)));
+        assertEquals(RegionLeaseService.keyOf(new Coordinate(5L, -3L, 0L)), RegionLeaseService.keyOf(new Coordinate(5L, -3L, 0L)));
+    }
+
+    @Test
+    public void testCloseTwice() throws Exception {
+        RegionLeaseService.Lease lease = regionLeaseService.acquire(regions);
+
+        lease.close();
+        lease.close();
+
+        verify(connection).close();
+        verify(connection, never()).prepareStatement(anyString(), anyInt());
+    }
+
+    private Map<String, Number> metrics() {
+        return regionLeaseService.metrics()
+                .stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.repository.RoomRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RoomCacheTest {
+    @Mock
+    private RoomRepository roomRepository;
+
+    private List<Room> rooms = new ArrayList<>();
+
+    private RoomCache roomCache;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        rooms.add(room(0L, 0L, 0L));
+        rooms.add(room(1L, 0L, 0L));
+        rooms.add(room(31L, 31L, 0L));
+
+        when(roomRepository.findByLocationXBetweenAndLocationYBetweenAndLocationZ(anyLong(), anyLong(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(Collections.emptyList());
+        when(roomRepository.findByLocationXBetweenAndLocationYBetweenAndLocationZ(0L, 31L, 0L, 31L, 0L))
+                .thenReturn(rooms);
+
+        roomCache = new RoomCache(roomRepository, 100L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void testFetchRoom() throws Exception {
+        assertEquals(rooms.get(1), roomCache.fetchRoom(new Coordinate(1L, 0L, 0L)));
+        assertEquals(rooms.get(2), roomCache.fetchRoom(new Coordinate(31L, 31L, 0L)));
+        assertNull(roomCache.fetchRoom(new Coordinate(2L, 0L, 0L)));
+
+        verify(roomRepository).findByLocationXBetweenAndLocationYBetweenAndLocationZ(0L, 31L, 0L, 31L, 0L);
+        assertEquals(1L, roomCache.getMisses());
+        assertEquals(2L, roomCache.getHits());
+    }
+
+    @Test
+    public void testFetchRoomNegativeCoordinates() throws Exception {
+        assertNull(roomCache.fetchRoom(new Coordinate(-1L, -1L, 0L)));
+
+        verify(roomRepository).findByLocationXBetweenAndLocationYBetweenAndLocationZ(-32L, -1L, -32L, -1L, 0L);
+    }
+
+    @Test
+    public void testFetchRooms() throws Exception {
+        List<Room> result = roomCache.fetchRooms(new Coordinate(-5L, -5L, 0L), new Coordinate(5L, 5L, 0L));
+
+        assertEquals(2, result.size());
+        assertTrue(result.contains(rooms.get(0)));
+        assertTrue(result.contains(rooms.get(1)));
+        verify(roomRepository, times(4)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        roomCache = new RoomCache(roomRepository, 5L);
+
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(100L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(200L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(100L, 0L, 0L));
+
+        assertEquals(2L, roomCache.getHits());
+        assertEquals(4L, roomCache.getMisses());
+    }
+
+    @Test
+    public void testPut() throws Exception {
+        Room added = room(2L, 0L, 0L);
+
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.put(Collections.singletonList(added));
+
+        assertEquals(added, roomCache.fetchRoom(new Coordinate(2L, 0L, 0L)));
+        verify(roomRepository, times(1)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testPutInTransaction() throws Exception {
+        Room added = room(2L, 0L, 0L);
+        Room elsewhere = room(40L, 0L, 0L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.put(Arrays.asList(added, elsewhere));
+
+        assertNull(roomCache.fetchRoom(new Coordinate(2L, 0L, 0L)));
+        assertNull(roomCache.fetchRoom(new Coordinate(40L, 0L, 0L)));
+        assertNull(roomCache.fetchRoom(new Coordinate(40L, 0L, 0L)));
+        assertNull(roomCache.fetchRoom(new Coordinate(100L, 0L, 0L)));
+        assertNull(roomCache.fetchRoom(new Coordinate(100L, 0L, 0L)));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertEquals(added, roomCache.fetchRoom(new Coordinate(2L, 0L, 0L)));
+        roomCache.fetchRoom(new Coordinate(40L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(40L, 0L, 0L));
+
+        // only the chunk with the uncommitted room skipped the cache
+        verify(roomRepository, times(3)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(32L, 63L, 0L, 31L, 0L);
+        verify(roomRepository, times(1)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(96L, 127L, 0L, 31L, 0L);
+    }
+
+    @Test
+    public void testPutWhileLoading() throws Exception {
+        Room added = room(100L, 0L, 0L);
+
+        when(roomRepository.findByLocationXBetweenAndLocationYBetweenAndLocationZ(96L, 127L, 0L, 31L, 0L)).thenAnswer(invocation -> {
+            roomCache.put(Collections.singletonList(added));
+            return Collections.emptyList();
+        });
+
+        assertNull(roomCache.fetchRoom(new Coordinate(100L, 0L, 0L)));
+
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+
+        verify(roomRepository, times(1)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(0L, 31L, 0L, 31L, 0L);
+        assertEquals(1L, roomCache.getHits());
+        assertNull(roomCache.fetchRoom(new Coordinate(100L, 0L, 0L)));
+        verify(roomRepository, times(2)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(96L, 127L, 0L, 31L, 0L);
+    }
+
+    @Test
+    public void testPutWithoutActualTransaction() throws Exception {
+        Room added = room(2L, 0L, 0L);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.put(Collections.singletonList(added));
+
+        assertEquals(added, roomCache.fetchRoom(new Coordinate(2L, 0L, 0L)));
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.invalidate();
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+
+        assertEquals(2L, roomCache.getMisses());
+    }
+
+    @Test
+    public void testInvalidateArea() throws Exception {
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(100L, 0L, 0L));
+        roomCache.invalidate(new Coordinate(5L, 5L, 0L), new Coordinate(10L, 10L, 0L));
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+        roomCache.fetchRoom(new Coordinate(100L, 0L, 0L));
+
+        assertEquals(3L, roomCache.getMisses());
+        verify(roomRepository, times(2)).findByLocationXBetweenAndLocationYBetweenAndLocationZ(0L, 31L, 0L, 31L, 0L);
+        verify(roomRepository).findByLocationXBetweenAndLocationYBetweenAndLocationZ(96L, 127L, 0L, 31L, 0L);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        roomCache.fetchRoom(new Coordinate(0L, 0L, 0L));
+
+        assertEquals(5, roomCache.metrics().size());
+    }
+
+    private Room room(long x, long y, long z) {
+        Room room = new Room();
+
+        room.setLocation(new Coordinate(x, y, z));
+
+        return room;
+    }
+}
@@ -20,14 +20,38 @@
 
 package com.emergentmud.core.service;
 
+import com.emergentmud.core.model.Biome;
 import com.emergentmud.core.model.Coordinate;
 import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
 import com.emergentmud.core.repository.RoomRepository;
+import com.emergentmud.core.service.maze.EllerMazeStrategy;
 import com.emergentmud.core.service.maze.ZoneFillStrategy;
+import com.emergentmud.core.service.maze.ZoneLayout;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +63,15 @@ public class RoomServiceTest {
     @Mock
     private RoomRepository roomRepository;
 
+    @Mock
+    private RoomCache roomCache;
+
+    @Mock
+    private ZoneLayoutCache zoneLayoutCache;
+
+    @Mock
+    private ZoneLayout zoneLayout;
+
     @Mock
     private ZoneFillStrategy zoneFillStrategy;
 
@@ -48,6 +81,23 @@ public class RoomServiceTest {
     @Mock
     private Coordinate origin;
 
+    @Mock
+    private Room room;
+
+    @Mock
+    private Zone zone;
+
+    @Mock
+    private RegionLeaseService regionLeaseService;
+
+    @Mock
+    private RegionLeaseService.Lease lease;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private List<Runnable> tasks = new ArrayList<>();
+
     private RoomService roomService;
 
     @Before
@@ -58,18 +108,355 @@ public class RoomServiceTest {
         when(origin.getY()).thenReturn(0L);
         when(origin.getZ()).thenReturn(0L);
         when(originEntity.getLocation()).thenReturn(origin);
+        when(regionLeaseService.acquire(anyListOf(Coordinate.class))).thenReturn(lease);
 
         roomService = new RoomService(
                 zoneService,
                 roomRepository,
-                zoneFillStrategy);
+                roomCache,
+                zoneLayoutCache,
+                zoneFillStrategy,
+                tasks::add,
+                regionLeaseService,
+                transactionManager,
+                false);
     }
 
     @Test
     public void testFetchRoom() {
         roomService.fetchRoom(origin);
 
-        verify(roomRepository).findByLocation(eq(origin));
+        verify(roomCache).fetchRoom(eq(origin));
+    }
+
+    @Test
+    public void testFetchRooms() {
+        Coordinate to = new Coordinate(5L, 5L, 0L);
+
+        roomService.fetchRooms(origin, to);
+
+        verify(roomCache).fetchRooms(eq(origin), eq(to));
+    }
+
+    @Test
+    public void testFetchRoomProcedural() {
+        when(zoneService.fetchZone(eq(origin))).thenReturn(zone);
+        when(zone.isProcedural()).thenReturn(true);
+        when(zoneLayoutCache.fetchLayout(eq(zone))).thenReturn(zoneLayout);
+        when(zoneLayout.fetchRoom(eq(origin))).thenReturn(room);
+
+        assertEquals(room, roomService.fetchRoom(origin));
+    }
+
+    @Test
+    public void testFetchRoomProceduralWall() {
+        when(zoneService.fetchZone(eq(origin))).thenReturn(zone);
+        when(zone.isProcedural()).thenReturn(true);
+        when(zoneLayoutCache.fetchLayout(eq(zone))).thenReturn(zoneLayout);
+
+        assertNull(roomService.fetchRoom(origin));
+    }
+
+    @Test
+    public void testFetchRoomSavedZone() {
+        when(zoneService.fetchZone(eq(origin))).thenReturn(zone);
+
+        assertNull(roomService.fetchRoom(origin));
+        verifyZeroInteractions(zoneLayoutCache);
+    }
+
+    @Test
+    public void testFetchRoomOverlay() {
+        when(roomCache.fetchRoom(eq(origin))).thenReturn(room);
+        when(zoneService.fetchZone(eq(origin))).thenReturn(zone);
+        when(zone.isProcedural()).thenReturn(true);
+
+        assertEquals(room, roomService.fetchRoom(origin));
+        verifyZeroInteractions(zoneLayoutCache);
+    }
+
+    @Test
+    public void testFetchRoomsProcedural() {
+        Coordinate to = new Coordinate(5L, 5L, 0L);
+        Room overlay = buildRoom(1L, 0L);
+        Room carvedUnderOverlay = buildRoom(1L, 0L);
+        Room carved = buildRoom(2L, 0L);
+
+        when(roomCache.fetchRooms(eq(origin), eq(to))).thenReturn(Collections.singletonList(overlay));
+        when(zoneService.fetchZones(eq(origin), eq(to))).thenReturn(Collections.singletonList(zone));
+        when(zone.isProcedural()).thenReturn(true);
+        when(zoneLayoutCache.fetchLayout(eq(zone))).thenReturn(zoneLayout);
+        when(zoneLayout.fetchRooms(eq(origin), eq(to))).thenReturn(Arrays.asList(carvedUnderOverlay, carved));
+
+        assertEquals(Arrays.asList(overlay, carved), roomService.fetchRooms(origin, to));
+    }
+
+    @Test
+    public void testSaveRoom() {
+        Room saved = mock(Room.class);
+
+        when(roomRepository.save(eq(room))).thenReturn(saved);
+
+        assertEquals(saved, roomService.saveRoom(room));
+        verify(roomCache).put(eq(Collections.singletonList(saved)));
+    }
+
+    @Test
+    public void testSaveCarvedRoomAgain() {
+        Room carved = buildRoom(2L, 0L);
+        Room existing = buildRoom(2L, 0L);
+
+        existing.setId(UUID.randomUUID());
+
+        when(roomRepository.findByLocation(eq(carved.getLocation()))).thenReturn(existing);
+        when(roomRepository.save(eq(carved))).thenReturn(carved);
+
+        assertEquals(carved, roomService.saveRoom(carved));
+        assertEquals(existing.getId(), carved.getId());
+    }
+
+    @Test
+    public void testCreateRoomProcedural() throws Exception {
+        roomService = new RoomService(zoneService, roomRepository, roomCache, zoneLayoutCache, zoneFillStrategy,
+                tasks::add, regionLeaseService, transactionManager, true);
+
+        when(zoneService.createZone(eq(origin), eq(true))).thenReturn(zone);
+        when(zone.isProcedural()).thenReturn(true);
+        when(zoneLayoutCache.fetchLayout(eq(zone))).thenReturn(zoneLayout);
+        when(zoneLayout.fetchRoom(eq(origin))).thenReturn(room);
+
+        assertEquals(room, roomService.createRoom(origin));
+        verifyZeroInteractions(zoneFillStrategy, roomRepository);
+    }
+
+    @Test
+    public void testCreateRoom() throws Exception {
+        when(zoneService.createZone(eq(origin), eq(false))).thenReturn(zone);
+        when(zoneFillStrategy.fillZone(eq(zone), eq(origin))).thenReturn(room);
+
+        assertEquals(room, roomService.createRoom(origin));
+        verify(transactionManager).commit(any());
+        verify(regionLeaseService).acquire(anyListOf(Coordinate.class));
+        verify(lease).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCreateRoomAppliesBatchesAsTheyAreSaved() throws Exception {
+        RoomCache realCache = new RoomCache(roomRepository, 100000L);
+        EllerMazeStrategy eller = new EllerMazeStrategy(roomRepository, realCache, new WorldSeed(1234L), 7);
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+        Zone realZone = new Zone();
+        List<Room> saved = new ArrayList<>();
+        AtomicInteger retained = new AtomicInteger();
+
+        realZone.setBottomLeft(new Coordinate(0L, 0L, 0L));
+        realZone.setTopRight(new Coordinate(19L, 14L, 0L));
+        realZone.setBiome(new Biome("Test", 0, EllerMazeStrategy.NAME));
+
+        when(zoneService.createZone(eq(start), eq(false))).thenReturn(realZone);
+        when(roomRepository.save(any(Iterable.class))).thenAnswer(invocation -> {
+            List<Room> batch = new ArrayList<>();
+
+            saved.forEach(room -> assertEquals(room, realCache.fetchRoom(room.getLocation())));
+            retained.set(Math.max(retained.get(), TransactionSynchronizationManager.getSynchronizations().size()));
+
+            ((Iterable<Room>) invocation.getArguments()[0]).forEach(batch::add);
+            saved.addAll(batch);
+
+            return batch;
+        });
+
+        roomService = new RoomService(
+                zoneService,
+                roomRepository,
+                realCache,
+                zoneLayoutCache,
+                eller,
+                tasks::add,
+                regionLeaseService,
+                new EmptyTransactionManager(),
+                false);
+
+        Room result = roomService.createRoom(start);
+
+        assertEquals(start, result.getLocation());
+        assertTrue(saved.size() > 7);
+        assertEquals(0, retained.get());
+        saved.forEach(room -> assertEquals(room, realCache.fetchRoom(room.getLocation())));
+    }
+
+    @Test
+    public void testCreateRoomGeneratedByAnotherServer() throws Exception {
+        Coordinate bottomLeft = new Coordinate(-5L, -5L, 0L);
+        Coordinate topRight = new Coordinate(5L, 5L, 0L);
+
+        when(roomCache.fetchRoom(eq(origin))).thenReturn(null, null, room);
+        when(zoneService.refreshZone(eq(origin))).thenReturn(zone);
+        when(zone.getBottomLeft()).thenReturn(bottomLeft);
+        when(zone.getTopRight()).thenReturn(topRight);
+
+        assertEquals(room, roomService.createRoom(origin));
+        verify(roomCache).invalidate(eq(bottomLeft), eq(topRight));
+        verify(zoneService, never()).createZone(any(Coordinate.class), anyBoolean());
+        verifyZeroInteractions(zoneFillStrategy);
+        verify(lease).close();
+    }
+
+    @Test
+    public void testCreateRoomLeaseTimeout() throws Exception {
+        when(regionLeaseService.acquire(anyListOf(Coordinate.class))).thenThrow(new IllegalStateException("Test"));
+
+        try {
+            roomService.createRoom(origin);
+            fail("Expected the lease to time out");
+        } catch (IllegalStateException e) {
+            assertEquals("Test", e.getMessage());
+        }
+
+        verifyZeroInteractions(zoneFillStrategy);
+
+        doReturn(lease).when(regionLeaseService).acquire(anyListOf(Coordinate.class));
+        when(zoneService.fetchZone(eq(origin))).thenReturn(zone);
+
+        // another thread can still take the local locks
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+
+        try {
+            assertNull(thread.submit(() -> roomService.createRoom(origin)).get(5, TimeUnit.SECONDS));
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCreateRoomExisting() throws Exception {
+        when(roomCache.fetchRoom(eq(origin))).thenReturn(room);
+
+        assertEquals(room, roomService.createRoom(origin));
+        verifyZeroInteractions(zoneService, zoneFillStrategy);
+    }
+
+    @Test
+    public void testCreateRoomInExistingZone() throws Exception {
+        when(zoneService.fetchZone(eq(origin))).thenReturn(zone);
+
+        assertNull(roomService.createRoom(origin));
+        verify(zoneService, never()).createZone(any(Coordinate.class), anyBoolean());
+        verifyZeroInteractions(zoneFillStrategy);
+    }
+
+    @Test
+    public void testCreateRoomWaitsForOverlappingGeneration() throws Exception {
+        Coordinate nearby = new Coordinate(3L, 2L, 0L);
+        CountDownLatch filling = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicReference<Room> generated = new AtomicReference<>();
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+
+        when(roomCache.fetchRoom(any(Coordinate.class))).thenAnswer(i -> generated.get());
+        when(zoneService.createZone(any(Coordinate.class), anyBoolean())).thenReturn(zone);
+        when(zoneFillStrategy.fillZone(eq(zone), any(Coordinate.class))).thenAnswer(i -> {
+            filling.countDown();
+            finish.await(5, TimeUnit.SECONDS);
+            generated.set(room);
+
+            return room;
+        });
+
+        try {
+            Future<Room> first = threads.submit(() -> roomService.createRoom(origin));
+
+            assertTrue(filling.await(5, TimeUnit.SECONDS));
+
+            Future<Room> second = threads.submit(() -> roomService.createRoom(nearby));
+
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            finish.countDown();
+
+            assertEquals(room, first.get(5, TimeUnit.SECONDS));
+            assertEquals(room, second.get(5, TimeUnit.SECONDS));
+            verify(zoneService).createZone(any(Coordinate.class), anyBoolean());
+            verify(zoneFillStrategy).fillZone(any(Zone.class), any(Coordinate.class));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCreateRoomDistantRegionsInParallel() throws Exception {
+        Coordinate distant = new Coordinate(1000L, 1000L, 0L);
+        CountDownLatch filling = new CountDownLatch(2);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+
+        when(zoneService.createZone(any(Coordinate.class), anyBoolean())).thenReturn(zone);
+
+        // Mockito runs one stubbed answer at a time, so this can't be a mock
+        roomService = new RoomService(zoneService, roomRepository, roomCache, zoneLayoutCache, (zone, start) -> {
+            filling.countDown();
+
+            // both fills have to be running at once for this to finish
+            try {
+                return filling.await(5, TimeUnit.SECONDS) ? room : null;
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }, tasks::add, regionLeaseService, transactionManager, false);
+
+        try {
+            Future<Room> first = threads.submit(() -> roomService.createRoom(origin));
+            Future<Room> second = threads.submit(() -> roomService.createRoom(distant));
+
+            assertEquals(room, first.get(10, TimeUnit.SECONDS));
+            assertEquals(room, second.get(10, TimeUnit.SECONDS));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCreateRoomAsyncSharesInFlight() throws Exception {
+        when(zoneService.createZone(eq(origin), eq(false))).thenReturn(zone);
+        when(zoneFillStrategy.fillZone(eq(zone), eq(origin))).thenReturn(room);
+
+        CompletableFuture<Room> first = roomService.createRoomAsync(origin);
+        CompletableFuture<Room> second = roomService.createRoomAsync(origin);
+
+        assertSame(first, second);
+        assertEquals(1, tasks.size());
+
+        tasks.forEach(Runnable::run);
+
+        assertEquals(room, first.get());
+        assertNotSame(first, roomService.createRoomAsync(origin));
+    }
+
+    @Test
+    public void testCreateRoomAsyncExisting() throws Exception {
+        when(roomCache.fetchRoom(eq(origin))).thenReturn(room);
+
+        CompletableFuture<Room> result = roomService.createRoomAsync(origin);
+
+        assertTrue(result.isDone());
+        assertEquals(room, result.get());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void testCreateRoomAsync() throws Exception {
+        when(zoneService.createZone(eq(origin), eq(false))).thenReturn(zone);
+        when(zoneFillStrategy.fillZone(eq(zone), eq(origin))).thenReturn(room);
+
+        CompletableFuture<Room> result = roomService.createRoomAsync(origin);
+
+        assertFalse(result.isDone());
+        verifyZeroInteractions(zoneFillStrategy);
+
+        tasks.forEach(Runnable::run);
+
+        assertEquals(room, result.get());
     }
 
     @Test
@@ -119,4 +506,35 @@ public class RoomServiceTest {
         assertTrue(roomService.isWithinDistance(originEntity, new Coordinate(0, 0, 12), 2));
         assertFalse(roomService.isWithinDistance(originEntity, new Coordinate(0, 0, 12), 1));
     }
+
+    private Room buildRoom(long x, long y) {
+        Room room = new Room();
+
+        room.setLocation(new Coordinate(x, y, 0L));
+
+        return room;
+    }
+
+    /*
+     * Starts real, if empty, transactions so that synchronization is active the way it is in the
+     * application, without needing a database behind it.
+     */
+    private static class EmptyTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
 }
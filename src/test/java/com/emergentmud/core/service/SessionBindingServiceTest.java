@@ -0,0 +1,128 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Entity;
+import com.emergentmud.core.model.stomp.SessionBinding;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SessionBindingServiceTest {
+    @Mock
+    private Entity entity;
+
+    @Mock
+    private Entity other;
+
+    private UUID entityId = UUID.randomUUID();
+
+    private SessionBindingService sessionBindingService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(entity.getId()).thenReturn(entityId);
+        when(other.getId()).thenReturn(UUID.randomUUID());
+
+        sessionBindingService = new SessionBindingService();
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        SessionBinding binding = sessionBindingService.bind("session", "principal", "breadcrumb", entity);
+
+        assertEquals("session", binding.getSimpSessionId());
+        assertEquals("principal", binding.getPrincipalName());
+        assertEquals("breadcrumb", binding.getBreadcrumb());
+        assertEquals(entityId, binding.getEntityId());
+        assertEquals(entity, binding.getEntity());
+        assertEquals(binding, sessionBindingService.getBinding("session").orElse(null));
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        SessionBinding binding = sessionBindingService.bind("session", "principal", "breadcrumb", entity);
+
+        assertTrue(binding.matches("principal", "breadcrumb"));
+        assertFalse(binding.matches("intruder", "breadcrumb"));
+        assertFalse(binding.matches("principal", "crumbs"));
+    }
+
+    @Test
+    public void testRebindEvictsOldSession() throws Exception {
+        Entity fresh = mock(Entity.class);
+
+        when(fresh.getId()).thenReturn(entityId);
+
+        sessionBindingService.bind("old", "principal", "breadcrumb", entity);
+        sessionBindingService.bind("new", "principal", "breadcrumb", fresh);
+
+        assertFalse(sessionBindingService.getBinding("old").isPresent());
+        assertTrue(sessionBindingService.getBinding("new").isPresent());
+        assertEquals(fresh, sessionBindingService.resolve(entity));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        sessionBindingService.bind("session", "principal", "breadcrumb", entity);
+
+        Optional<SessionBinding> evicted = sessionBindingService.evict("session");
+
+        assertTrue(evicted.isPresent());
+        assertFalse(sessionBindingService.getBinding("session").isPresent());
+        assertFalse(sessionBindingService.evict("session").isPresent());
+    }
+
+    @Test
+    public void testEvictOldSessionKeepsNewBinding() throws Exception {
+        Entity fresh = mock(Entity.class);
+
+        when(fresh.getId()).thenReturn(entityId);
+
+        sessionBindingService.bind("old", "principal", "breadcrumb", entity);
+        sessionBindingService.bind("new", "principal", "breadcrumb", fresh);
+        sessionBindingService.evict("old");
+
+        assertEquals(fresh, sessionBindingService.resolve(entity));
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        Entity copy = mock(Entity.class);
+
+        when(copy.getId()).thenReturn(entityId);
+
+        sessionBindingService.bind("session", "principal", "breadcrumb", entity);
+
+        assertEquals(entity, sessionBindingService.resolve(copy));
+        assertEquals(other, sessionBindingService.resolve(other));
+        assertNull(sessionBindingService.resolve(null));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.config.ThrottleProperties;
+import com.emergentmud.core.model.CommandClass;
+import com.emergentmud.core.model.Entity;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ThrottleServiceTest {
+    @Mock
+    private CommandMailboxService commandMailboxService;
+
+    @Mock
+    private Entity entity;
+
+    @Mock
+    private Entity other;
+
+    private long now = 0L;
+    private ThrottleProperties throttleProperties = new ThrottleProperties();
+
+    private ThrottleService throttleService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(entity.getId()).thenReturn(UUID.randomUUID());
+        when(other.getId()).thenReturn(UUID.randomUUID());
+
+        throttleProperties.getInput().setBurst(2);
+        throttleProperties.getCommunication().setRate(1);
+        throttleProperties.getCommunication().setBurst(1);
+        throttleProperties.setOverloadQueueDepth(10);
+
+        throttleService = new ThrottleService(throttleProperties, commandMailboxService, () -> now);
+    }
+
+    @Test
+    public void testInputBucket() throws Exception {
+        assertTrue(throttleService.tryAcceptInput(entity));
+        assertTrue(throttleService.tryAcceptInput(entity));
+        assertFalse(throttleService.tryAcceptInput(entity));
+        assertTrue(throttleService.tryAcceptInput(other));
+    }
+
+    @Test
+    public void testCommandClassBuckets() throws Exception {
+        assertEquals(ThrottleService.Verdict.ALLOWED, throttleService.tryAcquire(entity, CommandClass.COMMUNICATION));
+        assertEquals(ThrottleService.Verdict.THROTTLED, throttleService.tryAcquire(entity, CommandClass.COMMUNICATION));
+        assertEquals(ThrottleService.Verdict.ALLOWED, throttleService.tryAcquire(entity, CommandClass.MOVEMENT));
+
+        now += 1_000_000_000L;
+
+        assertEquals(ThrottleService.Verdict.ALLOWED, throttleService.tryAcquire(entity, CommandClass.COMMUNICATION));
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        for (int i = 0; i < throttleProperties.getMovement().getBurst(); i++) {
+            assertEquals(ThrottleService.Verdict.ALLOWED, throttleService.tryAcquire(entity, CommandClass.MOVEMENT));
+        }
+
+        assertEquals(ThrottleService.Verdict.THROTTLED, throttleService.tryAcquire(entity, CommandClass.MOVEMENT));
+    }
+
+    @Test
+    public void testOverloadShedsNonEssential() throws Exception {
+        when(commandMailboxService.getQueued()).thenReturn(10);
+
+        assertTrue(throttleService.isOverloaded());
+        assertEquals(ThrottleService.Verdict.SHED, throttleService.tryAcquire(entity, CommandClass.COMMUNICATION));
+        assertEquals(ThrottleService.Verdict.ALLOWED, throttleService.tryAcquire(entity, CommandClass.MOVEMENT));
+
+        when(commandMailboxService.getQueued()).thenReturn(9);
+
+        assertFalse(throttleService.isOverloaded());
+        assertEquals(ThrottleService.Verdict.ALLOWED, throttleService.tryAcquire(entity, CommandClass.COMMUNICATION));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        throttleService.tryAcceptInput(entity);
+        throttleService.tryAcceptInput(entity);
+        throttleService.evict(entity);
+
+        assertTrue(throttleService.tryAcceptInput(entity));
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        when(commandMailboxService.getQueued()).thenReturn(10);
+
+        throttleService.tryAcquire(entity, CommandClass.COMMUNICATION);
+        throttleService.tryAcceptInput(entity);
+        throttleService.tryAcceptInput(entity);
+        throttleService.tryAcceptInput(entity);
+
+        Map<String, Number> metrics = throttleService.metrics()
+                .stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+
+        assertEquals(1L, metrics.get("throttle.throttled"));
+        assertEquals(1L, metrics.get("throttle.shed"));
+        assertEquals(1, metrics.get("throttle.overloaded"));
+    }
+}
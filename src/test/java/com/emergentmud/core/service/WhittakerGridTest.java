@@ -0,0 +1,174 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Biome;
+import com.emergentmud.core.model.WhittakerGridLocation;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.WhittakerGridLocationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WhittakerGridTest {
+    @Mock
+    private WhittakerGridLocationRepository whittakerGridLocationRepository;
+
+    private List<WhittakerGridLocation> allWhittakerGridLocations = new ArrayList<>();
+
+    private WhittakerGrid whittakerGrid;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        for (int elevation = 1; elevation <= 4; elevation++) {
+            for (int moisture = 1; moisture <= 6; moisture++) {
+                Biome biome = mock(Biome.class);
+
+                when(biome.getName()).thenReturn(String.format("Biome %d %d", elevation, moisture));
+
+                allWhittakerGridLocations.add(new WhittakerGridLocation(elevation, moisture, biome));
+            }
+        }
+
+        // shuffled so the grid can't depend on the order the rows come back in
+        Collections.shuffle(allWhittakerGridLocations, new Random(1));
+
+        when(whittakerGridLocationRepository.findAll()).thenReturn(allWhittakerGridLocations);
+
+        whittakerGrid = new WhittakerGrid(whittakerGridLocationRepository);
+    }
+
+    @Test
+    public void testSelectWithoutNeighbors() {
+        assertEquals(24, selectAll(Collections.emptyList()).size());
+    }
+
+    @Test
+    public void testSelectNextToOneNeighbor() {
+        List<Zone> neighbors = Collections.singletonList(buildZone(1, 1));
+
+        assertEquals(locations("1,2", "2,1", "2,2"), selectAll(neighbors));
+    }
+
+    @Test
+    public void testSelectNextToEveryNeighbor() {
+        List<Zone> neighbors = Arrays.asList(buildZone(2, 2), buildZone(2, 4));
+
+        assertEquals(locations("1,3", "2,3", "3,3"), selectAll(neighbors));
+    }
+
+    @Test
+    public void testSelectFallsBackToAnyLocation() {
+        List<Zone> neighbors = Arrays.asList(buildZone(1, 1), buildZone(4, 6));
+
+        assertEquals(24, selectAll(neighbors).size());
+    }
+
+    @Test
+    public void testSelectNeighborOffTheGrid() {
+        List<Zone> neighbors = Collections.singletonList(buildZone(9, 9));
+
+        assertEquals(24, selectAll(neighbors).size());
+    }
+
+    @Test
+    public void testSelectIsReproducible() {
+        List<Zone> neighbors = Collections.singletonList(buildZone(2, 3));
+        SplittableRandom first = new SplittableRandom(7L);
+        SplittableRandom second = new SplittableRandom(7L);
+
+        for (int i = 0; i < 50; i++) {
+            assertSame(whittakerGrid.select(neighbors, first), whittakerGrid.select(neighbors, second));
+        }
+    }
+
+    @Test
+    public void testLoadsOnce() {
+        whittakerGrid.select(Collections.emptyList(), new SplittableRandom());
+        whittakerGrid.select(Collections.emptyList(), new SplittableRandom());
+
+        verify(whittakerGridLocationRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void testReload() {
+        whittakerGrid.select(Collections.emptyList(), new SplittableRandom());
+        whittakerGrid.reload();
+        whittakerGrid.select(Collections.emptyList(), new SplittableRandom());
+
+        verify(whittakerGridLocationRepository, times(2)).findAll();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSelectEmptyGrid() {
+        allWhittakerGridLocations.clear();
+
+        whittakerGrid.select(Collections.emptyList(), new SplittableRandom());
+    }
+
+    private Set<String> selectAll(List<Zone> neighbors) {
+        Set<String> selected = new HashSet<>();
+        SplittableRandom seeded = new SplittableRandom(42L);
+
+        for (int i = 0; i < 500; i++) {
+            WhittakerGridLocation location = whittakerGrid.select(neighbors, seeded);
+
+            selected.add(location.getElevation() + "," + location.getMoisture());
+        }
+
+        return selected;
+    }
+
+    private Set<String> locations(String ... locations) {
+        return new HashSet<>(Arrays.asList(locations));
+    }
+
+    private Zone buildZone(int elevation, int moisture) {
+        Zone zone = mock(Zone.class);
+        Biome biome = mock(Biome.class);
+
+        when(biome.getName()).thenReturn("Neighbor");
+        when(zone.getBiome()).thenReturn(biome);
+        when(zone.getElevation()).thenReturn(elevation);
+        when(zone.getMoisture()).thenReturn(moisture);
+
+        return zone;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class WorldGenerationServiceTest {
+    @Mock
+    private RoomService roomService;
+
+    @Mock
+    private ZoneService zoneService;
+
+    @Mock
+    private Zone zone;
+
+    private long now = 0L;
+    private List<Runnable> tasks = new ArrayList<>();
+    private Set<Coordinate> zoned = new HashSet<>();
+    private List<Coordinate> created = new ArrayList<>();
+
+    private WorldGenerationService worldGenerationService;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        // one explored row of rooms from (0, 0) to (4, 0) inside a zone of its own
+        List<Room> rooms = new ArrayList<>();
+
+        for (long x = 0; x <= 4; x++) {
+            Room room = new Room();
+
+            room.setLocation(new Coordinate(x, 0L, 0L));
+            rooms.add(room);
+            zoned.add(room.getLocation());
+        }
+
+        when(roomService.fetchRooms(any(Coordinate.class), any(Coordinate.class))).thenReturn(rooms);
+        when(zoneService.fetchZone(any(Coordinate.class))).thenAnswer(invocation -> zoned.contains(invocation.getArguments()[0]) ? zone : null);
+
+        // each new zone covers the cell it was created at and the cells on either side of it
+        when(roomService.createRoom(any(Coordinate.class))).thenAnswer(invocation -> {
+            Coordinate location = (Coordinate) invocation.getArguments()[0];
+
+            created.add(location);
+
+            for (long dx = -1; dx <= 1; dx++) {
+                zoned.add(new Coordinate(location.getX() + dx, location.getY(), location.getZ()));
+            }
+
+            return new Room();
+        });
+
+        worldGenerationService = new WorldGenerationService(roomService, zoneService, tasks::add, 8, 60, 4, () -> now);
+    }
+
+    @Test
+    public void testObserveGeneratesFrontierClosestFirst() throws Exception {
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+
+        assertEquals(1, worldGenerationService.getQueued());
+
+        runTasks();
+
+        assertEquals(0, worldGenerationService.getQueued());
+        assertEquals(1L, Math.abs(created.get(0).getX()) + Math.abs(created.get(0).getY()));
+        assertTrue(created.contains(new Coordinate(-1L, 0L, 0L)));
+        assertTrue(created.contains(new Coordinate(4L, 1L, 0L)));
+        assertTrue(created.contains(new Coordinate(4L, -1L, 0L)));
+        assertTrue(created.contains(new Coordinate(5L, 0L, 0L)));
+
+        created.forEach(location -> assertEquals(1, created.stream().filter(location::equals).count()));
+
+        assertEquals((long)created.size(), metrics().get("worldgen.generated"));
+    }
+
+    @Test
+    public void testObserveSkipsCellsCoveredByNewZones() throws Exception {
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+        runTasks();
+
+        // (1, 1) is covered by the zone created at (0, 1)
+        assertTrue(created.contains(new Coordinate(0L, 1L, 0L)));
+        assertFalse(created.contains(new Coordinate(1L, 1L, 0L)));
+    }
+
+    @Test
+    public void testObserveSharesScansNearby() throws Exception {
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+        worldGenerationService.observe(new Coordinate(1L, 0L, 0L));
+
+        assertEquals(1, tasks.size());
+        assertEquals(1, worldGenerationService.getQueued());
+    }
+
+    @Test
+    public void testObserveQueueLimit() throws Exception {
+        for (long x = 0; x < 5; x++) {
+            worldGenerationService.observe(new Coordinate(x * 100, 0L, 0L));
+        }
+
+        assertEquals(4, tasks.size());
+        assertEquals(1L, metrics().get("worldgen.dropped"));
+    }
+
+    @Test
+    public void testObserveDisabled() throws Exception {
+        worldGenerationService = new WorldGenerationService(roomService, zoneService, tasks::add, 0, 60, 4, () -> now);
+
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void testObserveBudget() throws Exception {
+        worldGenerationService = new WorldGenerationService(roomService, zoneService, tasks::add, 8, 2, 4, () -> now);
+
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+        runTasks();
+
+        assertEquals(2, created.size());
+        assertEquals(1L, metrics().get("worldgen.deferred"));
+
+        now += 30_000_000_000L;
+
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+        runTasks();
+
+        assertEquals(3, created.size());
+    }
+
+    @Test
+    public void testObserveFailure() throws Exception {
+        doThrow(new IllegalStateException("Test")).when(roomService).createRoom(any(Coordinate.class));
+
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+        runTasks();
+
+        assertEquals(0, worldGenerationService.getQueued());
+        assertEquals(1L, metrics().get("worldgen.failed"));
+    }
+
+    @Test
+    public void testObserveRejected() throws Exception {
+        worldGenerationService = new WorldGenerationService(roomService, zoneService, task -> {
+            throw new RejectedExecutionException("Test");
+        }, 8, 60, 4, () -> now);
+
+        worldGenerationService.observe(new Coordinate(0L, 0L, 0L));
+
+        assertEquals(0, worldGenerationService.getQueued());
+    }
+
+    private void runTasks() {
+        List<Runnable> running = new ArrayList<>(tasks);
+
+        tasks.clear();
+        running.forEach(Runnable::run);
+    }
+
+    private Map<String, Number> metrics() {
+        return worldGenerationService.metrics()
+                .stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class WorldSeedTest {
+    private Coordinate location = new Coordinate(12L, -7L, 0L);
+    private Zone zone = new Zone();
+
+    private WorldSeed worldSeed;
+
+    @Before
+    public void setUp() throws Exception {
+        zone.setBottomLeft(location);
+        zone.setTopRight(new Coordinate(30L, 10L, 0L));
+
+        worldSeed = new WorldSeed(1234L);
+    }
+
+    @Test
+    public void testGetSeed() {
+        assertEquals(1234L, worldSeed.getSeed());
+    }
+
+    @Test
+    public void testSameSeedSameStream() {
+        assertEquals(first(worldSeed.forZonePlan(location)), first(new WorldSeed(1234L).forZonePlan(location)));
+        assertEquals(first(worldSeed.forZoneFill(zone)), first(new WorldSeed(1234L).forZoneFill(zone)));
+    }
+
+    @Test
+    public void testDifferentSeedDifferentStream() {
+        assertNotEquals(first(worldSeed.forZonePlan(location)), first(new WorldSeed(4321L).forZonePlan(location)));
+        assertNotEquals(first(worldSeed.forZoneFill(zone)), first(new WorldSeed(4321L).forZoneFill(zone)));
+    }
+
+    @Test
+    public void testDifferentLocationDifferentStream() {
+        assertNotEquals(first(worldSeed.forZonePlan(location)), first(worldSeed.forZonePlan(new Coordinate(12L, -7L, 1L))));
+        assertNotEquals(first(worldSeed.forZonePlan(location)), first(worldSeed.forZonePlan(new Coordinate(-7L, 12L, 0L))));
+    }
+
+    @Test
+    public void testPlanAndFillStreamsDiffer() {
+        assertNotEquals(first(worldSeed.forZonePlan(location)), first(worldSeed.forZoneFill(zone)));
+    }
+
+    private long first(SplittableRandom random) {
+        return random.nextLong();
+    }
+}
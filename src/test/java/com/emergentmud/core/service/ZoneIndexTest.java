@@ -0,0 +1,148 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.ZoneRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ZoneIndexTest {
+    @Mock
+    private ZoneRepository zoneRepository;
+
+    private Zone west;
+    private Zone east;
+
+    private ZoneIndex zoneIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        west = zone(-10L, -10L, -1L, 10L);
+        east = zone(0L, -10L, 10L, 10L);
+
+        zoneIndex = new ZoneIndex(zoneRepository);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        List<Zone> zones = new ArrayList<>();
+
+        zones.add(west);
+        zones.add(east);
+
+        when(zoneRepository.findAll()).thenReturn(zones);
+
+        zoneIndex.onApplicationEvent(null);
+
+        assertEquals(west, zoneIndex.findZoneAtPoint(-1L, 0L));
+        assertEquals(east, zoneIndex.findZoneAtPoint(0L, 0L));
+        assertNull(zoneIndex.findZoneAtPoint(11L, 0L));
+    }
+
+    @Test
+    public void testFindZonesWithin() throws Exception {
+        zoneIndex.put(west);
+        zoneIndex.put(east);
+
+        assertEquals(2, zoneIndex.findZonesWithin(1L, 1L, -1L, -1L).size());
+        assertEquals(1, zoneIndex.findZonesWithin(20L, 20L, 5L, 5L).size());
+        assertTrue(zoneIndex.findZonesWithin(20L, 20L, 11L, 11L).isEmpty());
+        verifyZeroInteractions(zoneRepository);
+    }
+
+    @Test
+    public void testPutMovedZone() throws Exception {
+        zoneIndex.put(east);
+
+        east.setTopRight(new Coordinate(20L, 10L, 0L));
+        zoneIndex.put(east);
+
+        assertEquals(east, zoneIndex.findZoneAtPoint(20L, 0L));
+        assertEquals(1, zoneIndex.findZonesWithin(20L, 20L, -20L, -20L).size());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        zoneIndex.put(east);
+        zoneIndex.remove(east);
+
+        assertNull(zoneIndex.findZoneAtPoint(0L, 0L));
+    }
+
+    @Test
+    public void testPutRolledBack() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+
+        zoneIndex.put(east);
+
+        assertEquals(east, zoneIndex.findZoneAtPoint(0L, 0L));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertNull(zoneIndex.findZoneAtPoint(0L, 0L));
+    }
+
+    @Test
+    public void testPutCommitted() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+
+        zoneIndex.put(east);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(east, zoneIndex.findZoneAtPoint(0L, 0L));
+    }
+
+    private Zone zone(long bottomLeftX, long bottomLeftY, long topRightX, long topRightY) {
+        Zone zone = new Zone();
+
+        zone.setId(UUID.randomUUID());
+        zone.setBottomLeft(new Coordinate(bottomLeftX, bottomLeftY, 0L));
+        zone.setTopRight(new Coordinate(topRightX, topRightY, 0L));
+
+        return zone;
+    }
+}
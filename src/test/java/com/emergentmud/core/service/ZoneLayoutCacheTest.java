@@ -0,0 +1,136 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.service.maze.ZoneLayout;
+import com.emergentmud.core.service.maze.ZoneLayoutStrategy;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ZoneLayoutCacheTest {
+    @Mock
+    private ZoneLayoutStrategy zoneLayoutStrategy;
+
+    private ZoneLayoutCache zoneLayoutCache;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(zoneLayoutStrategy.layoutZone(any(Zone.class), any(Coordinate.class))).thenAnswer(i -> {
+            ZoneLayout layout = mock(ZoneLayout.class);
+
+            when(layout.getWeight()).thenReturn(100L);
+
+            return layout;
+        });
+
+        zoneLayoutCache = new ZoneLayoutCache(zoneLayoutStrategy, 250L);
+    }
+
+    @Test
+    public void testFetchLayout() {
+        Zone zone = buildZone();
+
+        ZoneLayout layout = zoneLayoutCache.fetchLayout(zone);
+
+        assertNotNull(layout);
+        verify(zoneLayoutStrategy).layoutZone(eq(zone), eq(zone.getOrigin()));
+        assertEquals(1L, metric("layoutcache.misses"));
+    }
+
+    @Test
+    public void testFetchLayoutCached() {
+        Zone zone = buildZone();
+
+        ZoneLayout layout = zoneLayoutCache.fetchLayout(zone);
+
+        assertSame(layout, zoneLayoutCache.fetchLayout(zone));
+        verify(zoneLayoutStrategy, times(1)).layoutZone(any(Zone.class), any(Coordinate.class));
+        assertEquals(1L, metric("layoutcache.hits"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        Zone first = buildZone();
+        Zone second = buildZone();
+        Zone third = buildZone();
+
+        zoneLayoutCache.fetchLayout(first);
+        zoneLayoutCache.fetchLayout(second);
+        zoneLayoutCache.fetchLayout(first);
+        zoneLayoutCache.fetchLayout(third);
+
+        assertEquals(1L, metric("layoutcache.evictions"));
+        assertEquals(2, metric("layoutcache.layouts"));
+        assertEquals(200L, metric("layoutcache.weight"));
+
+        zoneLayoutCache.fetchLayout(first);
+        zoneLayoutCache.fetchLayout(second);
+
+        verify(zoneLayoutStrategy, times(1)).layoutZone(eq(first), any(Coordinate.class));
+        verify(zoneLayoutStrategy, times(2)).layoutZone(eq(second), any(Coordinate.class));
+    }
+
+    @Test
+    public void testKeepsLayoutLargerThanBudget() {
+        Zone zone = buildZone();
+
+        zoneLayoutCache = new ZoneLayoutCache(zoneLayoutStrategy, 10L);
+
+        ZoneLayout layout = zoneLayoutCache.fetchLayout(zone);
+
+        assertSame(layout, zoneLayoutCache.fetchLayout(zone));
+        assertEquals(0L, metric("layoutcache.evictions"));
+    }
+
+    private Zone buildZone() {
+        Zone zone = new Zone();
+
+        zone.setId(UUID.randomUUID());
+        zone.setBottomLeft(new Coordinate(0L, 0L, 0L));
+        zone.setTopRight(new Coordinate(9L, 9L, 0L));
+        zone.setOrigin(new Coordinate(5L, 5L, 0L));
+        zone.setProcedural(true);
+
+        return zone;
+    }
+
+    private Number metric(String name) {
+        return zoneLayoutCache.metrics()
+                .stream()
+                .filter(m -> name.equals(m.getName()))
+                .map(Metric::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -24,23 +24,37 @@ import com.emergentmud.core.model.Biome;
 import com.emergentmud.core.model.Coordinate;
 import com.emergentmud.core.model.WhittakerGridLocation;
 import com.emergentmud.core.model.Zone;
-import com.emergentmud.core.repository.WhittakerGridLocationRepository;
 import com.emergentmud.core.repository.ZoneRepository;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -49,15 +63,24 @@ public class ZoneServiceTest {
     private ZoneRepository zoneRepository;
 
     @Mock
-    private WhittakerGridLocationRepository whittakerGridLocationRepository;
+    private ZoneIndex zoneIndex;
 
     @Mock
-    private Random random;
+    private WhittakerGrid whittakerGrid;
 
     @Mock
     private Zone zone;
 
-    private List<WhittakerGridLocation> allWhittakerGridLocations = new ArrayList<>();
+    @Mock
+    private WhittakerGridLocation whittakerGridLocation;
+
+    @Mock
+    private Biome biome;
+
+    @Captor
+    private ArgumentCaptor<List<Zone>> neighborsCaptor;
+
+    private Map<UUID, Zone> inserted = new HashMap<>();
 
     private ZoneService zoneService;
 
@@ -65,30 +88,26 @@ public class ZoneServiceTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
 
-        when(zoneRepository.save(any(Zone.class))).thenAnswer(i -> {
+        when(zoneRepository.insertIfVacant(any(Zone.class))).thenAnswer(i -> {
             Zone zone = i.getArgumentAt(0, Zone.class);
 
-            zone.setId(UUID.randomUUID());
+            inserted.put(zone.getId(), zone);
 
-            return zone;
+            return 1;
         });
+        when(zoneRepository.findOne(any(UUID.class))).thenAnswer(i -> inserted.get(i.getArgumentAt(0, UUID.class)));
 
-        for (int i = 0; i < 5; i++) {
-            WhittakerGridLocation grid = mock(WhittakerGridLocation.class);
-            Biome biome = mock(Biome.class);
-
-            when(biome.getName()).thenReturn("Biome " + i);
-            when(grid.getBiome()).thenReturn(biome);
-
-            allWhittakerGridLocations.add(grid);
-        }
-
-        when(whittakerGridLocationRepository.findAll()).thenReturn(allWhittakerGridLocations);
+        when(biome.getName()).thenReturn("Biome");
+        when(whittakerGridLocation.getBiome()).thenReturn(biome);
+        when(whittakerGridLocation.getElevation()).thenReturn(2);
+        when(whittakerGridLocation.getMoisture()).thenReturn(3);
+        when(whittakerGrid.select(anyListOf(Zone.class), any(SplittableRandom.class))).thenReturn(whittakerGridLocation);
 
         zoneService = new ZoneService(
                 zoneRepository,
-                whittakerGridLocationRepository,
-                random
+                zoneIndex,
+                whittakerGrid,
+                new WorldSeed(1234L)
         );
     }
 
@@ -96,12 +115,40 @@ public class ZoneServiceTest {
     public void testFetchZone() {
         zoneService.fetchZone(new Coordinate(0L, 1L, 0L));
 
-        verify(zoneRepository).findZoneAtPoint(eq(0L), eq(1L));
+        verify(zoneIndex).findZoneAtPoint(eq(0L), eq(1L));
+    }
+
+    @Test
+    public void testFetchZones() {
+        zoneService.fetchZones(new Coordinate(5L, -2L, 0L), new Coordinate(-3L, 4L, 0L));
+
+        verify(zoneIndex).findZonesWithin(eq(5L), eq(4L), eq(-3L), eq(-2L));
+    }
+
+    @Test
+    public void testRefreshZone() {
+        Zone elsewhere = mock(Zone.class);
+        List<Zone> found = new ArrayList<>();
+
+        found.add(elsewhere);
+        when(elsewhere.encompasses(eq(new Coordinate(3L, 4L, 0L)))).thenReturn(true);
+        when(zoneRepository.findZonesWithin(3L, 4L, 3L, 4L)).thenReturn(found);
+
+        assertEquals(elsewhere, zoneService.refreshZone(new Coordinate(3L, 4L, 0L)));
+        verify(zoneIndex).putCommitted(eq(elsewhere));
+    }
+
+    @Test
+    public void testRefreshZoneNotFound() {
+        when(zoneRepository.findZonesWithin(3L, 4L, 3L, 4L)).thenReturn(new ArrayList<>());
+
+        assertNull(zoneService.refreshZone(new Coordinate(3L, 4L, 0L)));
+        verify(zoneIndex, never()).putCommitted(any(Zone.class));
     }
 
     @Test
     public void testCreateZoneAlreadyExists() {
-        when(zoneRepository.findZoneAtPoint(eq(0L), eq(0L))).thenReturn(zone);
+        when(zoneIndex.findZoneAtPoint(eq(0L), eq(0L))).thenReturn(zone);
 
         Zone zoneResult = zoneService.createZone(new Coordinate(0L, 0L, 0L));
 
@@ -110,11 +157,132 @@ public class ZoneServiceTest {
 
     @Test
     public void testCreateZone() {
-        when(random.nextInt(eq(3))).thenReturn(0, 1, 2, 0, 1, 2, 0, 1, 2, 0, 1, 2);
-        when(random.nextInt(eq(4))).thenReturn(0, 1, 2, 3, 0, 1, 2, 3, 0, 1, 2, 3);
 
         Zone zoneResult = zoneService.createZone(new Coordinate(0L, 0L, 0L));
 
         assertNotNull(zoneResult);
+        assertEquals(new Coordinate(0L, 0L, 0L), zoneResult.getOrigin());
+        assertFalse(zoneResult.isProcedural());
+        assertTrue(zoneResult.getTopRight().getX() - zoneResult.getBottomLeft().getX() >= 10);
+        assertTrue(zoneResult.getTopRight().getY() - zoneResult.getBottomLeft().getY() >= 10);
+        assertEquals(biome, zoneResult.getBiome());
+        assertEquals(2, (int)zoneResult.getElevation());
+        assertEquals(3, (int)zoneResult.getMoisture());
+        verify(zoneIndex).put(eq(zoneResult));
+    }
+
+    @Test
+    public void testCreateZoneProcedural() {
+        Zone zoneResult = zoneService.createZone(new Coordinate(4L, 2L, 0L), true);
+
+        assertEquals(new Coordinate(4L, 2L, 0L), zoneResult.getOrigin());
+        assertTrue(zoneResult.isProcedural());
+    }
+
+    @Test
+    public void testCreateZoneIsReproducible() {
+        Coordinate start = new Coordinate(3L, -8L, 0L);
+        Zone first = zoneService.createZone(start);
+        Zone second = zoneService.createZone(start);
+        Zone otherSeed = new ZoneService(zoneRepository, zoneIndex, whittakerGrid, new WorldSeed(4321L)).createZone(start);
+
+        assertEquals(first.getBottomLeft(), second.getBottomLeft());
+        assertEquals(first.getTopRight(), second.getTopRight());
+        assertFalse(first.getBottomLeft().equals(otherSeed.getBottomLeft()) && first.getTopRight().equals(otherSeed.getTopRight()));
+    }
+
+    @Test
+    public void testCreateZoneQueriesIndexOnce() {
+
+        zoneService.createZone(new Coordinate(0L, 0L, 0L));
+
+        verify(zoneIndex, times(1)).findZonesWithin(anyLong(), anyLong(), anyLong(), anyLong());
+        verify(zoneIndex).findZonesWithin(eq(76L), eq(76L), eq(-76L), eq(-76L));
+    }
+
+    @Test
+    public void testCreateZoneAvoidsNearbyZones() {
+        Zone blocker = buildZone(1L, -50L, 20L, 50L);
+        Zone distant = buildZone(-70L, 60L, -60L, 70L);
+
+        when(zoneIndex.findZonesWithin(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(Arrays.asList(blocker, distant));
+
+        Zone zoneResult = zoneService.createZone(new Coordinate(0L, 0L, 0L));
+
+        verify(whittakerGrid).select(neighborsCaptor.capture(), any(SplittableRandom.class));
+
+        assertEquals(0L, zoneResult.getTopRight().getX());
+        assertTrue(zoneResult.getTopRight().getY() - zoneResult.getBottomLeft().getY() >= 10);
+        assertEquals(Collections.singletonList(blocker), neighborsCaptor.getValue());
+    }
+
+    @Test
+    public void testCreateZoneRetriesAfterConflict() {
+        Zone elsewhere = mock(Zone.class);
+        List<Zone> collisions = new ArrayList<>();
+
+        collisions.add(elsewhere);
+
+        doReturn(0).when(zoneRepository).insertIfVacant(any(Zone.class));
+        when(zoneRepository.findZonesWithin(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(collisions);
+        when(zoneIndex.findZoneAtPoint(eq(0L), eq(0L))).thenReturn(null, elsewhere);
+
+        Zone zoneResult = zoneService.createZone(new Coordinate(0L, 0L, 0L));
+
+        assertEquals(elsewhere, zoneResult);
+        verify(zoneIndex).putCommitted(eq(elsewhere));
+        verify(zoneIndex, never()).put(any(Zone.class));
+        assertEquals(1L, metric("zone.conflicts"));
+        assertEquals(0L, metric("zone.created"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreateZoneGivesUp() {
+        doReturn(0).when(zoneRepository).insertIfVacant(any(Zone.class));
+        when(zoneRepository.findZonesWithin(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+
+        zoneService.createZone(new Coordinate(0L, 0L, 0L));
+    }
+
+    @Test
+    public void testCreateZoneGivesUpCounted() {
+        doReturn(0).when(zoneRepository).insertIfVacant(any(Zone.class));
+        when(zoneRepository.findZonesWithin(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(new ArrayList<>());
+
+        try {
+            zoneService.createZone(new Coordinate(0L, 0L, 0L));
+            fail("Expected createZone to give up");
+        } catch (IllegalStateException e) {
+            assertEquals(5L, metric("zone.conflicts"));
+            assertEquals(1L, metric("zone.exhausted"));
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        zoneService.createZone(new Coordinate(0L, 0L, 0L));
+
+        assertEquals(3, zoneService.metrics().size());
+        assertEquals(1L, metric("zone.created"));
+        assertEquals(0L, metric("zone.conflicts"));
+    }
+
+    private long metric(String name) {
+        return zoneService.metrics()
+                .stream()
+                .filter(metric -> name.equals(metric.getName()))
+                .findFirst()
+                .map(metric -> metric.getValue().longValue())
+                .orElseThrow(() -> new AssertionError("No metric " + name));
+    }
+
+    private Zone buildZone(long left, long bottom, long right, long top) {
+        Zone zone = new Zone();
+
+        zone.setId(UUID.randomUUID());
+        zone.setBottomLeft(new Coordinate(left, bottom, 0L));
+        zone.setTopRight(new Coordinate(right, top, 0L));
+
+        return zone;
     }
 }
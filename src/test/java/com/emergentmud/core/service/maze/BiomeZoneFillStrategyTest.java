@@ -0,0 +1,104 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Biome;
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BiomeZoneFillStrategyTest {
+    @Mock
+    private GrowingTreeMazeStrategy growingTreeMazeStrategy;
+
+    @Mock
+    private EllerMazeStrategy ellerMazeStrategy;
+
+    @Mock
+    private Room room;
+
+    @Mock
+    private ZoneLayout zoneLayout;
+
+    private Coordinate start = new Coordinate(0L, 0L, 0L);
+    private Zone zone = new Zone();
+
+    private BiomeZoneFillStrategy strategy;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(growingTreeMazeStrategy.fillZone(zone, start)).thenReturn(room);
+        when(ellerMazeStrategy.fillZone(zone, start)).thenReturn(room);
+        when(growingTreeMazeStrategy.layoutZone(zone, start)).thenReturn(zoneLayout);
+        when(ellerMazeStrategy.layoutZone(zone, start)).thenReturn(zoneLayout);
+
+        strategy = new BiomeZoneFillStrategy(growingTreeMazeStrategy, ellerMazeStrategy);
+    }
+
+    @Test
+    public void testFillZoneGrowingTree() throws Exception {
+        zone.setBiome(new Biome("Test", 0, "randomCellSelectionStrategy"));
+
+        assertEquals(room, strategy.fillZone(zone, start));
+
+        verify(growingTreeMazeStrategy).fillZone(zone, start);
+        verifyZeroInteractions(ellerMazeStrategy);
+    }
+
+    @Test
+    public void testFillZoneEller() throws Exception {
+        zone.setBiome(new Biome("Test", 0, EllerMazeStrategy.NAME));
+
+        assertEquals(room, strategy.fillZone(zone, start));
+
+        verify(ellerMazeStrategy).fillZone(zone, start);
+        verifyZeroInteractions(growingTreeMazeStrategy);
+    }
+
+    @Test
+    public void testLayoutZoneGrowingTree() throws Exception {
+        zone.setBiome(new Biome("Test", 0, "randomCellSelectionStrategy"));
+
+        assertEquals(zoneLayout, strategy.layoutZone(zone, start));
+
+        verify(growingTreeMazeStrategy).layoutZone(zone, start);
+        verifyZeroInteractions(ellerMazeStrategy);
+    }
+
+    @Test
+    public void testLayoutZoneEller() throws Exception {
+        zone.setBiome(new Biome("Test", 0, EllerMazeStrategy.NAME));
+
+        assertEquals(zoneLayout, strategy.layoutZone(zone, start));
+
+        verify(ellerMazeStrategy).layoutZone(zone, start);
+        verifyZeroInteractions(growingTreeMazeStrategy);
+    }
+}
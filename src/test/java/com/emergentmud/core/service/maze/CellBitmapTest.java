@@ -0,0 +1,86 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Zone;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CellBitmapTest {
+    private CellBitmap bitmap;
+
+    @Before
+    public void setUp() throws Exception {
+        Zone zone = new Zone();
+
+        zone.setBottomLeft(new Coordinate(-5L, 10L, 0L));
+        zone.setTopRight(new Coordinate(4L, 19L, 0L));
+
+        bitmap = new CellBitmap(zone);
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        Coordinate cell = new Coordinate(0L, 15L, 0L);
+
+        assertFalse(bitmap.contains(cell));
+
+        bitmap.add(cell);
+
+        assertTrue(bitmap.contains(cell));
+        assertFalse(bitmap.contains(new Coordinate(1L, 15L, 0L)));
+        assertEquals(1, bitmap.size());
+
+        bitmap.remove(cell);
+
+        assertFalse(bitmap.contains(cell));
+        assertEquals(0, bitmap.size());
+    }
+
+    @Test
+    public void testCorners() throws Exception {
+        bitmap.add(new Coordinate(-5L, 10L, 0L));
+        bitmap.add(new Coordinate(4L, 19L, 0L));
+
+        assertTrue(bitmap.contains(new Coordinate(-5L, 10L, 0L)));
+        assertTrue(bitmap.contains(new Coordinate(4L, 19L, 0L)));
+        assertFalse(bitmap.contains(new Coordinate(4L, 10L, 0L)));
+        assertFalse(bitmap.contains(new Coordinate(-5L, 19L, 0L)));
+    }
+
+    @Test
+    public void testOutsideZone() throws Exception {
+        assertFalse(bitmap.contains(new Coordinate(5L, 10L, 0L)));
+        assertFalse(bitmap.contains(new Coordinate(-6L, 10L, 0L)));
+        assertFalse(bitmap.contains(new Coordinate(0L, 9L, 0L)));
+        assertFalse(bitmap.contains(new Coordinate(0L, 20L, 0L)));
+
+        bitmap.remove(new Coordinate(0L, 20L, 0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOutsideZone() throws Exception {
+        bitmap.add(new Coordinate(0L, 20L, 0L));
+    }
+}
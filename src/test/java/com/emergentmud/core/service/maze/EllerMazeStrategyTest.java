@@ -0,0 +1,227 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Biome;
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Direction;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.RoomRepository;
+import com.emergentmud.core.service.RoomCache;
+import com.emergentmud.core.service.WorldSeed;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class EllerMazeStrategyTest {
+    private static final int BATCH_SIZE = 7;
+
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private RoomCache roomCache;
+
+    private List<Room> saved = new ArrayList<>();
+    private List<Integer> batches = new ArrayList<>();
+    private Zone zone;
+
+    private EllerMazeStrategy strategy;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(roomRepository.save(any(Iterable.class))).thenAnswer(invocation -> {
+            List<Room> batch = new ArrayList<>();
+
+            ((Iterable<Room>) invocation.getArguments()[0]).forEach(batch::add);
+            saved.addAll(batch);
+            batches.add(batch.size());
+
+            return batch;
+        });
+
+        zone = new Zone();
+        zone.setBottomLeft(new Coordinate(0L, 0L, 0L));
+        zone.setTopRight(new Coordinate(19L, 14L, 0L));
+        zone.setBiome(new Biome("Test", 0, EllerMazeStrategy.NAME));
+
+        strategy = new EllerMazeStrategy(roomRepository, roomCache, new WorldSeed(1234L), BATCH_SIZE);
+    }
+
+    @Test
+    public void testFillZone() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+
+        Room room = strategy.fillZone(zone, start);
+
+        assertNotNull(room);
+        assertEquals(start, room.getLocation());
+        assertIsPerfectMaze(start);
+    }
+
+    @Test
+    public void testFillZoneStartOnEvenCell() throws Exception {
+        Coordinate start = new Coordinate(0L, 14L, 0L);
+
+        Room room = strategy.fillZone(zone, start);
+
+        assertEquals(start, room.getLocation());
+        assertIsPerfectMaze(start);
+    }
+
+    @Test
+    public void testFillZoneOneRow() throws Exception {
+        Coordinate start = new Coordinate(0L, 0L, 0L);
+
+        zone.setTopRight(new Coordinate(9L, 0L, 0L));
+
+        strategy.fillZone(zone, start);
+
+        assertEquals(9, saved.size());
+        assertIsPerfectMaze(start);
+    }
+
+    @Test
+    public void testLayoutZoneMatchesFillZone() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+
+        strategy.fillZone(zone, start);
+
+        int carved = saved.size();
+        ZoneLayout layout = strategy.layoutZone(zone, start);
+
+        // laying out the zone carves the same rooms without saving any of them
+        assertEquals(carved, saved.size());
+        assertEquals(carved, layout.size());
+        saved.forEach(room -> assertTrue(layout.contains(room.getLocation())));
+        assertEquals(new HashSet<>(saved.stream().map(Room::getLocation).collect(Collectors.toList())),
+                layout.fetchRooms(zone.getBottomLeft(), zone.getTopRight()).stream().map(Room::getLocation).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testFillZoneIsReproducible() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+
+        strategy.fillZone(zone, start);
+        List<Coordinate> first = locations(saved);
+
+        saved.clear();
+        strategy.fillZone(zone, start);
+        List<Coordinate> second = locations(saved);
+
+        saved.clear();
+        new EllerMazeStrategy(roomRepository, roomCache, new WorldSeed(4321L), BATCH_SIZE).fillZone(zone, start);
+        List<Coordinate> otherSeed = locations(saved);
+
+        assertEquals(first, second);
+        assertNotEquals(first, otherSeed);
+    }
+
+    @Test
+    public void testFillZoneSavesInBatches() throws Exception {
+        strategy.fillZone(zone, new Coordinate(5L, 5L, 0L));
+
+        assertTrue(batches.size() > 1);
+        assertTrue(batches.stream().allMatch(size -> size <= BATCH_SIZE));
+        verify(roomCache, times(batches.size())).put(anyListOf(Room.class));
+    }
+
+    @Test
+    public void testFillZoneDoesNotLoadExistingRooms() throws Exception {
+        strategy.fillZone(zone, new Coordinate(5L, 5L, 0L));
+
+        verify(roomRepository, never()).findByLocationXBetweenAndLocationYBetweenAndLocationZ(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+        verify(roomRepository, never()).findByLocation(any(Coordinate.class));
+    }
+
+    /*
+     * Every room is reachable from the start and there are no loops, so there is exactly one
+     * fewer pair of adjacent rooms than there are rooms.
+     */
+    private List<Coordinate> locations(List<Room> rooms) {
+        List<Coordinate> locations = new ArrayList<>();
+
+        rooms.forEach(room -> locations.add(room.getLocation()));
+
+        return locations;
+    }
+
+    private void assertIsPerfectMaze(Coordinate start) {
+        Set<Coordinate> cells = new HashSet<>();
+
+        saved.forEach(r -> {
+            assertEquals(zone, r.getZone());
+            assertTrue(zone.encompasses(r.getLocation()));
+            assertTrue("Duplicate room at " + r.getLocation(), cells.add(r.getLocation()));
+        });
+
+        assertEquals(cells, reachableFrom(start, cells));
+
+        long pairs = cells
+                .stream()
+                .filter(cell -> cells.contains(new Coordinate(cell.getX() + 1, cell.getY(), cell.getZ())))
+                .count()
+                + cells
+                .stream()
+                .filter(cell -> cells.contains(new Coordinate(cell.getX(), cell.getY() + 1, cell.getZ())))
+                .count();
+
+        assertEquals(cells.size() - 1, pairs);
+    }
+
+    private Set<Coordinate> reachableFrom(Coordinate start, Set<Coordinate> cells) {
+        Set<Coordinate> reached = new HashSet<>();
+        LinkedList<Coordinate> open = new LinkedList<>();
+
+        open.add(start);
+        reached.add(start);
+
+        while (!open.isEmpty()) {
+            Coordinate cell = open.removeFirst();
+
+            for (Direction direction : Direction.DIRECTIONS) {
+                Coordinate next = new Coordinate(cell.getX() + direction.getX(), cell.getY() + direction.getY(), cell.getZ());
+
+                if (cells.contains(next) && reached.add(next)) {
+                    open.add(next);
+                }
+            }
+        }
+
+        return reached;
+    }
+}
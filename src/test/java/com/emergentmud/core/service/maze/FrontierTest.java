@@ -0,0 +1,138 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrontierTest {
+    private Frontier frontier;
+
+    @Before
+    public void setUp() throws Exception {
+        frontier = new Frontier(new Coordinate(100L, -100L, 3L));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue(frontier.isEmpty());
+        assertEquals(0, frontier.size());
+    }
+
+    @Test
+    public void testAddAndGet() throws Exception {
+        frontier.add(new Coordinate(100L, -100L, 3L));
+        frontier.add(new Coordinate(95L, -90L, 3L));
+        frontier.add(new Coordinate(-2000L, 5000L, 3L));
+
+        assertEquals(3, frontier.size());
+        assertEquals(new Coordinate(100L, -100L, 3L), frontier.get(0));
+        assertEquals(new Coordinate(95L, -90L, 3L), frontier.get(1));
+        assertEquals(new Coordinate(-2000L, 5000L, 3L), frontier.get(2));
+    }
+
+    @Test
+    public void testRemoveKeepsOrder() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            frontier.add(new Coordinate(i, 0L, 3L));
+        }
+
+        assertEquals(new Coordinate(2L, 0L, 3L), frontier.remove(2));
+        assertEquals(new Coordinate(0L, 0L, 3L), frontier.remove(0));
+        assertEquals(new Coordinate(4L, 0L, 3L), frontier.remove(2));
+
+        frontier.add(new Coordinate(5L, 0L, 3L));
+
+        assertEquals(3, frontier.size());
+        assertEquals(new Coordinate(1L, 0L, 3L), frontier.get(0));
+        assertEquals(new Coordinate(3L, 0L, 3L), frontier.get(1));
+        assertEquals(new Coordinate(5L, 0L, 3L), frontier.get(2));
+    }
+
+    @Test
+    public void testMoveToGap() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            frontier.add(new Coordinate(i, 0L, 3L));
+        }
+
+        frontier.remove(2);
+
+        int moved = frontier.moveToGap(0);
+
+        assertEquals(new Coordinate(0L, 0L, 3L), frontier.get(moved));
+        assertEquals(new Coordinate(0L, 0L, 3L), frontier.remove(moved));
+        assertEquals(3, frontier.size());
+    }
+
+    @Test
+    public void testMatchesList() throws Exception {
+        Random random = new Random(42L);
+        List<Coordinate> expected = new ArrayList<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int operation = random.nextInt(4);
+
+            if (expected.isEmpty() || operation < 2) {
+                Coordinate cell = new Coordinate(random.nextInt(1000) - 500, random.nextInt(1000) - 500, 3L);
+
+                expected.add(cell);
+                frontier.add(cell);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size());
+
+                assertEquals(expected.remove(index), frontier.remove(index));
+            } else {
+                int index = random.nextInt(expected.size());
+                Coordinate cell = expected.get(index);
+                int moved = frontier.moveToGap(index);
+
+                expected.set(index, expected.get(moved));
+                expected.set(moved, cell);
+
+                assertEquals(cell, frontier.get(moved));
+            }
+
+            assertEquals(expected.size(), frontier.size());
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), frontier.get(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() throws Exception {
+        frontier.add(new Coordinate(0L, 0L, 3L));
+        frontier.get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOtherLevel() throws Exception {
+        frontier.add(new Coordinate(0L, 0L, 4L));
+    }
+}
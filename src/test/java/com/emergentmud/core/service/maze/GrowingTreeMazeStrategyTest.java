@@ -0,0 +1,248 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Biome;
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Direction;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import com.emergentmud.core.repository.RoomRepository;
+import com.emergentmud.core.service.RoomCache;
+import com.emergentmud.core.service.WorldSeed;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class GrowingTreeMazeStrategyTest {
+    @Mock
+    private RoomRepository roomRepository;
+
+    @Mock
+    private RoomCache roomCache;
+
+    private List<Room> saved = new ArrayList<>();
+    private Map<String, CellSelectionStrategy> strategies = new HashMap<>();
+    private Zone zone;
+
+    private GrowingTreeMazeStrategy strategy;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        when(roomRepository.save(any(Iterable.class))).thenAnswer(invocation -> {
+            ((Iterable<Room>) invocation.getArguments()[0]).forEach(saved::add);
+
+            return saved;
+        });
+
+        zone = new Zone();
+        zone.setBottomLeft(new Coordinate(0L, 0L, 0L));
+        zone.setTopRight(new Coordinate(19L, 14L, 0L));
+        zone.setBiome(new Biome("Test", 0, "newestCellSelectionStrategy"));
+
+        strategies.put("halfNewestHalfRandomCellSelectionStrategy", new HalfNewestHalfRandomCellSelectionStrategy());
+        strategies.put("middleCellSelectionStrategy", new MiddleCellSelectionStrategy());
+        strategies.put("newestCellSelectionStrategy", new NewestCellSelectionStrategy());
+        strategies.put("oldestCellSelectionStrategy", new OldestCellSelectionStrategy());
+        strategies.put("randomCellSelectionStrategy", new RandomCellSelectionStrategy());
+
+        strategy = new GrowingTreeMazeStrategy(roomRepository, roomCache, new WorldSeed(1234L), strategies);
+    }
+
+    @Test
+    public void testFillZone() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+
+        Room room = strategy.fillZone(zone, start);
+
+        assertNotNull(room);
+        assertEquals(start, room.getLocation());
+        verify(roomCache).put(eq(saved));
+
+        Set<Coordinate> cells = new HashSet<>();
+
+        saved.forEach(r -> {
+            assertEquals(zone, r.getZone());
+            assertTrue(zone.encompasses(r.getLocation()));
+            assertTrue("Duplicate room at " + r.getLocation(), cells.add(r.getLocation()));
+        });
+
+        assertEquals(cells, reachableFrom(start, cells));
+    }
+
+    @Test
+    public void testFillZoneWithEveryStrategy() throws Exception {
+        Coordinate start = new Coordinate(0L, 14L, 0L);
+
+        for (String name : strategies.keySet()) {
+            saved.clear();
+            zone.setBiome(new Biome("Test", 0, name));
+
+            strategy.fillZone(zone, start);
+
+            Set<Coordinate> cells = new HashSet<>();
+
+            saved.forEach(r -> assertTrue(name, cells.add(r.getLocation())));
+
+            assertTrue(name, cells.size() > 1);
+            assertEquals(name, cells, reachableFrom(start, cells));
+        }
+    }
+
+    @Test
+    public void testLayoutZoneMatchesFillZone() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+
+        zone.setBiome(new Biome("Test", 0, "randomCellSelectionStrategy"));
+        strategy.fillZone(zone, start);
+
+        int carved = saved.size();
+        ZoneLayout layout = strategy.layoutZone(zone, start);
+
+        // laying out the zone carves the same rooms without saving any of them
+        assertEquals(carved, saved.size());
+        assertEquals(carved, layout.size());
+        saved.forEach(room -> assertTrue(layout.contains(room.getLocation())));
+        assertEquals(new HashSet<>(saved.stream().map(Room::getLocation).collect(Collectors.toList())),
+                layout.fetchRooms(zone.getBottomLeft(), zone.getTopRight()).stream().map(Room::getLocation).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testFillZoneIsReproducible() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+
+        zone.setBiome(new Biome("Test", 0, "randomCellSelectionStrategy"));
+
+        strategy.fillZone(zone, start);
+        List<Coordinate> first = locations(saved);
+
+        saved.clear();
+        strategy.fillZone(zone, start);
+        List<Coordinate> second = locations(saved);
+
+        saved.clear();
+        new GrowingTreeMazeStrategy(roomRepository, roomCache, new WorldSeed(4321L), strategies).fillZone(zone, start);
+        List<Coordinate> otherSeed = locations(saved);
+
+        assertEquals(first, second);
+        assertNotEquals(first, otherSeed);
+    }
+
+    @Test
+    public void testFillZoneAvoidsExistingRooms() throws Exception {
+        Coordinate start = new Coordinate(5L, 5L, 0L);
+        Coordinate existing = new Coordinate(6L, 5L, 0L);
+
+        Room existingRoom = new Room();
+        List<Room> existingRooms = new ArrayList<>();
+
+        existingRoom.setLocation(existing);
+        existingRooms.add(existingRoom);
+
+        when(roomRepository.findByLocationXBetweenAndLocationYBetweenAndLocationZ(0L, 19L, 0L, 14L, 0L)).thenReturn(existingRooms);
+
+        strategy.fillZone(zone, start);
+
+        assertTrue(saved.stream().noneMatch(r -> existing.equals(r.getLocation())));
+        verify(roomRepository).findByLocationXBetweenAndLocationYBetweenAndLocationZ(0L, 19L, 0L, 14L, 0L);
+        verify(roomCache, never()).fetchRoom(any(Coordinate.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFillZonesConcurrently() throws Exception {
+        List<Room> results = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+
+        doAnswer(invocation -> invocation.getArguments()[0]).when(roomRepository).save(any(Iterable.class));
+
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    results.add(strategy.fillZone(zone, new Coordinate(5L, 5L, 0L)));
+                }
+            });
+
+            thread.setUncaughtExceptionHandler((t, e) -> errors.add(e));
+            threads.add(thread);
+        }
+
+        threads.forEach(Thread::start);
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(Collections.emptyList(), errors);
+        assertEquals(200, results.size());
+        assertTrue(results.stream().allMatch(Objects::nonNull));
+    }
+
+    private List<Coordinate> locations(List<Room> rooms) {
+        List<Coordinate> locations = new ArrayList<>();
+
+        rooms.forEach(room -> locations.add(room.getLocation()));
+
+        return locations;
+    }
+
+    private Set<Coordinate> reachableFrom(Coordinate start, Set<Coordinate> cells) {
+        Set<Coordinate> reached = new HashSet<>();
+        LinkedList<Coordinate> open = new LinkedList<>();
+
+        open.add(start);
+        reached.add(start);
+
+        while (!open.isEmpty()) {
+            Coordinate cell = open.removeFirst();
+
+            for (Direction direction : Direction.DIRECTIONS) {
+                Coordinate next = new Coordinate(cell.getX() + direction.getX(), cell.getY() + direction.getY(), cell.getZ());
+
+                if (cells.contains(next) && reached.add(next)) {
+                    open.add(next);
+                }
+            }
+        }
+
+        return reached;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.service.maze;
+
+import com.emergentmud.core.model.Coordinate;
+import com.emergentmud.core.model.Room;
+import com.emergentmud.core.model.Zone;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ZoneLayoutTest {
+    private Zone zone;
+    private ZoneLayout layout;
+
+    @Before
+    public void setUp() throws Exception {
+        zone = new Zone();
+        zone.setId(UUID.randomUUID());
+        zone.setBottomLeft(new Coordinate(-5L, -5L, 2L));
+        zone.setTopRight(new Coordinate(5L, 4L, 2L));
+
+        CellBitmap cells = new CellBitmap(zone);
+
+        cells.add(new Coordinate(0L, 0L, 2L));
+        cells.add(new Coordinate(1L, 0L, 2L));
+        cells.add(new Coordinate(-5L, 4L, 2L));
+
+        layout = new ZoneLayout(zone, 2L, cells);
+    }
+
+    @Test
+    public void testContains() {
+        assertTrue(layout.contains(new Coordinate(0L, 0L, 2L)));
+        assertFalse(layout.contains(new Coordinate(0L, 1L, 2L)));
+        assertFalse(layout.contains(new Coordinate(0L, 0L, 3L)));
+        assertFalse(layout.contains(new Coordinate(50L, 50L, 2L)));
+    }
+
+    @Test
+    public void testFetchRoom() {
+        Coordinate location = new Coordinate(1L, 0L, 2L);
+        Room room = layout.fetchRoom(location);
+
+        assertEquals(location, room.getLocation());
+        assertEquals(zone, room.getZone());
+        assertNull(room.getId());
+    }
+
+    @Test
+    public void testFetchRoomWall() {
+        assertNull(layout.fetchRoom(new Coordinate(2L, 0L, 2L)));
+    }
+
+    @Test
+    public void testFetchRooms() {
+        List<Room> rooms = layout.fetchRooms(new Coordinate(-100L, -100L, 0L), new Coordinate(0L, 100L, 5L));
+
+        assertEquals(2, rooms.size());
+        assertTrue(rooms.stream().anyMatch(room -> room.getLocation().equals(new Coordinate(0L, 0L, 2L))));
+        assertTrue(rooms.stream().anyMatch(room -> room.getLocation().equals(new Coordinate(-5L, 4L, 2L))));
+    }
+
+    @Test
+    public void testFetchRoomsOtherLevel() {
+        assertTrue(layout.fetchRooms(new Coordinate(-100L, -100L, 3L), new Coordinate(100L, 100L, 3L)).isEmpty());
+    }
+
+    @Test
+    public void testSizeAndWeight() {
+        assertEquals(3, layout.size());
+        assertEquals(110L, layout.getWeight());
+    }
+}
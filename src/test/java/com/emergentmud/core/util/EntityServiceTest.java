@@ -26,8 +26,9 @@ import com.emergentmud.core.model.Entity;
 import com.emergentmud.core.model.Room;
 import com.emergentmud.core.model.stomp.GameOutput;
 import com.emergentmud.core.repository.EntityRepository;
-import com.emergentmud.core.repository.RoomRepository;
 import com.emergentmud.core.service.EntityService;
+import com.emergentmud.core.service.OccupancyIndex;
+import com.emergentmud.core.service.SessionBindingService;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -52,7 +53,7 @@ public class EntityServiceTest {
     private EntityRepository entityRepository;
 
     @Mock
-    private RoomRepository roomRepository;
+    private OccupancyIndex occupancyIndex;
 
     @Mock
     private SimpMessagingTemplate simpMessagingTemplate;
@@ -77,6 +78,7 @@ public class EntityServiceTest {
 
     private Coordinate origin = new Coordinate(0, 0, 0);
     private List<Entity> contents;
+    private SessionBindingService sessionBindingService = new SessionBindingService();
 
     private EntityService entityService;
 
@@ -86,9 +88,8 @@ public class EntityServiceTest {
 
         contents = generateContents();
 
-        when(roomRepository.findByLocation(eq(origin))).thenReturn(room);
         when(room.getLocation()).thenReturn(origin);
-        when(entityRepository.findByLocation(eq(origin))).thenReturn(contents);
+        when(occupancyIndex.getOccupants(eq(origin))).thenReturn(contents);
         when(entityRepository.findByNameStartingWithIgnoreCaseAndLocationIsNotNull(eq("Stu"))).thenReturn(stu);
         when(entityRepository.findByNameStartingWithIgnoreCase(eq("Stu"))).thenReturn(stu);
         when(entity.getId()).thenReturn(UUID.randomUUID());
@@ -96,7 +97,7 @@ public class EntityServiceTest {
         when(entity.getStompSessionId()).thenReturn("stompSessionId");
         when(entity.getStompUsername()).thenReturn("stompUsername");
 
-        entityService = new EntityService(entityRepository, roomRepository, simpMessagingTemplate, promptBuilder);
+        entityService = new EntityService(entityRepository, occupancyIndex, simpMessagingTemplate, promptBuilder, sessionBindingService);
     }
 
     @Test
@@ -123,6 +124,14 @@ public class EntityServiceTest {
         verifyContents();
     }
 
+    @Test
+    public void testSendMessageToRoomByRoom() {
+        entityService.sendMessageToRoom(room, entity, output);
+
+        verifyContents();
+        verifyZeroInteractions(entityRepository);
+    }
+
     @Test
     public void testSendMessageToRoomWithExclude() {
         Entity excludeMe = mock(Entity.class);
@@ -163,6 +172,22 @@ public class EntityServiceTest {
         assertTrue(entityOptional.isPresent());
     }
 
+    @Test
+    public void testEntitySearchReturnsBoundEntity() {
+        UUID stuId = UUID.randomUUID();
+        Entity live = mock(Entity.class);
+
+        when(stu.getId()).thenReturn(stuId);
+        when(live.getId()).thenReturn(stuId);
+
+        sessionBindingService.bind("simpSessionId", "principal", "breadcrumb", live);
+
+        Optional<Entity> entityOptional = entityService.entitySearchGlobal(entity, "Stu");
+
+        assertTrue(entityOptional.isPresent());
+        assertEquals(live, entityOptional.get());
+    }
+
     @Test
     public void testEntitySearchRoomNotFound() {
         Optional<Entity> entityOptional = entityService.entitySearchRoom(entity, "Stu");
@@ -179,7 +204,7 @@ public class EntityServiceTest {
 
     @Test
     public void testEntitySearchInWorldDifferentRoom() {
-        when(entityRepository.findByLocation(origin)).thenReturn(Collections.emptyList());
+        when(occupancyIndex.getOccupants(origin)).thenReturn(Collections.emptyList());
 
         Optional<Entity> entityOptional = entityService.entitySearchInWorld(entity, "Stu");
 
@@ -188,7 +213,7 @@ public class EntityServiceTest {
 
     @Test
     public void testEntitySearchInWorldNotInWorld() {
-        when(entityRepository.findByLocation(origin)).thenReturn(Collections.emptyList());
+        when(occupancyIndex.getOccupants(origin)).thenReturn(Collections.emptyList());
         when(entityRepository.findByNameStartingWithIgnoreCaseAndLocationIsNotNull(eq("Fred"))).thenReturn(null);
 
         Optional<Entity> entityOptional = entityService.entitySearchInWorld(entity, "Fred");
@@ -205,7 +230,7 @@ public class EntityServiceTest {
 
     @Test
     public void testEntitySearchGlobalDifferentRoom() {
-        when(entityRepository.findByLocation(origin)).thenReturn(Collections.emptyList());
+        when(occupancyIndex.getOccupants(origin)).thenReturn(Collections.emptyList());
 
         Optional<Entity> entityOptional = entityService.entitySearchGlobal(entity, "Stu");
 
@@ -214,7 +239,7 @@ public class EntityServiceTest {
 
     @Test
     public void testEntitySearchGlobalOffline() {
-        when(entityRepository.findByLocation(origin)).thenReturn(Collections.emptyList());
+        when(occupancyIndex.getOccupants(origin)).thenReturn(Collections.emptyList());
         when(entityRepository.findByNameStartingWithIgnoreCaseAndLocationIsNotNull(eq("Stu"))).thenReturn(null);
 
         Optional<Entity> entityOptional = entityService.entitySearchGlobal(entity, "Stu");
@@ -224,7 +249,7 @@ public class EntityServiceTest {
 
     @Test
     public void testEntitySearchGlobalNoSuchEntity() {
-        when(entityRepository.findByLocation(origin)).thenReturn(Collections.emptyList());
+        when(occupancyIndex.getOccupants(origin)).thenReturn(Collections.emptyList());
         when(entityRepository.findByNameStartingWithIgnoreCaseAndLocationIsNotNull(eq("Stu"))).thenReturn(null);
         when(entityRepository.findByNameStartingWithIgnoreCase(eq("Stu"))).thenReturn(null);
 
@@ -24,6 +24,9 @@ import com.emergentmud.core.service.InputService;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.*;
 
 public class InputServiceTest {
@@ -73,4 +76,40 @@ public class InputServiceTest {
 
         assertEquals("baker   charlie   dog   easy  fox", out);
     }
+
+    @Test
+    public void testSplitCommands() throws Exception {
+        assertEquals(Arrays.asList("n", "say hi there", "look"), inputService.splitCommands("n; say hi there; ;look "));
+    }
+
+    @Test
+    public void testSplitEscapedSemicolon() throws Exception {
+        assertEquals(Arrays.asList("say wait; what?", "n"), inputService.splitCommands("say wait;; what?;n"));
+        assertEquals(Collections.singletonList("emote winks ;;)"), inputService.splitCommands("emote winks ;;;;)"));
+    }
+
+    @Test
+    public void testSplitBlank() throws Exception {
+        assertEquals(Collections.singletonList(""), inputService.splitCommands(" ; "));
+    }
+
+    @Test
+    public void testIsSpeedwalk() throws Exception {
+        assertTrue(inputService.isSpeedwalk("n"));
+        assertTrue(inputService.isSpeedwalk("3n2es"));
+        assertTrue(inputService.isSpeedwalk("nnew"));
+        assertFalse(inputService.isSpeedwalk("look"));
+        assertFalse(inputService.isSpeedwalk("3"));
+        assertFalse(inputService.isSpeedwalk("100n"));
+        assertFalse(inputService.isSpeedwalk("0n"));
+        assertFalse(inputService.isSpeedwalk("2n0e"));
+        assertFalse(inputService.isSpeedwalk("n e"));
+    }
+
+    @Test
+    public void testExpandSpeedwalk() throws Exception {
+        assertEquals(
+                Arrays.asList("north", "north", "north", "east", "east", "south", "west"),
+                inputService.expandSpeedwalk("3n2esw"));
+    }
 }
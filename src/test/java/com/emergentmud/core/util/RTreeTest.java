@@ -0,0 +1,136 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RTreeTest {
+    private RTree<String> tree;
+
+    @Before
+    public void setUp() throws Exception {
+        tree = new RTree<>();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue(tree.search(0, 0, 10, 10).isEmpty());
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void testPointSearch() throws Exception {
+        tree.insert(0, 0, 9, 9, "a");
+        tree.insert(10, 0, 19, 9, "b");
+
+        assertEquals("a", tree.search(0, 0, 0, 0).get(0));
+        assertEquals("a", tree.search(9, 9, 9, 9).get(0));
+        assertEquals("b", tree.search(10, 0, 10, 0).get(0));
+        assertTrue(tree.search(20, 0, 20, 0).isEmpty());
+        assertTrue(tree.search(-1, 0, -1, 0).isEmpty());
+    }
+
+    @Test
+    public void testRectangleSearch() throws Exception {
+        tree.insert(0, 0, 9, 9, "a");
+        tree.insert(10, 0, 19, 9, "b");
+        tree.insert(0, 10, 9, 19, "c");
+
+        List<String> found = tree.search(5, 5, 12, 12);
+
+        assertEquals(3, found.size());
+        assertTrue(tree.search(10, 10, 12, 12).isEmpty());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        tree.insert(0, 0, 9, 9, "a");
+        tree.insert(10, 0, 19, 9, "b");
+
+        assertFalse(tree.remove(0, 0, 9, 8, "a"));
+        assertFalse(tree.remove(0, 0, 9, 9, "b"));
+        assertTrue(tree.remove(0, 0, 9, 9, "a"));
+
+        assertTrue(tree.search(0, 0, 0, 0).isEmpty());
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        Random random = new Random(1234L);
+        List<long[]> rectangles = new ArrayList<>();
+
+        // a grid of non-overlapping zones, inserted in random order
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 40; y++) {
+                rectangles.add(new long[] { x * 10, y * 10, x * 10 + random.nextInt(10), y * 10 + random.nextInt(10) });
+            }
+        }
+
+        Collections.shuffle(rectangles, random);
+        rectangles.forEach(r -> tree.insert(r[0], r[1], r[2], r[3], key(r)));
+
+        for (int i = 0; i < rectangles.size(); i += 3) {
+            long[] r = rectangles.get(i);
+
+            assertTrue(tree.remove(r[0], r[1], r[2], r[3], key(r)));
+        }
+
+        List<long[]> remaining = new ArrayList<>();
+
+        for (int i = 0; i < rectangles.size(); i++) {
+            if (i % 3 != 0) {
+                remaining.add(rectangles.get(i));
+            }
+        }
+
+        assertEquals(remaining.size(), tree.size());
+        assertTrue(tree.height() < 6);
+
+        for (int i = 0; i < 500; i++) {
+            long minX = random.nextInt(420) - 10;
+            long minY = random.nextInt(420) - 10;
+            long maxX = minX + random.nextInt(30);
+            long maxY = minY + random.nextInt(30);
+            Set<String> expected = new HashSet<>();
+
+            remaining.stream()
+                    .filter(r -> r[0] <= maxX && r[2] >= minX && r[1] <= maxY && r[3] >= minY)
+                    .forEach(r -> expected.add(key(r)));
+
+            assertEquals(expected, new HashSet<>(tree.search(minX, minY, maxX, maxY)));
+        }
+    }
+
+    private String key(long[] r) {
+        return String.format("%d,%d,%d,%d", r[0], r[1], r[2], r[3]);
+    }
+}
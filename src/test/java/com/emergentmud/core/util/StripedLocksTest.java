@@ -0,0 +1,113 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.*;
+
+public class StripedLocksTest {
+    private StripedLocks stripedLocks;
+
+    @Before
+    public void setUp() throws Exception {
+        stripedLocks = new StripedLocks(16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStripesMustBePowerOfTwo() throws Exception {
+        new StripedLocks(12);
+    }
+
+    @Test
+    public void testIndexWithinStripes() throws Exception {
+        for (int i = -1000; i < 1000; i++) {
+            int index = stripedLocks.indexOf(i);
+
+            assertTrue(index >= 0 && index < 16);
+        }
+    }
+
+    @Test
+    public void testSharedStripesAreLockedOnce() throws Exception {
+        List<Lock> locks = stripedLocks.lockAll(Arrays.asList("a", "a", "b"));
+
+        assertEquals(stripedLocks.indexOf("a") == stripedLocks.indexOf("b") ? 1 : 2, locks.size());
+
+        stripedLocks.unlockAll(locks);
+    }
+
+    @Test
+    public void testLockBlocksSameKey() throws Exception {
+        List<Lock> locks = stripedLocks.lockAll(Arrays.asList("a", "b"));
+        CountDownLatch acquired = new CountDownLatch(1);
+        AtomicBoolean released = new AtomicBoolean();
+
+        Thread other = new Thread(() -> {
+            List<Lock> otherLocks = stripedLocks.lockAll(Arrays.asList("b", "c"));
+
+            assertTrue(released.get());
+            acquired.countDown();
+            stripedLocks.unlockAll(otherLocks);
+        });
+
+        other.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        released.set(true);
+        stripedLocks.unlockAll(locks);
+
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        other.join();
+    }
+
+    @Test
+    public void testOppositeOrdersDoNotDeadlock() throws Exception {
+        Thread[] threads = new Thread[] {
+                new Thread(() -> lockRepeatedly(Arrays.asList("a", "b", "c"))),
+                new Thread(() -> lockRepeatedly(Arrays.asList("c", "b", "a")))
+        };
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    private void lockRepeatedly(List<String> keys) {
+        for (int i = 0; i < 10000; i++) {
+            stripedLocks.unlockAll(stripedLocks.lockAll(keys));
+        }
+    }
+}
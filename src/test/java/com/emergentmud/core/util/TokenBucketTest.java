@@ -0,0 +1,71 @@
+/*
+ * EmergentMUD - A modern MUD with a procedurally generated world.
+ * Copyright (C) 2016-2018 Peter Keeler
+ *
+ * This file is part of EmergentMUD.
+ *
+ * EmergentMUD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EmergentMUD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.emergentmud.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+    private long now = 0L;
+
+    private TokenBucket tokenBucket;
+
+    @Before
+    public void setUp() throws Exception {
+        tokenBucket = new TokenBucket(2.0, 3.0, () -> now);
+    }
+
+    @Test
+    public void testBurst() throws Exception {
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+    }
+
+    @Test
+    public void testRefill() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            tokenBucket.tryConsume();
+        }
+
+        now += 400_000_000L;
+
+        assertFalse(tokenBucket.tryConsume());
+
+        now += 100_000_000L;
+
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+    }
+
+    @Test
+    public void testRefillIsCapped() throws Exception {
+        now += 60_000_000_000L;
+
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+    }
+}